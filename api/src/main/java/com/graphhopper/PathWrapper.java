@@ -330,4 +330,34 @@ public class PathWrapper {
     public void setImpossible(boolean impossible) {
         this.impossible = impossible;
     }
+
+    /**
+     * @return a copy of this path with its own points, instructions and details, so it can be modified without
+     * changing this path. The debug information is not copied as it describes the calculation of this path.
+     */
+    public PathWrapper copy() {
+        PathWrapper copy = new PathWrapper();
+        copy.errors.addAll(errors);
+        copy.description = description == null ? null : new ArrayList<>(description);
+        copy.distance = distance;
+        copy.ascend = ascend;
+        copy.descend = descend;
+        copy.routeWeight = routeWeight;
+        copy.time = time;
+        copy.instructions = instructions == null ? null : instructions.copy();
+        copy.waypointList = waypointList == PointList.EMPTY ? waypointList : waypointList.clone(false);
+        copy.pointList = pointList == PointList.EMPTY ? pointList : pointList.clone(false);
+        copy.numChanges = numChanges;
+        copy.legs.addAll(legs);
+        for (Map.Entry<String, List<PathDetail>> entry : pathDetails.entrySet()) {
+            List<PathDetail> details = new ArrayList<>(entry.getValue().size());
+            for (PathDetail detail : entry.getValue()) {
+                details.add(detail.copy());
+            }
+            copy.pathDetails.put(entry.getKey(), details);
+        }
+        copy.fare = fare;
+        copy.impossible = impossible;
+        return copy;
+    }
 }
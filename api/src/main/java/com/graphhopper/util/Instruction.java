@@ -21,7 +21,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-public class Instruction {
+public class Instruction implements Cloneable {
     public static final int UNKNOWN = -99;
     public static final int U_TURN_UNKNOWN = -98;
     public static final int U_TURN_LEFT = -8;
@@ -64,6 +64,23 @@ public class Instruction {
         this.annotation = ia;
     }
 
+    /**
+     * @return a copy of this instruction with its own points and extra information, so it can be modified without
+     * changing this instruction
+     */
+    public Instruction copy() {
+        Instruction copy;
+        try {
+            // also copies the fields of the subclasses
+            copy = (Instruction) clone();
+        } catch (CloneNotSupportedException ex) {
+            throw new IllegalStateException(ex);
+        }
+        copy.points = points == PointList.EMPTY ? points : points.clone(false);
+        copy.extraInfo = new HashMap<>(extraInfo);
+        return copy;
+    }
+
     /**
      * This method does not perform translation or combination with the sign - it just uses the
      * provided name as instruction.
@@ -46,6 +46,17 @@ public class InstructionList extends AbstractList<Instruction> {
         this.tr = tr;
     }
 
+    /**
+     * @return a copy of this list that contains copies of the instructions
+     */
+    public InstructionList copy() {
+        InstructionList copy = new InstructionList(instructions.size(), tr);
+        for (Instruction instruction : instructions) {
+            copy.add(instruction.copy());
+        }
+        return copy;
+    }
+
     @Override
     public int size() {
         return instructions.size();
@@ -78,6 +89,17 @@ public class InstructionList extends AbstractList<Instruction> {
         instructions.set(instructions.size() - 1, instr);
     }
 
+    /**
+     * @return the text of the specified instruction for the JSON output, i.e. the turn description translated
+     * with the translation of this list or the message of the annotation if there is no turn description
+     */
+    public String getTurnDescription(Instruction instruction) {
+        String text = instruction.getTurnDescription(tr);
+        if (Helper.isEmpty(text))
+            text = instruction.getAnnotation().getMessage();
+        return Helper.firstBig(text);
+    }
+
     public List<Map<String, Object>> createJson() {
         List<Map<String, Object>> instrList = new ArrayList<>(instructions.size());
         int pointsIndex = 0;
@@ -87,10 +109,7 @@ public class InstructionList extends AbstractList<Instruction> {
             instrList.add(instrJson);
 
             InstructionAnnotation ia = instruction.getAnnotation();
-            String text = instruction.getTurnDescription(tr);
-            if (Helper.isEmpty(text))
-                text = ia.getMessage();
-            instrJson.put("text", Helper.firstBig(text));
+            instrJson.put("text", getTurnDescription(instruction));
             if (!ia.isEmpty()) {
                 instrJson.put("annotation_text", ia.getMessage());
                 instrJson.put("annotation_importance", ia.getImportance());
@@ -66,6 +66,18 @@ public class Parameters {
             public static final String MAX_WEIGHT = ALT_ROUTE + ".max_weight_factor";
 
             public static final String MAX_SHARE = ALT_ROUTE + ".max_share_factor";
+
+            /**
+             * The part of a CH alternative around its via node that has to be a shortest path, relative to the
+             * optimal weight.
+             */
+            public static final String LOCAL_OPTIMALITY = ALT_ROUTE + ".local_optimality_factor";
+
+            /**
+             * This property name configures at start how many threads test the candidates of a CH alternative route
+             * request. By default the thread of the request is used.
+             */
+            public static final String INIT_CH_THREADS = ROUTING_INIT_PREFIX + "ch." + ALT_ROUTE + ".threads";
         }
 
         public static final class AStar {
@@ -124,6 +136,28 @@ public class Parameters {
          * a rectangle lat1,lon1,lat2,lon2
          */
         public static final String BLOCK_AREA = "block_area";
+        /**
+         * true or false. If true dijkstra, dijkstrabi, astar and astarbi and the dijkstrabi of CH store their
+         * shortest path trees in pooled primitive arrays instead of objects. (not for edge based traversal)
+         */
+        public static final String NATIVE_SEARCH = "native_search";
+        /**
+         * true or false. If true every thread reuses its QueryGraphs for the following requests and native_search is
+         * used by default, see GraphHopper.setReuseRequestState
+         */
+        public static final String INIT_REUSE_REQUEST_STATE = ROUTING_INIT_PREFIX + "reuse_request_state";
+        /**
+         * the maximum number of cached route responses or 0 to disable the cache, see GraphHopper.setRouteCache
+         */
+        public static final String INIT_CACHE_SIZE = ROUTING_INIT_PREFIX + "cache.size";
+        /**
+         * the time in seconds after which a cached route response expires or 0 if they do not expire
+         */
+        public static final String INIT_CACHE_TTL = ROUTING_INIT_PREFIX + "cache.ttl";
+        /**
+         * the maximum number of entries, i.e. from points times to points, of a matrix request
+         */
+        public static final String INIT_MAX_MATRIX_SIZE = ROUTING_INIT_PREFIX + "matrix.max_size";
     }
 
     /**
@@ -163,6 +197,11 @@ public class Parameters {
          * Default for active count
          */
         public static final String ACTIVE_COUNT_DEFAULT = ROUTING_INIT_PREFIX + ACTIVE_COUNT;
+        /**
+         * Specifies after how many visited nodes the active landmarks are selected again for the current nodes of
+         * the search. 0 means never.
+         */
+        public static final String ACTIVE_RECALCULATION_INTERVAL = "lm.active_recalculation_interval";
         /**
          * Specifies how many landmarks should be created
          */
@@ -173,6 +212,38 @@ public class Parameters {
         public static final String INIT_DISABLING_ALLOWED = ROUTING_INIT_PREFIX + "lm.disabling_allowed";
     }
 
+    /**
+     * Properties for routing with customizable contraction hierarchies speedup
+     */
+    public static final class CCH {
+        public static final String PREPARE = "prepare.cch.";
+        /**
+         * This property name in HintsMap configures at runtime if the customizable contraction hierarchies should be
+         * ignored.
+         */
+        public static final String DISABLE = "cch.disable";
+    }
+
+    /**
+     * Properties for time-dependent routing with weekly speed profiles
+     */
+    public static final class TimeDependent {
+        public static final String PREPARE = "prepare.time_dependent.";
+        /**
+         * Specifies the file with the historical speed profiles that is read on import
+         */
+        public static final String FILE = PREPARE + "file";
+        /**
+         * The time zone of the speed profiles, e.g. Europe/Berlin. Default is UTC.
+         */
+        public static final String INIT_TIME_ZONE = ROUTING_INIT_PREFIX + "time_dependent.time_zone";
+        /**
+         * The departure time of a request as ISO 8601 date like 2018-05-04T08:00:00Z or in milliseconds since the
+         * epoch. If it is specified the route is calculated with the speeds of the profiles at this time.
+         */
+        public static final String DEPARTURE_TIME = "departure_time";
+    }
+
     /**
      * Properties for non-CH routing
      */
@@ -31,6 +31,13 @@ public class PathDetail {
         this.value = value;
     }
 
+    public PathDetail copy() {
+        PathDetail copy = new PathDetail(value);
+        copy.first = first;
+        copy.last = last;
+        return copy;
+    }
+
     public Object getValue() {
         return value;
     }
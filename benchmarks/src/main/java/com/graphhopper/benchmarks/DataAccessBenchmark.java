@@ -0,0 +1,89 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmarks;
+
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.util.Helper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads ints from the different DataAccess implementations, sequentially and at random positions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DataAccessBenchmark {
+    private static final int INTS = 16 * 1024 * 1024;
+
+    @Param({"RAM_STORE", "UNSAFE_STORE", "MMAP", "MMAP_UNSAFE"})
+    public String type;
+    private File folder;
+    private GHDirectory dir;
+    private DataAccess da;
+    private long[] randomPointers;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        folder = Files.createTempDirectory("gh-benchmark").toFile();
+        dir = new GHDirectory(folder.getAbsolutePath(), DAType.fromString(type));
+        da = dir.find("benchmark").create(INTS * 4L);
+        Random rand = new Random(42);
+        for (int i = 0; i < INTS; i++) {
+            da.setInt(i * 4L, rand.nextInt());
+        }
+        randomPointers = new long[1_000_000];
+        for (int i = 0; i < randomPointers.length; i++) {
+            randomPointers[i] = rand.nextInt(INTS) * 4L;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dir.clear();
+        Helper.removeDir(folder);
+    }
+
+    @Benchmark
+    public long sequentialRead() {
+        long sum = 0;
+        for (long pointer = 0; pointer < INTS * 4L; pointer += 4) {
+            sum += da.getInt(pointer);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long randomRead() {
+        long sum = 0;
+        for (long pointer : randomPointers) {
+            sum += da.getInt(pointer);
+        }
+        return sum;
+    }
+}
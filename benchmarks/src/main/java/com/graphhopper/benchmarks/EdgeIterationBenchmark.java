@@ -0,0 +1,61 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmarks;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iterates over the edges of the base graph, once for every node via an EdgeExplorer and once via getAllEdges.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EdgeIterationBenchmark {
+
+    @Benchmark
+    public long explorer(MonacoGraph graph) {
+        GraphHopperStorage storage = graph.hopper.getGraphHopperStorage();
+        EdgeExplorer explorer = storage.createEdgeExplorer();
+        long sum = 0;
+        for (int node = 0; node < storage.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                sum += iter.getAdjNode() + iter.getFlags();
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double allEdges(MonacoGraph graph) {
+        AllEdgesIterator iter = graph.hopper.getGraphHopperStorage().getAllEdges();
+        double sum = 0;
+        while (iter.next()) {
+            sum += iter.getDistance() + iter.getBaseNode();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmarks;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.http.WebHelper;
+import com.graphhopper.jackson.Jackson;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes route responses to JSON with encoded and with plain points, once via the object tree of
+ * WebHelper.jsonObject and once streamed like the route resource does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class JsonSerializationBenchmark {
+    @Param({"true", "false"})
+    public boolean pointsEncoded;
+    private final ObjectMapper objectMapper = Jackson.newObjectMapper();
+    private final List<GHResponse> responses = new ArrayList<>();
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup(MonacoGraph graph) {
+        for (int i = 0; i < MonacoGraph.QUERIES; i++) {
+            GHResponse rsp = graph.hopper.route(new GHRequest(graph.lats[2 * i], graph.lons[2 * i],
+                    graph.lats[2 * i + 1], graph.lons[2 * i + 1]).setVehicle("car").setWeighting("fastest"));
+            if (!rsp.hasErrors())
+                responses.add(rsp);
+        }
+    }
+
+    @Benchmark
+    public byte[] route() throws JsonProcessingException {
+        GHResponse rsp = responses.get(index);
+        index = (index + 1) % responses.size();
+        return objectMapper.writeValueAsBytes(WebHelper.jsonObject(rsp, true, true, false, pointsEncoded, 0));
+    }
+
+    @Benchmark
+    public int routeStreaming() throws IOException {
+        GHResponse rsp = responses.get(index);
+        index = (index + 1) % responses.size();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        JsonGenerator gen = objectMapper.getFactory().createGenerator(output);
+        WebHelper.writeJson(gen, rsp, true, true, false, pointsEncoded, 0);
+        gen.close();
+        return output.size();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmarks;
+
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.QueryResult;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snaps random points inside the bounds of the graph, one after another and as one batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LocationIndexBenchmark {
+    private LocationIndexTree index;
+    private EdgeFilter edgeFilter;
+    private double[] lats;
+    private double[] lons;
+
+    @Setup(Level.Trial)
+    public void setup(MonacoGraph graph) {
+        index = (LocationIndexTree) graph.hopper.getLocationIndex();
+        edgeFilter = DefaultEdgeFilter.allEdges(graph.hopper.getEncodingManager().getEncoder("car"));
+        // points that are not exactly on the nodes
+        Random rand = new Random(42);
+        lats = new double[graph.lats.length];
+        lons = new double[graph.lons.length];
+        for (int i = 0; i < lats.length; i++) {
+            lats[i] = graph.lats[i] + (rand.nextDouble() - 0.5) * 0.001;
+            lons[i] = graph.lons[i] + (rand.nextDouble() - 0.5) * 0.001;
+        }
+    }
+
+    @Benchmark
+    public void findClosest(Blackhole blackhole) {
+        for (int i = 0; i < lats.length; i++) {
+            QueryResult qr = index.findClosest(lats[i], lons[i], edgeFilter);
+            blackhole.consume(qr);
+        }
+    }
+
+    @Benchmark
+    public void findClosestBatch(Blackhole blackhole) {
+        blackhole.consume(index.findClosestBatch(lats, lons, edgeFilter));
+    }
+}
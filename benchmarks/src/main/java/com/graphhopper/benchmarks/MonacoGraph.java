@@ -0,0 +1,97 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmarks;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.reader.osm.GraphHopperOSM;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.util.Helper;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Imports the bundled Monaco extract with CH and LM for the car and creates random query points. The OSM file can
+ * be changed via the system property gh.benchmark.osm, the path is relative to the root of the repository. The
+ * graph is imported unsorted and sorted, to compare the memory locality of the different node orders. The Monaco
+ * graph fits into the CPU caches, so the node order only makes a measurable difference for bigger extracts.
+ * <p>
+ * To compare the cache misses of the node orders use an extract with a graph bigger than the last level cache and
+ * the perfnorm profiler, which needs Linux perf:
+ * <pre>
+ * java -Dgh.benchmark.osm=germany-latest.osm.pbf -cp ... com.graphhopper.benchmarks.BenchmarkRunner RoutingBenchmark -prof perfnorm
+ * </pre>
+ * and compare the L1-dcache-load-misses and LLC-load-misses per operation.
+ */
+@State(Scope.Benchmark)
+public class MonacoGraph {
+    public static final int QUERIES = 1000;
+    GraphHopper hopper;
+    File graphFolder;
+    // random points of the graph, QUERIES pairs of them are the start and end of the routes
+    double[] lats;
+    double[] lons;
+    @Param({"none", "spatial", "dfs"})
+    String sortOrder;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        graphFolder = Files.createTempDirectory("gh-benchmark").toFile();
+        hopper = new GraphHopperOSM().
+                setDataReaderFile(System.getProperty("gh.benchmark.osm", "core/files/monaco.osm.gz")).
+                setGraphHopperLocation(graphFolder.getAbsolutePath()).
+                setStoreOnFlush(false).
+                setEncodingManager(new EncodingManager("car"));
+        if (!"none".equals(sortOrder))
+            hopper.setSortGraph(true).setSortOrder(sortOrder);
+        hopper.getCHFactoryDecorator().setEnabled(true).
+                setWeightingsAsStrings(Arrays.asList("fastest")).
+                setDisablingAllowed(true);
+        hopper.getLMFactoryDecorator().setEnabled(true).
+                setWeightingsAsStrings(Arrays.asList("fastest")).
+                setDisablingAllowed(true);
+        hopper.importOrLoad();
+
+        NodeAccess na = hopper.getGraphHopperStorage().getNodeAccess();
+        int nodes = hopper.getGraphHopperStorage().getNodes();
+        Random rand = new Random(42);
+        lats = new double[2 * QUERIES];
+        lons = new double[2 * QUERIES];
+        for (int i = 0; i < lats.length; i++) {
+            int node = rand.nextInt(nodes);
+            lats[i] = na.getLatitude(node);
+            lons[i] = na.getLongitude(node);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        hopper.close();
+        Helper.removeDir(graphFolder);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmarks;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.routing.Path;
+import com.graphhopper.util.DouglasPeucker;
+import com.graphhopper.util.PathMerger;
+import com.graphhopper.util.Translation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the points and instructions of already calculated paths like it is done for every route response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PathMergerBenchmark {
+    private final List<List<Path>> paths = new ArrayList<>();
+    private Translation translation;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup(MonacoGraph graph) {
+        translation = graph.hopper.getTranslationMap().getWithFallBack(Locale.ENGLISH);
+        for (int i = 0; i < MonacoGraph.QUERIES; i++) {
+            GHRequest req = new GHRequest(graph.lats[2 * i], graph.lons[2 * i], graph.lats[2 * i + 1], graph.lons[2 * i + 1]).
+                    setVehicle("car").setWeighting("fastest");
+            List<Path> tmpPaths = graph.hopper.calcPaths(req, new GHResponse());
+            if (!tmpPaths.isEmpty() && tmpPaths.get(0).isFound())
+                paths.add(tmpPaths);
+        }
+    }
+
+    @Benchmark
+    public PathWrapper instructions() {
+        List<Path> tmpPaths = paths.get(index);
+        index = (index + 1) % paths.size();
+        PathWrapper pathWrapper = new PathWrapper();
+        new PathMerger().
+                setEnableInstructions(true).
+                setDouglasPeucker(new DouglasPeucker()).
+                doWork(pathWrapper, tmpPaths, translation);
+        return pathWrapper;
+    }
+}
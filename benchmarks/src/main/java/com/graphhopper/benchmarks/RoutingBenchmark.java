@@ -0,0 +1,65 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmarks;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.util.Parameters;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculates routes between random nodes with CH, with LM and with the flexible A* without instructions and
+ * points, so mainly the lookup and the algorithm are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RoutingBenchmark {
+    @Param({"ch", "lm", "astarbi"})
+    public String mode;
+    private GHRequest[] requests;
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup(MonacoGraph graph) {
+        requests = new GHRequest[MonacoGraph.QUERIES];
+        for (int i = 0; i < requests.length; i++) {
+            GHRequest req = new GHRequest(graph.lats[2 * i], graph.lons[2 * i], graph.lats[2 * i + 1], graph.lons[2 * i + 1]).
+                    setVehicle("car").setWeighting("fastest").setAlgorithm(Parameters.Algorithms.ASTAR_BI);
+            req.getHints().put(Parameters.Routing.INSTRUCTIONS, false);
+            req.getHints().put(Parameters.Routing.CALC_POINTS, false);
+            req.getHints().put(Parameters.CH.DISABLE, !"ch".equals(mode));
+            req.getHints().put(Parameters.Landmark.DISABLE, !"lm".equals(mode));
+            if ("ch".equals(mode))
+                req.setAlgorithm(Parameters.Algorithms.DIJKSTRA_BI);
+            requests[i] = req;
+        }
+    }
+
+    @Benchmark
+    public GHResponse route(MonacoGraph graph) {
+        GHRequest req = requests[index];
+        index = (index + 1) % requests.length;
+        return graph.hopper.route(req);
+    }
+}
@@ -0,0 +1,4 @@
+package com.graphhopper.benchmarks.generated;
+public class DataAccessBenchmark_jmhType extends DataAccessBenchmark_jmhType_B3 {
+}
+
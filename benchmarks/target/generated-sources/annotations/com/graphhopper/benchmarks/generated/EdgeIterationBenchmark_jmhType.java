@@ -0,0 +1,4 @@
+package com.graphhopper.benchmarks.generated;
+public class EdgeIterationBenchmark_jmhType extends EdgeIterationBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.graphhopper.benchmarks.generated;
+public class JsonSerializationBenchmark_jmhType extends JsonSerializationBenchmark_jmhType_B3 {
+}
+
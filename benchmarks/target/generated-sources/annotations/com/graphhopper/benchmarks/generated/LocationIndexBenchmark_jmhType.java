@@ -0,0 +1,4 @@
+package com.graphhopper.benchmarks.generated;
+public class LocationIndexBenchmark_jmhType extends LocationIndexBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.graphhopper.benchmarks.generated;
+public class MonacoGraph_jmhType extends MonacoGraph_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package com.graphhopper.benchmarks.generated;
+public class PathMergerBenchmark_jmhType extends PathMergerBenchmark_jmhType_B3 {
+}
+
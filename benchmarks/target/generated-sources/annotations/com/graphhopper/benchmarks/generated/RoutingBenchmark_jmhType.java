@@ -0,0 +1,4 @@
+package com.graphhopper.benchmarks.generated;
+public class RoutingBenchmark_jmhType extends RoutingBenchmark_jmhType_B3 {
+}
+
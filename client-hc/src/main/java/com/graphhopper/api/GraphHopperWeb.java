@@ -30,6 +30,8 @@ import com.graphhopper.util.*;
 import com.graphhopper.util.details.PathDetail;
 import com.graphhopper.util.exceptions.*;
 import com.graphhopper.util.shapes.GHPoint;
+import com.graphhopper.protobuf.RouteProtobuf;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.ResponseBody;
@@ -56,6 +58,7 @@ public class GraphHopperWeb implements GraphHopperAPI {
     private boolean calcPoints = true;
     private boolean elevation = false;
     private String optimize = "false";
+    private String type = "json";
     private final Set<String> ignoreSet;
 
     public static final String TIMEOUT = "timeout";
@@ -349,12 +352,31 @@ public class GraphHopperWeb implements GraphHopperAPI {
     }
 
 
+    /**
+     * @param type "json" or "protobuf". The default is json. The protobuf format is smaller and faster to parse,
+     *             especially for long routes with path details.
+     */
+    public GraphHopperWeb setType(String type) {
+        if (!"json".equals(type) && !"protobuf".equals(type))
+            throw new IllegalArgumentException("Unsupported type " + type + ", use json or protobuf");
+        this.type = type;
+        return this;
+    }
+
     @Override
     public GHResponse route(GHRequest request) {
         ResponseBody rspBody = null;
         try {
             Request okRequest = createRequest(request);
             rspBody = getClientForRequest(request).newCall(okRequest).execute().body();
+            boolean tmpElevation = request.getHints().getBool("elevation", elevation);
+            boolean tmpTurnDescription = request.getHints().getBool("turn_description", true);
+
+            // errors are always returned as JSON
+            MediaType contentType = rspBody.contentType();
+            if (contentType != null && RouteProtobuf.MEDIA_TYPE.equals(contentType.type() + "/" + contentType.subtype()))
+                return RouteProtobuf.fromBytes(rspBody.bytes(), tmpTurnDescription);
+
             JsonNode json = objectMapper.reader().readTree(rspBody.byteStream());
 
             GHResponse res = new GHResponse();
@@ -364,9 +386,6 @@ public class GraphHopperWeb implements GraphHopperAPI {
 
             JsonNode paths = json.get("paths");
 
-            boolean tmpElevation = request.getHints().getBool("elevation", elevation);
-            boolean tmpTurnDescription = request.getHints().getBool("turn_description", true);
-
             for (JsonNode path : paths) {
                 PathWrapper altRsp = createPathWrapper(path, tmpElevation, tmpTurnDescription);
                 res.add(altRsp);
@@ -411,7 +430,8 @@ public class GraphHopperWeb implements GraphHopperAPI {
             places += "point=" + round6(p.lat) + "," + round6(p.lon) + "&";
         }
 
-        String type = request.getHints().get("type", "json");
+        // use type=protobuf for the more compact binary format, see RouteProtobuf
+        String type = request.getHints().get("type", this.type);
 
         String url = routeServiceUrl
                 + "?"
@@ -21,7 +21,9 @@ import com.graphhopper.json.geo.JsonFeature;
 import com.graphhopper.reader.DataReader;
 import com.graphhopper.reader.dem.*;
 import com.graphhopper.routing.*;
+import com.graphhopper.routing.cch.CCHAlgoFactoryDecorator;
 import com.graphhopper.routing.ch.CHAlgoFactoryDecorator;
+import com.graphhopper.routing.ch.ManyToManyCH;
 import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.lm.LMAlgoFactoryDecorator;
 import com.graphhopper.routing.subnetwork.PrepareRoutingSubnetworks;
@@ -29,6 +31,7 @@ import com.graphhopper.routing.template.AlternativeRoutingTemplate;
 import com.graphhopper.routing.template.RoundTripRoutingTemplate;
 import com.graphhopper.routing.template.RoutingTemplate;
 import com.graphhopper.routing.template.ViaRoutingTemplate;
+import com.graphhopper.routing.timedependent.TimeDependentAlgoFactoryDecorator;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.*;
 import com.graphhopper.storage.*;
@@ -38,11 +41,14 @@ import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.*;
+import com.graphhopper.util.Parameters.CCH;
 import com.graphhopper.util.Parameters.CH;
 import com.graphhopper.util.Parameters.Landmark;
 import com.graphhopper.util.Parameters.Routing;
+import com.graphhopper.util.Parameters.TimeDependent;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
 import com.graphhopper.util.exceptions.PointDistanceExceededException;
+import com.graphhopper.util.exceptions.PointNotFoundException;
 import com.graphhopper.util.exceptions.PointOutOfBoundsException;
 import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
@@ -53,9 +59,6 @@ import java.io.File;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.util.*;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static com.graphhopper.util.Helper.*;
 import static com.graphhopper.util.Parameters.Algorithms.*;
@@ -81,6 +84,7 @@ public class GraphHopper implements GraphHopperAPI {
     private String ghLocation = "";
     private DAType dataAccessType = DAType.RAM_STORE;
     private boolean sortGraph = false;
+    private String sortOrder = "spatial";
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
     private boolean allowWrites = true;
@@ -92,8 +96,20 @@ public class GraphHopper implements GraphHopperAPI {
     private boolean simplifyResponse = true;
     private TraversalMode traversalMode = TraversalMode.NODE_BASED;
     private int maxVisitedNodes = Integer.MAX_VALUE;
+    private long maxMatrixSize = 1_000_000;
+    // the search states of the native queries on the base graph, the CH preparations have their own pool
+    private final SearchStatePool searchStatePool = new SearchStatePool();
 
     private int nonChMaxWaypointDistance = Integer.MAX_VALUE;
+    private boolean reuseRequestState = false;
+    private RouteCache routeCache;
+    // the QueryGraphs of the current thread per routing graph, only used if reuseRequestState is enabled
+    private final ThreadLocal<Map<Graph, QueryGraph>> queryGraphs = new ThreadLocal<Map<Graph, QueryGraph>>() {
+        @Override
+        protected Map<Graph, QueryGraph> initialValue() {
+            return new IdentityHashMap<>(4);
+        }
+    };
     // for index
     private LocationIndex locationIndex;
     private int preciseIndexResolution = 300;
@@ -108,14 +124,22 @@ public class GraphHopper implements GraphHopperAPI {
     // for CH prepare
     private final CHAlgoFactoryDecorator chFactoryDecorator = new CHAlgoFactoryDecorator();
 
+    // for customizable CH
+    private final CCHAlgoFactoryDecorator cchFactoryDecorator = new CCHAlgoFactoryDecorator();
+
+    // for time-dependent routing
+    private final TimeDependentAlgoFactoryDecorator tdFactoryDecorator = new TimeDependentAlgoFactoryDecorator();
+
     // for data reader
     private String dataReaderFile;
     private double dataReaderWayPointMaxDistance = 1;
     private int dataReaderWorkerThreads = 2;
+    private int dataReaderFilterWorkerThreads = 1;
+    private int dataReaderElevationWorkerThreads = 1;
     private boolean calcPoints = true;
     private ElevationProvider eleProvider = ElevationProvider.NOOP;
     private FlagEncoderFactory flagEncoderFactory = FlagEncoderFactory.DEFAULT;
-    private final ReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+    private final Object changeGraphLock = new Object();
     private PathDetailsBuilderFactory pathBuilderFactory = new PathDetailsBuilderFactory();
 
     public GraphHopper() {
@@ -125,6 +149,10 @@ public class GraphHopper implements GraphHopperAPI {
         // order is important to use CH as base algo and set the approximation in the followed lm factory decorator
         algoDecorators.add(chFactoryDecorator);
         algoDecorators.add(lmFactoryDecorator);
+        // replaces the algorithm if a customized metric matches, otherwise the previous factory is kept
+        algoDecorators.add(cchFactoryDecorator);
+        // replaces the algorithm for requests with a departure time
+        algoDecorators.add(tdFactoryDecorator);
     }
 
     /**
@@ -487,6 +515,18 @@ public class GraphHopper implements GraphHopperAPI {
         return this;
     }
 
+    /**
+     * Specifies how the graph is sorted if sorting is enabled: 'spatial' renumbers the nodes along a Z-order curve,
+     * 'dfs' along a depth-first traversal. In both cases the edges are renumbered by their first node.
+     */
+    public GraphHopper setSortOrder(String sortOrder) {
+        ensureNotLoaded();
+        if (!"spatial".equals(sortOrder) && !"dfs".equals(sortOrder))
+            throw new IllegalArgumentException("Unknown sort order " + sortOrder + ", use spatial or dfs");
+        this.sortOrder = sortOrder;
+        return this;
+    }
+
     public boolean isAllowWrites() {
         return allowWrites;
     }
@@ -542,6 +582,7 @@ public class GraphHopper implements GraphHopperAPI {
         dataAccessType = DAType.fromString(graphDATypeStr);
 
         sortGraph = args.getBool("graph.do_sort", sortGraph);
+        setSortOrder(args.get("graph.sort_order", sortOrder));
         removeZipped = args.getBool("graph.remove_zipped", removeZipped);
         int bytesForFlags = args.getInt("graph.bytes_for_flags", 4);
         String flagEncodersStr = args.get("graph.flag_encoders", "");
@@ -592,6 +633,8 @@ public class GraphHopper implements GraphHopperAPI {
         if (!baseURL.isEmpty())
             tmpProvider.setBaseURL(baseURL);
         tmpProvider.setDAType(elevationDAType);
+        tmpProvider.setMaxCachedTiles(args.getInt("graph.elevation.max_cached_tiles", 128));
+        tmpProvider.setPrefetch(args.getBool("graph.elevation.prefetch", false));
         setElevationProvider(tmpProvider);
 
         // optimizable prepare
@@ -607,6 +650,8 @@ public class GraphHopper implements GraphHopperAPI {
         dataReaderWayPointMaxDistance = args.getDouble(Routing.INIT_WAY_POINT_MAX_DISTANCE, dataReaderWayPointMaxDistance);
 
         dataReaderWorkerThreads = args.getInt("datareader.worker_threads", dataReaderWorkerThreads);
+        dataReaderFilterWorkerThreads = args.getInt("datareader.filter_worker_threads", dataReaderFilterWorkerThreads);
+        dataReaderElevationWorkerThreads = args.getInt("datareader.elevation_worker_threads", dataReaderElevationWorkerThreads);
         enableInstructions = args.getBool("datareader.instructions", enableInstructions);
         preferredLanguage = args.get("datareader.preferred_language", preferredLanguage);
 
@@ -618,6 +663,11 @@ public class GraphHopper implements GraphHopperAPI {
         maxVisitedNodes = args.getInt(Routing.INIT_MAX_VISITED_NODES, Integer.MAX_VALUE);
         maxRoundTripRetries = args.getInt(RoundTrip.INIT_MAX_RETRIES, maxRoundTripRetries);
         nonChMaxWaypointDistance = args.getInt(Parameters.NON_CH.MAX_NON_CH_POINT_DISTANCE, Integer.MAX_VALUE);
+        maxMatrixSize = args.getLong(Routing.INIT_MAX_MATRIX_SIZE, maxMatrixSize);
+        reuseRequestState = args.getBool(Routing.INIT_REUSE_REQUEST_STATE, reuseRequestState);
+        int routeCacheSize = args.getInt(Routing.INIT_CACHE_SIZE, 0);
+        if (routeCacheSize > 0)
+            routeCache = new RouteCache(routeCacheSize, args.getLong(Routing.INIT_CACHE_TTL, 600) * 1000);
 
         return this;
     }
@@ -667,7 +717,7 @@ public class GraphHopper implements GraphHopperAPI {
                 throw new RuntimeException("Cannot read file " + getDataReaderFile(), ex);
             }
             cleanUp();
-            postProcessing();
+            postProcessing(true);
             flush();
         } finally {
             if (lock != null)
@@ -706,6 +756,8 @@ public class GraphHopper implements GraphHopperAPI {
         return reader.setFile(new File(dataReaderFile)).
                 setElevationProvider(eleProvider).
                 setWorkerThreads(dataReaderWorkerThreads).
+                setFilterWorkerThreads(dataReaderFilterWorkerThreads).
+                setElevationWorkerThreads(dataReaderElevationWorkerThreads).
                 setWayPointMaxDistance(dataReaderWayPointMaxDistance).
                 setSmoothElevation(this.smoothElevation);
     }
@@ -746,7 +798,7 @@ public class GraphHopper implements GraphHopperAPI {
             setEncodingManager(EncodingManager.create(flagEncoderFactory, ghLocation));
 
         if (!allowWrites && dataAccessType.isMMap())
-            dataAccessType = DAType.MMAP_RO;
+            dataAccessType = DAType.MMAP_UNSAFE.equals(dataAccessType) ? DAType.MMAP_UNSAFE_RO : DAType.MMAP_RO;
 
         GHDirectory dir = new GHDirectory(ghLocation, dataAccessType);
         GraphExtension ext = encodingManager.needsTurnCostsSupport()
@@ -755,8 +807,11 @@ public class GraphHopper implements GraphHopperAPI {
         if (lmFactoryDecorator.isEnabled())
             initLMAlgoFactoryDecorator();
 
+        if (cchFactoryDecorator.isEnabled())
+            initCCHAlgoFactoryDecorator();
+
         if (chFactoryDecorator.isEnabled()) {
-            initCHAlgoFactoryDecorator();
+            initCHAlgoFactoryDecorator(ext);
             ghStorage = new GraphHopperStorage(chFactoryDecorator.getWeightings(), dir, encodingManager, hasElevation(), ext);
         } else {
             ghStorage = new GraphHopperStorage(dir, encodingManager, hasElevation(), ext);
@@ -791,7 +846,7 @@ public class GraphHopper implements GraphHopperAPI {
     }
 
     public RoutingAlgorithmFactory getAlgorithmFactory(HintsMap map) {
-        RoutingAlgorithmFactory routingAlgorithmFactory = new RoutingAlgorithmFactorySimple();
+        RoutingAlgorithmFactory routingAlgorithmFactory = new RoutingAlgorithmFactorySimple().setSearchStatePool(searchStatePool);
         for (RoutingAlgorithmFactoryDecorator decorator : algoDecorators) {
             if (decorator.isEnabled())
                 routingAlgorithmFactory = decorator.getDecoratedAlgorithmFactory(routingAlgorithmFactory, map);
@@ -811,12 +866,16 @@ public class GraphHopper implements GraphHopperAPI {
         return chFactoryDecorator;
     }
 
-    private void initCHAlgoFactoryDecorator() {
+    private void initCHAlgoFactoryDecorator(GraphExtension ext) {
         if (!chFactoryDecorator.hasWeightings()) {
             for (FlagEncoder encoder : encodingManager.fetchEdgeEncoders()) {
                 for (String chWeightingStr : chFactoryDecorator.getWeightingsAsStrings()) {
                     // ghStorage is null at this point
                     Weighting weighting = createWeighting(new HintsMap(chWeightingStr), encoder, null);
+                    // a TurnWeighting makes the preparation edge-based, see CHAlgoFactoryDecorator.createPreparations
+                    if (chFactoryDecorator.isEdgeBased(chWeightingStr) && encoder.supports(TurnWeighting.class)
+                            && ext instanceof TurnCostExtension)
+                        weighting = new TurnWeighting(weighting, (TurnCostExtension) ext);
                     chFactoryDecorator.addWeighting(weighting);
                 }
             }
@@ -827,6 +886,25 @@ public class GraphHopper implements GraphHopperAPI {
         return lmFactoryDecorator;
     }
 
+    public final CCHAlgoFactoryDecorator getCCHFactoryDecorator() {
+        return cchFactoryDecorator;
+    }
+
+    private void initCCHAlgoFactoryDecorator() {
+        if (cchFactoryDecorator.hasWeightings())
+            return;
+
+        for (FlagEncoder encoder : encodingManager.fetchEdgeEncoders()) {
+            for (String cchWeightingStr : cchFactoryDecorator.getWeightingsAsStrings()) {
+                cchFactoryDecorator.addWeighting(createWeighting(new HintsMap(cchWeightingStr), encoder, null));
+            }
+        }
+    }
+
+    public final TimeDependentAlgoFactoryDecorator getTimeDependentFactoryDecorator() {
+        return tdFactoryDecorator;
+    }
+
     private void initLMAlgoFactoryDecorator() {
         if (lmFactoryDecorator.hasWeightings())
             return;
@@ -843,6 +921,14 @@ public class GraphHopper implements GraphHopperAPI {
      * Does the preparation and creates the location index
      */
     public void postProcessing() {
+        postProcessing(false);
+    }
+
+    /**
+     * @param afterImport true if the graph was just imported and is flushed afterwards, only then the turn cost
+     *                    entries are rewritten, so that a loaded graph is not changed without being stored
+     */
+    private void postProcessing(boolean afterImport) {
         // Later: move this into the GraphStorage.optimize method
         // Or: Doing it after preparation to optimize shortcuts too. But not possible yet #12
 
@@ -850,9 +936,13 @@ public class GraphHopper implements GraphHopperAPI {
             if (ghStorage.isCHPossible() && isCHPrepared())
                 throw new IllegalArgumentException("Sorting a prepared CHGraph is not possible yet. See #12");
 
+            // the location index and the CH and LM preparations are created afterwards and use the new ids
             GraphHopperStorage newGraph = GHUtility.newStorage(ghStorage);
-            GHUtility.sortDFS(ghStorage, newGraph);
-            logger.info("graph sorted (" + getMemInfo() + ")");
+            if ("dfs".equals(sortOrder))
+                GHUtility.sortDFS(ghStorage, newGraph);
+            else
+                GHUtility.sortSpatially(ghStorage, newGraph);
+            logger.info("graph sorted (" + sortOrder + ", " + getMemInfo() + ")");
             ghStorage = newGraph;
         }
 
@@ -860,6 +950,13 @@ public class GraphHopper implements GraphHopperAPI {
             interpolateBridgesAndOrTunnels();
         }
 
+        // after sorting, which adds the turn cost entries again
+        if (afterImport && ghStorage.getExtension() instanceof TurnCostExtension) {
+            TurnCostExtension turnCostExt = (TurnCostExtension) ghStorage.getExtension();
+            if (!turnCostExt.isOptimized())
+                turnCostExt.optimize();
+        }
+
         initLocationIndex();
 
         if (chFactoryDecorator.isEnabled())
@@ -870,6 +967,18 @@ public class GraphHopper implements GraphHopperAPI {
         if (lmFactoryDecorator.isEnabled())
             lmFactoryDecorator.createPreparations(ghStorage, locationIndex);
         loadOrPrepareLM();
+
+        // after sorting, as the node order is stored per node
+        if (cchFactoryDecorator.isEnabled()) {
+            if (!isCCHPrepared())
+                ensureWriteAccess();
+            if (cchFactoryDecorator.loadOrPrepare(ghStorage))
+                ghStorage.getProperties().put(CCH.PREPARE + "done", true);
+        }
+
+        // after sorting, as the speed profiles are stored per edge
+        if (tdFactoryDecorator.isEnabled() && tdFactoryDecorator.loadOrRead(ghStorage, locationIndex))
+            ghStorage.getProperties().put(TimeDependent.PREPARE + "done", true);
     }
 
     private void interpolateBridgesAndOrTunnels() {
@@ -951,14 +1060,45 @@ public class GraphHopper implements GraphHopperAPI {
     @Override
     public GHResponse route(GHRequest request) {
         GHResponse response = new GHResponse();
-        calcPaths(request, response);
+        CacheLookup cacheLookup = routeCache == null ? null : new CacheLookup();
+        calcPaths(request, response, cacheLookup);
+        if (cacheLookup == null || cacheLookup.key == null)
+            return response;
+
+        if (cacheLookup.response != null) {
+            // keep the debug information of this request, the cached paths are fresh copies
+            for (PathWrapper path : cacheLookup.response.getAll()) {
+                response.add(path);
+            }
+            return response;
+        }
+
+        if (!response.hasErrors())
+            routeCache.put(cacheLookup.key, response);
         return response;
     }
 
+    /**
+     * The key of a request for the route cache, which is created from the points snapped by calcPaths, and the
+     * cached response if there was one.
+     */
+    private static class CacheLookup {
+        String key;
+        GHResponse response;
+    }
+
     /**
      * This method calculates the alternative path list using the low level Path objects.
      */
     public List<Path> calcPaths(GHRequest request, GHResponse ghRsp) {
+        return calcPaths(request, ghRsp, null);
+    }
+
+    /**
+     * @param cacheLookup if not null the route cache is checked after the points are snapped and no paths are
+     *                    calculated if it contains the request. Round trips are not cached.
+     */
+    private List<Path> calcPaths(GHRequest request, GHResponse ghRsp, CacheLookup cacheLookup) {
         if (ghStorage == null || !fullyLoaded)
             throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
 
@@ -972,13 +1112,19 @@ public class GraphHopper implements GraphHopperAPI {
             request.setVehicle(vehicle);
         }
 
-        Lock readLock = readWriteLock.readLock();
-        readLock.lock();
+        // changes of the edge flags via changeGraph are not visible for this request once it started
+        EdgeFlagOverlay pinnedFlags = ghStorage.pinEdgeFlags();
         try {
             if (!encodingManager.supports(vehicle))
                 throw new IllegalArgumentException("Vehicle not supported: " + vehicle + ". Supported are: " + encodingManager.toString());
 
             HintsMap hints = request.getHints();
+            if (reuseRequestState && !hints.has(Routing.NATIVE_SEARCH)) {
+                // the request of the caller is not changed
+                hints = new HintsMap(hints);
+                hints.put(Routing.NATIVE_SEARCH, true);
+            }
+
             String tModeStr = hints.get("traversal_mode", traversalMode.toString());
             TraversalMode tMode = TraversalMode.fromString(tModeStr);
             if (hints.has(Routing.EDGE_BASED))
@@ -994,6 +1140,13 @@ public class GraphHopper implements GraphHopperAPI {
             if (!lmFactoryDecorator.isDisablingAllowed() && disableLM)
                 throw new IllegalArgumentException("Disabling LM not allowed on the server-side");
 
+            if (hints.has(TimeDependent.DEPARTURE_TIME)) {
+                if (!tdFactoryDecorator.isEnabled())
+                    throw new IllegalArgumentException("Time-dependent routing is not enabled, specify " + TimeDependent.FILE);
+                if (chFactoryDecorator.isEnabled() && !disableCH)
+                    throw new IllegalArgumentException("Time-dependent routing is not supported for CH, specify " + CH.DISABLE + "=true");
+            }
+
             String algoStr = request.getAlgorithm();
             if (algoStr.isEmpty())
                 algoStr = chFactoryDecorator.isEnabled() && !disableCH ? DIJKSTRA_BI : ASTAR_BI;
@@ -1022,6 +1175,14 @@ public class GraphHopper implements GraphHopperAPI {
                 if (ghRsp.hasErrors())
                     return Collections.emptyList();
 
+                if (cacheLookup != null && !ROUND_TRIP.equalsIgnoreCase(algoStr)) {
+                    // the key is created before the QueryGraph changes the closest nodes of the query results
+                    cacheLookup.key = RouteCache.createKey(request, qResults, pinnedFlags.getVersion());
+                    cacheLookup.response = routeCache.get(cacheLookup.key);
+                    if (cacheLookup.response != null)
+                        return Collections.emptyList();
+                }
+
                 RoutingAlgorithmFactory tmpAlgoFactory = getAlgorithmFactory(hints);
                 Weighting weighting;
                 QueryGraph queryGraph;
@@ -1036,17 +1197,20 @@ public class GraphHopper implements GraphHopperAPI {
                     if (tmpAlgoFactory instanceof LMAlgoFactoryDecorator.LMRAFactory)
                         chAlgoFactory = ((LMAlgoFactoryDecorator.LMRAFactory) tmpAlgoFactory).getDefaultAlgoFactory();
 
-                    if (chAlgoFactory instanceof PrepareContractionHierarchies)
-                        weighting = ((PrepareContractionHierarchies) chAlgoFactory).getWeighting();
-                    else
+                    if (!(chAlgoFactory instanceof PrepareContractionHierarchies))
                         throw new IllegalStateException("Although CH was enabled a non-CH algorithm factory was returned " + tmpAlgoFactory);
 
-                    tMode = getCHFactoryDecorator().getNodeBase();
-                    queryGraph = new QueryGraph(ghStorage.getGraph(CHGraph.class, weighting));
+                    PrepareContractionHierarchies prepareCH = (PrepareContractionHierarchies) chAlgoFactory;
+                    weighting = prepareCH.getWeighting();
+                    tMode = prepareCH.getTraversalMode();
+                    queryGraph = createQueryGraph(ghStorage.getGraph(CHGraph.class, weighting));
                     queryGraph.lookup(qResults);
+                    if (weighting instanceof TurnWeighting)
+                        // the TurnWeighting is recreated below for the QueryGraph, which knows the virtual edges
+                        weighting = ((TurnWeighting) weighting).getSuperWeighting();
                 } else {
                     checkNonChMaxWaypointDistance(points);
-                    queryGraph = new QueryGraph(ghStorage);
+                    queryGraph = createQueryGraph(ghStorage);
                     queryGraph.lookup(qResults);
                     weighting = createWeighting(hints, encoder, queryGraph);
                     ghRsp.addDebugInfo("tmode:" + tMode.toString());
@@ -1092,28 +1256,132 @@ public class GraphHopper implements GraphHopperAPI {
             ghRsp.addError(ex);
             return Collections.emptyList();
         } finally {
-            readLock.unlock();
+            ghStorage.unpinEdgeFlags(pinnedFlags);
+        }
+    }
+
+    /**
+     * This method calculates the weights, distances and times from all fromPoints to all toPoints. It requires
+     * CH and uses one upward search per point instead of one route calculation per pair of points.
+     *
+     * @param hints the vehicle and the weighting are used to pick the CH preparation
+     */
+    public ManyToManyCH.Result calcMatrix(List<GHPoint> fromPoints, List<GHPoint> toPoints, HintsMap hints) {
+        if (ghStorage == null || !fullyLoaded)
+            throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
+
+        if (ghStorage.isClosed())
+            throw new IllegalStateException("You need to create a new GraphHopper instance as it is already closed");
+
+        if (fromPoints.isEmpty() || toPoints.isEmpty())
+            throw new IllegalArgumentException("At least one from and one to point have to be specified");
+
+        if ((long) fromPoints.size() * toPoints.size() > maxMatrixSize)
+            throw new IllegalArgumentException("The matrix of " + fromPoints.size() + "x" + toPoints.size()
+                    + " points exceeds the maximum size of " + maxMatrixSize + " entries");
+
+        if (hints.getVehicle().isEmpty())
+            hints.setVehicle(getDefaultVehicle().toString());
+
+        EdgeFlagOverlay pinnedFlags = ghStorage.pinEdgeFlags();
+        try {
+            if (!encodingManager.supports(hints.getVehicle()))
+                throw new IllegalArgumentException("Vehicle not supported: " + hints.getVehicle() + ". Supported are: " + encodingManager.toString());
+
+            if (!chFactoryDecorator.isEnabled() || hints.getBool(CH.DISABLE, false))
+                throw new IllegalArgumentException("The matrix calculation is only supported with CH");
+
+            RoutingAlgorithmFactory algoFactory = chFactoryDecorator.getDecoratedAlgorithmFactory(null, hints);
+            if (!(algoFactory instanceof PrepareContractionHierarchies))
+                throw new IllegalStateException("Although CH was enabled a non-CH algorithm factory was returned " + algoFactory);
+
+            PrepareContractionHierarchies prepareCH = (PrepareContractionHierarchies) algoFactory;
+            if (prepareCH.isEdgeBased())
+                throw new IllegalArgumentException("The matrix calculation is not supported for the edge-based CH weighting " + prepareCH.getWeighting());
+
+            FlagEncoder encoder = encodingManager.getEncoder(hints.getVehicle());
+            List<QueryResult> qResults = new ArrayList<>(fromPoints.size() + toPoints.size());
+            lookupMatrixPoints(fromPoints, encoder, 0, qResults);
+            lookupMatrixPoints(toPoints, encoder, fromPoints.size(), qResults);
+
+            QueryGraph queryGraph = createQueryGraph(ghStorage.getGraph(CHGraph.class, prepareCH.getWeighting()));
+            queryGraph.lookup(qResults);
+
+            int[] fromNodes = new int[fromPoints.size()];
+            for (int i = 0; i < fromNodes.length; i++) {
+                fromNodes[i] = qResults.get(i).getClosestNode();
+            }
+            int[] toNodes = new int[toPoints.size()];
+            for (int i = 0; i < toNodes.length; i++) {
+                toNodes[i] = qResults.get(fromNodes.length + i).getClosestNode();
+            }
+            return prepareCH.createManyToMany(queryGraph).calcMatrix(fromNodes, toNodes);
+        } finally {
+            ghStorage.unpinEdgeFlags(pinnedFlags);
         }
     }
 
     /**
-     * This method applies the changes to the graph specified as feature collection. It does so by locking the routing
-     * to avoid concurrent changes which could result in incorrect routing (like when done while a Dijkstra search) or
-     * also while just reading one edge row (inconsistent edge properties).
+     * Returns a new QueryGraph for the specified graph or, if reuseRequestState is enabled, the reset QueryGraph that
+     * the current thread used for the previous request on this graph.
+     */
+    private QueryGraph createQueryGraph(Graph graph) {
+        if (!reuseRequestState)
+            return new QueryGraph(graph);
+
+        Map<Graph, QueryGraph> map = queryGraphs.get();
+        QueryGraph queryGraph = map.get(graph);
+        if (queryGraph == null) {
+            queryGraph = new QueryGraph(graph);
+            map.put(graph, queryGraph);
+        }
+        return queryGraph.reset();
+    }
+
+    private void lookupMatrixPoints(List<GHPoint> points, FlagEncoder encoder, int indexOffset, List<QueryResult> qResults) {
+        checkIfPointsAreInBounds(points);
+        EdgeFilter edgeFilter = DefaultEdgeFilter.allEdges(encoder);
+        List<QueryResult> batchResults = null;
+        if (locationIndex instanceof LocationIndexTree) {
+            double[] lats = new double[points.size()];
+            double[] lons = new double[points.size()];
+            for (int i = 0; i < points.size(); i++) {
+                lats[i] = points.get(i).lat;
+                lons[i] = points.get(i).lon;
+            }
+            batchResults = ((LocationIndexTree) locationIndex).findClosestBatch(lats, lons, edgeFilter);
+        }
+        for (int i = 0; i < points.size(); i++) {
+            GHPoint point = points.get(i);
+            QueryResult qr = batchResults == null ? locationIndex.findClosest(point.lat, point.lon, edgeFilter) : batchResults.get(i);
+            if (!qr.isValid())
+                throw new PointNotFoundException("Cannot find point " + (indexOffset + i) + ": " + point, indexOffset + i);
+
+            qResults.add(qr);
+        }
+    }
+
+    /**
+     * This method applies the changes to the graph specified as feature collection. The changed edge flags are
+     * published as a new version at once, so routing is not blocked. Requests that are already running keep using
+     * the version of the edge flags from their start and never see a partially applied feature collection.
      */
     public ChangeGraphResponse changeGraph(Collection<JsonFeature> collection) {
         // TODO allow calling this method if called before CH preparation
         if (getCHFactoryDecorator().isEnabled())
             throw new IllegalArgumentException("To use the changeGraph API you need to turn off CH");
 
-        Lock writeLock = readWriteLock.writeLock();
-        writeLock.lock();
-        try {
+        // the changes are calculated from the latest version of the edge flags, so only one change at a time
+        synchronized (changeGraphLock) {
             ChangeGraphHelper overlay = createChangeGraphHelper(ghStorage, locationIndex);
             long updateCount = overlay.applyChanges(encodingManager, collection);
+            // CH cannot be used with changeGraph, but the customizable CH only needs new weights for the arcs
+            if (cchFactoryDecorator.isEnabled())
+                cchFactoryDecorator.customize();
+            // the cache key contains the version of the edge flags, clearing just frees the outdated entries
+            if (routeCache != null)
+                routeCache.clear();
             return new ChangeGraphResponse(updateCount);
-        } finally {
-            writeLock.unlock();
         }
     }
 
@@ -1180,6 +1448,10 @@ public class GraphHopper implements GraphHopperAPI {
                 || "true".equals(ghStorage.getProperties().get("prepare.done"));
     }
 
+    private boolean isCCHPrepared() {
+        return "true".equals(ghStorage.getProperties().get(CCH.PREPARE + "done"));
+    }
+
     private boolean isLMPrepared() {
         return "true".equals(ghStorage.getProperties().get(Landmark.PREPARE + "done"));
     }
@@ -1243,6 +1515,11 @@ public class GraphHopper implements GraphHopperAPI {
         if (locationIndex != null)
             locationIndex.close();
 
+        chFactoryDecorator.close();
+        cchFactoryDecorator.close();
+        tdFactoryDecorator.close();
+        searchStatePool.clear();
+
         try {
             lockFactory.forceRemove(fileLockName, true);
         } catch (Exception ex) {
@@ -1276,4 +1553,46 @@ public class GraphHopper implements GraphHopperAPI {
         this.nonChMaxWaypointDistance = nonChMaxWaypointDistance;
     }
 
+    /**
+     * Matrix requests with more entries, i.e. from points times to points, are rejected. The result and the buckets
+     * of the calculation grow with this product. Default is 10000.
+     */
+    public void setMaxMatrixSize(long maxMatrixSize) {
+        if (maxMatrixSize < 1)
+            throw new IllegalArgumentException("The maximum matrix size has to be positive but was " + maxMatrixSize);
+        this.maxMatrixSize = maxMatrixSize;
+    }
+
+    public long getMaxMatrixSize() {
+        return maxMatrixSize;
+    }
+
+    /**
+     * If enabled every thread keeps the QueryGraphs of its previous request and resets them for the next one and the
+     * shortest path trees are stored in pooled primitive arrays by default (see Parameters.Routing.NATIVE_SEARCH).
+     * This avoids most of the garbage of a request, but the Paths returned from calcPaths must not be used after
+     * the next call of calcPaths from the same thread. Disabled by default.
+     */
+    public GraphHopper setReuseRequestState(boolean reuseRequestState) {
+        this.reuseRequestState = reuseRequestState;
+        return this;
+    }
+
+    public boolean isReuseRequestState() {
+        return reuseRequestState;
+    }
+
+    /**
+     * Caches the responses of the route method, see RouteCache. Specify null to disable the cache, which is the
+     * default.
+     */
+    public GraphHopper setRouteCache(RouteCache routeCache) {
+        this.routeCache = routeCache;
+        return this;
+    }
+
+    public RouteCache getRouteCache() {
+        return routeCache;
+    }
+
 }
@@ -0,0 +1,441 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.carrotsearch.hppc.cursors.LongCursor;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A memory friendly map from long to int for many keys, e.g. OSM node ids. The keys are kept sorted in blocks of
+ * BLOCK_SIZE keys. Every block stores its first key completely and the following keys as variable length deltas,
+ * so ascending ids like the ones of OSM need about 1-2 bytes per key plus 4 bytes for the value. A lookup does a
+ * binary search over the blocks and decodes one block. All data is stored in DataAccess objects of the specified
+ * Directory, so it is kept outside of the heap or memory mapped if the Directory is configured like this.
+ * <p>
+ * Keys that are bigger than all existing keys are appended directly. Other new keys are collected in a small hash
+ * map. When it is full its keys are sorted into a separate run of blocks and runs of a similar size are merged, so
+ * the runs have geometrically decreasing sizes and every key is only rewritten O(log n) times. optimize merges all
+ * runs into the main blocks. Updating the value of an existing key is always possible. Concurrent calls of get are
+ * safe as long as no other method is called.
+ */
+public class CompactLongIntMap implements LongIntMap {
+    private static final int BLOCK_SIZE = 64;
+    // per block the first key and the position of the deltas in the deltas DataAccess
+    private static final int BLOCK_BYTES = 16;
+    private final Directory dir;
+    private final String name;
+    private final int noEntryValue;
+    private final int maxBufferSize;
+    private LongIntHashMap buffer;
+    private int generation;
+    // the keys that were appended in ascending order, all keys of the runs and the buffer are smaller
+    private SortedRun main;
+    // the merged buffers, every run is more than twice as big as the following one
+    private final List<SortedRun> runs = new ArrayList<>();
+
+    public CompactLongIntMap(Directory dir, String name, int noEntryValue) {
+        this(dir, name, noEntryValue, 1 << 22);
+    }
+
+    /**
+     * @param maxBufferSize the maximum number of unordered keys that are kept in the heap before they are merged
+     */
+    public CompactLongIntMap(Directory dir, String name, int noEntryValue, int maxBufferSize) {
+        if (maxBufferSize < 1)
+            throw new IllegalArgumentException("maxBufferSize must be positive but was " + maxBufferSize);
+
+        this.dir = dir;
+        this.name = name;
+        this.noEntryValue = noEntryValue;
+        this.maxBufferSize = maxBufferSize;
+        this.buffer = new LongIntHashMap(1000);
+        this.main = new SortedRun();
+    }
+
+    @Override
+    public int put(long key, int value) {
+        // the runs and the buffer only contain keys smaller than the last key
+        if (main.size == 0 || key > main.lastKey) {
+            main.append(key, value);
+            return noEntryValue;
+        }
+
+        long rank = main.findRank(key);
+        if (rank >= 0)
+            return main.setValue(rank, value);
+
+        for (SortedRun run : runs) {
+            rank = run.findRank(key);
+            if (rank >= 0)
+                return run.setValue(rank, value);
+        }
+
+        int index = buffer.indexOf(key);
+        if (buffer.indexExists(index))
+            return buffer.indexReplace(index, value);
+
+        buffer.indexInsert(index, key, value);
+        if (buffer.size() >= maxBufferSize)
+            flushBuffer();
+        return noEntryValue;
+    }
+
+    @Override
+    public int get(long key) {
+        long rank = main.findRank(key);
+        if (rank >= 0)
+            return main.getValue(rank);
+
+        for (SortedRun run : runs) {
+            rank = run.findRank(key);
+            if (rank >= 0)
+                return run.getValue(rank);
+        }
+        return buffer.isEmpty() ? noEntryValue : buffer.getOrDefault(key, noEntryValue);
+    }
+
+    /**
+     * Sorts the keys of the buffer into a new run and merges the last runs while they have a similar size.
+     */
+    private void flushBuffer() {
+        if (buffer.isEmpty())
+            return;
+
+        long[] newKeys = new long[buffer.size()];
+        int index = 0;
+        for (LongCursor c : buffer.keys()) {
+            newKeys[index++] = c.value;
+        }
+        Arrays.sort(newKeys);
+        SortedRun run = new SortedRun();
+        for (long key : newKeys) {
+            run.append(key, buffer.get(key));
+        }
+        buffer = new LongIntHashMap(1000);
+
+        while (!runs.isEmpty() && runs.get(runs.size() - 1).size <= 2 * run.size) {
+            run = merge(runs.remove(runs.size() - 1), run);
+        }
+        runs.add(run);
+    }
+
+    /**
+     * Writes the keys of both runs into a new run and removes them. The runs must not contain the same key.
+     */
+    private SortedRun merge(SortedRun run1, SortedRun run2) {
+        SortedRun merged = new SortedRun();
+        RunCursor cursor1 = new RunCursor(run1);
+        RunCursor cursor2 = new RunCursor(run2);
+        boolean has1 = cursor1.next();
+        boolean has2 = cursor2.next();
+        while (has1 || has2) {
+            if (has1 && (!has2 || cursor1.key < cursor2.key)) {
+                merged.append(cursor1.key, run1.getValue(cursor1.rank));
+                has1 = cursor1.next();
+            } else {
+                merged.append(cursor2.key, run2.getValue(cursor2.rank));
+                has2 = cursor2.next();
+            }
+        }
+        run1.remove();
+        run2.remove();
+        return merged;
+    }
+
+    @Override
+    public long getSize() {
+        long size = main.size + buffer.size();
+        for (SortedRun run : runs) {
+            size += run.size;
+        }
+        return size;
+    }
+
+    /**
+     * Merges the keys of the buffer and of all runs into the main blocks.
+     */
+    @Override
+    public void optimize() {
+        flushBuffer();
+        if (runs.isEmpty())
+            return;
+
+        // merge the smaller runs first, so the total work is linear in the number of keys
+        SortedRun merged = runs.remove(runs.size() - 1);
+        while (!runs.isEmpty()) {
+            merged = merge(runs.remove(runs.size() - 1), merged);
+        }
+        main = merge(main, merged);
+    }
+
+    /**
+     * Removes the underlying storage. The map must not be used afterwards.
+     */
+    public void clear() {
+        main.remove();
+        for (SortedRun run : runs) {
+            run.remove();
+        }
+        runs.clear();
+        buffer = new LongIntHashMap(1000);
+        main.size = 0;
+    }
+
+    public long getCapacity() {
+        long capacity = main.getCapacity();
+        for (SortedRun run : runs) {
+            capacity += run.getCapacity();
+        }
+        return capacity;
+    }
+
+    /**
+     * @return memory usage in MB
+     */
+    @Override
+    public int getMemoryUsage() {
+        // a key and a value per slot of the hash map
+        long bufferBytes = (long) buffer.keys.length * 12;
+        return Math.round((getCapacity() + bufferBytes) / Helper.MB);
+    }
+
+    @Override
+    public String toString() {
+        return name + ", size:" + getSize() + ", buffered:" + buffer.size() + ", runs:" + runs.size()
+                + ", delta bytes:" + main.deltaBytes;
+    }
+
+    /**
+     * Keys in ascending order stored in blocks of delta encoded keys.
+     */
+    private class SortedRun {
+        private final DataAccess blocks;
+        private final DataAccess deltas;
+        private final DataAccess values;
+        private long size;
+        private long lastKey = Long.MIN_VALUE;
+        private long deltaBytes;
+        // the int of the deltas DataAccess that is currently filled with bytes
+        private int pendingWord;
+        private int pendingBytes;
+
+        SortedRun() {
+            generation++;
+            blocks = dir.find(name + "_blocks" + generation).create(1000);
+            deltas = dir.find(name + "_deltas" + generation).create(1000);
+            values = dir.find(name + "_values" + generation).create(1000);
+        }
+
+        /**
+         * @return the position of the key in this run or -1 if it is not contained
+         */
+        long findRank(long key) {
+            if (size == 0 || key > lastKey)
+                return -1;
+
+            long blockCount = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            long low = 0, high = blockCount - 1;
+            if (getFirstKey(0) > key)
+                return -1;
+
+            // find the last block with a first key <= key
+            while (low < high) {
+                long mid = (low + high + 1) >>> 1;
+                if (getFirstKey(mid) <= key)
+                    low = mid;
+                else
+                    high = mid - 1;
+            }
+
+            long rank = low * BLOCK_SIZE;
+            long tmpKey = getFirstKey(low);
+            if (tmpKey == key)
+                return rank;
+
+            int count = (int) Math.min(BLOCK_SIZE, size - rank);
+            long pointer = getDeltaPointer(low);
+            int word = 0;
+            int wordBytes = 0;
+            for (int i = 1; i < count; i++) {
+                long delta = 0;
+                int shift = 0;
+                while (true) {
+                    if (wordBytes == 0) {
+                        word = deltas.getInt(pointer);
+                        pointer += 4;
+                        wordBytes = 4;
+                    }
+                    int b = word & 0xFF;
+                    word >>>= 8;
+                    wordBytes--;
+                    delta |= (long) (b & 0x7F) << shift;
+                    if (b < 0x80)
+                        break;
+                    shift += 7;
+                }
+                // the keys can be negative, so the delta is unsigned and the addition can overflow
+                tmpKey += delta;
+                if (tmpKey == key)
+                    return rank + i;
+                if (tmpKey > key)
+                    return -1;
+            }
+            return -1;
+        }
+
+        long getFirstKey(long block) {
+            long pointer = block * BLOCK_BYTES;
+            return ((long) blocks.getInt(pointer) << 32) | (blocks.getInt(pointer + 4) & 0xFFFFFFFFL);
+        }
+
+        long getDeltaPointer(long block) {
+            long pointer = block * BLOCK_BYTES + 8;
+            return ((long) blocks.getInt(pointer) << 32) | (blocks.getInt(pointer + 4) & 0xFFFFFFFFL);
+        }
+
+        int getValue(long rank) {
+            return values.getInt(rank * 4);
+        }
+
+        int setValue(long rank, int value) {
+            int oldValue = values.getInt(rank * 4);
+            values.setInt(rank * 4, value);
+            return oldValue;
+        }
+
+        /**
+         * Adds the key to this run. The key must be bigger than all existing keys.
+         */
+        void append(long key, int value) {
+            if (size % BLOCK_SIZE == 0) {
+                startNewWord();
+                long pointer = size / BLOCK_SIZE * BLOCK_BYTES;
+                blocks.ensureCapacity(pointer + BLOCK_BYTES);
+                blocks.setInt(pointer, (int) (key >>> 32));
+                blocks.setInt(pointer + 4, (int) key);
+                blocks.setInt(pointer + 8, (int) (deltaBytes >>> 32));
+                blocks.setInt(pointer + 12, (int) deltaBytes);
+            } else {
+                long delta = key - lastKey;
+                while ((delta & ~0x7FL) != 0) {
+                    appendByte((int) (delta & 0x7F) | 0x80);
+                    delta >>>= 7;
+                }
+                appendByte((int) delta);
+            }
+
+            values.ensureCapacity(size * 4 + 4);
+            values.setInt(size * 4, value);
+            lastKey = key;
+            size++;
+        }
+
+        private void appendByte(int b) {
+            // write the incomplete int too, so that the last block can be read without flushing
+            pendingWord |= b << (8 * pendingBytes);
+            pendingBytes++;
+            deltas.ensureCapacity(deltaBytes + 4);
+            deltas.setInt(deltaBytes, pendingWord);
+            if (pendingBytes == 4)
+                startNewWord();
+        }
+
+        /**
+         * The deltas are written as whole ints, so that reading them never crosses the border of a segment. Every
+         * block starts with a new int.
+         */
+        private void startNewWord() {
+            if (pendingBytes == 0)
+                return;
+
+            deltaBytes += 4;
+            pendingWord = 0;
+            pendingBytes = 0;
+        }
+
+        long getCapacity() {
+            return blocks.getCapacity() + deltas.getCapacity() + values.getCapacity();
+        }
+
+        void remove() {
+            dir.remove(blocks);
+            dir.remove(deltas);
+            dir.remove(values);
+        }
+    }
+
+    /**
+     * Reads the keys of a run in ascending order.
+     */
+    private static class RunCursor {
+        private final SortedRun run;
+        private long rank = -1;
+        private long key;
+        private long pointer;
+        private int word;
+        private int wordBytes;
+
+        RunCursor(SortedRun run) {
+            this.run = run;
+        }
+
+        void seekBlock(long block) {
+            rank = block * BLOCK_SIZE;
+            key = run.getFirstKey(block);
+            pointer = run.getDeltaPointer(block);
+            wordBytes = 0;
+        }
+
+        boolean next() {
+            if (rank + 1 >= run.size)
+                return false;
+
+            if ((rank + 1) % BLOCK_SIZE == 0) {
+                seekBlock((rank + 1) / BLOCK_SIZE);
+                return true;
+            }
+
+            long delta = 0;
+            int shift = 0;
+            while (true) {
+                if (wordBytes == 0) {
+                    word = run.deltas.getInt(pointer);
+                    pointer += 4;
+                    wordBytes = 4;
+                }
+                int b = word & 0xFF;
+                word >>>= 8;
+                wordBytes--;
+                delta |= (long) (b & 0x7F) << shift;
+                if (b < 0x80)
+                    break;
+                shift += 7;
+            }
+            key += delta;
+            rank++;
+            return true;
+        }
+    }
+}
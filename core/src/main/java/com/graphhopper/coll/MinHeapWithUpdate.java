@@ -0,0 +1,185 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap for int ids in [0, capacity) that are sorted by a double value. Unlike IntDoubleBinaryHeap it
+ * keeps track of the position of every id, so updating the value of an id is O(log n) and no objects are created.
+ * <p>
+ * Clearing the heap only touches the ids that are still contained, so it is cheap to reuse it for many searches.
+ */
+public class MinHeapWithUpdate {
+    private static final int NOT_PRESENT = -1;
+    // the heap is stored from index 1, tree[pos] is the id at position pos and vals[pos] its value
+    private int[] tree;
+    private double[] vals;
+    // positions[id] is the position of the id in the heap or NOT_PRESENT
+    private int[] positions;
+    private int size;
+
+    public MinHeapWithUpdate(int capacity) {
+        tree = new int[capacity + 1];
+        vals = new double[capacity + 1];
+        positions = new int[capacity];
+        Arrays.fill(positions, NOT_PRESENT);
+    }
+
+    /**
+     * Makes sure that ids in [0, capacity) can be pushed.
+     */
+    public void ensureCapacity(int capacity) {
+        int oldCapacity = positions.length;
+        if (capacity <= oldCapacity)
+            return;
+
+        tree = Arrays.copyOf(tree, capacity + 1);
+        vals = Arrays.copyOf(vals, capacity + 1);
+        positions = Arrays.copyOf(positions, capacity);
+        Arrays.fill(positions, oldCapacity, capacity, NOT_PRESENT);
+    }
+
+    public int getCapacity() {
+        return positions.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds the id with the specified value. The id must not be contained already.
+     */
+    public void push(int id, double value) {
+        if (positions[id] != NOT_PRESENT)
+            throw new IllegalStateException("id " + id + " is already contained, use update instead");
+
+        size++;
+        tree[size] = id;
+        vals[size] = value;
+        positions[id] = size;
+        percolateUp(size);
+    }
+
+    public boolean contains(int id) {
+        return positions[id] != NOT_PRESENT;
+    }
+
+    /**
+     * Changes the value of the specified id, which must be contained. The value can be decreased or increased.
+     */
+    public void update(int id, double value) {
+        int pos = positions[id];
+        if (pos == NOT_PRESENT)
+            throw new IllegalStateException("id " + id + " is not contained, use push instead");
+
+        double oldValue = vals[pos];
+        vals[pos] = value;
+        if (value < oldValue)
+            percolateUp(pos);
+        else if (value > oldValue)
+            percolateDown(pos);
+    }
+
+    public int peekId() {
+        checkNotEmpty();
+        return tree[1];
+    }
+
+    public double peekValue() {
+        checkNotEmpty();
+        return vals[1];
+    }
+
+    /**
+     * Removes the id with the smallest value and returns it.
+     */
+    public int poll() {
+        checkNotEmpty();
+        int id = tree[1];
+        positions[id] = NOT_PRESENT;
+        if (size > 1) {
+            tree[1] = tree[size];
+            vals[1] = vals[size];
+            positions[tree[1]] = 1;
+        }
+        size--;
+        if (size > 1)
+            percolateDown(1);
+        return id;
+    }
+
+    public void clear() {
+        for (int pos = 1; pos <= size; pos++) {
+            positions[tree[pos]] = NOT_PRESENT;
+        }
+        size = 0;
+    }
+
+    private void checkNotEmpty() {
+        if (size == 0)
+            throw new IllegalStateException("heap is empty");
+    }
+
+    private void percolateUp(int pos) {
+        int id = tree[pos];
+        double value = vals[pos];
+        while (pos > 1) {
+            int parent = pos >> 1;
+            if (vals[parent] <= value)
+                break;
+
+            tree[pos] = tree[parent];
+            vals[pos] = vals[parent];
+            positions[tree[pos]] = pos;
+            pos = parent;
+        }
+        tree[pos] = id;
+        vals[pos] = value;
+        positions[id] = pos;
+    }
+
+    private void percolateDown(int pos) {
+        int id = tree[pos];
+        double value = vals[pos];
+        while (true) {
+            int child = pos << 1;
+            if (child > size)
+                break;
+
+            if (child < size && vals[child + 1] < vals[child])
+                child++;
+
+            if (vals[child] >= value)
+                break;
+
+            tree[pos] = tree[child];
+            vals[pos] = vals[child];
+            positions[tree[pos]] = pos;
+            pos = child;
+        }
+        tree[pos] = id;
+        vals[pos] = value;
+        positions[id] = pos;
+    }
+}
@@ -34,6 +34,17 @@ public interface DataReader {
 
     DataReader setWorkerThreads(int workerThreads);
 
+    /**
+     * Sets the number of threads that filter the ways. More than one thread requires thread safe FlagEncoders.
+     */
+    DataReader setFilterWorkerThreads(int filterWorkerThreads);
+
+    /**
+     * Sets the number of threads that look up elevations. More than one thread requires a thread safe
+     * ElevationProvider.
+     */
+    DataReader setElevationWorkerThreads(int elevationWorkerThreads);
+
     DataReader setWayPointMaxDistance(double wayPointMaxDistance);
 
     DataReader setSmoothElevation(boolean smoothElevation);
@@ -18,14 +18,22 @@
 package com.graphhopper.reader.dem;
 
 import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.GHDirectory;
 import com.graphhopper.util.Downloader;
+import com.graphhopper.util.Helper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provides basic methods that are usually used in an ElevationProvider.
@@ -42,6 +50,14 @@ public abstract class AbstractElevationProvider implements ElevationProvider {
     boolean calcMean = false;
     boolean autoRemoveTemporary = true;
     long sleep = 2000;
+    int maxCachedTiles = 128;
+    boolean prefetch = false;
+    final HeightTileCache tiles = new HeightTileCache(this);
+    // the names of the heights that were closed when their tile was evicted, guarded by this
+    private final Set<String> closedHeights = new HashSet<>();
+    private ExecutorService prefetchExecutor;
+    // the last used tile of every thread to derive its direction of traversal, only used for prefetching
+    private final ThreadLocal<HeightTile> lastTile = new ThreadLocal<>();
 
     protected AbstractElevationProvider(String cacheDirString) {
         File cacheDir = new File(cacheDirString);
@@ -76,6 +92,18 @@ public abstract class AbstractElevationProvider implements ElevationProvider {
         return cacheDir;
     }
 
+    @Override
+    public void setMaxCachedTiles(int maxCachedTiles) {
+        if (maxCachedTiles < 1)
+            throw new IllegalArgumentException("At least 1 tile has to be cached but was " + maxCachedTiles);
+        this.maxCachedTiles = maxCachedTiles;
+    }
+
+    @Override
+    public void setPrefetch(boolean prefetch) {
+        this.prefetch = prefetch;
+    }
+
     @Override
     public ElevationProvider setBaseURL(String baseUrl) {
         if (baseUrl == null || baseUrl.isEmpty())
@@ -92,7 +120,7 @@ public abstract class AbstractElevationProvider implements ElevationProvider {
     }
 
 
-    protected Directory getDirectory() {
+    protected synchronized Directory getDirectory() {
         if (dir != null)
             return dir;
 
@@ -101,6 +129,85 @@ public abstract class AbstractElevationProvider implements ElevationProvider {
         return dir = new GHDirectory(cacheDir.getAbsolutePath(), daType);
     }
 
+    synchronized DataAccess findHeights(String name) {
+        return getDirectory().find(name);
+    }
+
+    /**
+     * Closes the heights of an evicted tile that is not used anymore. With a storing DAType they can be loaded again from the cache directory.
+     */
+    synchronized void closeHeights(HeightTile tile) {
+        DataAccess heights = tile.getHeights();
+        dir.close(heights);
+        closedHeights.add(heights.getName());
+    }
+
+    synchronized ExecutorService getPrefetchExecutor() {
+        if (prefetchExecutor == null)
+            prefetchExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, AbstractElevationProvider.this + " elevation prefetch");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        return prefetchExecutor;
+    }
+
+    /**
+     * Prefetches the neighbouring tile in the direction of traversal, i.e. in the direction from the previously used
+     * tile to the specified tile, if the tile changed.
+     */
+    void prefetchNext(HeightTile tile, double lat, double lon, int latDegree, int lonDegree) {
+        HeightTile prevTile = lastTile.get();
+        lastTile.set(tile);
+        if (prevTile == null || prevTile == tile)
+            return;
+
+        double nextLat = lat + Integer.signum(tile.getMinLat() - prevTile.getMinLat()) * latDegree;
+        double nextLon = lon + Integer.signum(tile.getMinLon() - prevTile.getMinLon()) * lonDegree;
+        if (nextLat > -90 && nextLat < 90 && nextLon >= -180 && nextLon < 180)
+            prefetch(nextLat, nextLon);
+    }
+
+    /**
+     * Loads the tile of the specified coordinate in the background.
+     */
+    abstract void prefetch(double lat, double lon);
+
+    @Override
+    public void release() {
+        ExecutorService executor;
+        synchronized (this) {
+            executor = prefetchExecutor;
+            prefetchExecutor = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        tiles.clear();
+        lastTile.remove();
+        synchronized (this) {
+            // for memory mapped type we create temporary unpacked files which should be removed
+            if (autoRemoveTemporary && dir != null) {
+                dir.clear();
+                if (daType.isStoring()) {
+                    for (String name : closedHeights) {
+                        Helper.removeDir(new File(dir.getLocation() + name));
+                    }
+                }
+            }
+            closedHeights.clear();
+        }
+    }
+
     /**
      * Return the local file name without file ending, has to be lower case, because DataAccess only supports lower case names.
      */
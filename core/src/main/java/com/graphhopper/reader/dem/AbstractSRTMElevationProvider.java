@@ -17,7 +17,6 @@
  */
 package com.graphhopper.reader.dem;
 
-import com.graphhopper.coll.GHIntObjectHashMap;
 import com.graphhopper.storage.DataAccess;
 import com.graphhopper.util.BitUtil;
 import com.graphhopper.util.Downloader;
@@ -27,6 +26,7 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.SocketTimeoutException;
+import java.util.concurrent.Callable;
 
 /**
  * Common functionality used when working with SRTM hgt data.
@@ -39,8 +39,6 @@ public abstract class AbstractSRTMElevationProvider extends AbstractElevationPro
     private final int DEFAULT_WIDTH;
     private final int WIDTH_BYTE_INDEX = 0;
     private final int DEGREE = 1;
-    // use a map as an array is not quite useful if we want to hold only parts of the world
-    private final GHIntObjectHashMap<HeightTile> cacheData = new GHIntObjectHashMap<>();
     private final double precision = 1e7;
     private final double invPrecision = 1 / precision;
 
@@ -57,15 +55,6 @@ public abstract class AbstractSRTMElevationProvider extends AbstractElevationPro
         return (down(lat) + 90) * 1000 + down(lon) + 180;
     }
 
-    @Override
-    public void release() {
-        cacheData.clear();
-
-        // for memory mapped type we create temporary unpacked files which should be removed
-        if (autoRemoveTemporary && dir != null)
-            dir.clear();
-    }
-
     /**
      * Creating temporary files can take a long time to fill our DataAccess object, so this option
      * can be used to disable the default clear mechanism via specifying 'false'.
@@ -91,55 +80,85 @@ public abstract class AbstractSRTMElevationProvider extends AbstractElevationPro
         lat = (int) (lat * precision) / precision;
         lon = (int) (lon * precision) / precision;
         int intKey = calcIntKey(lat, lon);
-        HeightTile demProvider = cacheData.get(intKey);
-        if (demProvider == null) {
-            if (!cacheDir.exists())
-                cacheDir.mkdirs();
+        HeightTile demProvider = tiles.acquire(intKey, createLoader(lat, lon));
+        if (demProvider == null)
+            return 0;
 
-            int minLat = down(lat);
-            int minLon = down(lon);
+        try {
+            if (prefetch)
+                prefetchNext(demProvider, lat, lon, DEGREE, DEGREE);
 
-            String fileName = getFileName(lat, lon);
-            if (fileName == null)
+            if (demProvider.isSeaLevel())
                 return 0;
 
-            DataAccess heights = getDirectory().find("dem" + intKey);
-            boolean loadExisting = false;
-            try {
-                loadExisting = heights.loadExisting();
-            } catch (Exception ex) {
-                logger.warn("cannot load dem" + intKey + ", error:" + ex.getMessage());
-            }
+            return demProvider.getHeight(lat, lon);
+        } finally {
+            tiles.release(demProvider, intKey);
+        }
+    }
 
-            if (!loadExisting) {
-                try {
-                    updateHeightsFromFile(lat, lon, heights);
-                } catch (FileNotFoundException ex) {
-                    demProvider = new HeightTile(minLat, minLon, DEFAULT_WIDTH, DEFAULT_WIDTH, precision, DEGREE, DEGREE);
-                    cacheData.put(intKey, demProvider);
-                    demProvider.setHeights(heights);
-                    demProvider.setSeaLevel(true);
-                    // use small size on disc and in-memory
-                    heights.setSegmentSize(100).create(10).
-                            flush();
-                    return 0;
-                }
+    @Override
+    void prefetch(double lat, double lon) {
+        if (lat >= 60 || lat <= -56)
+            return;
+
+        tiles.prefetch(calcIntKey(lat, lon), createLoader(lat, lon));
+    }
+
+    private Callable<HeightTile> createLoader(final double lat, final double lon) {
+        return new Callable<HeightTile>() {
+            @Override
+            public HeightTile call() {
+                return loadTile(lat, lon);
             }
+        };
+    }
+
+    /**
+     * @return the tile of the specified coordinate or null if there is no file for it
+     */
+    private HeightTile loadTile(double lat, double lon) {
+        if (!cacheDir.exists())
+            cacheDir.mkdirs();
+
+        int intKey = calcIntKey(lat, lon);
+        int minLat = down(lat);
+        int minLon = down(lon);
 
-            int width = (int) (Math.sqrt(heights.getHeader(WIDTH_BYTE_INDEX)) + 0.5);
-            if (width == 0)
-                width = DEFAULT_WIDTH;
+        String fileName = getFileName(lat, lon);
+        if (fileName == null)
+            return null;
 
-            demProvider = new HeightTile(minLat, minLon, width, width, precision, DEGREE, DEGREE);
-            cacheData.put(intKey, demProvider);
-            demProvider.setCalcMean(calcMean);
-            demProvider.setHeights(heights);
+        DataAccess heights = findHeights("dem" + intKey);
+        boolean loadExisting = false;
+        try {
+            loadExisting = heights.loadExisting();
+        } catch (Exception ex) {
+            logger.warn("cannot load dem" + intKey + ", error:" + ex.getMessage());
         }
 
-        if (demProvider.isSeaLevel())
-            return 0;
+        if (!loadExisting) {
+            try {
+                updateHeightsFromFile(lat, lon, heights);
+            } catch (FileNotFoundException ex) {
+                HeightTile demProvider = new HeightTile(minLat, minLon, DEFAULT_WIDTH, DEFAULT_WIDTH, precision, DEGREE, DEGREE);
+                demProvider.setHeights(heights);
+                // use small size on disc and in-memory
+                heights.setSegmentSize(100).create(10);
+                demProvider.setSeaLevel(true);
+                heights.flush();
+                return demProvider;
+            }
+        }
+
+        int width = (int) (Math.sqrt(heights.getHeader(WIDTH_BYTE_INDEX)) + 0.5);
+        if (width == 0)
+            width = DEFAULT_WIDTH;
 
-        return demProvider.getHeight(lat, lon);
+        HeightTile demProvider = new HeightTile(minLat, minLon, width, width, precision, DEGREE, DEGREE);
+        demProvider.setCalcMean(calcMean);
+        demProvider.setHeights(heights);
+        return demProvider;
     }
 
     private void updateHeightsFromFile(double lat, double lon, DataAccess heights) throws FileNotFoundException {
@@ -24,8 +24,7 @@ import java.awt.image.Raster;
 import java.io.File;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * Provides basic methods that are usually used in an ElevationProvider that reads tiff files.
@@ -33,7 +32,6 @@ import java.util.Map;
  * @author Robin Boldt
  */
 public abstract class AbstractTiffElevationProvider extends AbstractElevationProvider {
-    private final Map<String, HeightTile> cacheData = new HashMap<>();
     final double precision = 1e7;
 
     private final int WIDTH;
@@ -54,15 +52,6 @@ public abstract class AbstractTiffElevationProvider extends AbstractElevationPro
         this.LON_DEGREE = lonDegree;
     }
 
-    @Override
-    public void release() {
-        cacheData.clear();
-
-        // for memory mapped type we create temporary unpacked files which should be removed
-        if (autoRemoveTemporary && dir != null)
-            dir.clear();
-    }
-
     /**
      * Return true if the coordinates are outside of the supported area
      */
@@ -91,55 +80,84 @@ public abstract class AbstractTiffElevationProvider extends AbstractElevationPro
 
         lat = (int) (lat * precision) / precision;
         lon = (int) (lon * precision) / precision;
-        String name = getFileName(lat, lon);
-        HeightTile demProvider = cacheData.get(name);
-        if (demProvider == null) {
-            if (!cacheDir.exists())
-                cacheDir.mkdirs();
-
-            int minLat = getMinLatForTile(lat);
-            int minLon = getMinLonForTile(lon);
-            // less restrictive against boundary checking
-            demProvider = new HeightTile(minLat, minLon, WIDTH, HEIGHT, LON_DEGREE * precision, LON_DEGREE, LAT_DEGREE);
-            demProvider.setCalcMean(calcMean);
-
-            cacheData.put(name, demProvider);
-            DataAccess heights = getDirectory().find(name + ".gh");
-            demProvider.setHeights(heights);
-            boolean loadExisting = false;
-            try {
-                loadExisting = heights.loadExisting();
-            } catch (Exception ex) {
-                logger.warn("cannot load " + name + ", error: " + ex.getMessage());
-            }
+        int intKey = calcIntKey(lat, lon);
+        HeightTile demProvider = tiles.acquire(intKey, createLoader(lat, lon));
+        try {
+            if (prefetch)
+                prefetchNext(demProvider, lat, lon, LAT_DEGREE, LON_DEGREE);
 
-            if (!loadExisting) {
-                String zippedURL = getDownloadURL(lat, lon);
-                File file = new File(cacheDir, new File(getFileNameOfLocalFile(lat, lon)).getName());
+            if (demProvider.isSeaLevel())
+                return 0;
 
-                try {
-                    downloadFile(file, zippedURL);
-                } catch (IOException e) {
-                    demProvider.setSeaLevel(true);
-                    // use small size on disc and in-memory
-                    heights.setSegmentSize(100).create(10).
-                            flush();
-                    return 0;
-                }
+            return demProvider.getHeight(lat, lon);
+        } finally {
+            tiles.release(demProvider, intKey);
+        }
+    }
+
+    // use int key instead of the file name to avoid creating a string for every call
+    int calcIntKey(double lat, double lon) {
+        return (getMinLatForTile(lat) + 90) * 1000 + getMinLonForTile(lon) + 180;
+    }
+
+    @Override
+    void prefetch(double lat, double lon) {
+        if (isOutsideSupportedArea(lat, lon))
+            return;
+
+        tiles.prefetch(calcIntKey(lat, lon), createLoader(lat, lon));
+    }
 
-                // short == 2 bytes
-                heights.create(2 * WIDTH * HEIGHT);
+    private Callable<HeightTile> createLoader(final double lat, final double lon) {
+        return new Callable<HeightTile>() {
+            @Override
+            public HeightTile call() {
+                return loadTile(lat, lon);
+            }
+        };
+    }
 
-                Raster raster = generateRasterFromFile(file, name + ".tif");
-                fillDataAccessWithElevationData(raster, heights, WIDTH);
+    private HeightTile loadTile(double lat, double lon) {
+        if (!cacheDir.exists())
+            cacheDir.mkdirs();
 
-            } // loadExisting
+        String name = getFileName(lat, lon);
+        int minLat = getMinLatForTile(lat);
+        int minLon = getMinLonForTile(lon);
+        // less restrictive against boundary checking
+        HeightTile demProvider = new HeightTile(minLat, minLon, WIDTH, HEIGHT, LON_DEGREE * precision, LON_DEGREE, LAT_DEGREE);
+        demProvider.setCalcMean(calcMean);
+
+        DataAccess heights = findHeights(name + ".gh");
+        demProvider.setHeights(heights);
+        boolean loadExisting = false;
+        try {
+            loadExisting = heights.loadExisting();
+        } catch (Exception ex) {
+            logger.warn("cannot load " + name + ", error: " + ex.getMessage());
         }
 
-        if (demProvider.isSeaLevel())
-            return 0;
+        if (!loadExisting) {
+            String zippedURL = getDownloadURL(lat, lon);
+            File file = new File(cacheDir, new File(getFileNameOfLocalFile(lat, lon)).getName());
 
-        return demProvider.getHeight(lat, lon);
+            try {
+                downloadFile(file, zippedURL);
+            } catch (IOException e) {
+                demProvider.setSeaLevel(true);
+                // use small size on disc and in-memory
+                heights.setSegmentSize(100).create(10).
+                        flush();
+                return demProvider;
+            }
+
+            // short == 2 bytes
+            heights.create(2 * WIDTH * HEIGHT);
+
+            Raster raster = generateRasterFromFile(file, name + ".tif");
+            fillDataAccessWithElevationData(raster, heights, WIDTH);
+        }
+        return demProvider;
     }
 
     abstract Raster generateRasterFromFile(File file, String tifName);
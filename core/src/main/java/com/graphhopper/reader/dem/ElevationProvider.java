@@ -50,6 +50,14 @@ public interface ElevationProvider {
         @Override
         public void setCalcMean(boolean eleCalcMean) {
         }
+
+        @Override
+        public void setMaxCachedTiles(int maxCachedTiles) {
+        }
+
+        @Override
+        public void setPrefetch(boolean prefetch) {
+        }
     };
 
     /**
@@ -74,6 +82,18 @@ public interface ElevationProvider {
      */
     void setCalcMean(boolean calcMean);
 
+    /**
+     * Specifies how many tiles are kept open. If more tiles are used the least recently used tile is closed. With a
+     * storing DAType like MMAP a closed tile is loaded again from the cache directory. Default is 128.
+     */
+    void setMaxCachedTiles(int maxCachedTiles);
+
+    /**
+     * Set to true to load the next tile in the direction of traversal in the background, e.g. while the nodes of an
+     * OSM file are read. Turned off by default.
+     */
+    void setPrefetch(boolean prefetch);
+
     /**
      * Release resources.
      */
@@ -44,6 +44,8 @@ public class HeightTile {
     private final double latHigherBound;
     private DataAccess heights;
     private boolean calcMean;
+    // the number of threads reading the heights, guarded by the HeightTileCache
+    int users;
 
     public HeightTile(int minLat, int minLon, int width, int height, double precision, int horizontalDegree, int verticalDegree) {
         this.minLat = minLat;
@@ -77,6 +79,18 @@ public class HeightTile {
         this.heights = da;
     }
 
+    DataAccess getHeights() {
+        return heights;
+    }
+
+    int getMinLat() {
+        return minLat;
+    }
+
+    int getMinLon() {
+        return minLon;
+    }
+
     public double getHeight(double lat, double lon) {
         double deltaLat = Math.abs(lat - minLat);
         double deltaLon = Math.abs(lon - minLon);
@@ -0,0 +1,193 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.dem;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A bounded cache of the HeightTiles of an elevation provider. If more tiles than the configured maximum are loaded
+ * the least recently used tile is evicted and its heights are closed. With a storing DAType like MMAP the heights of
+ * an evicted tile stay in the cache directory and are mapped again on the next access, instead of downloading and
+ * unpacking the tile again.
+ * <p>
+ * Tiles can be loaded from several threads at the same time, e.g. while neighbouring tiles are prefetched. Every tile
+ * is loaded only once, other threads requesting the same tile wait for the result. A tile is used between acquire
+ * and release, and its heights are only closed once it is evicted and no thread uses it anymore.
+ */
+class HeightTileCache {
+    private final AbstractElevationProvider provider;
+    // guarded by this, iterates from the least to the most recently used tile
+    private final LinkedHashMap<Integer, HeightTile> tiles = new LinkedHashMap<Integer, HeightTile>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, HeightTile> eldest) {
+            if (size() <= provider.maxCachedTiles)
+                return false;
+
+            HeightTile tile = eldest.getValue();
+            if (tile.users == 0)
+                provider.closeHeights(tile);
+            else
+                evicted.put(eldest.getKey(), tile);
+            return true;
+        }
+    };
+    // guarded by this, the evicted tiles that are still used and closed by the last user
+    private final Map<Integer, HeightTile> evicted = new HashMap<>();
+    // guarded by this
+    private final Map<Integer, FutureTask<HeightTile>> loading = new HashMap<>();
+
+    HeightTileCache(AbstractElevationProvider provider) {
+        this.provider = provider;
+    }
+
+    /**
+     * Returns the tile of the specified key, which must be passed to release afterwards. The tile is loaded in the
+     * current thread if it is neither cached nor loaded by another thread. The loader can return null if there is no
+     * tile, which is not cached.
+     */
+    HeightTile acquire(int key, Callable<HeightTile> loader) {
+        while (true) {
+            FutureTask<HeightTile> task;
+            boolean load = false;
+            synchronized (this) {
+                HeightTile tile = getCached(key);
+                if (tile != null) {
+                    tile.users++;
+                    return tile;
+                }
+
+                task = loading.get(key);
+                if (task == null) {
+                    task = new FutureTask<>(loader);
+                    loading.put(key, task);
+                    load = true;
+                }
+            }
+
+            HeightTile tile = load ? load(key, task) : getResult(task);
+            if (tile == null)
+                return null;
+            // the loaded tile is acquired from the cache in the next iteration, it could be evicted already
+        }
+    }
+
+    /**
+     * Ends the use of a tile returned from acquire.
+     */
+    synchronized void release(HeightTile tile, int key) {
+        tile.users--;
+        if (tile.users == 0 && evicted.get(key) == tile) {
+            evicted.remove(key);
+            provider.closeHeights(tile);
+        }
+    }
+
+    /**
+     * @return the cached tile or the evicted tile that is still in use, which is cached again
+     */
+    private HeightTile getCached(int key) {
+        HeightTile tile = tiles.get(key);
+        if (tile != null)
+            return tile;
+
+        tile = evicted.remove(key);
+        if (tile != null)
+            tiles.put(key, tile);
+        return tile;
+    }
+
+    /**
+     * Loads the tile of the specified key in the background if it is neither cached nor loaded already. This does
+     * not change the order of the cached tiles.
+     */
+    void prefetch(final int key, Callable<HeightTile> loader) {
+        final FutureTask<HeightTile> task;
+        synchronized (this) {
+            if (tiles.containsKey(key) || evicted.containsKey(key) || loading.containsKey(key))
+                return;
+
+            task = new FutureTask<>(loader);
+            loading.put(key, task);
+        }
+
+        try {
+            provider.getPrefetchExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        load(key, task);
+                    } catch (Exception ex) {
+                        provider.logger.warn("cannot prefetch elevation tile " + key + ", error: " + ex.getMessage());
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            // the provider was released
+            synchronized (this) {
+                loading.remove(key);
+            }
+            task.cancel(false);
+        }
+    }
+
+    private HeightTile load(int key, FutureTask<HeightTile> task) {
+        task.run();
+        HeightTile tile = null;
+        try {
+            tile = getResult(task);
+            return tile;
+        } finally {
+            synchronized (this) {
+                loading.remove(key);
+                if (tile != null)
+                    tiles.put(key, tile);
+            }
+        }
+    }
+
+    private static HeightTile getResult(FutureTask<HeightTile> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    synchronized int size() {
+        return tiles.size();
+    }
+
+    /**
+     * Removes all tiles without closing their heights.
+     */
+    synchronized void clear() {
+        tiles.clear();
+        evicted.clear();
+    }
+}
@@ -82,6 +82,18 @@ public class MultiSourceElevationProvider implements ElevationProvider {
         globalProvider.setCalcMean(calcMean);
     }
 
+    @Override
+    public void setMaxCachedTiles(int maxCachedTiles) {
+        srtmProvider.setMaxCachedTiles(maxCachedTiles);
+        globalProvider.setMaxCachedTiles(maxCachedTiles);
+    }
+
+    @Override
+    public void setPrefetch(boolean prefetch) {
+        srtmProvider.setPrefetch(prefetch);
+        globalProvider.setPrefetch(prefetch);
+    }
+
     @Override
     public void release() {
         srtmProvider.release();
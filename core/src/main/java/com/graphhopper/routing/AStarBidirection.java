@@ -58,6 +58,7 @@ import com.graphhopper.util.Parameters;
  */
 public class AStarBidirection extends AbstractBidirAlgo implements RecalculationHook {
     private ConsistentWeightApproximator weightApprox;
+    private int recalculationInterval;
 
     public AStarBidirection(Graph graph, Weighting weighting, TraversalMode tMode) {
         super(graph, weighting, tMode);
@@ -96,6 +97,42 @@ public class AStarBidirection extends AbstractBidirAlgo implements Recalculation
         entry.parent = parent;
     }
 
+    @Override
+    boolean fillEdgesTo() {
+        if (!super.fillEdgesTo())
+            return false;
+
+        if (recalculationInterval > 0 && visitedCountTo % recalculationInterval == 0 && !finishedFrom)
+            recalculateApproximation();
+        return true;
+    }
+
+    /**
+     * Lets the approximation adapt to the current nodes of both searches, e.g. select other active landmarks. The
+     * approximation stays consistent, so only the weights of the open entries have to be updated.
+     */
+    private void recalculateApproximation() {
+        if (!weightApprox.recalculate(currFrom.adjNode, currTo.adjNode))
+            return;
+
+        afterHeuristicChange(true, true);
+        // The stop criterion uses the weights of the entries that were polled last as lower bound for the weights of
+        // all open entries. With the new approximation this only holds for the smallest weight in the queues.
+        if (!pqOpenSetFrom.isEmpty())
+            currFrom.weight = Math.min(currFrom.weight, pqOpenSetFrom.peek().weight);
+        if (!pqOpenSetTo.isEmpty())
+            currTo.weight = Math.min(currTo.weight, pqOpenSetTo.peek().weight);
+    }
+
+    /**
+     * Specifies after how many visited nodes of the backward search the approximation is recalculated. 0, the
+     * default, means never.
+     */
+    public AStarBidirection setRecalculationInterval(int recalculationInterval) {
+        this.recalculationInterval = recalculationInterval;
+        return this;
+    }
+
     @Override
     protected double calcWeight(EdgeIteratorState iter, SPTEntry currEdge, boolean reverse) {
         // TODO performance: check if the node is already existent in the opposite direction
@@ -0,0 +1,67 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.BeelineWeightApproximator;
+import com.graphhopper.routing.weighting.ConsistentWeightApproximator;
+import com.graphhopper.routing.weighting.WeightApproximator;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.Parameters;
+
+/**
+ * The bidirectional A* algorithm like {@link AStarBidirection}, but with the primitive search state of
+ * {@link DijkstraBidirectionNative}.
+ */
+public class AStarBidirectionNative extends DijkstraBidirectionNative {
+    private ConsistentWeightApproximator weightApprox;
+
+    public AStarBidirectionNative(Graph graph, Weighting weighting, TraversalMode tMode) {
+        super(graph, weighting, tMode);
+        BeelineWeightApproximator defaultApprox = new BeelineWeightApproximator(nodeAccess, weighting);
+        defaultApprox.setDistanceCalc(Helper.DIST_PLANE);
+        setApproximation(defaultApprox);
+    }
+
+    public WeightApproximator getApproximation() {
+        return weightApprox.getApproximation();
+    }
+
+    public AStarBidirectionNative setApproximation(WeightApproximator approx) {
+        weightApprox = new ConsistentWeightApproximator(approx);
+        return this;
+    }
+
+    @Override
+    protected void initApproximation(int from, int to) {
+        weightApprox.setFrom(from);
+        weightApprox.setTo(to);
+    }
+
+    @Override
+    protected double approximate(int node, boolean reverse) {
+        return weightApprox.approximate(node, reverse);
+    }
+
+    @Override
+    public String getName() {
+        return Parameters.Algorithms.ASTAR_BI + "|" + weightApprox;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.BeelineWeightApproximator;
+import com.graphhopper.routing.weighting.WeightApproximator;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.Parameters;
+
+/**
+ * The A* algorithm like {@link AStar}, but with the primitive search state of {@link DijkstraNative}.
+ */
+public class AStarNative extends DijkstraNative {
+    private WeightApproximator weightApprox;
+
+    public AStarNative(Graph graph, Weighting weighting, TraversalMode tMode) {
+        super(graph, weighting, tMode);
+        BeelineWeightApproximator defaultApprox = new BeelineWeightApproximator(nodeAccess, weighting);
+        defaultApprox.setDistanceCalc(Helper.DIST_PLANE);
+        setApproximation(defaultApprox);
+    }
+
+    /**
+     * @param approx defines how distance to goal Node is approximated
+     */
+    public AStarNative setApproximation(WeightApproximator approx) {
+        weightApprox = approx;
+        return this;
+    }
+
+    @Override
+    protected void initApproximation(int from, int to) {
+        weightApprox.setTo(to);
+    }
+
+    @Override
+    protected double approximate(int node) {
+        return weightApprox.approximate(node);
+    }
+
+    @Override
+    protected Path extractPath() {
+        if (isMaxVisitedNodesExceeded())
+            return createEmptyPath();
+
+        return super.extractPath();
+    }
+
+    @Override
+    public String getName() {
+        return Parameters.Algorithms.ASTAR + "|" + weightApprox;
+    }
+}
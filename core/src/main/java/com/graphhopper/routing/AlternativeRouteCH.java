@@ -0,0 +1,376 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntIndexedContainer;
+import com.carrotsearch.hppc.IntSet;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
+import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.routing.ch.Path4CH;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.EdgeFlagOverlay;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.Parameters;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Calculates alternative routes on a CHGraph with the via node approach (X-CHV) described in 'Alternative Routes in
+ * Road Networks' 2010, see AlternativeRoute. The forward and the backward search explore their upward search spaces
+ * until both reach maxWeightFactor times the weight of the best path. Every node reached by both searches is a via
+ * node candidate and the path from the start to the via node and from there to the end via the two search trees is
+ * the candidate path. The candidates are checked in the order of their weight. A candidate is accepted if it has no
+ * loop, if it shares at most maxShareFactor of the best weight with the already accepted paths and if it is locally
+ * optimal, i.e. the sub path around the via node is a shortest path (T-test).
+ * <p>
+ * The candidates are unpacked and tested in batches. If an ExecutorService is specified the candidates of a batch are
+ * tested concurrently, the acceptance is still done in order of the weight. The search stops as soon as maxPaths paths
+ * are found.
+ */
+public class AlternativeRouteCH extends DijkstraBidirectionCHNoSOD {
+    private double maxWeightFactor = 1.4;
+    private double maxShareFactor = 0.6;
+    private double localOptimalityFactor = 0.25;
+    private int maxPaths = 2;
+    private ExecutorService executorService;
+    private GraphHopperStorage storage;
+    private int batchSize = 1;
+
+    public AlternativeRouteCH(Graph graph, Weighting weighting, TraversalMode traversalMode) {
+        super(graph, weighting, traversalMode);
+    }
+
+    /**
+     * Alternatives with a weight bigger than maxWeightFactor times the optimal weight are not returned. (default is
+     * 1.4)
+     */
+    public AlternativeRouteCH setMaxWeightFactor(double maxWeightFactor) {
+        this.maxWeightFactor = maxWeightFactor;
+        return this;
+    }
+
+    /**
+     * An alternative must not share more than maxShareFactor times the optimal weight with the best path and the
+     * other alternatives. (default is 0.6)
+     */
+    public AlternativeRouteCH setMaxShareFactor(double maxShareFactor) {
+        this.maxShareFactor = maxShareFactor;
+        return this;
+    }
+
+    /**
+     * The sub path of an alternative that starts and ends localOptimalityFactor times the optimal weight before and
+     * after the via node must be a shortest path. (default is 0.25)
+     */
+    public AlternativeRouteCH setLocalOptimalityFactor(double localOptimalityFactor) {
+        this.localOptimalityFactor = localOptimalityFactor;
+        return this;
+    }
+
+    /**
+     * Specifies how many paths (including the optimal) are returned. (default is 2)
+     */
+    public AlternativeRouteCH setMaxPaths(int maxPaths) {
+        this.maxPaths = maxPaths;
+        if (this.maxPaths < 2)
+            throw new IllegalStateException("Use normal algorithm with less overhead instead if no alternatives are required");
+        return this;
+    }
+
+    /**
+     * Tests the candidates concurrently with the specified ExecutorService. The candidates are tested in batches of
+     * twice the number of threads, so that the search can stop early. The workers use the edge flags pinned by the
+     * thread that calculates the paths.
+     *
+     * @param threads the number of threads of the ExecutorService
+     * @param storage the storage of the graph, its edge flags are pinned during the calculation
+     */
+    public AlternativeRouteCH setExecutorService(ExecutorService executorService, int threads, GraphHopperStorage storage) {
+        this.executorService = executorService;
+        this.storage = executorService == null ? null : storage;
+        this.batchSize = executorService == null ? 1 : Math.max(1, 2 * threads);
+        return this;
+    }
+
+    @Override
+    public boolean finished() {
+        if (finishedFrom && finishedTo)
+            return true;
+
+        // explore both search spaces further to find via node candidates for the alternatives
+        double maxWeight = maxWeightFactor * bestPath.getWeight();
+        return currFrom.weight >= maxWeight && currTo.weight >= maxWeight;
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        return calcPaths(from, to).get(0);
+    }
+
+    @Override
+    public List<Path> calcPaths(int from, int to) {
+        if (storage == null)
+            return doCalcPaths(from, to);
+
+        EdgeFlagOverlay pinned = storage.pinEdgeFlags();
+        try {
+            return doCalcPaths(from, to);
+        } finally {
+            storage.unpinEdgeFlags(pinned);
+        }
+    }
+
+    private List<Path> doCalcPaths(int from, int to) {
+        checkAlreadyRun();
+        createAndInitPath();
+        init(from, 0, to, 0);
+        runAlgo();
+        Path best = extractPath();
+        List<Path> paths = new ArrayList<>(maxPaths);
+        paths.add(best);
+        if (!best.isFound() || from == to)
+            return paths;
+
+        // after the extraction bestPath.sptEntry is the entry of the forward search and bestPath.edgeTo the other one
+        IntSet bestFromNodes = collectNodes(bestPath.sptEntry);
+        IntSet bestToNodes = collectNodes(bestPath.edgeTo);
+        List<Candidate> candidates = findCandidates(best.getWeight(), bestFromNodes, bestToNodes);
+
+        IntSet acceptedEdges = new GHIntHashSet();
+        for (EdgeIteratorState edge : best.calcEdges()) {
+            acceptedEdges.add(edge.getEdge());
+        }
+        double maxShareWeight = maxShareFactor * best.getWeight();
+        for (int batchStart = 0; batchStart < candidates.size() && paths.size() < maxPaths; batchStart += batchSize) {
+            List<Candidate> batch = candidates.subList(batchStart, Math.min(candidates.size(), batchStart + batchSize));
+            testCandidates(batch, best.getWeight(), acceptedEdges);
+            for (Candidate candidate : batch) {
+                if (!candidate.valid)
+                    continue;
+
+                // the share with the best path is already checked, but not with the previously accepted alternatives
+                double shareWeight = 0;
+                for (int i = 0; i < candidate.edges.size(); i++) {
+                    if (acceptedEdges.contains(candidate.edges.get(i).getEdge()))
+                        shareWeight += candidate.edgeWeights[i];
+                }
+                if (shareWeight > maxShareWeight)
+                    continue;
+
+                for (EdgeIteratorState edge : candidate.edges) {
+                    acceptedEdges.add(edge.getEdge());
+                }
+                paths.add(candidate.path);
+                if (paths.size() >= maxPaths)
+                    break;
+            }
+        }
+        return paths;
+    }
+
+    private IntSet collectNodes(SPTEntry entry) {
+        IntSet nodes = new GHIntHashSet();
+        while (entry != null) {
+            nodes.add(entry.adjNode);
+            entry = entry.parent;
+        }
+        return nodes;
+    }
+
+    /**
+     * @return all nodes reached from both searches as via node candidates sorted by the weight of their path
+     */
+    private List<Candidate> findCandidates(double bestWeight, IntSet bestFromNodes, IntSet bestToNodes) {
+        double maxWeight = maxWeightFactor * bestWeight;
+        double maxShareWeight = maxShareFactor * bestWeight;
+        List<Candidate> candidates = new ArrayList<>();
+        for (IntObjectCursor<SPTEntry> c : bestWeightMapFrom) {
+            SPTEntry toEntry = bestWeightMapTo.get(c.key);
+            if (toEntry == null)
+                continue;
+
+            double weight = c.value.getWeightOfVisitedPath() + toEntry.getWeightOfVisitedPath();
+            if (weight > maxWeight)
+                continue;
+
+            // The part of the search trees that the candidate has in common with the best path is shared after the
+            // unpacking too. So skip the candidate early if this part is already too long, e.g. for the best path.
+            double sharedWeight = getSharedWeight(c.value, bestFromNodes) + getSharedWeight(toEntry, bestToNodes);
+            if (sharedWeight > maxShareWeight)
+                continue;
+
+            candidates.add(new Candidate(c.value, toEntry, weight));
+        }
+        Collections.sort(candidates, new Comparator<Candidate>() {
+            @Override
+            public int compare(Candidate o1, Candidate o2) {
+                return Double.compare(o1.weight, o2.weight);
+            }
+        });
+        return candidates;
+    }
+
+    private double getSharedWeight(SPTEntry entry, IntSet bestNodes) {
+        while (entry != null) {
+            // every node has only one entry per search, so the rest of the tree path is identical to the best path
+            if (bestNodes.contains(entry.adjNode))
+                return entry.getWeightOfVisitedPath();
+            entry = entry.parent;
+        }
+        return 0;
+    }
+
+    private void testCandidates(List<Candidate> batch, final double bestWeight, final IntSet bestEdges) {
+        if (executorService == null) {
+            for (Candidate candidate : batch) {
+                candidate.test(bestWeight, bestEdges);
+            }
+            return;
+        }
+
+        // the accepted edges are only modified after all candidates of the batch are tested
+        final EdgeFlagOverlay flags = storage.getPinnedEdgeFlags();
+        List<Future<?>> futures = new ArrayList<>(batch.size());
+        for (final Candidate candidate : batch) {
+            futures.add(executorService.submit(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    EdgeFlagOverlay pinned = storage.pinEdgeFlags(flags);
+                    try {
+                        candidate.test(bestWeight, bestEdges);
+                    } finally {
+                        storage.unpinEdgeFlags(pinned);
+                    }
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    /**
+     * @return the weight of the shortest path between the specified nodes
+     */
+    private double calcShortestWeight(int from, int to) {
+        DijkstraBidirectionCH algo = new DijkstraBidirectionCH(graph, weighting, traversalMode);
+        algo.setEdgeFilter(additionalEdgeFilter);
+        return algo.calcPath(from, to).getWeight();
+    }
+
+    @Override
+    public String getName() {
+        return Parameters.Algorithms.ALT_ROUTE + "|ch";
+    }
+
+    private class Candidate {
+        final SPTEntry fromEntry;
+        final SPTEntry toEntry;
+        final double weight;
+        Path path;
+        List<EdgeIteratorState> edges;
+        double[] edgeWeights;
+        boolean valid;
+
+        Candidate(SPTEntry fromEntry, SPTEntry toEntry, double weight) {
+            this.fromEntry = fromEntry;
+            this.toEntry = toEntry;
+            this.weight = weight;
+        }
+
+        /**
+         * Unpacks the path and checks all conditions except the share with other alternatives. Only reads the graph
+         * and the search trees, so several candidates can be tested concurrently.
+         */
+        void test(double bestWeight, IntSet bestEdges) {
+            path = new Path4CH(graph, graph.getBaseGraph(), weighting).
+                    setSPTEntryTo(toEntry).setSPTEntry(fromEntry).setWeight(weight).extract();
+            edges = path.calcEdges();
+            if (edges.isEmpty())
+                return;
+
+            // the two tree paths can meet before the via node, which would be a loop
+            IntIndexedContainer nodes = path.calcNodes();
+            IntSet uniqueNodes = new GHIntHashSet(nodes.size());
+            for (int i = 0; i < nodes.size(); i++) {
+                if (!uniqueNodes.add(nodes.get(i)))
+                    return;
+            }
+
+            edgeWeights = new double[edges.size()];
+            double shareWeight = 0;
+            int viaIndex = -1;
+            int prevEdge = EdgeIterator.NO_EDGE;
+            for (int i = 0; i < edges.size(); i++) {
+                EdgeIteratorState edge = edges.get(i);
+                // the weighting of the CHGraph requires the edge state of the CHGraph
+                edgeWeights[i] = weighting.calcWeight(graph.getEdgeIteratorState(edge.getEdge(), edge.getAdjNode()),
+                        false, prevEdge);
+                prevEdge = edge.getEdge();
+                if (bestEdges.contains(edge.getEdge()))
+                    shareWeight += edgeWeights[i];
+                if (edge.getAdjNode() == fromEntry.adjNode)
+                    viaIndex = i;
+            }
+            if (shareWeight > maxShareFactor * bestWeight)
+                return;
+
+            // T-test: the sub path from x to y must be a shortest path, where x and y are the nodes on the path that
+            // are at least localOptimalityFactor * bestWeight before and after the via node
+            double maxLocalWeight = localOptimalityFactor * bestWeight;
+            double localWeight = 0;
+            int xIndex = viaIndex;
+            while (xIndex >= 0 && localWeight < maxLocalWeight) {
+                localWeight += edgeWeights[xIndex];
+                xIndex--;
+            }
+            double beforeViaWeight = localWeight;
+            int yIndex = viaIndex + 1;
+            while (yIndex < edges.size() && localWeight - beforeViaWeight < maxLocalWeight) {
+                localWeight += edgeWeights[yIndex];
+                yIndex++;
+            }
+            int x = edges.get(xIndex + 1).getBaseNode();
+            int y = edges.get(yIndex - 1).getAdjNode();
+            // allow the rounding errors of the shortcut weights
+            if (calcShortestWeight(x, y) < localWeight * (1 - 1e-5))
+                return;
+
+            if (viaIndex >= 0 && !edges.get(viaIndex).getName().isEmpty())
+                path.setDescription(Collections.singletonList(edges.get(viaIndex).getName()));
+            valid = true;
+        }
+    }
+}
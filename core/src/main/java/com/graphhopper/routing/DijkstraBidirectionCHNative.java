@@ -0,0 +1,88 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ch.Path4CHNative;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+
+/**
+ * The CH query of {@link DijkstraBidirectionCH} implemented on top of {@link DijkstraBidirectionNative}, so the
+ * search states can come from a {@link SearchStatePool}. Stall-on-demand can be disabled like it is done via
+ * {@link DijkstraBidirectionCHNoSOD}.
+ */
+public class DijkstraBidirectionCHNative extends DijkstraBidirectionNative {
+    private boolean stallOnDemand = true;
+
+    public DijkstraBidirectionCHNative(Graph graph, Weighting weighting, TraversalMode traversalMode) {
+        super(graph, weighting, traversalMode);
+    }
+
+    public DijkstraBidirectionCHNative setStallOnDemand(boolean stallOnDemand) {
+        this.stallOnDemand = stallOnDemand;
+        return this;
+    }
+
+    @Override
+    protected boolean finished() {
+        // we need to finish BOTH searches for CH!
+        if (finishedFrom && finishedTo)
+            return true;
+
+        return currFromWeight >= bestWeight && currToWeight >= bestWeight;
+    }
+
+    @Override
+    protected boolean nodeCanBeSkipped(SearchState state, int node, boolean reverse) {
+        if (!stallOnDemand)
+            return false;
+
+        // see DijkstraBidirectionCH: the node is stallable if one of its 'incoming' edges proves that it was reached
+        // via a suboptimal path
+        double weight = state.getWeight(node);
+        EdgeExplorer explorer = reverse ? outEdgeExplorer : inEdgeExplorer;
+        EdgeIterator iter = explorer.setBaseNode(node);
+        while (iter.next()) {
+            int adjNode = iter.getAdjNode();
+            if (state.isReached(adjNode)
+                    && state.getWeight(adjNode) + weighting.calcWeight(iter, !reverse, state.getParentEdge(node)) < weight)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected PathBidirNative createPath(int[] parentNodesFrom, int[] parentEdgesFrom,
+                                         int[] parentNodesTo, int[] parentEdgesTo) {
+        return new Path4CHNative(graph, graph.getBaseGraph(), weighting,
+                parentNodesFrom, parentEdgesFrom, parentNodesTo, parentEdgesTo);
+    }
+
+    @Override
+    public String getName() {
+        return stallOnDemand ? "dijkstrabi|ch" : "dijkstrabi|ch|no_sod";
+    }
+
+    @Override
+    public String toString() {
+        return getName() + "|" + weighting;
+    }
+}
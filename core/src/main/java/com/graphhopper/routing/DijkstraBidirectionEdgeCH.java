@@ -0,0 +1,251 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.coll.GHLongObjectHashMap;
+import com.graphhopper.routing.ch.Path4EdgeCH;
+import com.graphhopper.routing.ch.PreparationWeighting;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.TurnWeighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.util.CHEdgeIteratorState;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.PriorityQueue;
+
+/**
+ * The bidirectional Dijkstra for a CHGraph that was prepared edge-based, see EdgeBasedNodeContractor. Both searches
+ * keep one entry per node and original edge via which the node was reached, so the turn costs can be calculated where
+ * two edges or shortcuts are joined, i.e. between the last original edge of the one and the first original edge of
+ * the other. This includes the node where the searches meet. Like for TraversalMode.EDGE_BASED_2DIR u-turns are not
+ * allowed. Stall-on-demand is not used.
+ */
+public class DijkstraBidirectionEdgeCH extends AbstractRoutingAlgorithm {
+    private final TurnWeighting turnWeighting;
+    private final PreparationWeighting prepareWeighting;
+    private final EdgeExplorer allEdgeExplorer;
+    private final QueryGraph queryGraph;
+    private final GHLongObjectHashMap<EdgeCHEntry> bestWeightMapFrom = new GHLongObjectHashMap<>();
+    private final GHLongObjectHashMap<EdgeCHEntry> bestWeightMapTo = new GHLongObjectHashMap<>();
+    // the last entry added for a node, the other entries of the node are reachable via EdgeCHEntry.nextAtNode
+    private final GHIntObjectHashMap<EdgeCHEntry> nodeEntriesFrom = new GHIntObjectHashMap<>();
+    private final GHIntObjectHashMap<EdgeCHEntry> nodeEntriesTo = new GHIntObjectHashMap<>();
+    private final PriorityQueue<EdgeCHEntry> pqOpenSetFrom = new PriorityQueue<>();
+    private final PriorityQueue<EdgeCHEntry> pqOpenSetTo = new PriorityQueue<>();
+    private EdgeCHEntry bestFrom;
+    private EdgeCHEntry bestTo;
+    private double bestWeight = Double.POSITIVE_INFINITY;
+    private boolean finishedFrom;
+    private boolean finishedTo;
+    private int visitedCountFrom;
+    private int visitedCountTo;
+
+    public DijkstraBidirectionEdgeCH(Graph graph, TurnWeighting weighting, TraversalMode traversalMode) {
+        super(graph, weighting, traversalMode);
+        if (traversalMode != TraversalMode.EDGE_BASED_2DIR)
+            throw new IllegalArgumentException("Only " + TraversalMode.EDGE_BASED_2DIR + " is supported, but was " + traversalMode);
+
+        this.turnWeighting = weighting;
+        this.prepareWeighting = new PreparationWeighting(weighting);
+        this.allEdgeExplorer = graph.createEdgeExplorer(DefaultEdgeFilter.allEdges(flagEncoder));
+        this.queryGraph = graph instanceof QueryGraph ? (QueryGraph) graph : null;
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        checkAlreadyRun();
+        addEntry(new EdgeCHEntry(EdgeIterator.NO_EDGE, from, 0, EdgeIterator.NO_EDGE), false);
+        addEntry(new EdgeCHEntry(EdgeIterator.NO_EDGE, to, 0, EdgeIterator.NO_EDGE), true);
+        runAlgo();
+        return extractPath();
+    }
+
+    private void runAlgo() {
+        while (!finished() && !isMaxVisitedNodesExceeded()) {
+            if (!finishedFrom)
+                finishedFrom = !fillEdges(false);
+
+            if (!finishedTo)
+                finishedTo = !fillEdges(true);
+        }
+    }
+
+    @Override
+    protected boolean finished() {
+        return finishedFrom && finishedTo;
+    }
+
+    /**
+     * Settles the next entry of the forward or backward search.
+     *
+     * @return false if this search is finished, i.e. if it cannot find a better path any longer
+     */
+    private boolean fillEdges(boolean reverse) {
+        PriorityQueue<EdgeCHEntry> queue = reverse ? pqOpenSetTo : pqOpenSetFrom;
+        // we need to finish BOTH searches for CH, the other search cannot stop this one
+        if (queue.isEmpty() || queue.peek().weight >= bestWeight)
+            return false;
+
+        EdgeCHEntry curr = queue.poll();
+        if (reverse)
+            visitedCountTo++;
+        else
+            visitedCountFrom++;
+
+        int node = curr.adjNode;
+        updateBestPath(curr, reverse);
+        EdgeIterator iter = allEdgeExplorer.setBaseNode(node);
+        while (iter.next()) {
+            if (additionalEdgeFilter != null && !additionalEdgeFilter.accept(iter))
+                continue;
+
+            CHEdgeIteratorState chIter = (CHEdgeIteratorState) iter;
+            // the original edge where the edge is joined to the current entry and the one at the adjacent node
+            int joinEdge, adjOrigEdge;
+            double edgeWeight;
+            if (!reverse) {
+                if (!iter.isForward(flagEncoder))
+                    continue;
+
+                joinEdge = chIter.getOrigEdgeFirst();
+                adjOrigEdge = chIter.getOrigEdgeLast();
+                edgeWeight = prepareWeighting.calcWeight(iter, false, EdgeIterator.NO_EDGE);
+            } else if (iter.getAdjNode() == node) {
+                // a loop is only stored in its forward direction, so for the backward search it ends at its first edge
+                if (!iter.isForward(flagEncoder))
+                    continue;
+
+                joinEdge = chIter.getOrigEdgeLast();
+                adjOrigEdge = chIter.getOrigEdgeFirst();
+                edgeWeight = prepareWeighting.calcWeight(iter, false, EdgeIterator.NO_EDGE);
+            } else {
+                if (!iter.isBackward(flagEncoder))
+                    continue;
+
+                joinEdge = chIter.getOrigEdgeFirst();
+                adjOrigEdge = chIter.getOrigEdgeLast();
+                edgeWeight = prepareWeighting.calcWeight(iter, true, EdgeIterator.NO_EDGE);
+            }
+
+            double turnWeight = reverse ? calcTurnWeight(joinEdge, node, curr.origEdge) : calcTurnWeight(curr.origEdge, node, joinEdge);
+            double weight = curr.weight + turnWeight + edgeWeight;
+            if (Double.isInfinite(weight))
+                continue;
+
+            int adjNode = iter.getAdjNode();
+            GHLongObjectHashMap<EdgeCHEntry> bestWeightMap = reverse ? bestWeightMapTo : bestWeightMapFrom;
+            EdgeCHEntry entry = bestWeightMap.get(createKey(adjNode, adjOrigEdge));
+            if (entry == null) {
+                entry = new EdgeCHEntry(iter.getEdge(), adjNode, weight, adjOrigEdge);
+                entry.parent = curr;
+                addEntry(entry, reverse);
+            } else if (entry.weight > weight) {
+                queue.remove(entry);
+                entry.edge = iter.getEdge();
+                entry.weight = weight;
+                entry.parent = curr;
+                queue.add(entry);
+            }
+        }
+        return true;
+    }
+
+    private void addEntry(EdgeCHEntry entry, boolean reverse) {
+        (reverse ? bestWeightMapTo : bestWeightMapFrom).put(createKey(entry.adjNode, entry.origEdge), entry);
+        GHIntObjectHashMap<EdgeCHEntry> nodeEntries = reverse ? nodeEntriesTo : nodeEntriesFrom;
+        entry.nextAtNode = nodeEntries.get(entry.adjNode);
+        nodeEntries.put(entry.adjNode, entry);
+        (reverse ? pqOpenSetTo : pqOpenSetFrom).add(entry);
+    }
+
+    /**
+     * Joins the settled entry with all entries of the other search at the same node.
+     */
+    private void updateBestPath(EdgeCHEntry entry, boolean reverse) {
+        EdgeCHEntry other = (reverse ? nodeEntriesFrom : nodeEntriesTo).get(entry.adjNode);
+        for (; other != null; other = other.nextAtNode) {
+            double turnWeight = reverse ? calcTurnWeight(other.origEdge, entry.adjNode, entry.origEdge)
+                    : calcTurnWeight(entry.origEdge, entry.adjNode, other.origEdge);
+            double weight = entry.weight + other.weight + turnWeight;
+            if (weight < bestWeight) {
+                bestWeight = weight;
+                bestFrom = reverse ? other : entry;
+                bestTo = reverse ? entry : other;
+            }
+        }
+    }
+
+    private double calcTurnWeight(int inEdge, int node, int outEdge) {
+        if (!EdgeIterator.Edge.isValid(inEdge) || !EdgeIterator.Edge.isValid(outEdge))
+            return 0;
+        if (isUTurn(inEdge, node, outEdge))
+            return Double.POSITIVE_INFINITY;
+
+        return turnWeighting.calcTurnWeight(inEdge, node, outEdge);
+    }
+
+    private boolean isUTurn(int inEdge, int node, int outEdge) {
+        if (inEdge == outEdge)
+            return true;
+
+        // at a tower node a virtual edge belongs to the same road as the edge it was created from
+        return queryGraph != null && !queryGraph.isVirtualNode(node)
+                && queryGraph.getOriginalEdgeId(inEdge) == queryGraph.getOriginalEdgeId(outEdge);
+    }
+
+    private static long createKey(int node, int origEdge) {
+        return ((long) node << 32) | (origEdge & 0xFFFFFFFFL);
+    }
+
+    @Override
+    protected Path extractPath() {
+        if (bestFrom == null || bestTo == null)
+            return createEmptyPath();
+
+        Path4EdgeCH path = new Path4EdgeCH(graph, graph.getBaseGraph(), turnWeighting);
+        path.setSPTEntry(bestFrom);
+        path.setSPTEntryTo(bestTo);
+        path.setWeight(bestWeight);
+        return path.extract();
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedCountFrom + visitedCountTo;
+    }
+
+    @Override
+    public String getName() {
+        return "dijkstrabi|ch|edge_based";
+    }
+
+    private static class EdgeCHEntry extends SPTEntry {
+        // the original edge via which adjNode is reached in the direction of the search
+        final int origEdge;
+        EdgeCHEntry nextAtNode;
+
+        EdgeCHEntry(int edge, int adjNode, double weight, int origEdge) {
+            super(edge, adjNode, weight);
+            this.origEdge = origEdge;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.MinHeapWithUpdate;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.Parameters;
+
+/**
+ * A node based bidirectional Dijkstra like {@link DijkstraBidirectionRef}, but both shortest path trees are stored in
+ * {@link SearchState}s instead of one SPTEntry object per node. If a {@link SearchStatePool} is set the states are
+ * taken from it, so a query creates almost no garbage.
+ */
+public class DijkstraBidirectionNative extends AbstractRoutingAlgorithm {
+    private SearchStatePool searchStatePool;
+    protected SearchState stateFrom;
+    protected SearchState stateTo;
+    protected double currFromWeight;
+    protected double currToWeight;
+    protected boolean finishedFrom;
+    protected boolean finishedTo;
+    private int visitedCountFrom;
+    private int visitedCountTo;
+    private int meetingNode = -1;
+    protected double bestWeight = Double.MAX_VALUE;
+
+    public DijkstraBidirectionNative(Graph graph, Weighting weighting, TraversalMode tMode) {
+        super(graph, weighting, tMode);
+        if (tMode.isEdgeBased())
+            throw new IllegalArgumentException(getClass().getSimpleName() + " does not support edge based traversal");
+    }
+
+    /**
+     * @param searchStatePool the pool of the graph or null to create new search states for every query
+     */
+    public DijkstraBidirectionNative setSearchStatePool(SearchStatePool searchStatePool) {
+        this.searchStatePool = searchStatePool;
+        return this;
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        checkAlreadyRun();
+        initApproximation(from, to);
+        stateFrom = acquireState();
+        stateTo = acquireState();
+        try {
+            stateFrom.setEntry(from, 0, -1, EdgeIterator.NO_EDGE);
+            currFromWeight = approximate(from, false);
+            stateFrom.getHeap().push(from, currFromWeight);
+            stateTo.setEntry(to, 0, -1, EdgeIterator.NO_EDGE);
+            currToWeight = approximate(to, true);
+            stateTo.getHeap().push(to, currToWeight);
+            if (from == to) {
+                meetingNode = from;
+                bestWeight = 0;
+            }
+            runAlgo();
+            return extractPath();
+        } finally {
+            if (searchStatePool != null) {
+                searchStatePool.release(stateFrom);
+                searchStatePool.release(stateTo);
+            }
+            stateFrom = null;
+            stateTo = null;
+        }
+    }
+
+    private SearchState acquireState() {
+        return searchStatePool == null ? new SearchState(graph.getNodes()) : searchStatePool.acquire(graph.getNodes());
+    }
+
+    protected void initApproximation(int from, int to) {
+    }
+
+    /**
+     * @return the potential of the specified node for the search in the given direction, 0 for Dijkstra
+     */
+    protected double approximate(int node, boolean reverse) {
+        return 0;
+    }
+
+    private void runAlgo() {
+        while (!finished() && !isMaxVisitedNodesExceeded()) {
+            if (!finishedFrom)
+                finishedFrom = !fillEdges(stateFrom, stateTo, outEdgeExplorer, false);
+
+            if (!finishedTo)
+                finishedTo = !fillEdges(stateTo, stateFrom, inEdgeExplorer, true);
+        }
+    }
+
+    // see AbstractBidirAlgo: a node from the overlap may not be on the best path, so the best path is updated when
+    // an edge leads to a node that was already reached by the other search
+    @Override
+    protected boolean finished() {
+        if (finishedFrom || finishedTo)
+            return true;
+
+        return currFromWeight + currToWeight >= bestWeight;
+    }
+
+    private boolean fillEdges(SearchState state, SearchState otherState, EdgeExplorer explorer, boolean reverse) {
+        MinHeapWithUpdate heap = state.getHeap();
+        if (heap.isEmpty())
+            return false;
+
+        if (reverse) {
+            currToWeight = heap.peekValue();
+            visitedCountTo++;
+        } else {
+            currFromWeight = heap.peekValue();
+            visitedCountFrom++;
+        }
+        int currNode = heap.poll();
+        if (nodeCanBeSkipped(state, currNode, reverse))
+            return true;
+
+        double currWeight = state.getWeight(currNode);
+        int currEdge = state.getParentEdge(currNode);
+        EdgeIterator iter = explorer.setBaseNode(currNode);
+        while (iter.next()) {
+            if (!accept(iter, currEdge))
+                continue;
+
+            double weight = weighting.calcWeight(iter, reverse, currEdge) + currWeight;
+            if (Double.isInfinite(weight))
+                continue;
+
+            int adjNode = iter.getAdjNode();
+            if (!state.isReached(adjNode)) {
+                state.setEntry(adjNode, weight, currNode, iter.getEdge());
+                heap.push(adjNode, weight + approximate(adjNode, reverse));
+            } else if (state.getWeight(adjNode) > weight) {
+                state.setEntry(adjNode, weight, currNode, iter.getEdge());
+                if (heap.contains(adjNode))
+                    heap.update(adjNode, weight + approximate(adjNode, reverse));
+                else
+                    heap.push(adjNode, weight + approximate(adjNode, reverse));
+            } else
+                continue;
+
+            if (otherState.isReached(adjNode)) {
+                double pathWeight = weight + otherState.getWeight(adjNode);
+                if (pathWeight < bestWeight) {
+                    bestWeight = pathWeight;
+                    meetingNode = adjNode;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the specified node, which was just taken from the heap of the given search, should not be
+     * expanded, e.g. because it is stallable in a CH query
+     */
+    protected boolean nodeCanBeSkipped(SearchState state, int node, boolean reverse) {
+        return false;
+    }
+
+    protected PathBidirNative createPath(int[] parentNodesFrom, int[] parentEdgesFrom,
+                                         int[] parentNodesTo, int[] parentEdgesTo) {
+        return new PathBidirNative(graph, weighting, parentNodesFrom, parentEdgesFrom, parentNodesTo, parentEdgesTo);
+    }
+
+    @Override
+    protected Path extractPath() {
+        PathBidirNative path = createPath(stateFrom.getParentNodes(), stateFrom.getParentEdges(),
+                stateTo.getParentNodes(), stateTo.getParentEdges());
+        path.setWeight(bestWeight);
+        if (finished())
+            path.setMeetingNode(meetingNode).extract();
+
+        return path;
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedCountFrom + visitedCountTo;
+    }
+
+    @Override
+    public String getName() {
+        return Parameters.Algorithms.DIJKSTRA_BI;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.MinHeapWithUpdate;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.Parameters;
+
+/**
+ * A node based Dijkstra like {@link Dijkstra}, but the shortest path tree is stored in a {@link SearchState} instead
+ * of one SPTEntry object per node. If a {@link SearchStatePool} is set the state is taken from it, so a query creates
+ * almost no garbage.
+ */
+public class DijkstraNative extends AbstractRoutingAlgorithm {
+    private SearchStatePool searchStatePool;
+    private SearchState state;
+    private int currNode = -1;
+    private int from = -1;
+    private int to = -1;
+    private int visitedNodes;
+
+    public DijkstraNative(Graph graph, Weighting weighting, TraversalMode tMode) {
+        super(graph, weighting, tMode);
+        if (tMode.isEdgeBased())
+            throw new IllegalArgumentException(getClass().getSimpleName() + " does not support edge based traversal");
+    }
+
+    /**
+     * @param searchStatePool the pool of the graph or null to create a new search state for every query
+     */
+    public DijkstraNative setSearchStatePool(SearchStatePool searchStatePool) {
+        this.searchStatePool = searchStatePool;
+        return this;
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        checkAlreadyRun();
+        this.from = from;
+        this.to = to;
+        initApproximation(from, to);
+        state = searchStatePool == null ? new SearchState(graph.getNodes()) : searchStatePool.acquire(graph.getNodes());
+        try {
+            state.setEntry(from, 0, -1, EdgeIterator.NO_EDGE);
+            state.getHeap().push(from, approximate(from));
+            runAlgo();
+            return extractPath();
+        } finally {
+            if (searchStatePool != null)
+                searchStatePool.release(state);
+            state = null;
+        }
+    }
+
+    protected void initApproximation(int from, int to) {
+    }
+
+    /**
+     * @return the estimated weight from the specified node to the target, 0 for Dijkstra
+     */
+    protected double approximate(int node) {
+        return 0;
+    }
+
+    private void runAlgo() {
+        MinHeapWithUpdate heap = state.getHeap();
+        while (!heap.isEmpty()) {
+            currNode = heap.poll();
+            visitedNodes++;
+            if (isMaxVisitedNodesExceeded() || finished())
+                break;
+
+            double currWeight = state.getWeight(currNode);
+            int currEdge = state.getParentEdge(currNode);
+            EdgeIterator iter = outEdgeExplorer.setBaseNode(currNode);
+            while (iter.next()) {
+                if (!accept(iter, currEdge))
+                    continue;
+
+                double tmpWeight = weighting.calcWeight(iter, false, currEdge) + currWeight;
+                if (Double.isInfinite(tmpWeight))
+                    continue;
+
+                int adjNode = iter.getAdjNode();
+                if (!state.isReached(adjNode)) {
+                    state.setEntry(adjNode, tmpWeight, currNode, iter.getEdge());
+                    heap.push(adjNode, tmpWeight + approximate(adjNode));
+                } else if (state.getWeight(adjNode) > tmpWeight) {
+                    state.setEntry(adjNode, tmpWeight, currNode, iter.getEdge());
+                    // an inconsistent approximation can make it necessary to visit a node again
+                    if (heap.contains(adjNode))
+                        heap.update(adjNode, tmpWeight + approximate(adjNode));
+                    else
+                        heap.push(adjNode, tmpWeight + approximate(adjNode));
+                }
+            }
+        }
+    }
+
+    @Override
+    protected boolean finished() {
+        return currNode == to;
+    }
+
+    @Override
+    protected Path extractPath() {
+        if (currNode < 0 || !finished())
+            return createEmptyPath();
+
+        PathNative path = new PathNative(graph, weighting, state.getParentNodes(), state.getParentEdges());
+        path.setWeight(state.getWeight(currNode));
+        path.setFromNode(from);
+        return path.setEndNode(currNode).extract();
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    @Override
+    public String getName() {
+        return Parameters.Algorithms.DIJKSTRA;
+    }
+}
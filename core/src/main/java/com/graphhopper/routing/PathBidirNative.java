@@ -0,0 +1,84 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeIterator;
+
+/**
+ * This class creates a Path from the two primitive shortest path trees of a bidirectional search, see
+ * {@link DijkstraBidirectionNative}.
+ */
+public class PathBidirNative extends Path {
+    private final int[] parentNodesFrom;
+    private final int[] parentEdgesFrom;
+    private final int[] parentNodesTo;
+    private final int[] parentEdgesTo;
+    private int meetingNode = -1;
+
+    public PathBidirNative(Graph g, Weighting weighting, int[] parentNodesFrom, int[] parentEdgesFrom,
+                           int[] parentNodesTo, int[] parentEdgesTo) {
+        super(g, weighting);
+        this.parentNodesFrom = parentNodesFrom;
+        this.parentEdgesFrom = parentEdgesFrom;
+        this.parentNodesTo = parentNodesTo;
+        this.parentEdgesTo = parentEdgesTo;
+    }
+
+    /**
+     * @param meetingNode the node where the forward and the backward search met on the best path
+     */
+    public PathBidirNative setMeetingNode(int meetingNode) {
+        this.meetingNode = meetingNode;
+        return this;
+    }
+
+    @Override
+    public Path extract() {
+        if (meetingNode < 0)
+            return this;
+
+        extractSW.start();
+        int node = meetingNode;
+        int edge = parentEdgesFrom[node];
+        while (EdgeIterator.Edge.isValid(edge)) {
+            int parent = parentNodesFrom[node];
+            // the reverse search needs the next edge
+            int nextEdge = parentEdgesFrom[parent];
+            processEdge(edge, node, nextEdge);
+            node = parent;
+            edge = nextEdge;
+        }
+        setFromNode(node);
+        reverseOrder();
+
+        node = meetingNode;
+        int prevEdge = parentEdgesFrom[meetingNode];
+        edge = parentEdgesTo[node];
+        while (EdgeIterator.Edge.isValid(edge)) {
+            node = parentNodesTo[node];
+            processEdge(edge, node, prevEdge);
+            prevEdge = edge;
+            edge = parentEdgesTo[node];
+        }
+        setEndNode(node);
+        extractSW.stop();
+        return setFound(true);
+    }
+}
@@ -149,6 +149,7 @@ public class QueryGraph implements Graph {
     private final Set<VirtualEdgeIteratorState> unfavoredEdges = new LinkedHashSet<>(5);
 
     private boolean useEdgeExplorerCache = false;
+    private boolean initialized = false;
 
     public QueryGraph(Graph graph) {
         mainGraph = graph;
@@ -208,13 +209,17 @@ public class QueryGraph implements Graph {
         if (isInitialized())
             throw new IllegalStateException("Call lookup only once. Otherwise you'll have problems for queries sharing the same edge.");
 
-        // initialize all none-final variables
-        virtualEdges = new ArrayList<>(resList.size() * 2);
-        virtualNodes = new PointList(resList.size(), mainNodeAccess.is3D());
-        queryResults = new ArrayList<>(resList.size());
-        baseGraph.virtualEdges = virtualEdges;
-        baseGraph.virtualNodes = virtualNodes;
-        baseGraph.queryResults = queryResults;
+        // initialize all none-final variables, the buffers of a previous lookup are reused after a reset
+        if (virtualEdges == null) {
+            virtualEdges = new ArrayList<>(resList.size() * 2);
+            virtualNodes = new PointList(resList.size(), mainNodeAccess.is3D());
+            queryResults = new ArrayList<>(resList.size());
+            baseGraph.virtualEdges = virtualEdges;
+            baseGraph.virtualNodes = virtualNodes;
+            baseGraph.queryResults = queryResults;
+        }
+        initialized = true;
+        baseGraph.initialized = true;
 
         GHIntObjectHashMap<List<QueryResult>> edge2res = new GHIntObjectHashMap<>(resList.size());
 
@@ -379,6 +384,17 @@ public class QueryGraph implements Graph {
         return nodeId >= mainNodes;
     }
 
+    /**
+     * @return the id of the edge that the specified virtual edge was created from or the specified edge id if it is
+     * not virtual
+     */
+    public int getOriginalEdgeId(int edgeId) {
+        if (!isVirtualEdge(edgeId))
+            return edgeId;
+
+        return queryResults.get((edgeId - mainEdges) / 4).getClosestEdge().getEdge();
+    }
+
     /**
      * This method is an experimental feature to reduce memory and CPU resources if there are many
      * locations ("hundreds") for one QueryGraph. It can make problems for custom or threaded
@@ -703,7 +719,28 @@ public class QueryGraph implements Graph {
     }
 
     private boolean isInitialized() {
-        return queryResults != null;
+        return initialized;
+    }
+
+    /**
+     * Removes all virtual nodes and edges so that lookup can be called again, e.g. to reuse this QueryGraph for the
+     * next request. The buffers for the virtual nodes and edges are kept. Paths that were calculated on this
+     * QueryGraph must not be used afterwards. The underlying graph must not change in the meantime.
+     */
+    public QueryGraph reset() {
+        if (!isInitialized())
+            return this;
+
+        unfavoredEdges.clear();
+        baseGraph.unfavoredEdges.clear();
+        cacheMap.clear();
+        baseGraph.cacheMap.clear();
+        virtualEdges.clear();
+        virtualNodes.clear();
+        queryResults.clear();
+        initialized = false;
+        baseGraph.initialized = false;
+        return this;
     }
 
     @Override
@@ -759,13 +796,7 @@ public class QueryGraph implements Graph {
             if (isVirtualNode(nodeVia)) {
                 return 0;
             } else if (isVirtualEdge(edgeFrom) || isVirtualEdge(edgeTo)) {
-                if (isVirtualEdge(edgeFrom)) {
-                    edgeFrom = queryResults.get((edgeFrom - mainEdges) / 4).getClosestEdge().getEdge();
-                }
-                if (isVirtualEdge(edgeTo)) {
-                    edgeTo = queryResults.get((edgeTo - mainEdges) / 4).getClosestEdge().getEdge();
-                }
-                return mainTurnExtension.getTurnCostFlags(edgeFrom, nodeVia, edgeTo);
+                return mainTurnExtension.getTurnCostFlags(getOriginalEdgeId(edgeFrom), nodeVia, getOriginalEdgeId(edgeTo));
 
             } else {
                 return mainTurnExtension.getTurnCostFlags(edgeFrom, nodeVia, edgeTo);
@@ -0,0 +1,197 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.shapes.GHPoint;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of route responses for repeated requests. The key of a request contains its snapped points, i.e. the
+ * closest edge, the way index, the snapped position and the snapped coordinate, so requests with slightly different
+ * coordinates that snap to the same junction share an entry. It also contains everything else that changes the
+ * response like the algorithm, the locale, the headings, the path details and the hints, and the version of the
+ * edge flags, so a response calculated before changeGraph modified the edges is never returned afterwards.
+ * <p>
+ * If the cache is full the least recently used entry is evicted. Entries also expire after the time to live. The
+ * cache stores copies of the paths and every hit returns new copies, so callers can modify the responses they get
+ * without changing the cached entry or the responses of other requests.
+ */
+public class RouteCache {
+    private final int maxSize;
+    private final long ttlMillis;
+    // guarded by this, iterates from the least to the most recently used entry
+    private final LinkedHashMap<String, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param ttlMillis the time in milliseconds after which an entry expires or 0 if entries do not expire
+     */
+    public RouteCache(final int maxSize, long ttlMillis) {
+        if (maxSize < 1)
+            throw new IllegalArgumentException("maxSize must be positive but was " + maxSize);
+        if (ttlMillis < 0)
+            throw new IllegalArgumentException("ttlMillis must not be negative but was " + ttlMillis);
+
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<String, Entry>(Math.min(maxSize, 1000), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= maxSize)
+                    return false;
+
+                evictions.incrementAndGet();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Creates the key of the specified request.
+     *
+     * @param queryResults the snapped points of the request
+     * @param version      the version of the edge flags, see EdgeFlagOverlay
+     */
+    public static String createKey(GHRequest request, List<QueryResult> queryResults, long version) {
+        StringBuilder sb = new StringBuilder(128 + 64 * queryResults.size());
+        sb.append(version).append('|').append(request.getAlgorithm()).append('|').append(request.getLocale());
+        for (int i = 0; i < queryResults.size(); i++) {
+            QueryResult qr = queryResults.get(i);
+            GHPoint snapped = qr.getSnappedPoint();
+            sb.append('|').append(qr.getClosestEdge().getEdge()).append(',').append(qr.getWayIndex()).
+                    append(',').append(qr.getSnappedPosition().ordinal()).
+                    append(',').append(snapped.lat).append(',').append(snapped.lon);
+            if (request.hasFavoredHeading(i))
+                sb.append(',').append(request.getFavoredHeading(i));
+        }
+        sb.append('|').append(request.getPathDetails());
+        // the hints are sorted to get the same key for the same hints
+        sb.append('|').append(new TreeMap<>(request.getHints().toMap()));
+        return sb.toString();
+    }
+
+    /**
+     * @return a new response with copies of the cached paths or null if there is no or only an expired entry for
+     * the key
+     */
+    public GHResponse get(String key) {
+        List<PathWrapper> paths = null;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (isExpired(entry))
+                    entries.remove(key);
+                else
+                    paths = entry.paths;
+            }
+        }
+
+        if (paths == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        hits.incrementAndGet();
+        // the cached paths are never modified, so they can be copied outside of the lock
+        GHResponse response = new GHResponse();
+        for (PathWrapper path : paths) {
+            response.add(path.copy());
+        }
+        return response;
+    }
+
+    /**
+     * Caches copies of the paths of the specified response, so later modifications of the response do not change
+     * the entry.
+     */
+    public void put(String key, GHResponse response) {
+        List<PathWrapper> paths = new ArrayList<>(response.getAll().size());
+        for (PathWrapper path : response.getAll()) {
+            paths.add(path.copy());
+        }
+        Entry entry = new Entry(paths, getTime());
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+    }
+
+    private boolean isExpired(Entry entry) {
+        return ttlMillis > 0 && getTime() - entry.created >= ttlMillis;
+    }
+
+    long getTime() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Removes all entries, e.g. after the graph was changed.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of entries that were removed because the cache was full
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "size:" + getSize() + ", hits:" + getHits() + ", misses:" + getMisses() + ", evictions:" + getEvictions();
+    }
+
+    private static class Entry {
+        final List<PathWrapper> paths;
+        final long created;
+
+        Entry(List<PathWrapper> paths, long created) {
+            this.paths = paths;
+            this.created = created;
+        }
+    }
+}
@@ -22,6 +22,7 @@ import com.graphhopper.routing.weighting.WeightApproximator;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.util.Helper;
+import com.graphhopper.util.Parameters;
 
 import static com.graphhopper.util.Parameters.Algorithms.*;
 import static com.graphhopper.util.Parameters.Algorithms.AltRoute.*;
@@ -33,28 +34,64 @@ import static com.graphhopper.util.Parameters.Algorithms.AltRoute.*;
  * @author Peter Karich
  */
 public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
+    private SearchStatePool searchStatePool;
+
+    /**
+     * @param searchStatePool the pool used by the native search algorithms or null to create new search states
+     *                        for every query
+     */
+    public RoutingAlgorithmFactorySimple setSearchStatePool(SearchStatePool searchStatePool) {
+        this.searchStatePool = searchStatePool;
+        return this;
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph g, AlgorithmOptions opts) {
         RoutingAlgorithm ra;
         String algoStr = opts.getAlgorithm();
+        boolean nativeSearch = !opts.getTraversalMode().isEdgeBased()
+                && opts.getHints().getBool(Parameters.Routing.NATIVE_SEARCH, false);
         if (DIJKSTRA_BI.equalsIgnoreCase(algoStr)) {
-            ra = new DijkstraBidirectionRef(g, opts.getWeighting(), opts.getTraversalMode());
+            if (nativeSearch)
+                ra = new DijkstraBidirectionNative(g, opts.getWeighting(), opts.getTraversalMode())
+                        .setSearchStatePool(searchStatePool);
+            else
+                ra = new DijkstraBidirectionRef(g, opts.getWeighting(), opts.getTraversalMode());
         } else if (DIJKSTRA.equalsIgnoreCase(algoStr)) {
-            ra = new Dijkstra(g, opts.getWeighting(), opts.getTraversalMode());
+            if (nativeSearch)
+                ra = new DijkstraNative(g, opts.getWeighting(), opts.getTraversalMode())
+                        .setSearchStatePool(searchStatePool);
+            else
+                ra = new Dijkstra(g, opts.getWeighting(), opts.getTraversalMode());
 
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr)) {
-            AStarBidirection aStarBi = new AStarBidirection(g, opts.getWeighting(),
-                    opts.getTraversalMode());
-            aStarBi.setApproximation(getApproximation(ASTAR_BI, opts, g.getNodeAccess()));
-            ra = aStarBi;
+            if (nativeSearch) {
+                AStarBidirectionNative aStarBi = new AStarBidirectionNative(g, opts.getWeighting(),
+                        opts.getTraversalMode());
+                aStarBi.setApproximation(getApproximation(ASTAR_BI, opts, g.getNodeAccess()));
+                aStarBi.setSearchStatePool(searchStatePool);
+                ra = aStarBi;
+            } else {
+                AStarBidirection aStarBi = new AStarBidirection(g, opts.getWeighting(),
+                        opts.getTraversalMode());
+                aStarBi.setApproximation(getApproximation(ASTAR_BI, opts, g.getNodeAccess()));
+                ra = aStarBi;
+            }
 
         } else if (DIJKSTRA_ONE_TO_MANY.equalsIgnoreCase(algoStr)) {
             ra = new DijkstraOneToMany(g, opts.getWeighting(), opts.getTraversalMode());
 
         } else if (ASTAR.equalsIgnoreCase(algoStr)) {
-            AStar aStar = new AStar(g, opts.getWeighting(), opts.getTraversalMode());
-            aStar.setApproximation(getApproximation(ASTAR, opts, g.getNodeAccess()));
-            ra = aStar;
+            if (nativeSearch) {
+                AStarNative aStar = new AStarNative(g, opts.getWeighting(), opts.getTraversalMode());
+                aStar.setApproximation(getApproximation(ASTAR, opts, g.getNodeAccess()));
+                aStar.setSearchStatePool(searchStatePool);
+                ra = aStar;
+            } else {
+                AStar aStar = new AStar(g, opts.getWeighting(), opts.getTraversalMode());
+                aStar.setApproximation(getApproximation(ASTAR, opts, g.getNodeAccess()));
+                ra = aStar;
+            }
 
         } else if (ALT_ROUTE.equalsIgnoreCase(algoStr)) {
             AlternativeRoute altRouteAlgo = new AlternativeRoute(g, opts.getWeighting(), opts.getTraversalMode());
@@ -0,0 +1,123 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.MinHeapWithUpdate;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Arrays;
+
+/**
+ * The shortest path tree of a node based search stored in primitive arrays indexed by the node, plus the heap of the
+ * search. Instead of clearing the arrays for every search each node stores the version of the search that reached
+ * it last, so {@link #reset()} does not depend on the graph size.
+ * <p>
+ * The arrays need about 20 bytes per node of the graph, so instances are expensive to create and should be
+ * obtained from the {@link SearchStatePool} of the graph and given back to it when the path was extracted.
+ */
+public class SearchState {
+    private int[] versions;
+    private int version;
+    private double[] weights;
+    private int[] parentNodes;
+    private int[] parentEdges;
+    private final MinHeapWithUpdate heap;
+
+    public SearchState(int nodes) {
+        versions = new int[nodes];
+        weights = new double[nodes];
+        parentNodes = new int[nodes];
+        parentEdges = new int[nodes];
+        heap = new MinHeapWithUpdate(nodes);
+        version = 1;
+    }
+
+    void ensureCapacity(int nodes) {
+        if (nodes <= weights.length)
+            return;
+
+        // leave some room for the virtual nodes of the next query graphs
+        int capacity = nodes + 1000;
+        versions = Arrays.copyOf(versions, capacity);
+        weights = Arrays.copyOf(weights, capacity);
+        parentNodes = Arrays.copyOf(parentNodes, capacity);
+        parentEdges = Arrays.copyOf(parentEdges, capacity);
+        heap.ensureCapacity(capacity);
+    }
+
+    /**
+     * Marks all nodes as not reached and clears the heap.
+     */
+    public void reset() {
+        heap.clear();
+        if (version == Integer.MAX_VALUE) {
+            Arrays.fill(versions, 0);
+            version = 0;
+        }
+        version++;
+    }
+
+    public boolean isReached(int node) {
+        return versions[node] == version;
+    }
+
+    /**
+     * @return the weight of the best path to the specified node found so far or Double.MAX_VALUE if the node was not
+     * reached
+     */
+    public double getWeight(int node) {
+        return isReached(node) ? weights[node] : Double.MAX_VALUE;
+    }
+
+    public int getParentNode(int node) {
+        return isReached(node) ? parentNodes[node] : -1;
+    }
+
+    public int getParentEdge(int node) {
+        return isReached(node) ? parentEdges[node] : EdgeIterator.NO_EDGE;
+    }
+
+    /**
+     * Marks the specified node as reached via the given parent node and edge. Use -1 and EdgeIterator.NO_EDGE for the
+     * start node.
+     */
+    public void setEntry(int node, double weight, int parentNode, int parentEdge) {
+        versions[node] = version;
+        weights[node] = weight;
+        parentNodes[node] = parentNode;
+        parentEdges[node] = parentEdge;
+    }
+
+    public MinHeapWithUpdate getHeap() {
+        return heap;
+    }
+
+    /**
+     * The parent nodes indexed by node. Entries of nodes that were not reached are undefined.
+     */
+    int[] getParentNodes() {
+        return parentNodes;
+    }
+
+    /**
+     * The parent edges indexed by node. Entries of nodes that were not reached are undefined.
+     */
+    int[] getParentEdges() {
+        return parentEdges;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import java.util.ArrayDeque;
+
+/**
+ * Keeps the SearchStates of the finished searches on one graph, so that the next searches do not need to allocate
+ * their graph-sized arrays again. The pool belongs to the owner of the graph, e.g. GraphHopper or a CH preparation,
+ * and is cleared when the graph is closed. At most maxSize states are kept, the others are left to the garbage
+ * collector.
+ */
+public class SearchStatePool {
+    private final int maxSize;
+    // guarded by this
+    private final ArrayDeque<SearchState> states = new ArrayDeque<>();
+
+    /**
+     * Creates a pool that keeps two states, i.e. one bidirectional search, per available processor.
+     */
+    public SearchStatePool() {
+        this(2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public SearchStatePool(int maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("maxSize must not be negative but was " + maxSize);
+
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns a reset state from the pool or a new one if the pool is empty.
+     *
+     * @param nodes the number of nodes of the graph that will be searched
+     */
+    public SearchState acquire(int nodes) {
+        SearchState state;
+        synchronized (this) {
+            state = states.poll();
+        }
+        if (state == null)
+            return new SearchState(nodes);
+
+        state.ensureCapacity(nodes);
+        state.reset();
+        return state;
+    }
+
+    /**
+     * Gives the state back to the pool. The state must not be used afterwards.
+     */
+    public synchronized void release(SearchState state) {
+        if (states.size() < maxSize)
+            states.push(state);
+    }
+
+    public synchronized int getSize() {
+        return states.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Removes all states from the pool.
+     */
+    public synchronized void clear() {
+        states.clear();
+    }
+}
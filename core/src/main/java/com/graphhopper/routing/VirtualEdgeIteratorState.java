@@ -197,6 +197,21 @@ public class VirtualEdgeIteratorState implements EdgeIteratorState, CHEdgeIterat
         throw new UnsupportedOperationException("Not supported.");
     }
 
+    @Override
+    public int getOrigEdgeFirst() {
+        return getEdge();
+    }
+
+    @Override
+    public int getOrigEdgeLast() {
+        return getEdge();
+    }
+
+    @Override
+    public void setFirstAndLastOrigEdges(int origFirst, int origLast) {
+        throw new UnsupportedOperationException("Not supported.");
+    }
+
     @Override
     public EdgeIteratorState detach(boolean reverse) {
         if (reverse) {
@@ -0,0 +1,258 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.cch;
+
+import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.RoutingAlgorithmFactory;
+import com.graphhopper.routing.RoutingAlgorithmFactoryDecorator;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.util.HintsMap;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Parameters.CCH;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static com.graphhopper.util.Helper.getMemInfo;
+import static com.graphhopper.util.Helper.toLowerCase;
+import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
+import static com.graphhopper.util.Parameters.Algorithms.DIJKSTRA_BI;
+
+/**
+ * This class enables the customizable contraction hierarchies (CCH). The node order and the arcs are calculated once
+ * for all weightings and stored in the graph folder. The weights of the arcs are calculated on every start for every
+ * weighting, which takes only seconds, and again after changes of the graph via {@link #customize()}. So unlike CH
+ * a new weighting does not need a new preparation and the edge flags can be changed while the speed-up is used.
+ * <p>
+ * Requests are calculated with the CCH if the weighting of a metric matches, the traversal is node-based and the
+ * algorithm is dijkstrabi or astarbi. Otherwise the default algorithm factory is used. The default algorithm factory
+ * is also used if the edge flags of a request differ from the ones of the metric, i.e. while the metrics are
+ * customized again after a change.
+ */
+public class CCHAlgoFactoryDecorator implements RoutingAlgorithmFactoryDecorator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CCHAlgoFactoryDecorator.class);
+    private boolean enabled = false;
+    // input weighting list from configuration file, the weightings are created per flag encoder
+    private final List<String> weightingsAsStrings = new ArrayList<>();
+    private final List<Weighting> weightings = new ArrayList<>();
+    private int customizationThreads = 1;
+    private ForkJoinPool customizationPool;
+    private GraphHopperStorage ghStorage;
+    private CCHStorage storage;
+    private CCHCustomizer customizer;
+    // replaced as a whole, so that queries keep using the metrics from their start
+    private volatile List<CCHMetric> metrics = Collections.emptyList();
+
+    @Override
+    public void init(CmdArgs args) {
+        setCustomizationThreads(args.getInt(CCH.PREPARE + "threads", customizationThreads));
+        String weightingsStr = args.get(CCH.PREPARE + "weightings", "");
+        if (!weightingsStr.isEmpty() && !weightingsStr.equalsIgnoreCase("no"))
+            setWeightingsAsStrings(Arrays.asList(weightingsStr.split(",")));
+        setEnabled(!weightingsAsStrings.isEmpty());
+    }
+
+    /**
+     * Enables or disables this decorator. This speed-up mode is disabled by default.
+     */
+    public final CCHAlgoFactoryDecorator setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    @Override
+    public final boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getCustomizationThreads() {
+        return customizationThreads;
+    }
+
+    /**
+     * This method changes the number of threads that calculate the weights of the arcs of one weighting
+     * concurrently. Default is 1.
+     */
+    public synchronized CCHAlgoFactoryDecorator setCustomizationThreads(int customizationThreads) {
+        if (customizationThreads < 1)
+            throw new IllegalArgumentException("customization threads must be at least 1 but was " + customizationThreads);
+
+        shutdownCustomizationPool();
+        this.customizationThreads = customizationThreads;
+        this.customizationPool = customizationThreads > 1 ? new ForkJoinPool(customizationThreads) : null;
+        return this;
+    }
+
+    private void shutdownCustomizationPool() {
+        if (customizationPool != null)
+            customizationPool.shutdown();
+        customizationPool = null;
+    }
+
+    /**
+     * @param weightingList A list containing multiple weightings like: "fastest", "shortest" or your own
+     *                      weight-calculation type.
+     */
+    public CCHAlgoFactoryDecorator setWeightingsAsStrings(List<String> weightingList) {
+        if (weightingList.isEmpty())
+            throw new IllegalArgumentException("It is not allowed to pass an emtpy weightingList");
+
+        weightingsAsStrings.clear();
+        for (String strWeighting : weightingList) {
+            weightingsAsStrings.add(toLowerCase(strWeighting).trim());
+        }
+        return this;
+    }
+
+    public List<String> getWeightingsAsStrings() {
+        if (weightingsAsStrings.isEmpty())
+            throw new IllegalStateException("Potential bug: weightingsAsStrings is empty");
+
+        return weightingsAsStrings;
+    }
+
+    public CCHAlgoFactoryDecorator addWeighting(Weighting weighting) {
+        weightings.add(weighting);
+        return this;
+    }
+
+    public boolean hasWeightings() {
+        return !weightings.isEmpty();
+    }
+
+    public List<Weighting> getWeightings() {
+        return weightings;
+    }
+
+    public CCHStorage getStorage() {
+        return storage;
+    }
+
+    public List<CCHMetric> getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Loads the node order and the arcs from the graph folder or calculates them if they do not exist. Afterwards
+     * the metrics of all weightings are customized.
+     *
+     * @return true if the node order and the arcs were calculated
+     */
+    public boolean loadOrPrepare(GraphHopperStorage ghStorage) {
+        if (weightings.isEmpty())
+            throw new IllegalStateException("No weightings added to this decorator");
+
+        boolean prepared = false;
+        CCHStorage tmpStorage = new CCHStorage(ghStorage, ghStorage.getDirectory());
+        if (!tmpStorage.loadExisting()) {
+            StopWatch sw = new StopWatch().start();
+            int[] order = new NestedDissection(ghStorage).calcOrder();
+            LOGGER.info("calculated nested dissection order in " + sw.stop().getSeconds() + "s, " + getMemInfo());
+            sw = new StopWatch().start();
+            tmpStorage.create(1000);
+            tmpStorage.contract(order);
+            tmpStorage.flush();
+            LOGGER.info("contracted graph in " + sw.stop().getSeconds() + "s, " + tmpStorage + ", " + getMemInfo());
+            prepared = true;
+        }
+        this.ghStorage = ghStorage;
+        storage = tmpStorage;
+        customizer = new CCHCustomizer(storage, ghStorage);
+        customize();
+        return prepared;
+    }
+
+    /**
+     * Calculates the weights of the arcs of all weightings again and replaces the metrics at once, e.g. after the
+     * edge flags were changed. Queries that are already running keep using the previous metrics.
+     */
+    public synchronized void customize() {
+        if (customizer == null)
+            throw new IllegalStateException("Call loadOrPrepare before");
+
+        List<CCHMetric> tmpMetrics = new ArrayList<>(weightings.size());
+        for (Weighting weighting : weightings) {
+            StopWatch sw = new StopWatch().start();
+            tmpMetrics.add(customizer.customize(weighting, customizationPool));
+            LOGGER.info("customized " + weighting + " in " + sw.stop().getSeconds() + "s, " + customizer.getLevels() + " levels");
+        }
+        metrics = Collections.unmodifiableList(tmpMetrics);
+    }
+
+    public synchronized void close() {
+        shutdownCustomizationPool();
+        if (storage != null && !storage.isClosed())
+            storage.close();
+    }
+
+    @Override
+    public RoutingAlgorithmFactory getDecoratedAlgorithmFactory(RoutingAlgorithmFactory defaultAlgoFactory, HintsMap map) {
+        // the CH algorithms run on the CHGraph, so the speed mode has to be disabled for the request
+        if (!isEnabled() || map.getBool(CCH.DISABLE, false) || defaultAlgoFactory instanceof PrepareContractionHierarchies)
+            return defaultAlgoFactory;
+
+        for (CCHMetric metric : metrics) {
+            if (!metric.getWeighting().matches(map))
+                continue;
+
+            // a request that already uses changed edge flags must not get a path over e.g. blocked edges
+            if (metric.getEdgeFlagsVersion() != ghStorage.getEdgeFlagsVersion())
+                return defaultAlgoFactory;
+
+            return new CCHAlgoFactory(metric, defaultAlgoFactory);
+        }
+        return defaultAlgoFactory;
+    }
+
+    public static class CCHAlgoFactory implements RoutingAlgorithmFactory {
+        private final CCHMetric metric;
+        private final RoutingAlgorithmFactory defaultAlgoFactory;
+
+        public CCHAlgoFactory(CCHMetric metric, RoutingAlgorithmFactory defaultAlgoFactory) {
+            this.metric = metric;
+            this.defaultAlgoFactory = defaultAlgoFactory;
+        }
+
+        public CCHMetric getMetric() {
+            return metric;
+        }
+
+        @Override
+        public RoutingAlgorithm createAlgo(Graph g, AlgorithmOptions opts) {
+            String algoStr = opts.getAlgorithm();
+            // e.g. a block_area or a round trip changes the weighting and needs the flexible mode
+            if (!DIJKSTRA_BI.equalsIgnoreCase(algoStr) && !ASTAR_BI.equalsIgnoreCase(algoStr)
+                    || opts.getTraversalMode().isEdgeBased() || !metric.getWeighting().equals(opts.getWeighting()))
+                return defaultAlgoFactory.createAlgo(g, opts);
+
+            DijkstraBidirectionCCH algo = new DijkstraBidirectionCCH(g, opts.getWeighting(), metric);
+            algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+            return algo;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.cch;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.EdgeFlagOverlay;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class calculates the weights of the arcs of a CCHStorage for a weighting. First every arc gets the weight of
+ * the best edge between its nodes. Then the arcs are processed bottom-up and every arc takes the best path via the
+ * lower nodes that form a triangle with it. An arc only depends on the arcs of lower nodes, so the arcs of all nodes
+ * with the same level, i.e. the same maximum number of lower nodes that have to be processed before, can be
+ * processed concurrently.
+ * <p>
+ * The helper arrays are created once and an instance can customize several weightings one after the other.
+ */
+public class CCHCustomizer {
+    private static final int CHUNK_SIZE = 256;
+    private final CCHStorage storage;
+    private final GraphHopperStorage graph;
+    // per rank the arcs from lower nodes, sorted by the lower node
+    private final int[] firstDownArc;
+    private final int[] downLowerRanks;
+    private final int[] downArcs;
+    // the ranks sorted by level, the ranks of a level start at levelStarts[level]
+    private final int[] levelRanks;
+    private final int[] levelStarts;
+
+    public CCHCustomizer(CCHStorage storage, GraphHopperStorage graph) {
+        this.storage = storage;
+        this.graph = graph;
+        int nodes = storage.getNodes();
+        int arcs = storage.getArcs();
+        firstDownArc = new int[nodes + 1];
+        for (int arc = 0; arc < arcs; arc++) {
+            firstDownArc[storage.getUpper(arc) + 1]++;
+        }
+        for (int rank = 0; rank < nodes; rank++) {
+            firstDownArc[rank + 1] += firstDownArc[rank];
+        }
+        downLowerRanks = new int[arcs];
+        downArcs = new int[arcs];
+        int[] next = Arrays.copyOf(firstDownArc, nodes);
+        int[] levels = new int[nodes];
+        int maxLevel = 0;
+        for (int rank = 0; rank < nodes; rank++) {
+            // all arcs of lower ranks were added already
+            for (int i = firstDownArc[rank]; i < next[rank]; i++) {
+                levels[rank] = Math.max(levels[rank], levels[downLowerRanks[i]] + 1);
+            }
+            maxLevel = Math.max(maxLevel, levels[rank]);
+            int end = storage.getFirstArc(rank + 1);
+            for (int arc = storage.getFirstArc(rank); arc < end; arc++) {
+                int upper = storage.getUpper(arc);
+                downLowerRanks[next[upper]] = rank;
+                downArcs[next[upper]] = arc;
+                next[upper]++;
+            }
+        }
+
+        levelStarts = new int[maxLevel + 2];
+        for (int rank = 0; rank < nodes; rank++) {
+            levelStarts[levels[rank] + 1]++;
+        }
+        for (int level = 0; level <= maxLevel; level++) {
+            levelStarts[level + 1] += levelStarts[level];
+        }
+        levelRanks = new int[nodes];
+        next = Arrays.copyOf(levelStarts, maxLevel + 1);
+        for (int rank = 0; rank < nodes; rank++) {
+            levelRanks[next[levels[rank]]++] = rank;
+        }
+    }
+
+    public int getLevels() {
+        return levelStarts.length - 1;
+    }
+
+    /**
+     * Calculates the weights of all arcs for the specified weighting. The edge flags are pinned while they are read,
+     * so concurrent changes are not mixed in and the metric knows the version of the edge flags it is based on.
+     *
+     * @param pool the pool that processes the nodes of a level concurrently or null to use the calling thread only
+     */
+    public CCHMetric customize(Weighting weighting, ForkJoinPool pool) {
+        int arcs = storage.getArcs();
+        float[] upWeights = new float[arcs];
+        float[] downWeights = new float[arcs];
+        int[] upVias = new int[arcs];
+        int[] downVias = new int[arcs];
+        Arrays.fill(upWeights, Float.POSITIVE_INFINITY);
+        Arrays.fill(downWeights, Float.POSITIVE_INFINITY);
+        Arrays.fill(upVias, CCHMetric.NO_VIA);
+        Arrays.fill(downVias, CCHMetric.NO_VIA);
+
+        FlagEncoder encoder = weighting.getFlagEncoder();
+        EdgeFlagOverlay pinned = graph.pinEdgeFlags();
+        long edgeFlagsVersion;
+        try {
+            edgeFlagsVersion = graph.getEdgeFlagsVersion();
+            readEdgeWeights(weighting, encoder, upWeights, downWeights, upVias, downVias);
+        } finally {
+            graph.unpinEdgeFlags(pinned);
+        }
+
+        for (int level = 0; level < getLevels(); level++) {
+            int from = levelStarts[level], to = levelStarts[level + 1];
+            if (pool == null || to - from <= CHUNK_SIZE)
+                customizeRanks(from, to, upWeights, downWeights, upVias, downVias);
+            else
+                pool.invoke(new CustomizeTask(from, to, upWeights, downWeights, upVias, downVias));
+        }
+        return new CCHMetric(storage, weighting, edgeFlagsVersion, upWeights, downWeights, upVias, downVias);
+    }
+
+    private void readEdgeWeights(Weighting weighting, FlagEncoder encoder, float[] upWeights, float[] downWeights,
+                                 int[] upVias, int[] downVias) {
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            int baseRank = storage.getRank(iter.getBaseNode());
+            int adjRank = storage.getRank(iter.getAdjNode());
+            if (baseRank == adjRank)
+                continue;
+
+            boolean baseIsLower = baseRank < adjRank;
+            int arc = storage.findArc(Math.min(baseRank, adjRank), Math.max(baseRank, adjRank));
+            // the weighting does not check the access, this is done by the edge filter of a search
+            float forward = iter.isForward(encoder) ? (float) weighting.calcWeight(iter, false, EdgeIterator.NO_EDGE) : Float.POSITIVE_INFINITY;
+            float backward = iter.isBackward(encoder) ? (float) weighting.calcWeight(iter, true, EdgeIterator.NO_EDGE) : Float.POSITIVE_INFINITY;
+            float up = baseIsLower ? forward : backward;
+            float down = baseIsLower ? backward : forward;
+            if (up < upWeights[arc]) {
+                upWeights[arc] = up;
+                upVias[arc] = iter.getEdge();
+            }
+            if (down < downWeights[arc]) {
+                downWeights[arc] = down;
+                downVias[arc] = iter.getEdge();
+            }
+        }
+    }
+
+    private void customizeRanks(int from, int to, float[] upWeights, float[] downWeights, int[] upVias, int[] downVias) {
+        for (int i = from; i < to; i++) {
+            int rank = levelRanks[i];
+            int end = storage.getFirstArc(rank + 1);
+            for (int arc = storage.getFirstArc(rank); arc < end; arc++) {
+                int upper = storage.getUpper(arc);
+                // the lower triangles are the common lower neighbors of both nodes of the arc
+                int lowerIndex = firstDownArc[rank], lowerEnd = firstDownArc[rank + 1];
+                int upperIndex = firstDownArc[upper], upperEnd = firstDownArc[upper + 1];
+                while (lowerIndex < lowerEnd && upperIndex < upperEnd) {
+                    int viaRank = downLowerRanks[lowerIndex];
+                    int tmpRank = downLowerRanks[upperIndex];
+                    if (viaRank < tmpRank) {
+                        lowerIndex++;
+                    } else if (viaRank > tmpRank) {
+                        upperIndex++;
+                    } else {
+                        int lowerArc = downArcs[lowerIndex];
+                        int upperArc = downArcs[upperIndex];
+                        float up = downWeights[lowerArc] + upWeights[upperArc];
+                        if (up < upWeights[arc]) {
+                            upWeights[arc] = up;
+                            upVias[arc] = -2 - viaRank;
+                        }
+                        float down = downWeights[upperArc] + upWeights[lowerArc];
+                        if (down < downWeights[arc]) {
+                            downWeights[arc] = down;
+                            downVias[arc] = -2 - viaRank;
+                        }
+                        lowerIndex++;
+                        upperIndex++;
+                    }
+                }
+            }
+        }
+    }
+
+    private class CustomizeTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final float[] upWeights;
+        private final float[] downWeights;
+        private final int[] upVias;
+        private final int[] downVias;
+
+        CustomizeTask(int from, int to, float[] upWeights, float[] downWeights, int[] upVias, int[] downVias) {
+            this.from = from;
+            this.to = to;
+            this.upWeights = upWeights;
+            this.downWeights = downWeights;
+            this.upVias = upVias;
+            this.downVias = downVias;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                customizeRanks(from, to, upWeights, downWeights, upVias, downVias);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new CustomizeTask(from, middle, upWeights, downWeights, upVias, downVias),
+                    new CustomizeTask(middle, to, upWeights, downWeights, upVias, downVias));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.cch;
+
+import com.graphhopper.coll.GHIntArrayList;
+import com.graphhopper.routing.weighting.Weighting;
+
+/**
+ * The weights of the arcs of a CCHStorage for one weighting, calculated by the CCHCustomizer. Every arc has a weight
+ * in upward direction, i.e. from its lower to its upper node, and one in downward direction. For both directions it
+ * is stored how the arc is unpacked: either into an edge of the graph or via a lower node, which forms a triangle
+ * with the two nodes of the arc. A metric is not changed after its creation, so it can be replaced by a new one
+ * while queries are still using it.
+ */
+public class CCHMetric {
+    /**
+     * The value of a direction of an arc that cannot be traversed
+     */
+    public static final int NO_VIA = -1;
+    private final CCHStorage storage;
+    private final Weighting weighting;
+    private final long edgeFlagsVersion;
+    private final float[] upWeights;
+    private final float[] downWeights;
+    // the edge id if >= 0, NO_VIA or -2 - rank of the lower node
+    private final int[] upVias;
+    private final int[] downVias;
+
+    CCHMetric(CCHStorage storage, Weighting weighting, long edgeFlagsVersion, float[] upWeights, float[] downWeights,
+              int[] upVias, int[] downVias) {
+        this.storage = storage;
+        this.weighting = weighting;
+        this.edgeFlagsVersion = edgeFlagsVersion;
+        this.upWeights = upWeights;
+        this.downWeights = downWeights;
+        this.upVias = upVias;
+        this.downVias = downVias;
+    }
+
+    public CCHStorage getStorage() {
+        return storage;
+    }
+
+    public Weighting getWeighting() {
+        return weighting;
+    }
+
+    /**
+     * @return the version of the edge flags this metric was calculated from, see GraphHopperStorage.getEdgeFlagsVersion
+     */
+    public long getEdgeFlagsVersion() {
+        return edgeFlagsVersion;
+    }
+
+    /**
+     * @param up true for the direction from the lower to the upper node of the arc
+     * @return the weight of the arc or infinity if it cannot be traversed in this direction
+     */
+    public double getWeight(int arc, boolean up) {
+        return up ? upWeights[arc] : downWeights[arc];
+    }
+
+    /**
+     * Adds the edges of the specified arc in travel direction.
+     *
+     * @param edges    the edge ids are added to this list
+     * @param adjNodes the node at the end of every edge in travel direction is added to this list
+     */
+    public void unpack(int arc, int lowerRank, int upperRank, boolean up, GHIntArrayList edges, GHIntArrayList adjNodes) {
+        int via = up ? upVias[arc] : downVias[arc];
+        if (via == NO_VIA)
+            throw new IllegalStateException("Arc " + arc + " cannot be traversed " + (up ? "up" : "down") + ", " + weighting);
+
+        if (via >= 0) {
+            edges.add(via);
+            adjNodes.add(storage.getNode(up ? upperRank : lowerRank));
+            return;
+        }
+
+        int viaRank = -2 - via;
+        int lowerArc = storage.findArc(viaRank, lowerRank);
+        int upperArc = storage.findArc(viaRank, upperRank);
+        if (up) {
+            unpack(lowerArc, viaRank, lowerRank, false, edges, adjNodes);
+            unpack(upperArc, viaRank, upperRank, true, edges, adjNodes);
+        } else {
+            unpack(upperArc, viaRank, upperRank, false, edges, adjNodes);
+            unpack(lowerArc, viaRank, lowerRank, true, edges, adjNodes);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "cch|" + weighting;
+    }
+}
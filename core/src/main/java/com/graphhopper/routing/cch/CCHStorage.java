@@ -0,0 +1,228 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.cch;
+
+import com.graphhopper.coll.GHIntArrayList;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.Storable;
+
+import java.util.Arrays;
+
+/**
+ * This class stores the metric independent part of the customizable contraction hierarchies: the rank of every node
+ * and the arcs of the contracted graph. The nodes are contracted without witness searches, so the upper neighbors
+ * of every node form a clique, and an arc exists between two nodes if they are connected by an edge or by a path
+ * via lower nodes regardless of the access flags. An arc is stored once at its lower node and the arcs of a node are
+ * sorted by their upper node. The weights of the arcs are calculated per weighting by the CCHCustomizer.
+ * <p>
+ * The ranks are used as node ids of the contracted graph, i.e. the arcs are stored per rank.
+ */
+public class CCHStorage implements Storable<CCHStorage> {
+    private static final int VERSION = 1;
+    private final Graph graph;
+    // the rank per node, the node per rank, the first arc per rank and the upper rank per arc
+    private final DataAccess da;
+    private int nodes;
+    private int arcs;
+    private long orderPointer;
+    private long firstArcPointer;
+    private long arcPointer;
+
+    public CCHStorage(Graph graph, Directory dir) {
+        this.graph = graph;
+        da = dir.find("cch");
+    }
+
+    /**
+     * Contracts the nodes of the graph in the specified order. The storage has to be created before.
+     *
+     * @param order the nodes ordered by their rank, see NestedDissection
+     */
+    public void contract(int[] order) {
+        if (order.length != graph.getNodes())
+            throw new IllegalArgumentException("The order has " + order.length + " nodes but the graph " + graph.getNodes());
+
+        for (int rank = 0; rank < nodes; rank++) {
+            int node = order[rank];
+            if (node < 0 || node >= nodes || getRank(node) >= 0)
+                throw new IllegalArgumentException("The order is not a permutation of the nodes, invalid node " + node + " at " + rank);
+            da.setInt((long) node * 4, rank);
+            da.setInt(orderPointer + (long) rank * 4, node);
+        }
+
+        GHIntArrayList[] upper = new GHIntArrayList[nodes];
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            int baseRank = getRank(iter.getBaseNode());
+            int adjRank = getRank(iter.getAdjNode());
+            if (baseRank != adjRank)
+                addUpper(upper, Math.min(baseRank, adjRank), Math.max(baseRank, adjRank));
+        }
+
+        // the upper neighbors of a node become a clique on contraction. It is sufficient to add them to the lowest
+        // upper neighbor, which is contracted next of them and passes them on
+        arcs = 0;
+        for (int rank = 0; rank < nodes; rank++) {
+            da.setInt(firstArcPointer + (long) rank * 4, arcs);
+            GHIntArrayList list = upper[rank];
+            upper[rank] = null;
+            if (list == null)
+                continue;
+
+            int[] heads = list.toArray();
+            Arrays.sort(heads);
+            int count = 0;
+            for (int i = 0; i < heads.length; i++) {
+                if (i == 0 || heads[i] != heads[i - 1])
+                    heads[count++] = heads[i];
+            }
+            da.ensureCapacity(arcPointer + (long) (arcs + count) * 4);
+            for (int i = 0; i < count; i++) {
+                da.setInt(arcPointer + (long) (arcs + i) * 4, heads[i]);
+                if (i > 0)
+                    addUpper(upper, heads[0], heads[i]);
+            }
+            arcs += count;
+        }
+        da.setInt(firstArcPointer + (long) nodes * 4, arcs);
+    }
+
+    private static void addUpper(GHIntArrayList[] upper, int lowerRank, int upperRank) {
+        if (upper[lowerRank] == null)
+            upper[lowerRank] = new GHIntArrayList(4);
+        upper[lowerRank].add(upperRank);
+    }
+
+    private void setNodes(int nodes) {
+        this.nodes = nodes;
+        orderPointer = (long) nodes * 4;
+        firstArcPointer = 2L * nodes * 4;
+        arcPointer = (3L * nodes + 1) * 4;
+    }
+
+    public int getNodes() {
+        return nodes;
+    }
+
+    public int getArcs() {
+        return arcs;
+    }
+
+    public int getRank(int node) {
+        return da.getInt((long) node * 4);
+    }
+
+    public int getNode(int rank) {
+        return da.getInt(orderPointer + (long) rank * 4);
+    }
+
+    /**
+     * @return the first arc of the specified rank. The arcs of a rank end before the first arc of the next rank.
+     */
+    public int getFirstArc(int rank) {
+        return da.getInt(firstArcPointer + (long) rank * 4);
+    }
+
+    /**
+     * @return the rank of the upper node of the specified arc
+     */
+    public int getUpper(int arc) {
+        return da.getInt(arcPointer + (long) arc * 4);
+    }
+
+    /**
+     * @return the arc between the specified ranks or -1 if there is none
+     */
+    public int findArc(int lowerRank, int upperRank) {
+        int low = getFirstArc(lowerRank), high = getFirstArc(lowerRank + 1) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int tmp = getUpper(mid);
+            if (tmp < upperRank)
+                low = mid + 1;
+            else if (tmp > upperRank)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (!da.loadExisting())
+            return false;
+
+        int version = da.getHeader(0);
+        if (version != VERSION)
+            throw new IllegalArgumentException("Cannot load customizable contraction hierarchies due to incompatible version. Storage used version: " + version + ", expected: " + VERSION);
+        int edges = da.getHeader(12);
+        if (da.getHeader(4) != graph.getNodes() || edges != graph.getAllEdges().length())
+            throw new IllegalArgumentException("Cannot load customizable contraction hierarchies as written for different graph storage with "
+                    + da.getHeader(4) + " nodes and " + edges + " edges, not " + graph.getNodes() + " and " + graph.getAllEdges().length());
+
+        setNodes(da.getHeader(4));
+        arcs = da.getHeader(8);
+        return true;
+    }
+
+    @Override
+    public CCHStorage create(long byteCount) {
+        setNodes(graph.getNodes());
+        da.create(Math.max(byteCount, arcPointer));
+        da.ensureCapacity(arcPointer);
+        // mark all ranks as unset to detect invalid orders
+        for (int node = 0; node < nodes; node++) {
+            da.setInt((long) node * 4, -1);
+        }
+        arcs = 0;
+        return this;
+    }
+
+    @Override
+    public void flush() {
+        da.setHeader(0, VERSION);
+        da.setHeader(4, nodes);
+        da.setHeader(8, arcs);
+        da.setHeader(12, graph.getAllEdges().length());
+        da.flush();
+    }
+
+    @Override
+    public void close() {
+        da.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return da.isClosed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return da.getCapacity();
+    }
+
+    @Override
+    public String toString() {
+        return "cch, nodes:" + nodes + ", arcs:" + arcs;
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.cch;
+
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
+import com.graphhopper.coll.GHIntArrayList;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.AbstractRoutingAlgorithm;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.Parameters;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A bidirectional Dijkstra on the arcs of the customizable contraction hierarchies, where both searches only go
+ * upwards. The nodes of the graph are mapped to their ranks. Virtual nodes of a QueryGraph are not part of the
+ * contracted graph, so they are explored first with the specified weighting until the nodes of the graph are reached,
+ * which then start the upward searches. Only node-based traversal is supported.
+ */
+public class DijkstraBidirectionCCH extends AbstractRoutingAlgorithm {
+    private final CCHMetric metric;
+    private final CCHStorage storage;
+    // the entries of the searches per rank
+    private GHIntObjectHashMap<SPTEntry> bestWeightMapFrom;
+    private GHIntObjectHashMap<SPTEntry> bestWeightMapTo;
+    private PriorityQueue<SPTEntry> pqOpenSetFrom;
+    private PriorityQueue<SPTEntry> pqOpenSetTo;
+    // the paths from the start or to the end via virtual nodes per node of the graph
+    private GHIntObjectHashMap<SPTEntry> fromSeeds;
+    private GHIntObjectHashMap<SPTEntry> toSeeds;
+    // the path from the start to the end via virtual nodes only
+    private SPTEntry directEntry;
+    private SPTEntry bestFrom;
+    private SPTEntry bestTo;
+    private double bestWeight = Double.POSITIVE_INFINITY;
+    private int from;
+    private int visitedNodes;
+
+    public DijkstraBidirectionCCH(Graph graph, Weighting weighting, CCHMetric metric) {
+        super(graph, weighting, TraversalMode.NODE_BASED);
+        if (!weighting.equals(metric.getWeighting()))
+            throw new IllegalArgumentException("The weighting " + weighting + " differs from the one of the metric " + metric.getWeighting());
+
+        this.metric = metric;
+        this.storage = metric.getStorage();
+        int size = Math.min(Math.max(200, graph.getNodes() / 10), 2000);
+        bestWeightMapFrom = new GHIntObjectHashMap<>(size);
+        bestWeightMapTo = new GHIntObjectHashMap<>(size);
+        pqOpenSetFrom = new PriorityQueue<>(size);
+        pqOpenSetTo = new PriorityQueue<>(size);
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        checkAlreadyRun();
+        this.from = from;
+        fromSeeds = findSeeds(from, to, false);
+        toSeeds = findSeeds(to, from, true);
+        if (directEntry != null)
+            bestWeight = directEntry.weight;
+
+        initSearch(fromSeeds, bestWeightMapFrom, pqOpenSetFrom, bestWeightMapTo, true);
+        initSearch(toSeeds, bestWeightMapTo, pqOpenSetTo, bestWeightMapFrom, false);
+        while (!finished() && !isMaxVisitedNodesExceeded()) {
+            if (getKey(pqOpenSetFrom) <= getKey(pqOpenSetTo))
+                fillEdges(pqOpenSetFrom, bestWeightMapFrom, bestWeightMapTo, true);
+            else
+                fillEdges(pqOpenSetTo, bestWeightMapTo, bestWeightMapFrom, false);
+        }
+        return extractPath();
+    }
+
+    /**
+     * Explores the virtual nodes from the specified node until nodes of the graph are reached.
+     *
+     * @return the entries of the reached nodes of the graph
+     */
+    private GHIntObjectHashMap<SPTEntry> findSeeds(int start, int other, boolean reverse) {
+        GHIntObjectHashMap<SPTEntry> seeds = new GHIntObjectHashMap<>();
+        SPTEntry startEntry = new SPTEntry(EdgeIterator.NO_EDGE, start, 0);
+        if (!isVirtual(start)) {
+            seeds.put(start, startEntry);
+            return seeds;
+        }
+
+        GHIntObjectHashMap<SPTEntry> entries = new GHIntObjectHashMap<>();
+        PriorityQueue<SPTEntry> queue = new PriorityQueue<>();
+        entries.put(start, startEntry);
+        queue.add(startEntry);
+        EdgeExplorer explorer = reverse ? inEdgeExplorer : outEdgeExplorer;
+        while (!queue.isEmpty()) {
+            SPTEntry curr = queue.poll();
+            if (entries.get(curr.adjNode) != curr)
+                continue;
+
+            visitedNodes++;
+            if (!isVirtual(curr.adjNode)) {
+                seeds.put(curr.adjNode, curr);
+                continue;
+            }
+
+            EdgeIterator iter = explorer.setBaseNode(curr.adjNode);
+            while (iter.next()) {
+                if (!accept(iter, curr.edge))
+                    continue;
+
+                double tmpWeight = weighting.calcWeight(iter, reverse, curr.edge) + curr.weight;
+                if (Double.isInfinite(tmpWeight))
+                    continue;
+
+                SPTEntry entry = entries.get(iter.getAdjNode());
+                if (entry == null || tmpWeight < entry.weight) {
+                    entry = new SPTEntry(iter.getEdge(), iter.getAdjNode(), tmpWeight);
+                    entry.parent = curr;
+                    entries.put(iter.getAdjNode(), entry);
+                    queue.add(entry);
+                }
+            }
+        }
+
+        if (!reverse && isVirtual(other))
+            directEntry = entries.get(other);
+        return seeds;
+    }
+
+    private boolean isVirtual(int node) {
+        return node >= storage.getNodes();
+    }
+
+    private void initSearch(GHIntObjectHashMap<SPTEntry> seeds, GHIntObjectHashMap<SPTEntry> bestWeightMap,
+                            PriorityQueue<SPTEntry> queue, GHIntObjectHashMap<SPTEntry> bestWeightMapOther, boolean fwd) {
+        for (IntObjectCursor<SPTEntry> c : seeds) {
+            int rank = storage.getRank(c.key);
+            SPTEntry entry = new SPTEntry(EdgeIterator.NO_EDGE, rank, c.value.weight);
+            bestWeightMap.put(rank, entry);
+            queue.add(entry);
+            updateBestPath(entry, bestWeightMapOther.get(rank), fwd);
+        }
+    }
+
+    private static double getKey(PriorityQueue<SPTEntry> queue) {
+        return queue.isEmpty() ? Double.POSITIVE_INFINITY : queue.peek().weight;
+    }
+
+    private void fillEdges(PriorityQueue<SPTEntry> queue, GHIntObjectHashMap<SPTEntry> bestWeightMap,
+                           GHIntObjectHashMap<SPTEntry> bestWeightMapOther, boolean fwd) {
+        SPTEntry curr = queue.poll();
+        if (bestWeightMap.get(curr.adjNode) != curr)
+            return;
+
+        visitedNodes++;
+        int end = storage.getFirstArc(curr.adjNode + 1);
+        for (int arc = storage.getFirstArc(curr.adjNode); arc < end; arc++) {
+            // the backward search goes up against the travel direction, so it uses the downward weights
+            double tmpWeight = metric.getWeight(arc, fwd) + curr.weight;
+            if (Double.isInfinite(tmpWeight))
+                continue;
+
+            int upper = storage.getUpper(arc);
+            SPTEntry entry = bestWeightMap.get(upper);
+            if (entry == null || tmpWeight < entry.weight) {
+                entry = new SPTEntry(arc, upper, tmpWeight);
+                entry.parent = curr;
+                bestWeightMap.put(upper, entry);
+                queue.add(entry);
+                updateBestPath(entry, bestWeightMapOther.get(upper), fwd);
+            }
+        }
+    }
+
+    private void updateBestPath(SPTEntry entry, SPTEntry entryOther, boolean fwd) {
+        if (entryOther == null || entry.weight + entryOther.weight >= bestWeight)
+            return;
+
+        bestWeight = entry.weight + entryOther.weight;
+        bestFrom = fwd ? entry : entryOther;
+        bestTo = fwd ? entryOther : entry;
+    }
+
+    @Override
+    protected boolean finished() {
+        // the upward searches cannot stop at the first meeting node, only when both cannot improve the best path
+        return Math.min(getKey(pqOpenSetFrom), getKey(pqOpenSetTo)) >= bestWeight;
+    }
+
+    @Override
+    protected Path extractPath() {
+        if (Double.isInfinite(bestWeight))
+            return createEmptyPath();
+
+        PathCCH path = new PathCCH(graph, weighting, from);
+        if (bestFrom == null) {
+            addForward(path, directEntry);
+            return path.finish();
+        }
+
+        List<SPTEntry> upEntries = new ArrayList<>();
+        SPTEntry curr = bestFrom;
+        while (curr.parent != null) {
+            upEntries.add(curr);
+            curr = curr.parent;
+        }
+        addForward(path, fromSeeds.get(storage.getNode(curr.adjNode)));
+
+        GHIntArrayList edges = new GHIntArrayList();
+        GHIntArrayList adjNodes = new GHIntArrayList();
+        for (int i = upEntries.size() - 1; i >= 0; i--) {
+            SPTEntry entry = upEntries.get(i);
+            metric.unpack(entry.edge, entry.parent.adjNode, entry.adjNode, true, edges, adjNodes);
+        }
+        curr = bestTo;
+        while (curr.parent != null) {
+            metric.unpack(curr.edge, curr.parent.adjNode, curr.adjNode, false, edges, adjNodes);
+            curr = curr.parent;
+        }
+        for (int i = 0; i < edges.size(); i++) {
+            path.addEdge(edges.get(i), adjNodes.get(i));
+        }
+
+        // the entries of the backward search point towards the end
+        curr = toSeeds.get(storage.getNode(curr.adjNode));
+        while (curr.parent != null) {
+            path.addEdge(curr.edge, curr.parent.adjNode);
+            curr = curr.parent;
+        }
+        return path.finish();
+    }
+
+    /**
+     * Adds the edges of the specified entry of the forward search on the virtual nodes in travel direction.
+     */
+    private static void addForward(PathCCH path, SPTEntry entry) {
+        List<SPTEntry> entries = new ArrayList<>();
+        while (entry.parent != null) {
+            entries.add(entry);
+            entry = entry.parent;
+        }
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            path.addEdge(entries.get(i).edge, entries.get(i).adjNode);
+        }
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    @Override
+    public String getName() {
+        return "cch|" + Parameters.Algorithms.DIJKSTRA_BI;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.cch;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.NodeAccess;
+
+import java.util.Arrays;
+
+/**
+ * This class calculates the node order of the customizable contraction hierarchies via nested dissection. A part of
+ * the graph is split at the median of the node coordinates along the longer side of its bounding box. The nodes of
+ * one half that are adjacent to the other half form the separator, which gets the highest ranks of the part, and
+ * both halves are split recursively. The order only depends on the topology and the coordinates of the graph and not
+ * on a weighting, so it can be used for every weighting.
+ */
+public class NestedDissection {
+    private final Graph graph;
+    private int leafSize = 2;
+
+    public NestedDissection(Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Parts with at most this number of nodes are not split further and their nodes are ordered arbitrarily.
+     */
+    public NestedDissection setLeafSize(int leafSize) {
+        if (leafSize < 1)
+            throw new IllegalArgumentException("leaf size must be at least 1 but was " + leafSize);
+
+        this.leafSize = leafSize;
+        return this;
+    }
+
+    /**
+     * @return the nodes ordered by their rank, i.e. the most important node is the last one
+     */
+    public int[] calcOrder() {
+        int nodes = graph.getNodes();
+        int[] firstNeighbor = new int[nodes + 1];
+        int[] neighbors = createAdjacency(firstNeighbor);
+        NodeAccess nodeAccess = graph.getNodeAccess();
+
+        int[] order = new int[nodes];
+        for (int i = 0; i < nodes; i++) {
+            order[i] = i;
+        }
+        // 1 or 2 for the nodes of the two halves of the part that is currently split, 0 for all other nodes
+        byte[] side = new byte[nodes];
+        long[] keys = new long[nodes];
+        int[] tmp = new int[nodes];
+        // the parts are kept in place: every split moves the separator to the end of the part
+        int[] stack = new int[64];
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        stack[stackSize++] = nodes;
+        while (stackSize > 0) {
+            int to = stack[--stackSize];
+            int from = stack[--stackSize];
+            if (to - from <= leafSize)
+                continue;
+
+            double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE, minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+            for (int i = from; i < to; i++) {
+                double lat = nodeAccess.getLatitude(order[i]);
+                double lon = nodeAccess.getLongitude(order[i]);
+                minLat = Math.min(minLat, lat);
+                maxLat = Math.max(maxLat, lat);
+                minLon = Math.min(minLon, lon);
+                maxLon = Math.max(maxLon, lon);
+            }
+            double lonFactor = Math.cos(Math.toRadians((minLat + maxLat) / 2));
+            boolean splitLat = maxLat - minLat > (maxLon - minLon) * lonFactor;
+            for (int i = from; i < to; i++) {
+                int node = order[i];
+                double coord = splitLat ? nodeAccess.getLatitude(node) : nodeAccess.getLongitude(node);
+                keys[i] = (long) Math.round(coord * 1e6) << 32 | node;
+            }
+            Arrays.sort(keys, from, to);
+
+            int middle = (from + to) >>> 1;
+            for (int i = from; i < to; i++) {
+                order[i] = (int) keys[i];
+                side[order[i]] = (byte) (i < middle ? 1 : 2);
+            }
+
+            // use the boundary of the half with less boundary nodes as separator
+            int[] boundaryCount = new int[3];
+            for (int i = from; i < to; i++) {
+                int node = order[i];
+                if (isBoundary(node, side, firstNeighbor, neighbors))
+                    boundaryCount[side[node]]++;
+            }
+            byte separatorSide = (byte) (boundaryCount[1] <= boundaryCount[2] ? 1 : 2);
+
+            int firstCount = 0, secondCount = 0, separatorCount = 0;
+            int separatorStart = to - boundaryCount[separatorSide];
+            for (int i = from; i < to; i++) {
+                int node = order[i];
+                if (side[node] == separatorSide && isBoundary(node, side, firstNeighbor, neighbors))
+                    tmp[separatorStart + separatorCount++] = node;
+                else if (side[node] == 1)
+                    firstCount++;
+                else
+                    secondCount++;
+            }
+            int firstIndex = from, secondIndex = from + firstCount;
+            for (int i = from; i < to; i++) {
+                int node = order[i];
+                if (side[node] == 1 && (separatorSide != 1 || !isBoundary(node, side, firstNeighbor, neighbors)))
+                    tmp[firstIndex++] = node;
+                else if (side[node] == 2 && (separatorSide != 2 || !isBoundary(node, side, firstNeighbor, neighbors)))
+                    tmp[secondIndex++] = node;
+            }
+            for (int i = from; i < to; i++) {
+                order[i] = tmp[i];
+                side[order[i]] = 0;
+            }
+
+            if (stackSize + 4 > stack.length)
+                stack = Arrays.copyOf(stack, stack.length * 2);
+            stack[stackSize++] = from;
+            stack[stackSize++] = from + firstCount;
+            stack[stackSize++] = from + firstCount;
+            stack[stackSize++] = from + firstCount + secondCount;
+        }
+        return order;
+    }
+
+    /**
+     * @return true if the node has a neighbor in the other half of the part
+     */
+    private static boolean isBoundary(int node, byte[] side, int[] firstNeighbor, int[] neighbors) {
+        for (int i = firstNeighbor[node]; i < firstNeighbor[node + 1]; i++) {
+            byte neighborSide = side[neighbors[i]];
+            if (neighborSide != 0 && neighborSide != side[node])
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Creates the undirected adjacency lists of all nodes, i.e. regardless of the access flags of the edges.
+     */
+    private int[] createAdjacency(int[] firstNeighbor) {
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            if (iter.getBaseNode() == iter.getAdjNode())
+                continue;
+            firstNeighbor[iter.getBaseNode() + 1]++;
+            firstNeighbor[iter.getAdjNode() + 1]++;
+        }
+        for (int i = 1; i < firstNeighbor.length; i++) {
+            firstNeighbor[i] += firstNeighbor[i - 1];
+        }
+        int[] neighbors = new int[firstNeighbor[firstNeighbor.length - 1]];
+        int[] next = Arrays.copyOf(firstNeighbor, firstNeighbor.length - 1);
+        iter = graph.getAllEdges();
+        while (iter.next()) {
+            int base = iter.getBaseNode(), adj = iter.getAdjNode();
+            if (base == adj)
+                continue;
+            neighbors[next[base]++] = adj;
+            neighbors[next[adj]++] = base;
+        }
+        return neighbors;
+    }
+}
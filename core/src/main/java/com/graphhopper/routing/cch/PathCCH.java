@@ -0,0 +1,51 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.cch;
+
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeIterator;
+
+/**
+ * A path of the customizable contraction hierarchies. The edges are added in travel direction and the weight is
+ * calculated from the edges, so it is not affected by the rounding of the arc weights.
+ */
+class PathCCH extends Path {
+    private int prevEdge = EdgeIterator.NO_EDGE;
+    private double edgeWeights;
+
+    PathCCH(Graph graph, Weighting weighting, int fromNode) {
+        super(graph, weighting);
+        reverseOrder = false;
+        setFromNode(fromNode);
+        setEndNode(fromNode);
+    }
+
+    void addEdge(int edgeId, int adjNode) {
+        edgeWeights += weighting.calcWeight(graph.getEdgeIteratorState(edgeId, adjNode), false, prevEdge);
+        processEdge(edgeId, adjNode, prevEdge);
+        setEndNode(adjNode);
+        prevEdge = edgeId;
+    }
+
+    Path finish() {
+        setWeight(edgeWeights);
+        return setFound(true);
+    }
+}
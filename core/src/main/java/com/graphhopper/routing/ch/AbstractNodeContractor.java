@@ -35,6 +35,8 @@ abstract class AbstractNodeContractor implements NodeContractor {
     CHEdgeExplorer inEdgeExplorer;
     CHEdgeExplorer outEdgeExplorer;
     private final DataAccess originalEdges;
+    // false if originalEdges is borrowed from another contractor, see AbstractNodeContractor(AbstractNodeContractor)
+    private final boolean ownsOriginalEdges;
     int maxLevel;
     private int maxEdgesCount;
 
@@ -44,6 +46,19 @@ abstract class AbstractNodeContractor implements NodeContractor {
         this.encoder = weighting.getFlagEncoder();
         originalEdges = dir.find("original_edges_" + AbstractWeighting.weightingToFileName(weighting));
         originalEdges.create(1000);
+        ownsOriginalEdges = true;
+    }
+
+    /**
+     * Creates a contractor for the same graph that shares the original edge counts of the specified contractor. It
+     * must only be used to read from the graph, e.g. to find shortcuts in a separate thread.
+     */
+    AbstractNodeContractor(AbstractNodeContractor other) {
+        this.ghStorage = other.ghStorage;
+        this.prepareGraph = other.prepareGraph;
+        this.encoder = other.encoder;
+        this.originalEdges = other.originalEdges;
+        ownsOriginalEdges = false;
     }
 
     @Override
@@ -56,7 +71,8 @@ abstract class AbstractNodeContractor implements NodeContractor {
 
     @Override
     public void close() {
-        originalEdges.close();
+        if (ownsOriginalEdges)
+            originalEdges.close();
     }
 
     boolean isContracted(int node) {
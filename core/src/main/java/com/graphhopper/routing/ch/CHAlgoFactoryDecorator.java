@@ -22,10 +22,12 @@ import com.graphhopper.routing.RoutingAlgorithmFactoryDecorator;
 import com.graphhopper.routing.util.HintsMap;
 import com.graphhopper.routing.util.TraversalMode;
 import com.graphhopper.routing.weighting.AbstractWeighting;
+import com.graphhopper.routing.weighting.TurnWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.util.CmdArgs;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters.Algorithms.AltRoute;
 import com.graphhopper.util.Parameters.CH;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,11 +51,14 @@ public class CHAlgoFactoryDecorator implements RoutingAlgorithmFactoryDecorator
     // as we need the strings to create the GraphHopperStorage and the GraphHopperStorage to create the preparations from the Weighting objects currently requiring the encoders
     private final List<Weighting> weightings = new ArrayList<>();
     private final Set<String> weightingsAsStrings = new LinkedHashSet<>();
+    private final Set<String> edgeBasedWeightingsAsStrings = new LinkedHashSet<>();
     private boolean disablingAllowed = false;
     // for backward compatibility enable CH by default.
     private boolean enabled = true;
     private int preparationThreads;
     private ExecutorService threadPool;
+    private int alternativeRouteThreads = 1;
+    private ExecutorService alternativeRouteThreadPool;
     private PMap pMap = new PMap();
 
     public CHAlgoFactoryDecorator() {
@@ -70,6 +75,7 @@ public class CHAlgoFactoryDecorator implements RoutingAlgorithmFactoryDecorator
             throw new IllegalStateException("Use " + CH.PREPARE + "weightings and a comma separated list instead of prepare.chWeighting or prepare.chWeightings");
 
         setPreparationThreads(args.getInt(CH.PREPARE + "threads", getPreparationThreads()));
+        setAlternativeRouteThreads(args.getInt(AltRoute.INIT_CH_THREADS, getAlternativeRouteThreads()));
 
         // default is enabled & fastest
         String chWeightingsStr = args.get(CH.PREPARE + "weightings", "");
@@ -82,6 +88,10 @@ public class CHAlgoFactoryDecorator implements RoutingAlgorithmFactoryDecorator
             setWeightingsAsStrings(tmpCHWeightingList);
         }
 
+        String edgeBasedWeightingsStr = args.get(CH.PREPARE + "edge_based_weightings", "");
+        if (!edgeBasedWeightingsStr.isEmpty())
+            setEdgeBasedWeightingsAsStrings(Arrays.asList(edgeBasedWeightingsStr.split(",")));
+
         boolean enableThis = !weightingsAsStrings.isEmpty();
         setEnabled(enableThis);
         if (enableThis)
@@ -180,6 +190,25 @@ public class CHAlgoFactoryDecorator implements RoutingAlgorithmFactoryDecorator
         return this;
     }
 
+    /**
+     * Specifies the CH weightings that are prepared edge-based, so that turn costs and turn restrictions are
+     * considered, see EdgeBasedNodeContractor. This only has an effect for vehicles that support turn costs.
+     */
+    public CHAlgoFactoryDecorator setEdgeBasedWeightingsAsStrings(List<String> weightingList) {
+        edgeBasedWeightingsAsStrings.clear();
+        for (String strWeighting : weightingList) {
+            edgeBasedWeightingsAsStrings.add(toLowerCase(strWeighting).trim());
+        }
+        return this;
+    }
+
+    /**
+     * @return true if the specified CH weighting should be prepared edge-based
+     */
+    public boolean isEdgeBased(String weighting) {
+        return edgeBasedWeightingsAsStrings.contains(weighting);
+    }
+
     private String getDefaultWeighting() {
         return weightingsAsStrings.isEmpty() ? "fastest" : weightingsAsStrings.iterator().next();
     }
@@ -224,6 +253,46 @@ public class CHAlgoFactoryDecorator implements RoutingAlgorithmFactoryDecorator
         this.threadPool = java.util.concurrent.Executors.newFixedThreadPool(preparationThreads);
     }
 
+    public int getAlternativeRouteThreads() {
+        return alternativeRouteThreads;
+    }
+
+    /**
+     * Specifies how many threads test the candidates of an alternative route request, see AlternativeRouteCH. The
+     * threads are shared by all requests. Default is 1, i.e. the candidates are tested by the thread of the request.
+     */
+    public CHAlgoFactoryDecorator setAlternativeRouteThreads(int alternativeRouteThreads) {
+        if (alternativeRouteThreads < 1)
+            throw new IllegalArgumentException("alternative route threads must be positive but was " + alternativeRouteThreads);
+        if (alternativeRouteThreadPool != null)
+            alternativeRouteThreadPool.shutdown();
+
+        this.alternativeRouteThreads = alternativeRouteThreads;
+        this.alternativeRouteThreadPool = alternativeRouteThreads > 1
+                ? Executors.newFixedThreadPool(alternativeRouteThreads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "alternative route");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }) : null;
+        for (PrepareContractionHierarchies prepare : preparations) {
+            prepare.setAlternativeRouteExecutor(alternativeRouteThreadPool, alternativeRouteThreads);
+        }
+        return this;
+    }
+
+    /**
+     * Stops the threads of the alternative routes, see setAlternativeRouteThreads.
+     */
+    public void close() {
+        if (alternativeRouteThreadPool != null) {
+            alternativeRouteThreadPool.shutdownNow();
+            alternativeRouteThreadPool = null;
+        }
+    }
+
     public void prepare(final StorableProperties properties) {
         ExecutorCompletionService completionService = new ExecutorCompletionService<>(threadPool);
         int counter = 0;
@@ -260,19 +329,20 @@ public class CHAlgoFactoryDecorator implements RoutingAlgorithmFactoryDecorator
         if (weightings.isEmpty())
             throw new IllegalStateException("No CH weightings found");
 
-        traversalMode = getNodeBase();
-
         for (Weighting weighting : getWeightings()) {
+            // a TurnWeighting is prepared edge-based, all other weightings node-based
+            traversalMode = weighting instanceof TurnWeighting ? TraversalMode.EDGE_BASED_2DIR : getNodeBase();
             PrepareContractionHierarchies tmpPrepareCH = new PrepareContractionHierarchies(
                     new GHDirectory("", DAType.RAM_INT), ghStorage, ghStorage.getGraph(CHGraph.class, weighting), traversalMode);
             tmpPrepareCH.setParams(pMap);
+            tmpPrepareCH.setAlternativeRouteExecutor(alternativeRouteThreadPool, alternativeRouteThreads);
             addPreparation(tmpPrepareCH);
         }
     }
 
     /**
-     * For now only node based will work, later on we can easily find usage of this method to remove
-     * it.
+     * Returns the traversal mode of the preparations without TurnWeighting. For now only node based will work for
+     * them, later on we can easily find usage of this method to remove it.
      */
     public TraversalMode getNodeBase() {
         return TraversalMode.NODE_BASED;
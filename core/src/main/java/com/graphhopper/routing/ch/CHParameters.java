@@ -7,10 +7,15 @@ public final class CHParameters {
     static final String LAST_LAZY_NODES_UPDATES = Parameters.CH.PREPARE + "updates.lazy";
     static final String NEIGHBOR_UPDATES = Parameters.CH.PREPARE + "updates.neighbor";
     static final String CONTRACTED_NODES = Parameters.CH.PREPARE + "contracted_nodes";
+    static final String CONTRACTION_THREADS = Parameters.CH.PREPARE + "contraction_threads";
     static final String LOG_MESSAGES = Parameters.CH.PREPARE + "log_messages";
     static final String EDGE_DIFFERENCE_WEIGHT = Parameters.CH.PREPARE + "node.edge_difference_weight";
     static final String ORIGINAL_EDGE_COUNT_WEIGHT = Parameters.CH.PREPARE + "node.original_edge_count_weight";
     static final String CONTRACTED_NEIGHBORS_WEIGHT = Parameters.CH.PREPARE + "node.contracted_neighbors_weight";
+    static final String EDGE_DIFFERENCE_WEIGHT_EDGE_BASED = Parameters.CH.PREPARE + "edge.edge_difference_weight";
+    static final String ORIGINAL_EDGE_COUNT_WEIGHT_EDGE_BASED = Parameters.CH.PREPARE + "edge.original_edge_count_weight";
+    static final String CONTRACTED_NEIGHBORS_WEIGHT_EDGE_BASED = Parameters.CH.PREPARE + "edge.contracted_neighbors_weight";
+    static final String MAX_SETTLED_WITNESS_STATES = Parameters.CH.PREPARE + "edge.max_settled_witness_states";
 
     private CHParameters() {
     }
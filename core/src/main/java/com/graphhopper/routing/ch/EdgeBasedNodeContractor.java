@@ -0,0 +1,599 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.cursors.ObjectCursor;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.coll.GHLongObjectHashMap;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.weighting.TurnWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.CHGraph;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+import static com.graphhopper.routing.ch.CHParameters.*;
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+import static com.graphhopper.util.Helper.nf;
+
+/**
+ * Contracts the nodes of an edge-based CHGraph, i.e. of a CHGraph with a TurnWeighting, so that turn costs and turn
+ * restrictions can be used with Contraction Hierarchies.
+ * <p>
+ * When a node v is contracted a shortcut u->w is added for a path u->v->w (which can also run through loops at v) if
+ * there is an original edge via which u is reached or an original edge via which w is left so that there is no
+ * witness path from u to w that avoids v and is at most as expensive, including the turn costs at u and w. Every
+ * shortcut stores its first and last original edge, so the turn costs can be calculated where it is joined with other
+ * edges, see DijkstraBidirectionEdgeCH. Shortcuts are only added in the forward direction and u-turns are not
+ * allowed, which corresponds to TraversalMode.EDGE_BASED_2DIR.
+ */
+class EdgeBasedNodeContractor extends AbstractNodeContractor {
+    private final TurnWeighting turnWeighting;
+    private final PreparationWeighting prepareWeighting;
+    private final Params params = new Params();
+    private final List<AdjEdge> inEdges = new ArrayList<>();
+    private final List<AdjEdge> outEdges = new ArrayList<>();
+    private final List<AdjEdge> loops = new ArrayList<>();
+    private final List<Shortcut> shortcuts = new ArrayList<>();
+    private final GHLongObjectHashMap<WitnessEntry> witnessMap = new GHLongObjectHashMap<>();
+    private final PriorityQueue<WitnessEntry> witnessQueue = new PriorityQueue<>();
+    // the entries of the last witness search at the target nodes of the candidates
+    private final GHIntObjectHashMap<List<WitnessEntry>> witnessEntriesByNode = new GHIntObjectHashMap<>();
+    private CHEdgeExplorer allEdgeExplorer;
+    private EdgeExplorer origInEdgeExplorer;
+    private EdgeExplorer origOutEdgeExplorer;
+    private int addedShortcutsCount;
+    private long dijkstraCount;
+    private StopWatch dijkstraSW = new StopWatch();
+
+    EdgeBasedNodeContractor(Directory dir, GraphHopperStorage ghStorage, CHGraph prepareGraph, Weighting weighting, PMap pMap) {
+        super(dir, ghStorage, prepareGraph, weighting);
+        if (!(weighting instanceof TurnWeighting))
+            throw new IllegalArgumentException("Edge-based contraction requires a TurnWeighting, but was: " + weighting);
+
+        this.turnWeighting = (TurnWeighting) weighting;
+        this.prepareWeighting = new PreparationWeighting(weighting);
+        extractParams(pMap);
+    }
+
+    private void extractParams(PMap pMap) {
+        params.edgeDifferenceWeight = pMap.getFloat(EDGE_DIFFERENCE_WEIGHT_EDGE_BASED, params.edgeDifferenceWeight);
+        params.originalEdgesCountWeight = pMap.getFloat(ORIGINAL_EDGE_COUNT_WEIGHT_EDGE_BASED, params.originalEdgesCountWeight);
+        params.contractedNeighborsWeight = pMap.getFloat(CONTRACTED_NEIGHBORS_WEIGHT_EDGE_BASED, params.contractedNeighborsWeight);
+        params.maxSettledWitnessStates = pMap.getInt(MAX_SETTLED_WITNESS_STATES, params.maxSettledWitnessStates);
+    }
+
+    @Override
+    public void initFromGraph() {
+        super.initFromGraph();
+        allEdgeExplorer = prepareGraph.createEdgeExplorer(DefaultEdgeFilter.allEdges(encoder));
+        // the original edges via which a node can be reached or left, the turn costs at u and w depend on them
+        origInEdgeExplorer = prepareGraph.getBaseGraph().createEdgeExplorer(DefaultEdgeFilter.inEdges(encoder));
+        origOutEdgeExplorer = prepareGraph.getBaseGraph().createEdgeExplorer(DefaultEdgeFilter.outEdges(encoder));
+    }
+
+    @Override
+    public void prepareContraction() {
+        // not needed
+    }
+
+    @Override
+    public float calculatePriority(int node) {
+        findShortcuts(node);
+        int originalEdgesCount = 0;
+        for (Shortcut sc : shortcuts) {
+            originalEdgesCount += sc.origEdgeCount;
+        }
+
+        int contractedNeighbors = 0;
+        int degree = 0;
+        CHEdgeIterator iter = allEdgeExplorer.setBaseNode(node);
+        while (iter.next()) {
+            if (isContracted(iter.getAdjNode()))
+                continue;
+
+            degree++;
+            if (iter.isShortcut())
+                contractedNeighbors++;
+        }
+
+        // the same linear combination as for node-based contraction, see NodeBasedNodeContractor.calculatePriority
+        int edgeDifference = shortcuts.size() - degree;
+        return params.edgeDifferenceWeight * edgeDifference +
+                params.originalEdgesCountWeight * originalEdgesCount +
+                params.contractedNeighborsWeight * contractedNeighbors;
+    }
+
+    @Override
+    public void contractNode(int node) {
+        findShortcuts(node);
+        for (Shortcut sc : shortcuts) {
+            int inEdge = getOrCreateInEdge(sc.from, node, sc.origFirst, sc.centerEntry);
+            addShortcut(sc.from, sc.to, sc.origFirst, sc.origLast, inEdge, sc.outEdge, sc.weight, sc.distance, sc.origEdgeCount);
+        }
+    }
+
+    /**
+     * Finds the shortcuts that are necessary to contract the given node, but does not change the graph.
+     */
+    private void findShortcuts(int node) {
+        shortcuts.clear();
+        collectAdjEdges(node);
+        if (inEdges.isEmpty() || outEdges.isEmpty())
+            return;
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (AdjEdge inEdge : inEdges) {
+            List<CenterEntry> centerEntries = findCenterEntries(node, inEdge);
+            candidates.clear();
+            for (AdjEdge outEdge : outEdges) {
+                // the cheapest way to continue from the in-edge to the out-edge, possibly via loops at the node
+                CenterEntry bestEntry = null;
+                double bestWeight = Double.POSITIVE_INFINITY;
+                for (CenterEntry entry : centerEntries) {
+                    double weight = entry.weight + calcTurnWeight(entry.origEdge, node, outEdge.origAtCenter);
+                    if (weight < bestWeight) {
+                        bestWeight = weight;
+                        bestEntry = entry;
+                    }
+                }
+                if (bestEntry != null)
+                    candidates.add(new Candidate(bestEntry, outEdge, bestWeight + outEdge.weight));
+            }
+            if (candidates.isEmpty())
+                continue;
+
+            findNecessaryCandidates(node, inEdge, candidates);
+            for (Candidate c : candidates) {
+                if (!c.necessary)
+                    continue;
+
+                shortcuts.add(new Shortcut(inEdge.adjNode, c.outEdge.adjNode, inEdge.origAtAdj, c.outEdge.origAtAdj,
+                        c.centerEntry, c.outEdge.edge, c.weight, c.centerEntry.distance + c.outEdge.distance,
+                        c.centerEntry.origEdgeCount + c.outEdge.origEdgeCount));
+            }
+        }
+    }
+
+    private void collectAdjEdges(int node) {
+        inEdges.clear();
+        outEdges.clear();
+        loops.clear();
+        CHEdgeIterator iter = allEdgeExplorer.setBaseNode(node);
+        while (iter.next()) {
+            int adjNode = iter.getAdjNode();
+            int origEdgeCount = getOrigEdgeCount(iter.getEdge());
+            if (adjNode == node) {
+                // like the query we only use loops in their forward direction
+                double weight = prepareWeighting.calcWeight(iter, false, NO_EDGE);
+                if (iter.isForward(encoder) && !Double.isInfinite(weight))
+                    loops.add(new AdjEdge(iter.getEdge(), node, iter.getOrigEdgeLast(), iter.getOrigEdgeFirst(),
+                            weight, iter.getDistance(), origEdgeCount));
+                continue;
+            }
+            if (isContracted(adjNode))
+                continue;
+
+            if (iter.isBackward(encoder)) {
+                double weight = prepareWeighting.calcWeight(iter, true, NO_EDGE);
+                if (!Double.isInfinite(weight))
+                    inEdges.add(new AdjEdge(iter.getEdge(), adjNode, iter.getOrigEdgeLast(), iter.getOrigEdgeFirst(),
+                            weight, iter.getDistance(), origEdgeCount));
+            }
+            if (iter.isForward(encoder)) {
+                double weight = prepareWeighting.calcWeight(iter, false, NO_EDGE);
+                if (!Double.isInfinite(weight))
+                    outEdges.add(new AdjEdge(iter.getEdge(), adjNode, iter.getOrigEdgeLast(), iter.getOrigEdgeFirst(),
+                            weight, iter.getDistance(), origEdgeCount));
+            }
+        }
+    }
+
+    /**
+     * Finds the cheapest ways to continue at the node after arriving via the specified in-edge, one for every
+     * original edge via which the node is left. Without loops at the node this is only the in-edge itself.
+     */
+    private List<CenterEntry> findCenterEntries(int node, AdjEdge inEdge) {
+        CenterEntry root = new CenterEntry(inEdge.origAtCenter, inEdge.weight, inEdge.distance, inEdge.origEdgeCount, null, null);
+        root.chEdge = inEdge.edge;
+        List<CenterEntry> result = new ArrayList<>();
+        if (loops.isEmpty()) {
+            result.add(root);
+            return result;
+        }
+
+        GHIntObjectHashMap<CenterEntry> bestEntries = new GHIntObjectHashMap<>();
+        PriorityQueue<CenterEntry> queue = new PriorityQueue<>();
+        bestEntries.put(root.origEdge, root);
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            CenterEntry curr = queue.poll();
+            if (bestEntries.get(curr.origEdge) != curr)
+                continue;
+
+            result.add(curr);
+            for (AdjEdge loop : loops) {
+                double weight = curr.weight + calcTurnWeight(curr.origEdge, node, loop.origAtCenter) + loop.weight;
+                if (Double.isInfinite(weight))
+                    continue;
+
+                CenterEntry old = bestEntries.get(loop.origAtAdj);
+                if (old != null && old.weight <= weight)
+                    continue;
+
+                CenterEntry entry = new CenterEntry(loop.origAtAdj, weight, curr.distance + loop.distance,
+                        curr.origEdgeCount + loop.origEdgeCount, curr, loop);
+                bestEntries.put(entry.origEdge, entry);
+                queue.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Marks all candidates as necessary for which a source edge at u and a target edge at w exist, so that no witness
+     * path avoiding the node is found that is at most as expensive as the path via the node.
+     */
+    private void findNecessaryCandidates(int node, AdjEdge inEdge, List<Candidate> candidates) {
+        int fromNode = inEdge.adjNode;
+        for (Candidate c : candidates) {
+            c.targetEdges = getOrigEdges(origOutEdgeExplorer, c.outEdge.adjNode);
+            c.maxTurnWeightOut = 0;
+            for (int i = 0; i < c.targetEdges.size(); i++) {
+                double turnWeight = calcTurnWeight(c.outEdge.origAtAdj, c.outEdge.adjNode, c.targetEdges.get(i));
+                if (!Double.isInfinite(turnWeight))
+                    c.maxTurnWeightOut = Math.max(c.maxTurnWeightOut, turnWeight);
+            }
+        }
+
+        IntArrayList sources = getOrigEdges(origInEdgeExplorer, fromNode);
+        for (int i = 0; i < sources.size(); i++) {
+            int sourceEdge = sources.get(i);
+            double turnWeightIn = calcTurnWeight(sourceEdge, fromNode, inEdge.origAtAdj);
+            if (Double.isInfinite(turnWeightIn))
+                continue;
+
+            double maxWeight = -1;
+            for (Candidate c : candidates) {
+                if (!c.necessary)
+                    maxWeight = Math.max(maxWeight, turnWeightIn + c.weight + c.maxTurnWeightOut);
+            }
+            if (maxWeight < 0)
+                // all candidates are already necessary
+                return;
+
+            runWitnessSearch(fromNode, sourceEdge, node, maxWeight);
+            indexWitnessEntries(candidates);
+            for (Candidate c : candidates) {
+                if (c.necessary)
+                    continue;
+
+                int toNode = c.outEdge.adjNode;
+                List<WitnessEntry> toNodeEntries = witnessEntriesByNode.get(toNode);
+                for (int j = 0; j < c.targetEdges.size(); j++) {
+                    int targetEdge = c.targetEdges.get(j);
+                    double turnWeightOut = calcTurnWeight(c.outEdge.origAtAdj, toNode, targetEdge);
+                    if (Double.isInfinite(turnWeightOut))
+                        continue;
+
+                    // every entry of the witness search is a valid path even if it was not settled
+                    double witnessWeight = Double.POSITIVE_INFINITY;
+                    for (WitnessEntry entry : toNodeEntries) {
+                        witnessWeight = Math.min(witnessWeight, entry.weight + calcTurnWeight(entry.origEdge, toNode, targetEdge));
+                    }
+                    if (witnessWeight > turnWeightIn + c.weight + turnWeightOut) {
+                        c.necessary = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Groups the entries of the last witness search by their node, so that the entries at the target node of a
+     * candidate are found without iterating over all entries for every candidate and target edge.
+     */
+    private void indexWitnessEntries(List<Candidate> candidates) {
+        witnessEntriesByNode.clear();
+        for (Candidate c : candidates) {
+            if (!c.necessary && !witnessEntriesByNode.containsKey(c.outEdge.adjNode))
+                witnessEntriesByNode.put(c.outEdge.adjNode, new ArrayList<WitnessEntry>());
+        }
+        for (ObjectCursor<WitnessEntry> cursor : witnessMap.values()) {
+            List<WitnessEntry> entries = witnessEntriesByNode.get(cursor.value.node);
+            if (entries != null)
+                entries.add(cursor.value);
+        }
+    }
+
+    /**
+     * @return the original edges via which the given node can be reached or left, depending on the explorer, plus
+     * NO_EDGE for a route that starts or ends at the node
+     */
+    private IntArrayList getOrigEdges(EdgeExplorer explorer, int node) {
+        IntArrayList result = new IntArrayList();
+        result.add(NO_EDGE);
+        EdgeIterator iter = explorer.setBaseNode(node);
+        while (iter.next()) {
+            result.add(iter.getEdge());
+        }
+        return result;
+    }
+
+    /**
+     * An edge-based Dijkstra on the remaining graph that starts at the given node, which was reached via the given
+     * original edge, and ignores the node that is contracted.
+     */
+    private void runWitnessSearch(int fromNode, int sourceEdge, int avoidNode, double maxWeight) {
+        dijkstraSW.start();
+        dijkstraCount++;
+        witnessMap.clear();
+        witnessQueue.clear();
+        WitnessEntry start = new WitnessEntry(fromNode, sourceEdge, 0);
+        witnessMap.put(createKey(fromNode, sourceEdge), start);
+        witnessQueue.add(start);
+        int settled = 0;
+        while (!witnessQueue.isEmpty()) {
+            WitnessEntry curr = witnessQueue.poll();
+            if (curr.weight > maxWeight || settled >= params.maxSettledWitnessStates)
+                break;
+            if (witnessMap.get(createKey(curr.node, curr.origEdge)) != curr)
+                // there is a better entry for this state
+                continue;
+
+            settled++;
+            CHEdgeIterator iter = allEdgeExplorer.setBaseNode(curr.node);
+            while (iter.next()) {
+                int adjNode = iter.getAdjNode();
+                if (adjNode == avoidNode || isContracted(adjNode) || !iter.isForward(encoder))
+                    continue;
+
+                double weight = curr.weight + calcTurnWeight(curr.origEdge, curr.node, iter.getOrigEdgeFirst())
+                        + prepareWeighting.calcWeight(iter, false, NO_EDGE);
+                if (Double.isInfinite(weight))
+                    continue;
+
+                int origEdge = iter.getOrigEdgeLast();
+                long key = createKey(adjNode, origEdge);
+                WitnessEntry old = witnessMap.get(key);
+                if (old != null && old.weight <= weight)
+                    continue;
+
+                WitnessEntry entry = new WitnessEntry(adjNode, origEdge, weight);
+                witnessMap.put(key, entry);
+                witnessQueue.add(entry);
+            }
+        }
+        dijkstraSW.stop();
+    }
+
+    private static long createKey(int node, int origEdge) {
+        return ((long) node << 32) | (origEdge & 0xFFFFFFFFL);
+    }
+
+    private double calcTurnWeight(int inEdge, int node, int outEdge) {
+        if (!EdgeIterator.Edge.isValid(inEdge) || !EdgeIterator.Edge.isValid(outEdge))
+            return 0;
+        // u-turns are not allowed, like for TraversalMode.EDGE_BASED_2DIR
+        if (inEdge == outEdge)
+            return Double.POSITIVE_INFINITY;
+
+        return turnWeighting.calcTurnWeight(inEdge, node, outEdge);
+    }
+
+    /**
+     * @return the edge from fromNode to the contracted node that represents the path of the given entry. For a path
+     * via loops a shortcut is created whose first skipped edge is the path up to the last loop.
+     */
+    private int getOrCreateInEdge(int fromNode, int node, int origFirst, CenterEntry entry) {
+        if (entry.chEdge != NO_EDGE)
+            return entry.chEdge;
+
+        int parentEdge = getOrCreateInEdge(fromNode, node, origFirst, entry.parent);
+        entry.chEdge = addShortcut(fromNode, node, origFirst, entry.origEdge, parentEdge, entry.loop.edge,
+                entry.weight, entry.distance, entry.origEdgeCount);
+        return entry.chEdge;
+    }
+
+    /**
+     * Adds a forward shortcut or updates an existing one with the same nodes and original edges if it is more
+     * expensive.
+     *
+     * @return the id of the new or existing shortcut
+     */
+    private int addShortcut(int fromNode, int toNode, int origFirst, int origLast, int skippedEdge1, int skippedEdge2,
+                            double weight, double distance, int origEdgeCount) {
+        CHEdgeIterator iter = outEdgeExplorer.setBaseNode(fromNode);
+        while (iter.next()) {
+            if (!iter.isShortcut() || iter.getAdjNode() != toNode
+                    || iter.getOrigEdgeFirst() != origFirst || iter.getOrigEdgeLast() != origLast)
+                continue;
+
+            if (weight < iter.getWeight()) {
+                iter.setFlags(PrepareEncoder.getScFwdDir());
+                iter.setWeight(weight);
+                iter.setDistance(distance);
+                iter.setSkippedEdges(skippedEdge1, skippedEdge2);
+                setOrigEdgeCount(iter.getEdge(), origEdgeCount);
+            }
+            return iter.getEdge();
+        }
+
+        CHEdgeIteratorState sc = prepareGraph.shortcut(fromNode, toNode);
+        sc.setFlags(PrepareEncoder.getScFwdDir());
+        sc.setWeight(weight);
+        sc.setDistance(distance);
+        sc.setSkippedEdges(skippedEdge1, skippedEdge2);
+        sc.setFirstAndLastOrigEdges(origFirst, origLast);
+        setOrigEdgeCount(sc.getEdge(), origEdgeCount);
+        addedShortcutsCount++;
+        return sc.getEdge();
+    }
+
+    @Override
+    public long getAddedShortcutsCount() {
+        return addedShortcutsCount;
+    }
+
+    @Override
+    public String getStatisticsString() {
+        return String.format(Locale.ROOT, "dijkstras: %10s, max settled witness states: %s",
+                nf(dijkstraCount), params.maxSettledWitnessStates);
+    }
+
+    @Override
+    public long getDijkstraCount() {
+        return dijkstraCount;
+    }
+
+    @Override
+    public float getDijkstraSeconds() {
+        return dijkstraSW.getCurrentSeconds();
+    }
+
+    /**
+     * An edge between the contracted node and an uncontracted neighbor. For in-edges all properties refer to the
+     * direction towards the contracted node. For loops origAtCenter is the first and origAtAdj the last original edge.
+     */
+    private static class AdjEdge {
+        final int edge;
+        final int adjNode;
+        final int origAtAdj;
+        final int origAtCenter;
+        final double weight;
+        final double distance;
+        final int origEdgeCount;
+
+        AdjEdge(int edge, int adjNode, int origAtAdj, int origAtCenter, double weight, double distance, int origEdgeCount) {
+            this.edge = edge;
+            this.adjNode = adjNode;
+            this.origAtAdj = origAtAdj;
+            this.origAtCenter = origAtCenter;
+            this.weight = weight;
+            this.distance = distance;
+            this.origEdgeCount = origEdgeCount;
+        }
+    }
+
+    /**
+     * A path from an in-edge to the contracted node, possibly followed by loops, that ends with the given original
+     * edge.
+     */
+    private static class CenterEntry implements Comparable<CenterEntry> {
+        final int origEdge;
+        final double weight;
+        final double distance;
+        final int origEdgeCount;
+        final CenterEntry parent;
+        final AdjEdge loop;
+        // the edge or shortcut representing this path, created on demand for paths via loops
+        int chEdge = NO_EDGE;
+
+        CenterEntry(int origEdge, double weight, double distance, int origEdgeCount, CenterEntry parent, AdjEdge loop) {
+            this.origEdge = origEdge;
+            this.weight = weight;
+            this.distance = distance;
+            this.origEdgeCount = origEdgeCount;
+            this.parent = parent;
+            this.loop = loop;
+        }
+
+        @Override
+        public int compareTo(CenterEntry o) {
+            return Double.compare(weight, o.weight);
+        }
+    }
+
+    private static class Candidate {
+        final CenterEntry centerEntry;
+        final AdjEdge outEdge;
+        final double weight;
+        IntArrayList targetEdges;
+        double maxTurnWeightOut;
+        boolean necessary;
+
+        Candidate(CenterEntry centerEntry, AdjEdge outEdge, double weight) {
+            this.centerEntry = centerEntry;
+            this.outEdge = outEdge;
+            this.weight = weight;
+        }
+    }
+
+    private static class Shortcut {
+        final int from;
+        final int to;
+        final int origFirst;
+        final int origLast;
+        final CenterEntry centerEntry;
+        final int outEdge;
+        final double weight;
+        final double distance;
+        final int origEdgeCount;
+
+        Shortcut(int from, int to, int origFirst, int origLast, CenterEntry centerEntry, int outEdge,
+                 double weight, double distance, int origEdgeCount) {
+            this.from = from;
+            this.to = to;
+            this.origFirst = origFirst;
+            this.origLast = origLast;
+            this.centerEntry = centerEntry;
+            this.outEdge = outEdge;
+            this.weight = weight;
+            this.distance = distance;
+            this.origEdgeCount = origEdgeCount;
+        }
+
+        @Override
+        public String toString() {
+            return from + "->" + to + ", orig: " + origFirst + "-" + origLast + ", weight:" + weight;
+        }
+    }
+
+    private static class WitnessEntry implements Comparable<WitnessEntry> {
+        final int node;
+        final int origEdge;
+        final double weight;
+
+        WitnessEntry(int node, int origEdge, double weight) {
+            this.node = node;
+            this.origEdge = origEdge;
+            this.weight = weight;
+        }
+
+        @Override
+        public int compareTo(WitnessEntry o) {
+            return Double.compare(weight, o.weight);
+        }
+    }
+
+    private static class Params {
+        private float edgeDifferenceWeight = 10;
+        private float originalEdgesCountWeight = 1;
+        private float contractedNeighborsWeight = 1;
+        // the witness search stops after this many states, then the shortcut is added
+        private int maxSettledWitnessStates = 200;
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.carrotsearch.hppc.LongArrayList;
+import com.graphhopper.coll.MinHeapWithUpdate;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.LevelEdgeFilter;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.CHGraph;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Arrays;
+
+/**
+ * Calculates a many-to-many table of weights, distances and times on a graph prepared with contraction hierarchies.
+ * Instead of doing one bidirectional query for every (source, target) pair this algorithm does one backward upward
+ * search per target, stores the settled nodes in buckets and then does one forward upward search per source that
+ * scans the buckets of all settled nodes. See 'Computing Many-to-Many Shortest Paths Using Highway Hierarchies' from
+ * Knopp et al. which describes the same approach and also applies to contraction hierarchies.
+ * <p>
+ * The search state is stored in hash maps, so the memory used depends on the size of the upward search spaces and not
+ * on the size of the graph. One instance can be reused for several calls but is not thread safe.
+ *
+ * @see PrepareContractionHierarchies#createManyToMany(Graph)
+ */
+public class ManyToManyCH {
+    private static final int NO_ENTRY = -1;
+    private final Graph graph;
+    private final Weighting weighting;
+    private final Weighting userWeighting;
+    private final EdgeFilter levelFilter;
+    private final EdgeExplorer outEdgeExplorer;
+    private final EdgeExplorer inEdgeExplorer;
+    // the state of the current upward search, the heap stores the slot of a node
+    private final IntIntHashMap nodeToSlot = new IntIntHashMap(1000);
+    private final IntArrayList slotNodes = new IntArrayList(1000);
+    private final DoubleArrayList slotWeights = new DoubleArrayList(1000);
+    private final DoubleArrayList slotDistances = new DoubleArrayList(1000);
+    private final LongArrayList slotTimes = new LongArrayList(1000);
+    private final MinHeapWithUpdate heap = new MinHeapWithUpdate(1000);
+    // the buckets: a linked list of entries per node, the head of each list is stored in bucketHeads
+    private final IntIntHashMap bucketHeads = new IntIntHashMap(1000);
+    private final IntArrayList entryNext = new IntArrayList(1000);
+    private final IntArrayList entryTargets = new IntArrayList(1000);
+    private final DoubleArrayList entryWeights = new DoubleArrayList(1000);
+    private final DoubleArrayList entryDistances = new DoubleArrayList(1000);
+    private final LongArrayList entryTimes = new LongArrayList(1000);
+    private final ShortcutTimeCalculator timeCalculator;
+    private boolean stallOnDemand = true;
+    private int visitedNodes;
+
+    /**
+     * @param graph     the graph to search on, this is usually a QueryGraph wrapping the CHGraph
+     * @param chGraph   the prepared graph used to determine the levels of the nodes
+     * @param weighting the weighting used for the preparation of the chGraph
+     */
+    public ManyToManyCH(Graph graph, CHGraph chGraph, Weighting weighting) {
+        this.graph = graph;
+        this.userWeighting = weighting;
+        this.weighting = new PreparationWeighting(weighting);
+        this.timeCalculator = new ShortcutTimeCalculator(weighting);
+        this.levelFilter = new LevelEdgeFilter(chGraph);
+        this.outEdgeExplorer = graph.createEdgeExplorer(DefaultEdgeFilter.outEdges(weighting.getFlagEncoder()));
+        this.inEdgeExplorer = graph.createEdgeExplorer(DefaultEdgeFilter.inEdges(weighting.getFlagEncoder()));
+    }
+
+    /**
+     * Stall-on-demand avoids the expansion of nodes that were reached on a suboptimal path and reduces the number
+     * of bucket entries considerably. It is enabled by default.
+     */
+    public ManyToManyCH setStallOnDemand(boolean stallOnDemand) {
+        this.stallOnDemand = stallOnDemand;
+        return this;
+    }
+
+    /**
+     * Calculates the tables for all pairs of the specified nodes. Entries for which no path was found contain
+     * Double.MAX_VALUE for the weight and the distance and Long.MAX_VALUE for the time.
+     */
+    public Result calcMatrix(int[] fromNodes, int[] toNodes) {
+        Result result = new Result(fromNodes.length, toNodes.length);
+        visitedNodes = 0;
+        clearBuckets();
+        for (int toIndex = 0; toIndex < toNodes.length; toIndex++) {
+            search(toNodes[toIndex], true);
+            fillBuckets(toIndex);
+        }
+
+        for (int fromIndex = 0; fromIndex < fromNodes.length; fromIndex++) {
+            search(fromNodes[fromIndex], false);
+            scanBuckets(fromIndex, result);
+        }
+        clearBuckets();
+        return result;
+    }
+
+    /**
+     * Runs a complete upward search from the specified node. All settled and not stalled nodes are kept in the
+     * search state. Stalled nodes get a NaN weight.
+     */
+    private void search(int startNode, boolean reverse) {
+        nodeToSlot.clear();
+        slotNodes.elementsCount = 0;
+        slotWeights.elementsCount = 0;
+        slotDistances.elementsCount = 0;
+        slotTimes.elementsCount = 0;
+        heap.clear();
+
+        heap.push(addSlot(startNode, 0, 0, 0), 0);
+        EdgeExplorer explorer = reverse ? inEdgeExplorer : outEdgeExplorer;
+        while (!heap.isEmpty()) {
+            int slot = heap.poll();
+            visitedNodes++;
+            int node = slotNodes.get(slot);
+            double weight = slotWeights.get(slot);
+            if (stallOnDemand && isStallable(node, weight, reverse)) {
+                slotWeights.set(slot, Double.NaN);
+                continue;
+            }
+
+            double distance = slotDistances.get(slot);
+            long time = slotTimes.get(slot);
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                if (!levelFilter.accept(iter))
+                    continue;
+
+                double tmpWeight = weighting.calcWeight(iter, reverse, EdgeIterator.NO_EDGE) + weight;
+                if (Double.isInfinite(tmpWeight))
+                    continue;
+
+                int adjNode = iter.getAdjNode();
+                int adjSlot = nodeToSlot.getOrDefault(adjNode, NO_ENTRY);
+                if (adjSlot == NO_ENTRY) {
+                    adjSlot = addSlot(adjNode, tmpWeight, distance + iter.getDistance(), time + timeCalculator.calcMillis(graph, iter, reverse));
+                    heap.push(adjSlot, tmpWeight);
+                } else if (slotWeights.get(adjSlot) > tmpWeight) {
+                    slotWeights.set(adjSlot, tmpWeight);
+                    slotDistances.set(adjSlot, distance + iter.getDistance());
+                    slotTimes.set(adjSlot, time + timeCalculator.calcMillis(graph, iter, reverse));
+                    heap.update(adjSlot, tmpWeight);
+                }
+            }
+        }
+    }
+
+    private int addSlot(int node, double weight, double distance, long time) {
+        int slot = slotNodes.size();
+        if (slot >= heap.getCapacity())
+            heap.ensureCapacity(2 * heap.getCapacity());
+        nodeToSlot.put(node, slot);
+        slotNodes.add(node);
+        slotWeights.add(weight);
+        slotDistances.add(distance);
+        slotTimes.add(time);
+        return slot;
+    }
+
+    /**
+     * A node is stallable if it can be reached with a smaller weight via an incoming edge from a node that has
+     * already been reached. Such a node cannot be part of a shortest path. Similar to DijkstraBidirectionCH.
+     */
+    private boolean isStallable(int node, double weight, boolean reverse) {
+        EdgeIterator iter = (reverse ? outEdgeExplorer : inEdgeExplorer).setBaseNode(node);
+        while (iter.next()) {
+            int adjSlot = nodeToSlot.getOrDefault(iter.getAdjNode(), NO_ENTRY);
+            if (adjSlot == NO_ENTRY)
+                continue;
+
+            double adjWeight = slotWeights.get(adjSlot);
+            // NaN for stalled nodes => comparison is false
+            if (adjWeight + weighting.calcWeight(iter, !reverse, EdgeIterator.NO_EDGE) < weight)
+                return true;
+        }
+        return false;
+    }
+
+    private void fillBuckets(int toIndex) {
+        for (int slot = 0; slot < slotNodes.size(); slot++) {
+            double weight = slotWeights.get(slot);
+            if (Double.isNaN(weight))
+                continue;
+
+            int node = slotNodes.get(slot);
+            int entry = entryTargets.size();
+            entryNext.add(bucketHeads.getOrDefault(node, NO_ENTRY));
+            entryTargets.add(toIndex);
+            entryWeights.add(weight);
+            entryDistances.add(slotDistances.get(slot));
+            entryTimes.add(slotTimes.get(slot));
+            bucketHeads.put(node, entry);
+        }
+    }
+
+    private void scanBuckets(int fromIndex, Result result) {
+        double[] weightRow = result.weights[fromIndex];
+        double[] distanceRow = result.distances[fromIndex];
+        long[] timeRow = result.times[fromIndex];
+        for (int slot = 0; slot < slotNodes.size(); slot++) {
+            double weight = slotWeights.get(slot);
+            if (Double.isNaN(weight))
+                continue;
+
+            int entry = bucketHeads.getOrDefault(slotNodes.get(slot), NO_ENTRY);
+            while (entry != NO_ENTRY) {
+                int toIndex = entryTargets.get(entry);
+                double tmpWeight = weight + entryWeights.get(entry);
+                if (tmpWeight < weightRow[toIndex]) {
+                    weightRow[toIndex] = tmpWeight;
+                    distanceRow[toIndex] = slotDistances.get(slot) + entryDistances.get(entry);
+                    timeRow[toIndex] = slotTimes.get(slot) + entryTimes.get(entry);
+                }
+                entry = entryNext.get(entry);
+            }
+        }
+    }
+
+    private void clearBuckets() {
+        bucketHeads.clear();
+        entryNext.elementsCount = 0;
+        entryTargets.elementsCount = 0;
+        entryWeights.elementsCount = 0;
+        entryDistances.elementsCount = 0;
+        entryTimes.elementsCount = 0;
+    }
+
+    /**
+     * @return the number of nodes polled from the heap in the last calcMatrix call
+     */
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    @Override
+    public String toString() {
+        return "many_to_many|ch|" + userWeighting;
+    }
+
+    /**
+     * The weights, distances (in meter) and times (in milliseconds) from every source to every target.
+     */
+    public static class Result {
+        private final double[][] weights;
+        private final double[][] distances;
+        private final long[][] times;
+
+        Result(int fromCount, int toCount) {
+            weights = new double[fromCount][toCount];
+            distances = new double[fromCount][toCount];
+            times = new long[fromCount][toCount];
+            for (int i = 0; i < fromCount; i++) {
+                Arrays.fill(weights[i], Double.MAX_VALUE);
+                Arrays.fill(distances[i], Double.MAX_VALUE);
+                Arrays.fill(times[i], Long.MAX_VALUE);
+            }
+        }
+
+        public boolean isFound(int from, int to) {
+            return weights[from][to] < Double.MAX_VALUE;
+        }
+
+        public double getWeight(int from, int to) {
+            return weights[from][to];
+        }
+
+        public double getDistance(int from, int to) {
+            return distances[from][to];
+        }
+
+        public long getTime(int from, int to) {
+            return times[from][to];
+        }
+
+        public double[][] getWeights() {
+            return weights;
+        }
+
+        public double[][] getDistances() {
+            return distances;
+        }
+
+        public long[][] getTimes() {
+            return times;
+        }
+    }
+}
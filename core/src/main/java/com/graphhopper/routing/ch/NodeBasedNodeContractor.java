@@ -17,16 +17,14 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.routing.DijkstraOneToMany;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.util.*;
 
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.Locale;
-import java.util.Map;
+import java.util.*;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.nf;
@@ -36,7 +34,10 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
     private final Map<Shortcut, Shortcut> shortcuts = new HashMap<>();
     private final AddShortcutHandler addScHandler = new AddShortcutHandler();
     private final CalcShortcutHandler calcScHandler = new CalcShortcutHandler();
-    private final Params params = new Params();
+    private final Params params;
+    // set for workers, see createWorker
+    private final NodeBasedNodeContractor parent;
+    private final List<NodeBasedNodeContractor> workers = new ArrayList<>();
     private CHEdgeExplorer remainingEdgeExplorer;
     private IgnoreNodeFilter ignoreNodeFilter;
     private DijkstraOneToMany prepareAlgo;
@@ -50,9 +51,30 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
     NodeBasedNodeContractor(Directory dir, GraphHopperStorage ghStorage, CHGraph prepareGraph, Weighting weighting, PMap pMap) {
         super(dir, ghStorage, prepareGraph, weighting);
         this.prepareWeighting = new PreparationWeighting(weighting);
+        this.params = new Params();
+        this.parent = null;
         extractParams(pMap);
     }
 
+    private NodeBasedNodeContractor(NodeBasedNodeContractor parent) {
+        super(parent);
+        this.prepareWeighting = parent.prepareWeighting;
+        this.params = parent.params;
+        this.parent = parent;
+    }
+
+    /**
+     * Creates a contractor with its own witness search that can be used to calculate priorities and to find shortcuts
+     * from a separate thread, see {@link #findContraction(int, GHBitSet)}. Workers never change the graph and use the
+     * meanDegree of this contractor.
+     */
+    NodeBasedNodeContractor createWorker() {
+        NodeBasedNodeContractor worker = new NodeBasedNodeContractor(this);
+        worker.initFromGraph();
+        workers.add(worker);
+        return worker;
+    }
+
     private void extractParams(PMap pMap) {
         params.edgeDifferenceWeight = pMap.getFloat(EDGE_DIFFERENCE_WEIGHT, params.edgeDifferenceWeight);
         params.originalEdgesCountWeight = pMap.getFloat(ORIGINAL_EDGE_COUNT_WEIGHT, params.originalEdgesCountWeight);
@@ -88,6 +110,10 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
     public void close() {
         super.close();
         prepareAlgo.close();
+        for (NodeBasedNodeContractor worker : workers) {
+            worker.close();
+        }
+        workers.clear();
     }
 
     /**
@@ -143,6 +169,32 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
         meanDegree = (meanDegree * 2 + degree) / 3;
     }
 
+    /**
+     * Finds the shortcuts that are necessary to contract the given node, but does not change the graph. All nodes in
+     * avoidNodes are ignored for the witness searches, so the shortcuts stay valid when these nodes are contracted at
+     * the same time, as long as no two of them are adjacent or share a neighbor.
+     *
+     * @see #applyContraction(NodeContraction)
+     */
+    NodeContraction findContraction(int node, GHBitSet avoidNodes) {
+        ignoreNodeFilter.setAvoidNodes(avoidNodes);
+        try {
+            long degree = findShortcuts(addScHandler.setNode(node));
+            return new NodeContraction(node, degree, new ArrayList<>(shortcuts.keySet()));
+        } finally {
+            ignoreNodeFilter.setAvoidNodes(null);
+        }
+    }
+
+    /**
+     * Adds the shortcuts found by {@link #findContraction(int, GHBitSet)} to the graph. Must not be called
+     * concurrently.
+     */
+    void applyContraction(NodeContraction contraction) {
+        addedShortcutsCount += addShortcuts(contraction.shortcuts);
+        meanDegree = (meanDegree * 2 + contraction.degree) / 3;
+    }
+
     @Override
     public String getStatisticsString() {
         return String.format(Locale.ROOT, "meanDegree: %.2f, dijkstras: %10s, mem: %10s",
@@ -299,18 +351,45 @@ class NodeBasedNodeContractor extends AbstractNodeContractor {
 
     @Override
     public long getDijkstraCount() {
-        return dijkstraCount;
+        long count = dijkstraCount;
+        for (NodeBasedNodeContractor worker : workers) {
+            count += worker.dijkstraCount;
+        }
+        return count;
     }
 
+    /**
+     * Returns the time spent for witness searches. When workers are used this is the sum over all threads.
+     */
     @Override
     public float getDijkstraSeconds() {
-        return dijkstraSW.getCurrentSeconds();
+        float seconds = dijkstraSW.getCurrentSeconds();
+        for (NodeBasedNodeContractor worker : workers) {
+            seconds += worker.dijkstraSW.getCurrentSeconds();
+        }
+        return seconds;
     }
 
     private int getMaxVisitedNodesEstimate() {
+        double degree = parent == null ? meanDegree : parent.meanDegree;
         // todo: we return 0 here if meanDegree is < 1, which is not really what we want, but changing this changes
         // the node contraction order and requires re-optimizing the parameters of the graph contraction
-        return (int) meanDegree * 100;
+        return (int) degree * 100;
+    }
+
+    /**
+     * The result of {@link #findContraction(int, GHBitSet)}
+     */
+    static class NodeContraction {
+        final int node;
+        final long degree;
+        final List<Shortcut> shortcuts;
+
+        NodeContraction(int node, long degree, List<Shortcut> shortcuts) {
+            this.node = node;
+            this.degree = degree;
+            this.shortcuts = shortcuts;
+        }
     }
 
     private static class Shortcut {
@@ -0,0 +1,307 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.coll.GHBitSetImpl;
+import com.graphhopper.coll.MinHeapWithUpdate;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.LevelEdgeFilter;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.CHGraph;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Arrays;
+
+/**
+ * Calculates the weights, distances and times from one or more start nodes to all nodes of a graph prepared with
+ * contraction hierarchies, see 'PHAST: Hardware-Accelerated Shortest Path Trees' from Delling et al. An upward search
+ * from the start nodes is followed by a linear sweep over all nodes in descending order of their level, in which
+ * every node takes the best weight over its edges from nodes with a higher level. The sweep needs no priority queue
+ * and accesses the nodes in a fixed order, so the duration of a call hardly depends on the size of the reached area.
+ * <p>
+ * The results are stored in arrays with an entry per node, which are reused for the next call. An instance needs
+ * about 30 bytes per node and is not thread safe. The instances created by the same preparation share the order of
+ * the nodes for the sweep.
+ *
+ * @see PrepareContractionHierarchies#createOneToAll()
+ */
+public class OneToAllCH {
+    private final CHGraph chGraph;
+    private final Weighting weighting;
+    private final Weighting userWeighting;
+    private final EdgeFilter levelFilter;
+    private final EdgeFilter outFilter;
+    private final EdgeFilter inFilter;
+    // the nodes of the chGraph in descending order of their level
+    private final int[] sweepOrder;
+    private double[] weights = new double[0];
+    private double[] distances = new double[0];
+    private long[] times = new long[0];
+    private final GHBitSetImpl settled = new GHBitSetImpl();
+    private final MinHeapWithUpdate heap = new MinHeapWithUpdate(0);
+    private final ShortcutTimeCalculator timeCalculator;
+    private boolean reverse;
+    private long timeLimit = Long.MAX_VALUE;
+    private double distanceLimit = Double.MAX_VALUE;
+    private int visitedNodes;
+
+    /**
+     * @param chGraph   the prepared graph
+     * @param weighting the weighting used for the preparation of the chGraph
+     */
+    public OneToAllCH(CHGraph chGraph, Weighting weighting) {
+        this(chGraph, weighting, createSweepOrder(chGraph));
+    }
+
+    /**
+     * @param sweepOrder the nodes of the chGraph in descending order of their level, see createSweepOrder
+     */
+    OneToAllCH(CHGraph chGraph, Weighting weighting, int[] sweepOrder) {
+        this.chGraph = chGraph;
+        this.userWeighting = weighting;
+        this.weighting = new PreparationWeighting(weighting);
+        this.timeCalculator = new ShortcutTimeCalculator(weighting);
+        this.levelFilter = new LevelEdgeFilter(chGraph);
+        this.outFilter = DefaultEdgeFilter.outEdges(weighting.getFlagEncoder());
+        this.inFilter = DefaultEdgeFilter.inEdges(weighting.getFlagEncoder());
+        this.sweepOrder = sweepOrder;
+    }
+
+    /**
+     * Sorts the nodes by their level via counting sort. The nodes that are not contracted share the highest level.
+     */
+    static int[] createSweepOrder(CHGraph chGraph) {
+        int nodes = chGraph.getNodes();
+        int[] levelStart = new int[nodes + 2];
+        for (int node = 0; node < nodes; node++) {
+            int level = chGraph.getLevel(node);
+            if (level < 0 || level > nodes)
+                throw new IllegalStateException("Invalid level " + level + " of node " + node);
+            levelStart[nodes - level + 1]++;
+        }
+        for (int i = 1; i < levelStart.length; i++) {
+            levelStart[i] += levelStart[i - 1];
+        }
+        int[] order = new int[nodes];
+        for (int node = 0; node < nodes; node++) {
+            order[levelStart[nodes - chGraph.getLevel(node)]++] = node;
+        }
+        return order;
+    }
+
+    /**
+     * If true the weights, distances and times are calculated from all nodes to the start nodes.
+     */
+    public OneToAllCH setReverse(boolean reverse) {
+        this.reverse = reverse;
+        return this;
+    }
+
+    /**
+     * Nodes with a larger time in milliseconds are not reached and the search does not continue from them.
+     */
+    public OneToAllCH setTimeLimit(long timeLimit) {
+        this.timeLimit = timeLimit;
+        return this;
+    }
+
+    /**
+     * Nodes with a larger distance in meter are not reached and the search does not continue from them.
+     */
+    public OneToAllCH setDistanceLimit(double distanceLimit) {
+        this.distanceLimit = distanceLimit;
+        return this;
+    }
+
+    public void calc(int... startNodes) {
+        calc(chGraph, startNodes);
+    }
+
+    /**
+     * Calculates the shortest paths from the specified start nodes to all nodes. Afterwards the results can be read
+     * via isReached, getWeight, getDistance and getTime until the next call.
+     *
+     * @param graph the chGraph or a QueryGraph wrapping it, e.g. to start at a virtual node
+     */
+    public void calc(Graph graph, int... startNodes) {
+        int nodes = graph.getNodes();
+        if (weights.length < nodes) {
+            weights = new double[nodes];
+            distances = new double[nodes];
+            times = new long[nodes];
+        }
+        heap.ensureCapacity(nodes);
+        Arrays.fill(weights, Double.POSITIVE_INFINITY);
+        settled.clear();
+        heap.clear();
+        visitedNodes = 0;
+
+        for (int startNode : startNodes) {
+            if (weights[startNode] == 0)
+                continue;
+
+            weights[startNode] = 0;
+            distances[startNode] = 0;
+            times[startNode] = 0;
+            heap.push(startNode, 0);
+        }
+        searchUpward(graph);
+        sweepDownward(graph);
+    }
+
+    /**
+     * Runs a Dijkstra from the start nodes that only uses edges to nodes with a higher or the same level. Nodes that
+     * exceed the limits get a NaN weight, so that they are not expanded and not used in the sweep.
+     */
+    private void searchUpward(Graph graph) {
+        EdgeExplorer explorer = graph.createEdgeExplorer(reverse ? inFilter : outFilter);
+        while (!heap.isEmpty()) {
+            int node = heap.poll();
+            settled.add(node);
+            visitedNodes++;
+            if (exceedsLimits(node)) {
+                weights[node] = Double.NaN;
+                continue;
+            }
+
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                if (!levelFilter.accept(iter))
+                    continue;
+
+                double tmpWeight = weighting.calcWeight(iter, reverse, EdgeIterator.NO_EDGE) + weights[node];
+                if (Double.isInfinite(tmpWeight))
+                    continue;
+
+                int adjNode = iter.getAdjNode();
+                double adjWeight = weights[adjNode];
+                // NaN for nodes beyond the limits => comparison is false
+                if (!(tmpWeight < adjWeight) || settled.contains(adjNode))
+                    continue;
+
+                weights[adjNode] = tmpWeight;
+                distances[adjNode] = distances[node] + iter.getDistance();
+                times[adjNode] = times[node] + timeCalculator.calcMillis(graph, iter, reverse);
+                if (adjWeight == Double.POSITIVE_INFINITY)
+                    heap.push(adjNode, tmpWeight);
+                else
+                    heap.update(adjNode, tmpWeight);
+            }
+        }
+    }
+
+    /**
+     * Visits all nodes from the highest to the lowest level. Every node takes the best weight over its edges from
+     * nodes with a higher level, whose weights are final at this point.
+     */
+    private void sweepDownward(Graph graph) {
+        // the edges are used in the opposite direction compared to the upward search
+        EdgeExplorer explorer = graph.createEdgeExplorer(reverse ? outFilter : inFilter);
+        int chNodes = chGraph.getNodes();
+        for (int node : sweepOrder) {
+            int level = chGraph.getLevel(node);
+            double weight = weights[node];
+            int bestEdge = EdgeIterator.NO_EDGE;
+            int bestNode = -1;
+            double bestDistance = 0;
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                int adjNode = iter.getAdjNode();
+                // virtual nodes are only reached in the upward search and can be treated like higher nodes
+                if (adjNode < chNodes && chGraph.getLevel(adjNode) <= level)
+                    continue;
+
+                double adjWeight = weights[adjNode];
+                if (!(adjWeight < Double.POSITIVE_INFINITY))
+                    continue;
+
+                double tmpWeight = weighting.calcWeight(iter, !reverse, EdgeIterator.NO_EDGE) + adjWeight;
+                // a node beyond the limits in the upward search can still be reached via another path
+                if (tmpWeight < weight || Double.isNaN(weight) && tmpWeight < Double.POSITIVE_INFINITY) {
+                    weight = tmpWeight;
+                    bestEdge = iter.getEdge();
+                    bestNode = adjNode;
+                    bestDistance = iter.getDistance();
+                }
+            }
+
+            if (bestEdge != EdgeIterator.NO_EDGE) {
+                weights[node] = weight;
+                distances[node] = distances[bestNode] + bestDistance;
+                // for a reverse search the vehicle travels from the node to the best node
+                times[node] = times[bestNode] + timeCalculator.calcMillis(graph, graph.getEdgeIteratorState(bestEdge, node), reverse);
+                if (exceedsLimits(node))
+                    weights[node] = Double.NaN;
+                else
+                    visitedNodes++;
+            }
+        }
+    }
+
+    private boolean exceedsLimits(int node) {
+        return times[node] > timeLimit || distances[node] > distanceLimit;
+    }
+
+    /**
+     * @return true if the node was reached within the limits in the last call of calc
+     */
+    public boolean isReached(int node) {
+        return weights[node] < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return the weight of the node or Double.MAX_VALUE if it was not reached
+     */
+    public double getWeight(int node) {
+        return isReached(node) ? weights[node] : Double.MAX_VALUE;
+    }
+
+    /**
+     * @return the distance in meter or Double.MAX_VALUE if the node was not reached
+     */
+    public double getDistance(int node) {
+        return isReached(node) ? distances[node] : Double.MAX_VALUE;
+    }
+
+    /**
+     * @return the time in milliseconds or Long.MAX_VALUE if the node was not reached
+     */
+    public long getTime(int node) {
+        return isReached(node) ? times[node] : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return the number of nodes settled in the upward search plus the number of nodes whose weight was set or
+     * improved in the sweep
+     */
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    public CHGraph getCHGraph() {
+        return chGraph;
+    }
+
+    @Override
+    public String toString() {
+        return "one_to_all|ch|" + userWeighting;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.PathBidirRef;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.util.CHEdgeIteratorState;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extracts the path found on an edge-based CHGraph, see DijkstraBidirectionEdgeCH. The shortcuts are unpacked in
+ * travel direction, so the time of every original edge can include the turn costs from the previous original edge.
+ */
+public class Path4EdgeCH extends PathBidirRef {
+    private final Graph routingGraph;
+    private int prevEdge = EdgeIterator.NO_EDGE;
+
+    public Path4EdgeCH(Graph routingGraph, Graph baseGraph, Weighting weighting) {
+        super(baseGraph, weighting);
+        this.routingGraph = routingGraph;
+    }
+
+    @Override
+    public Path extract() {
+        if (sptEntry == null || edgeTo == null)
+            return this;
+
+        if (sptEntry.adjNode != edgeTo.adjNode)
+            throw new IllegalStateException("Locations of the 'to'- and 'from'-Edge have to be the same. " + toString() + ", fromEntry:" + sptEntry + ", toEntry:" + edgeTo);
+
+        // the forward search tree is stored from the meeting node back to the start
+        List<SPTEntry> fwdEntries = new ArrayList<>();
+        SPTEntry currEdge = sptEntry;
+        while (EdgeIterator.Edge.isValid(currEdge.edge)) {
+            fwdEntries.add(currEdge);
+            currEdge = currEdge.parent;
+        }
+        setFromNode(currEdge.adjNode);
+        reverseOrder = false;
+        for (int i = fwdEntries.size() - 1; i >= 0; i--) {
+            SPTEntry entry = fwdEntries.get(i);
+            expandEdge(entry.edge, entry.parent.adjNode, entry.adjNode);
+        }
+
+        currEdge = edgeTo;
+        while (EdgeIterator.Edge.isValid(currEdge.edge)) {
+            expandEdge(currEdge.edge, currEdge.adjNode, currEdge.parent.adjNode);
+            currEdge = currEdge.parent;
+        }
+        setEndNode(currEdge.adjNode);
+        return setFound(true);
+    }
+
+    /**
+     * Adds the original edges of the specified edge or shortcut that is traversed from fromNode to toNode.
+     */
+    private void expandEdge(int edgeId, int fromNode, int toNode) {
+        CHEdgeIteratorState edge = (CHEdgeIteratorState) routingGraph.getEdgeIteratorState(edgeId, toNode);
+        if (!edge.isShortcut()) {
+            distance += edge.getDistance();
+            time += weighting.calcMillis(edge, false, prevEdge);
+            addEdge(edgeId);
+            prevEdge = edgeId;
+            return;
+        }
+
+        // the first skipped edge is adjacent to the first node of the shortcut and never a loop
+        EdgeIteratorState skipped1 = routingGraph.getEdgeIteratorState(edge.getSkippedEdge1(), Integer.MIN_VALUE);
+        int midNode = skipped1.getBaseNode() == fromNode ? skipped1.getAdjNode() : skipped1.getBaseNode();
+        expandEdge(edge.getSkippedEdge1(), fromNode, midNode);
+        expandEdge(edge.getSkippedEdge2(), midNode, toNode);
+    }
+}
@@ -17,22 +17,32 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.coll.GHBitSetImpl;
+import com.graphhopper.coll.GHIntArrayList;
 import com.graphhopper.coll.GHTreeMapComposed;
+import com.graphhopper.routing.ch.NodeBasedNodeContractor.NodeContraction;
 import com.graphhopper.routing.*;
 import com.graphhopper.routing.util.*;
+import com.graphhopper.routing.weighting.TurnWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.*;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.nf;
+import static com.graphhopper.util.Parameters.Algorithms.ALT_ROUTE;
 import static com.graphhopper.util.Parameters.Algorithms.ASTAR_BI;
 import static com.graphhopper.util.Parameters.Algorithms.DIJKSTRA_BI;
+import static com.graphhopper.util.Parameters.Algorithms.AltRoute.*;
 
 /**
  * This class prepares the graph for a bidirectional algorithm supporting contraction hierarchies
@@ -44,6 +54,14 @@ import static com.graphhopper.util.Parameters.Algorithms.DIJKSTRA_BI;
  * The only difference is that we use two skipped edges instead of one skipped node for faster
  * unpacking.
  * <p>
+ * With prepare.ch.contraction_threads greater than 1 the nodes are contracted in rounds: every round contracts a set
+ * of nodes where no two nodes are adjacent or share a neighbor, so the witness searches of one round can run
+ * concurrently.
+ * <p>
+ * If the CHGraph has a TurnWeighting it is prepared for edge-based traversal (TraversalMode.EDGE_BASED_2DIR) via
+ * EdgeBasedNodeContractor, so turn costs and turn restrictions are considered. The contraction is always sequential
+ * then and only DIJKSTRA_BI is supported as algorithm.
+ * <p>
  *
  * @author Peter Karich
  */
@@ -72,6 +90,12 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
     private PMap pMap = new PMap();
     private int initSize;
     private int checkCounter;
+    private ExecutorService alternativeRouteExecutor;
+    private int alternativeRouteThreads;
+    // the nodes in descending order of their level for OneToAllCH, guarded by this
+    private int[] sweepOrder;
+    // the search states of the native queries on the CH graph of this preparation
+    private final SearchStatePool searchStatePool = new SearchStatePool();
 
     public PrepareContractionHierarchies(Directory dir, GraphHopperStorage ghStorage, CHGraph chGraph, TraversalMode traversalMode) {
         this.dir = dir;
@@ -79,6 +103,9 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         this.prepareGraph = (CHGraphImpl) chGraph;
         this.traversalMode = traversalMode;
         this.weighting = ((CHGraphImpl) chGraph).getWeighting();
+        if (traversalMode.isEdgeBased() != prepareGraph.isEdgeBased())
+            throw new IllegalArgumentException("Traversal mode " + traversalMode + " does not fit to the CHGraph "
+                    + prepareGraph + ", edge-based traversal requires a TurnWeighting");
         prepareWeighting = new PreparationWeighting(weighting);
         this.params = Params.forTraversalMode(traversalMode);
     }
@@ -90,6 +117,17 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         params.setNeighborUpdatePercentage(pMap.getInt(NEIGHBOR_UPDATES, params.getNeighborUpdatePercentage()));
         params.setNodesContractedPercentage(pMap.getInt(CONTRACTED_NODES, params.getNodesContractedPercentage()));
         params.setLogMessagesPercentage(pMap.getInt(LOG_MESSAGES, params.getLogMessagesPercentage()));
+        params.setContractionThreads(pMap.getInt(CONTRACTION_THREADS, params.getContractionThreads()));
+        return this;
+    }
+
+    /**
+     * Specifies the ExecutorService to test the candidates of the alternative route calculation concurrently, see
+     * AlternativeRouteCH. If it is null the candidates are tested on the thread of the request.
+     */
+    public PrepareContractionHierarchies setAlternativeRouteExecutor(ExecutorService executor, int threads) {
+        this.alternativeRouteExecutor = executor;
+        this.alternativeRouteThreads = threads;
         return this;
     }
 
@@ -116,6 +154,11 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
     }
 
     protected void runGraphContraction() {
+        // the witness searches of the edge-based contraction are not independent for nodes sharing a neighbor
+        if (params.getContractionThreads() > 1 && !traversalMode.isEdgeBased()) {
+            contractNodesInParallel();
+            return;
+        }
         if (!prepareNodes())
             return;
         contractNodes();
@@ -123,14 +166,57 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
 
     @Override
     public RoutingAlgorithm createAlgo(Graph graph, AlgorithmOptions opts) {
-        AbstractBidirAlgo algo = doCreateAlgo(graph, opts);
+        AbstractRoutingAlgorithm algo = doCreateAlgo(graph, opts);
         algo.setEdgeFilter(new LevelEdgeFilter(prepareGraph));
         algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
         return algo;
     }
 
-    private AbstractBidirAlgo doCreateAlgo(Graph graph, AlgorithmOptions opts) {
-        if (ASTAR_BI.equals(opts.getAlgorithm())) {
+    /**
+     * Creates an algorithm to calculate many-to-many tables on the specified graph, which is usually a QueryGraph
+     * wrapping the CHGraph of this preparation.
+     */
+    public ManyToManyCH createManyToMany(Graph graph) {
+        checkNodeBased("many-to-many");
+        return new ManyToManyCH(graph, prepareGraph, weighting);
+    }
+
+    /**
+     * Creates an algorithm to calculate the shortest paths from one or more nodes to all nodes of the CHGraph of
+     * this preparation, e.g. for isochrones.
+     */
+    public OneToAllCH createOneToAll() {
+        checkNodeBased("one-to-all");
+        int[] order;
+        synchronized (this) {
+            // the levels do not change after the preparation, so the order is calculated only once
+            if (sweepOrder == null)
+                sweepOrder = OneToAllCH.createSweepOrder(prepareGraph);
+            order = sweepOrder;
+        }
+        return new OneToAllCH(prepareGraph, weighting, order);
+    }
+
+    private void checkNodeBased(String calculation) {
+        if (isEdgeBased())
+            throw new IllegalStateException("The " + calculation + " calculation is not supported for edge-based "
+                    + "Contraction Hierarchies: " + prepareGraph);
+    }
+
+    private AbstractRoutingAlgorithm doCreateAlgo(Graph graph, AlgorithmOptions opts) {
+        if (isEdgeBased()) {
+            if (!DIJKSTRA_BI.equals(opts.getAlgorithm()))
+                throw new IllegalArgumentException("Algorithm " + opts.getAlgorithm() + " not supported for edge-based Contraction Hierarchies. Try with algorithm=" + DIJKSTRA_BI);
+
+            // the TurnWeighting of the request knows the turn costs of the virtual edges of a QueryGraph
+            Weighting turnWeighting = opts.getWeighting() instanceof TurnWeighting ? opts.getWeighting() : weighting;
+            return new DijkstraBidirectionEdgeCH(graph, (TurnWeighting) turnWeighting, traversalMode);
+        } else if (DIJKSTRA_BI.equals(opts.getAlgorithm()) && opts.getHints().getBool(Parameters.Routing.NATIVE_SEARCH, false)) {
+            DijkstraBidirectionCHNative algo = new DijkstraBidirectionCHNative(graph, prepareWeighting, traversalMode)
+                    .setStallOnDemand(opts.getHints().getBool("stall_on_demand", true));
+            algo.setSearchStatePool(searchStatePool);
+            return algo;
+        } else if (ASTAR_BI.equals(opts.getAlgorithm())) {
             return new AStarBidirectionCH(graph, prepareWeighting, traversalMode)
                     .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, graph.getNodeAccess()));
         } else if (DIJKSTRA_BI.equals(opts.getAlgorithm())) {
@@ -139,6 +225,13 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
             } else {
                 return new DijkstraBidirectionCHNoSOD(graph, prepareWeighting, traversalMode);
             }
+        } else if (ALT_ROUTE.equals(opts.getAlgorithm())) {
+            return new AlternativeRouteCH(graph, prepareWeighting, traversalMode).
+                    setMaxPaths(opts.getHints().getInt(MAX_PATHS, 2)).
+                    setMaxWeightFactor(opts.getHints().getDouble(MAX_WEIGHT, 1.4)).
+                    setMaxShareFactor(opts.getHints().getDouble(MAX_SHARE, 0.6)).
+                    setLocalOptimalityFactor(opts.getHints().getDouble(LOCAL_OPTIMALITY, 0.25)).
+                    setExecutorService(alternativeRouteExecutor, alternativeRouteThreads, ghStorage);
         } else {
             throw new IllegalArgumentException("Algorithm " + opts.getAlgorithm() + " not supported for Contraction Hierarchies. Try with ch.disable=true");
         }
@@ -159,7 +252,10 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         //   but we need the additional oldPriorities array to keep the old value which is necessary for the update method
         sortedNodes = new GHTreeMapComposed();
         oldPriorities = new float[prepareGraph.getNodes()];
-        nodeContractor = new NodeBasedNodeContractor(dir, ghStorage, prepareGraph, weighting, pMap);
+        if (traversalMode.isEdgeBased())
+            nodeContractor = new EdgeBasedNodeContractor(dir, ghStorage, prepareGraph, weighting, pMap);
+        else
+            nodeContractor = new NodeBasedNodeContractor(dir, ghStorage, prepareGraph, weighting, pMap);
         nodeContractor.initFromGraph();
     }
 
@@ -290,6 +386,244 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         close();
     }
 
+    /**
+     * Contracts the graph in rounds. Every round selects all nodes whose priority is smaller than the priority of every
+     * uncontracted node within two hops. Then the shortcuts of these nodes are searched concurrently, where the witness
+     * searches avoid all nodes of the round. The shortcuts are added from the current thread and finally the
+     * priorities of the uncontracted neighbors are recalculated concurrently. Lazy updates are not used as all
+     * neighbors are updated after every round.
+     */
+    private void contractNodesInParallel() {
+        final NodeBasedNodeContractor contractor = (NodeBasedNodeContractor) nodeContractor;
+        final int threads = params.getContractionThreads();
+        final List<NodeBasedNodeContractor> workers = new ArrayList<>(threads);
+        final CHEdgeExplorer[] explorers = new CHEdgeExplorer[threads];
+        final CHEdgeExplorer[] tmpExplorers = new CHEdgeExplorer[threads];
+        EdgeFilter allFilter = DefaultEdgeFilter.allEdges(prepareWeighting.getFlagEncoder());
+        for (int i = 0; i < threads; i++) {
+            workers.add(contractor.createWorker());
+            explorers[i] = prepareGraph.createEdgeExplorer(allFilter);
+            tmpExplorers[i] = prepareGraph.createEdgeExplorer(allFilter);
+        }
+
+        ExecutorService threadPool = Executors.newFixedThreadPool(threads);
+        try {
+            int nodes = prepareGraph.getNodes();
+            // the uncontracted nodes, compacted after every round
+            final int[] remaining = new int[nodes];
+            for (int node = 0; node < nodes; node++) {
+                prepareGraph.setLevel(node, maxLevel);
+                remaining[node] = node;
+            }
+            int remainingCount = nodes;
+            initSize = nodes;
+            checkCounter = 0;
+            if (nodes == 0)
+                return;
+
+            periodicUpdateSW.start();
+            updatePriorities(threadPool, workers, remaining, remainingCount);
+            periodicUpdateSW.stop();
+            contractor.prepareContraction();
+
+            long logSize = Math.round(Math.max(10, initSize / 100d * params.getLogMessagesPercentage()));
+            if (params.getLogMessagesPercentage() == 0)
+                logSize = Integer.MAX_VALUE;
+
+            long periodicUpdatesCount = Math.round(Math.max(10, initSize / 100d * params.getPeriodicUpdatesPercentage()));
+            if (params.getPeriodicUpdatesPercentage() == 0)
+                periodicUpdatesCount = Long.MAX_VALUE;
+
+            long nodesToAvoidContract = Math.round((100 - params.getNodesContractedPercentage()) / 100d * nodes);
+            final GHBitSet roundNodes = new GHBitSetImpl(nodes);
+            final GHBitSet neighbors = new GHBitSetImpl(nodes);
+            final boolean[] selected = new boolean[nodes];
+            int level = 0;
+            int rounds = 0;
+            int updateCounter = 0;
+            long nextLog = 0;
+            long nextPeriodicUpdate = periodicUpdatesCount;
+            while (remainingCount > 0 && remainingCount >= nodesToAvoidContract) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new RuntimeException("Thread was interrupted");
+                }
+
+                if (checkCounter >= nextLog) {
+                    logParallelStats(remainingCount, rounds, updateCounter);
+                    nextLog += logSize;
+                }
+
+                // periodically update priorities of ALL nodes
+                if (checkCounter >= nextPeriodicUpdate) {
+                    periodicUpdateSW.start();
+                    updatePriorities(threadPool, workers, remaining, remainingCount);
+                    periodicUpdateSW.stop();
+                    updateCounter++;
+                    nextPeriodicUpdate += periodicUpdatesCount;
+                }
+
+                // select the nodes of this round
+                final int count = remainingCount;
+                runInParallel(threadPool, threads, count, new IndexTask() {
+                    @Override
+                    public void run(int thread, int index) {
+                        int node = remaining[index];
+                        selected[node] = isLocalMinimum(node, explorers[thread], tmpExplorers[thread]);
+                    }
+                });
+                final GHIntArrayList contractNodes = new GHIntArrayList();
+                for (int i = 0; i < count; i++) {
+                    int node = remaining[i];
+                    if (selected[node]) {
+                        contractNodes.add(node);
+                        roundNodes.add(node);
+                        selected[node] = false;
+                    }
+                }
+
+                // find the shortcuts of these nodes concurrently but add them sequentially
+                contractionSW.start();
+                final NodeContraction[] contractions = new NodeContraction[contractNodes.size()];
+                runInParallel(threadPool, threads, contractions.length, new IndexTask() {
+                    @Override
+                    public void run(int thread, int index) {
+                        contractions[index] = workers.get(thread).findContraction(contractNodes.get(index), roundNodes);
+                    }
+                });
+                final GHIntArrayList neighborNodes = new GHIntArrayList();
+                for (NodeContraction contraction : contractions) {
+                    contractor.applyContraction(contraction);
+                    prepareGraph.setLevel(contraction.node, level);
+                    level++;
+                    CHEdgeIterator iter = vehicleAllExplorer.setBaseNode(contraction.node);
+                    while (iter.next()) {
+                        int nn = iter.getAdjNode();
+                        if (prepareGraph.getLevel(nn) != maxLevel)
+                            continue;
+
+                        if (!neighbors.contains(nn)) {
+                            neighbors.add(nn);
+                            neighborNodes.add(nn);
+                        }
+                        prepareGraph.disconnect(vehicleAllTmpExplorer, iter);
+                    }
+                }
+                contractionSW.stop();
+                checkCounter += contractions.length;
+                roundNodes.clear();
+                neighbors.clear();
+
+                // recompute priority of all uncontracted neighbors
+                neighborUpdateSW.start();
+                runInParallel(threadPool, threads, neighborNodes.size(), new IndexTask() {
+                    @Override
+                    public void run(int thread, int index) {
+                        int nn = neighborNodes.get(index);
+                        oldPriorities[nn] = workers.get(thread).calculatePriority(nn);
+                    }
+                });
+                neighborUpdateSW.stop();
+
+                int newCount = 0;
+                for (int i = 0; i < remainingCount; i++) {
+                    if (prepareGraph.getLevel(remaining[i]) == maxLevel)
+                        remaining[newCount++] = remaining[i];
+                }
+                remainingCount = newCount;
+                rounds++;
+            }
+            logParallelStats(remainingCount, rounds, updateCounter);
+        } finally {
+            threadPool.shutdownNow();
+        }
+
+        // Preparation works only once so we can release temporary data.
+        // The preparation object itself has to be intact to create the algorithm.
+        close();
+    }
+
+    private void updatePriorities(ExecutorService threadPool, final List<NodeBasedNodeContractor> workers,
+                                  final int[] nodes, int count) {
+        runInParallel(threadPool, workers.size(), count, new IndexTask() {
+            @Override
+            public void run(int thread, int index) {
+                int node = nodes[index];
+                oldPriorities[node] = workers.get(thread).calculatePriority(node);
+            }
+        });
+    }
+
+    /**
+     * @return true if the priority of the given node is smaller than the priority of all uncontracted nodes that
+     * can be reached within two hops. Equal priorities are ordered by the node id.
+     */
+    private boolean isLocalMinimum(int node, CHEdgeExplorer explorer, CHEdgeExplorer tmpExplorer) {
+        CHEdgeIterator iter = explorer.setBaseNode(node);
+        while (iter.next()) {
+            int adj = iter.getAdjNode();
+            if (adj == node || prepareGraph.getLevel(adj) != maxLevel)
+                continue;
+
+            if (!hasSmallerPriority(node, adj))
+                return false;
+
+            CHEdgeIterator tmpIter = tmpExplorer.setBaseNode(adj);
+            while (tmpIter.next()) {
+                int adj2 = tmpIter.getAdjNode();
+                if (adj2 == node || prepareGraph.getLevel(adj2) != maxLevel)
+                    continue;
+
+                if (!hasSmallerPriority(node, adj2))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hasSmallerPriority(int node, int other) {
+        float priority = oldPriorities[node];
+        float otherPriority = oldPriorities[other];
+        return priority < otherPriority || priority == otherPriority && node < other;
+    }
+
+    /**
+     * Calls the task for all indices in [0, size). Every thread gets its own share of the indices.
+     */
+    private void runInParallel(ExecutorService threadPool, final int threads, final int size, final IndexTask task) {
+        if (size == 0)
+            return;
+
+        List<Callable<Object>> callables = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            final int thread = i;
+            callables.add(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    for (int index = thread; index < size; index += threads) {
+                        task.run(thread, index);
+                    }
+                    return null;
+                }
+            });
+        }
+        try {
+            for (Future<Object> future : threadPool.invokeAll(callables)) {
+                future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        }
+    }
+
+    private interface IndexTask {
+        void run(int thread, int index);
+    }
+
     private void close() {
         nodeContractor.close();
         sortedNodes = null;
@@ -320,6 +654,17 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
         return prepareGraph.getWeighting();
     }
 
+    public TraversalMode getTraversalMode() {
+        return traversalMode;
+    }
+
+    /**
+     * @return true if the graph is prepared for edge-based traversal, see EdgeBasedNodeContractor
+     */
+    public boolean isEdgeBased() {
+        return traversalMode.isEdgeBased();
+    }
+
     private String getTimesAsString() {
         float totalTime = allSW.getCurrentSeconds();
         float periodicUpdateTime = periodicUpdateSW.getCurrentSeconds();
@@ -355,6 +700,18 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
                 Helper.getMemInfo()));
     }
 
+    private void logParallelStats(int remainingNodes, int rounds, int updateCounter) {
+        logger.info(String.format(Locale.ROOT,
+                "nodes: %10s, shortcuts: %10s, rounds: %6d, updates: %2d, %s, %s, %s",
+                nf(remainingNodes),
+                nf(nodeContractor.getAddedShortcutsCount()),
+                rounds,
+                updateCounter,
+                getTimesAsString(),
+                nodeContractor.getStatisticsString(),
+                Helper.getMemInfo()));
+    }
+
     private static class Params {
         /**
          * Specifies how often periodic updates will happen. The higher the value the longer the preparation takes
@@ -379,10 +736,19 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
          * start nodes).
          */
         private int logMessagesPercentage;
+        /**
+         * Specifies the number of threads that contract the nodes. With more than one thread the nodes are contracted
+         * in rounds of independent nodes.
+         */
+        private int contractionThreads = 1;
 
         static Params forTraversalMode(TraversalMode traversalMode) {
-            if (traversalMode.isEdgeBased()) {
-                throw new IllegalArgumentException("Contraction Hierarchies are not supported for edge-based traversal yet");
+            if (traversalMode == TraversalMode.EDGE_BASED_2DIR) {
+                // the priorities change a lot because of the turn costs, so they are always updated lazily instead
+                return new Params(0, 100, 0, 100, 5);
+            } else if (traversalMode.isEdgeBased()) {
+                throw new IllegalArgumentException("Contraction Hierarchies only support the edge-based traversal mode "
+                        + TraversalMode.EDGE_BASED_2DIR + " but was " + traversalMode);
             } else {
                 return new Params(20, 10, 20, 100, 20);
             }
@@ -442,6 +808,16 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation imple
             this.logMessagesPercentage = logMessagesPercentage;
         }
 
+        int getContractionThreads() {
+            return contractionThreads;
+        }
+
+        void setContractionThreads(int contractionThreads) {
+            if (contractionThreads < 1)
+                throw new IllegalArgumentException(CONTRACTION_THREADS + " has to be at least 1");
+            this.contractionThreads = contractionThreads;
+        }
+
         private void checkPercentage(String name, int value) {
             if (value < 0 || value > 100) {
                 throw new IllegalArgumentException(name + " has to be in [0, 100], to disable it use 0");
@@ -0,0 +1,82 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.coll.GHLongLongHashMap;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.CHEdgeIteratorState;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+
+/**
+ * Calculates the travel time of the edges of a graph prepared with contraction hierarchies. The time of a shortcut
+ * is not stored and needs to be calculated from its skipped edges, so the result for shortcuts is cached as the same
+ * shortcuts are traversed by many searches. Not thread safe.
+ *
+ * @see ManyToManyCH
+ * @see OneToAllCH
+ */
+class ShortcutTimeCalculator {
+    private final Weighting weighting;
+    private final GHLongLongHashMap shortcutTimes = new GHLongLongHashMap(1000);
+
+    /**
+     * @param weighting the weighting used for the preparation, not the PreparationWeighting
+     */
+    ShortcutTimeCalculator(Weighting weighting) {
+        this.weighting = weighting;
+    }
+
+    /**
+     * @param graph   the graph the edge belongs to, e.g. a QueryGraph wrapping the CHGraph
+     * @param reverse if true the time to travel from the adjacent to the base node of the edge is returned
+     */
+    long calcMillis(Graph graph, EdgeIteratorState edge, boolean reverse) {
+        if (!((CHEdgeIteratorState) edge).isShortcut())
+            return weighting.calcMillis(edge, reverse, EdgeIterator.NO_EDGE);
+
+        int adjNode = reverse ? edge.getBaseNode() : edge.getAdjNode();
+        return calcShortcutMillis(graph, (CHEdgeIteratorState) graph.getEdgeIteratorState(edge.getEdge(), adjNode));
+    }
+
+    /**
+     * Calculates the time to travel along the specified edge from its base to its adjacent node.
+     */
+    private long calcShortcutMillis(Graph graph, CHEdgeIteratorState edge) {
+        if (!edge.isShortcut())
+            return weighting.calcMillis(edge, false, EdgeIterator.NO_EDGE);
+
+        long key = ((long) edge.getEdge() << 32) | edge.getAdjNode();
+        long time = shortcutTimes.getOrDefault(key, -1);
+        if (time >= 0)
+            return time;
+
+        // one of the skipped edges ends at the adjacent node of the shortcut and the other one starts at its base node
+        int firstEdge = edge.getSkippedEdge1();
+        CHEdgeIteratorState second = (CHEdgeIteratorState) graph.getEdgeIteratorState(edge.getSkippedEdge2(), edge.getAdjNode());
+        if (second == null) {
+            firstEdge = edge.getSkippedEdge2();
+            second = (CHEdgeIteratorState) graph.getEdgeIteratorState(edge.getSkippedEdge1(), edge.getAdjNode());
+        }
+        CHEdgeIteratorState first = (CHEdgeIteratorState) graph.getEdgeIteratorState(firstEdge, second.getBaseNode());
+        time = calcShortcutMillis(graph, first) + calcShortcutMillis(graph, second);
+        shortcutTimes.put(key, time);
+        return time;
+    }
+}
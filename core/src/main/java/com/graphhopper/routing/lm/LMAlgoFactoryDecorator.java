@@ -42,6 +42,7 @@ import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.graphhopper.util.Helper.*;
@@ -68,6 +69,7 @@ public class LMAlgoFactoryDecorator implements RoutingAlgorithmFactoryDecorator
     private final List<String> lmSuggestionsLocations = new ArrayList<>(5);
     private int preparationThreads;
     private ExecutorService threadPool;
+    private int landmarkThreads = 1;
     private boolean logDetails = false;
 
     public LMAlgoFactoryDecorator() {
@@ -77,6 +79,7 @@ public class LMAlgoFactoryDecorator implements RoutingAlgorithmFactoryDecorator
     @Override
     public void init(CmdArgs args) {
         setPreparationThreads(args.getInt(Parameters.Landmark.PREPARE + "threads", getPreparationThreads()));
+        setLandmarkThreads(args.getInt(Landmark.PREPARE + "landmark_threads", getLandmarkThreads()));
 
         landmarkCount = args.getInt(Parameters.Landmark.COUNT, landmarkCount);
         activeLandmarkCount = args.getInt(Landmark.ACTIVE_COUNT_DEFAULT, Math.min(8, landmarkCount));
@@ -138,6 +141,22 @@ public class LMAlgoFactoryDecorator implements RoutingAlgorithmFactoryDecorator
         this.threadPool = java.util.concurrent.Executors.newFixedThreadPool(preparationThreads);
     }
 
+    public int getLandmarkThreads() {
+        return landmarkThreads;
+    }
+
+    /**
+     * This method changes the number of threads that calculate the landmark weights of one weighting concurrently.
+     * Default is 1. Unlike setPreparationThreads this does not increase the memory usage much.
+     */
+    public LMAlgoFactoryDecorator setLandmarkThreads(int landmarkThreads) {
+        if (landmarkThreads < 1)
+            throw new IllegalArgumentException("landmark threads must be at least 1 but was " + landmarkThreads);
+
+        this.landmarkThreads = landmarkThreads;
+        return this;
+    }
+
     /**
      * Enables the use of contraction hierarchies to reduce query times. Enabled by default.
      *
@@ -271,6 +290,17 @@ public class LMAlgoFactoryDecorator implements RoutingAlgorithmFactoryDecorator
      * @see com.graphhopper.routing.ch.CHAlgoFactoryDecorator#prepare(StorableProperties) for a very similar method
      */
     public boolean loadOrDoWork(final StorableProperties properties) {
+        // shared by the preparations and only used during this call
+        ForkJoinPool landmarkPool = landmarkThreads > 1 ? new ForkJoinPool(landmarkThreads) : null;
+        try {
+            return loadOrDoWork(properties, landmarkPool);
+        } finally {
+            if (landmarkPool != null)
+                landmarkPool.shutdown();
+        }
+    }
+
+    private boolean loadOrDoWork(final StorableProperties properties, ForkJoinPool landmarkPool) {
         ExecutorCompletionService completionService = new ExecutorCompletionService<>(threadPool);
         int counter = 0;
         final AtomicBoolean prepared = new AtomicBoolean(false);
@@ -278,6 +308,7 @@ public class LMAlgoFactoryDecorator implements RoutingAlgorithmFactoryDecorator
             counter++;
             final int tmpCounter = counter;
             final String name = AbstractWeighting.weightingToFileName(plm.getWeighting());
+            plm.setForkJoinPool(landmarkPool);
             completionService.submit(new Runnable() {
                 @Override
                 public void run() {
@@ -48,6 +48,9 @@ public class LMApproximator implements WeightApproximator {
     // store weights as int
     private int[] activeFromIntWeights;
     private int[] activeToIntWeights;
+    // if many landmarks are active the weights of all landmarks of a node are read at once into this array
+    private final int[] weightRow;
+    private int[] previousActiveLandmarks;
     private double epsilon = 1;
     private int to = -1;
     // do activate landmark recalculation
@@ -73,6 +76,7 @@ public class LMApproximator implements WeightApproximator {
         Arrays.fill(activeLandmarks, -1);
         activeFromIntWeights = new int[activeCount];
         activeToIntWeights = new int[activeCount];
+        weightRow = activeCount * 2 >= lms.getLandmarkCount() ? new int[lms.getLandmarkCount()] : null;
 
         this.graph = graph;
         this.fallBackApproximation = new BeelineWeightApproximator(graph.getNodeAccess(), lms.getWeighting());
@@ -156,9 +160,14 @@ public class LMApproximator implements WeightApproximator {
     }
 
     int getMaxWeight(int node, int virtEdgeWeightInt, int[] activeLandmarks, int[] activeFromIntWeights, int[] activeToIntWeights) {
+        if (weightRow != null)
+            lms.getWeights(node, weightRow);
+
         int maxWeightInt = -1;
         for (int activeLMIdx = 0; activeLMIdx < activeLandmarks.length; activeLMIdx++) {
             int landmarkIndex = activeLandmarks[activeLMIdx];
+            // both weights are encoded in one int
+            int weights = weightRow == null ? lms.getWeights(landmarkIndex, node) : weightRow[landmarkIndex];
 
             // 1. assume route from a to b: a--->v--->b and a landmark LM.
             //    From this we get two inequality formulas where v is the start (or current node) and b is the 'to' node:
@@ -167,8 +176,8 @@ public class LMApproximator implements WeightApproximator {
             // 2. for the case a->v the sign is reverse as we need to know the vector av not va => if(reverse) "-weight"
             // 3. as weight is the full edge weight for now (and not the precise weight to the virt node) we can only add it to the subtrahend
             //    to avoid overestimating (keep the result strictly lower)
-            int fromWeightInt = activeFromIntWeights[activeLMIdx] - (lms.getFromWeight(landmarkIndex, node) + virtEdgeWeightInt);
-            int toWeightInt = lms.getToWeight(landmarkIndex, node) - activeToIntWeights[activeLMIdx];
+            int fromWeightInt = activeFromIntWeights[activeLMIdx] - (LandmarkStorage.getFromWeight(weights) + virtEdgeWeightInt);
+            int toWeightInt = LandmarkStorage.getToWeight(weights) - activeToIntWeights[activeLMIdx];
             if (reverse) {
                 fromWeightInt = -fromWeightInt;
                 // we need virtEntryWeight for the minuend
@@ -208,6 +217,28 @@ public class LMApproximator implements WeightApproximator {
         return new LMApproximator(graph, maxBaseNodes, lms, activeLandmarks.length, factor, !reverse);
     }
 
+    /**
+     * Selects the active landmarks again for the specified node, which is usually on the frontier of the search.
+     */
+    @Override
+    public boolean recalculate(int currentNode) {
+        // before the first approximate call nothing was selected
+        if (doALMRecalc || fallback || lms.isEmpty())
+            return false;
+
+        int node = getNode(currentNode);
+        if (node == to)
+            return false;
+
+        if (previousActiveLandmarks == null)
+            previousActiveLandmarks = new int[activeLandmarks.length];
+        System.arraycopy(activeLandmarks, 0, previousActiveLandmarks, 0, activeLandmarks.length);
+        if (!lms.initActiveLandmarks(node, to, activeLandmarks, activeFromIntWeights, activeToIntWeights, reverse))
+            return false;
+
+        return !Arrays.equals(previousActiveLandmarks, activeLandmarks);
+    }
+
     /**
      * This method forces a lazy recalculation of the active landmark set e.g. necessary after the 'to' node changed.
      */
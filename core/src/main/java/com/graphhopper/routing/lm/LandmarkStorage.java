@@ -41,6 +41,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -77,6 +79,7 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
     private List<LandmarkSuggestion> landmarkSuggestions = Collections.emptyList();
     private SpatialRuleLookup ruleLookup;
     private boolean logDetails = false;
+    private ForkJoinPool forkJoinPool;
 
     public LandmarkStorage(GraphHopperStorage graph, Directory dir, final Weighting weighting, int landmarks) {
         this.graph = graph;
@@ -106,7 +109,11 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         // use the node based traversal as this is a smaller weight approximation and will still produce correct results
         this.traversalMode = TraversalMode.NODE_BASED;
         final String name = AbstractWeighting.weightingToFileName(weighting);
-        this.landmarkWeightDA = dir.find("landmarks_" + name);
+        // only ints are stored, so for the heap the int optimized variant can be used that copies whole rows at once
+        DAType daType = dir.getDefaultType();
+        if (daType.isInMemory())
+            daType = daType.isStoring() ? DAType.RAM_INT_STORE : DAType.RAM_INT;
+        this.landmarkWeightDA = dir.find("landmarks_" + name, daType);
 
         this.landmarks = landmarks;
         // one short per landmark and two directions => 2*2 byte
@@ -205,6 +212,16 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         if (isInitialized())
             throw new IllegalStateException("Initialize the landmark storage only once!");
 
+        // all landmarks are calculated from the same edge flags, also in the workers of the ForkJoinPool
+        EdgeFlagOverlay pinned = graph.pinEdgeFlags();
+        try {
+            doCreateLandmarks();
+        } finally {
+            graph.unpinEdgeFlags(pinned);
+        }
+    }
+
+    private void doCreateLandmarks() {
         // fill 'from' and 'to' weights with maximum value
         long maxBytes = (long) graph.getNodes() * LM_ROW_LENGTH;
         this.landmarkWeightDA.create(2000);
@@ -398,37 +415,23 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         }
 
         // 2) calculate weights for all landmarks -> 'from' and 'to' weight
-        for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
-            if (Thread.currentThread().isInterrupted()) {
-                throw new RuntimeException("Thread was interrupted");
-            }
-            int lmNodeId = tmpLandmarkNodeIds[lmIdx];
-            LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, true);
-            explorer.setStartNode(lmNodeId);
-            explorer.setFilter(blockedEdges, true, false);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH);
-
-            // set subnetwork id to all explored nodes, but do this only for the first landmark
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
-
-            explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, false);
-            explorer.setStartNode(lmNodeId);
-            explorer.setFilter(blockedEdges, false, true);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH);
+        // the first landmark determines the subnetwork and its explorations can reject it
+        if (!createLandmarkWeights(0, tmpLandmarkNodeIds[0], blockedEdges, subnetworks, subnetworkId))
+            return false;
 
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
+        // the other landmarks write into different slots of every row and can be calculated independently
+        AtomicInteger finishedLandmarks = new AtomicInteger(1);
+        if (forkJoinPool == null || tmpLandmarkNodeIds.length <= 2) {
+            for (int lmIdx = 1; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new RuntimeException("Thread was interrupted");
+                }
+                createLandmarkWeights(lmIdx, tmpLandmarkNodeIds[lmIdx], blockedEdges, null, subnetworkId);
+                logLandmarkWeightsProgress(finishedLandmarks.incrementAndGet(), tmpLandmarkNodeIds.length);
             }
-
-            if (logDetails && lmIdx % logOffset == 0)
-                LOGGER.info("Set landmarks weights [" + weighting + "]. "
-                        + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
+        } else {
+            forkJoinPool.invoke(new LandmarkWeightsTask(Thread.currentThread(), graph.getPinnedEdgeFlags(),
+                    tmpLandmarkNodeIds, blockedEdges, subnetworkId, finishedLandmarks, 1, tmpLandmarkNodeIds.length));
         }
 
         // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
@@ -436,6 +439,49 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         return true;
     }
 
+    /**
+     * Calculates the 'from' and 'to' weights of one landmark. The 'to' weights are stored relative to the 'from'
+     * weights, so both explorations have to run one after the other.
+     *
+     * @param subnetworks if not null the subnetwork id is set for all explored nodes
+     * @return false if an explored node belongs already to a different subnetwork
+     */
+    private boolean createLandmarkWeights(int lmIdx, int lmNodeId, IntHashSet blockedEdges, byte[] subnetworks, int subnetworkId) {
+        LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, true);
+        explorer.setStartNode(lmNodeId);
+        explorer.setFilter(blockedEdges, true, false);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH);
+
+        // set subnetwork id to all explored nodes, but do this only for the first landmark
+        if (subnetworks != null && explorer.setSubnetworks(subnetworks, subnetworkId))
+            return false;
+
+        explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, false);
+        explorer.setStartNode(lmNodeId);
+        explorer.setFilter(blockedEdges, false, true);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH);
+
+        return subnetworks == null || !explorer.setSubnetworks(subnetworks, subnetworkId);
+    }
+
+    private void logLandmarkWeightsProgress(int finished, int count) {
+        int logOffset = Math.max(1, count / 2);
+        if (logDetails && finished % logOffset == 0)
+            LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                    + "Progress " + (int) (100.0 * finished / count) + "%");
+    }
+
+    /**
+     * Specifies the pool that calculates the weights of the landmarks of one subnetwork concurrently. If null, which
+     * is the default, the landmarks are calculated one after the other in the calling thread.
+     */
+    public LandmarkStorage setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+        return this;
+    }
+
     /**
      * This method specifies the polygons which should be used to split the world wide area to improve performance and
      * quality in this scenario.
@@ -477,29 +523,52 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
      * a node ID but the internal index of the landmark array.
      */
     int getFromWeight(int landmarkIndex, int node) {
+        return getFromWeight(getWeights(landmarkIndex, node));
+    }
+
+    /**
+     * @return the weight from the specified node to the landmark (specified *as index*)
+     */
+    int getToWeight(int landmarkIndex, int node) {
+        return getToWeight(getWeights(landmarkIndex, node));
+    }
+
+    /**
+     * @return the encoded 'from' and 'to' weights of the specified landmark for the specified node. Use
+     * getFromWeight(int) and getToWeight(int) to decode them.
+     */
+    int getWeights(int landmarkIndex, int node) {
+        return landmarkWeightDA.getInt((long) node * LM_ROW_LENGTH + landmarkIndex * 4);
+    }
+
+    /**
+     * Reads the encoded weights of all landmarks for the specified node with one bulk read.
+     *
+     * @param weights acts as output and needs at least getLandmarkCount() entries
+     */
+    void getWeights(int node, int[] weights) {
+        landmarkWeightDA.getInts((long) node * LM_ROW_LENGTH, weights, landmarks);
+    }
+
+    static int getFromWeight(int weights) {
         //only the right bits of this integer store the backward value
-        int res = landmarkWeightDA.getInt((long) node * LM_ROW_LENGTH + landmarkIndex * 4) & FROM_WEIGHT_INF;
+        int res = weights & FROM_WEIGHT_INF;
 
         if (res == FROM_WEIGHT_INF)
             return Integer.MAX_VALUE;
-        // throw new IllegalStateException("Do not call getFromWeight for wrong landmark[" + landmarkIndex + "]=" + landmarkIDs[landmarkIndex] + " and node " + node);
 
-        assert res >= 0 : "Negative backward weight " + res + ", landmark index:" + landmarkIndex + ", node:" + node;
+        assert res >= 0 : "Negative backward weight " + res;
         return res;
     }
 
-    /**
-     * @return the weight from the specified node to the landmark (specified *as index*)
-     */
-    int getToWeight(int landmarkIndex, int node) {
-        int res = landmarkWeightDA.getInt((long) node * LM_ROW_LENGTH + landmarkIndex * 4);
+    static int getToWeight(int weights) {
+        int res = weights;
 
         //the left bits of "res" store the difference between forward and backward value
         int delta = res >> FROM_WEIGHT_BITS;
 
         if (delta == DELTA_INF)
             return Integer.MAX_VALUE;
-        // throw new IllegalStateException("Do not call getToWeight for wrong landmark[" + landmarkIndex + "]=" + landmarkIDs[landmarkIndex] + " and node " + node);
 
         //the right bits of "res" store the backward value
         int from = res & FROM_WEIGHT_INF;
@@ -511,7 +580,7 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         //to get the forward value you have to add the backward to the delta value
         res = from + delta;
 
-        assert res >= 0 : "Negative forward weight " + res + ", landmark index:" + landmarkIndex + ", node:" + node;
+        assert res >= 0 : "Negative forward weight " + res;
         return res;
     }
 
@@ -760,6 +829,53 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         return landmarkWeightDA.getCapacity() + subnetworkStorage.getCapacity();
     }
 
+    private class LandmarkWeightsTask extends RecursiveAction {
+        private final Thread caller;
+        // the version of the edge flags pinned by the caller
+        private final EdgeFlagOverlay flags;
+        private final int[] landmarkNodeIds;
+        private final IntHashSet blockedEdges;
+        private final int subnetworkId;
+        private final AtomicInteger finishedLandmarks;
+        private final int from;
+        private final int to;
+
+        LandmarkWeightsTask(Thread caller, EdgeFlagOverlay flags, int[] landmarkNodeIds, IntHashSet blockedEdges,
+                            int subnetworkId, AtomicInteger finishedLandmarks, int from, int to) {
+            this.caller = caller;
+            this.flags = flags;
+            this.landmarkNodeIds = landmarkNodeIds;
+            this.blockedEdges = blockedEdges;
+            this.subnetworkId = subnetworkId;
+            this.finishedLandmarks = finishedLandmarks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                // the workers of the pool are not interrupted together with the thread that started the preparation
+                if (caller.isInterrupted())
+                    throw new RuntimeException("Thread was interrupted");
+
+                // pin only while no other task can run in this thread
+                EdgeFlagOverlay pinned = graph.pinEdgeFlags(flags);
+                try {
+                    createLandmarkWeights(from, landmarkNodeIds[from], blockedEdges, null, subnetworkId);
+                } finally {
+                    graph.unpinEdgeFlags(pinned);
+                }
+                logLandmarkWeightsProgress(finishedLandmarks.incrementAndGet(), landmarkNodeIds.length);
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new LandmarkWeightsTask(caller, flags, landmarkNodeIds, blockedEdges, subnetworkId, finishedLandmarks, from, middle),
+                    new LandmarkWeightsTask(caller, flags, landmarkNodeIds, blockedEdges, subnetworkId, finishedLandmarks, middle, to));
+        }
+    }
+
     /**
      * This class is used to calculate landmark location (equally distributed).
      * It derives from DijkstraBidirectionRef, but is only used as forward or backward search.
@@ -32,6 +32,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * This class does the preprocessing for the ALT algorithm (A* , landmark, triangle inequality).
@@ -105,6 +106,14 @@ public class PrepareLandmarks extends AbstractAlgoPreparation {
         return this;
     }
 
+    /**
+     * @see LandmarkStorage#setForkJoinPool(ForkJoinPool)
+     */
+    public PrepareLandmarks setForkJoinPool(ForkJoinPool forkJoinPool) {
+        lms.setForkJoinPool(forkJoinPool);
+        return this;
+    }
+
     LandmarkStorage getLandmarkStorage() {
         return lms;
     }
@@ -154,6 +163,23 @@ public class PrepareLandmarks extends AbstractAlgoPreparation {
             AStarBidirection astarbi = (AStarBidirection) algo;
             astarbi.setApproximation(new LMApproximator(qGraph, this.graph.getNodes(), lms, activeLM, lms.getFactor(), false).
                     setEpsilon(epsilon));
+            astarbi.setRecalculationInterval(opts.getHints().getInt(Landmark.ACTIVE_RECALCULATION_INTERVAL, 0));
+            return algo;
+        } else if (algo instanceof AStarNative) {
+            if (!lms.isInitialized())
+                throw new IllegalStateException("Initialize landmark storage before creating algorithms");
+
+            double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStar.EPSILON, 1);
+            ((AStarNative) algo).setApproximation(new LMApproximator(qGraph, this.graph.getNodes(), lms, activeLM, lms.getFactor(), false).
+                    setEpsilon(epsilon));
+            return algo;
+        } else if (algo instanceof AStarBidirectionNative) {
+            if (!lms.isInitialized())
+                throw new IllegalStateException("Initialize landmark storage before creating algorithms");
+
+            double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
+            ((AStarBidirectionNative) algo).setApproximation(new LMApproximator(qGraph, this.graph.getNodes(), lms, activeLM, lms.getFactor(), false).
+                    setEpsilon(epsilon));
             return algo;
         } else if (algo instanceof AlternativeRoute) {
             if (!lms.isInitialized())
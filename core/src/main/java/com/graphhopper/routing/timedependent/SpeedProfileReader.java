@@ -0,0 +1,108 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.timedependent;
+
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.QueryResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+
+import static com.graphhopper.util.Helper.UTF_CS;
+
+/**
+ * Reads historical speed profiles from a CSV file and assigns them to the closest edge of a location. Every line
+ * contains the location and a speed in km/h for every 15 minutes of the week starting on Monday 00:00, i.e.
+ * lat,lon,speed_0,...,speed_671. Alternatively 96 speeds of a single day can be specified, which are used for every
+ * day of the week. An empty speed or 0 means that there is no data for this time. Lines starting with # are ignored.
+ * <p>
+ * The profile is used for both directions of the edge.
+ */
+public class SpeedProfileReader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SpeedProfileReader.class);
+    private static final int DAY_BUCKETS = SpeedProfileStorage.BUCKETS / 7;
+    private final SpeedProfileStorage speedProfiles;
+    private final LocationIndex locationIndex;
+    private EdgeFilter edgeFilter = EdgeFilter.ALL_EDGES;
+
+    public SpeedProfileReader(SpeedProfileStorage speedProfiles, LocationIndex locationIndex) {
+        this.speedProfiles = speedProfiles;
+        this.locationIndex = locationIndex;
+    }
+
+    /**
+     * Specifies which edges can get a profile, default are all edges.
+     */
+    public SpeedProfileReader setEdgeFilter(EdgeFilter edgeFilter) {
+        this.edgeFilter = edgeFilter;
+        return this;
+    }
+
+    /**
+     * @return the number of edges that got a profile
+     */
+    public int read(File file) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), UTF_CS)) {
+            return read(reader);
+        }
+    }
+
+    public int read(Reader reader) throws IOException {
+        BufferedReader bufferedReader = new BufferedReader(reader);
+        int[] speeds = new int[SpeedProfileStorage.BUCKETS];
+        int lineNumber = 0, edges = 0, notFound = 0;
+        String line;
+        while ((line = bufferedReader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+
+            String[] values = line.split(",", -1);
+            int speedCount = values.length - 2;
+            if (speedCount != SpeedProfileStorage.BUCKETS && speedCount != DAY_BUCKETS)
+                throw new IllegalArgumentException("Line " + lineNumber + " needs " + SpeedProfileStorage.BUCKETS
+                        + " or " + DAY_BUCKETS + " speeds but had " + speedCount);
+
+            QueryResult qr;
+            try {
+                qr = locationIndex.findClosest(Double.parseDouble(values[0]), Double.parseDouble(values[1]), edgeFilter);
+                for (int i = 0; i < speeds.length; i++) {
+                    String speed = values[2 + i % speedCount].trim();
+                    speeds[i] = speed.isEmpty() ? 0 : (int) Math.round(Double.parseDouble(speed));
+                }
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Cannot parse line " + lineNumber + ": " + ex.getMessage(), ex);
+            }
+
+            if (!qr.isValid()) {
+                notFound++;
+                continue;
+            }
+
+            speedProfiles.setProfile(qr.getClosestEdge().getEdge(), speedProfiles.addProfile(speeds));
+            edges++;
+        }
+
+        if (notFound > 0)
+            LOGGER.warn("No edge found for " + notFound + " of " + (edges + notFound) + " speed profiles");
+        return edges;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.timedependent;
+
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.Storable;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class stores a weekly speed profile for every edge. A profile has one speed in km/h per 15 minutes starting
+ * on Monday 00:00, i.e. 672 buckets. Every distinct profile is stored only once and the edges reference it by its id,
+ * which keeps the storage small even for many edges as long as the number of distinct profiles is limited. E.g.
+ * 50 million edges and 100 000 profiles need 200MB for the edges and 67MB for the profiles.
+ * <p>
+ * The profile id 0 means that an edge has no profile. A speed of 0 means that there is no speed for the bucket. In
+ * both cases the speed of the flag encoder is used.
+ */
+public class SpeedProfileStorage implements Storable<SpeedProfileStorage> {
+    public static final int BUCKETS = 7 * 24 * 4;
+    public static final long BUCKET_MILLIS = 15 * 60 * 1000L;
+    public static final long WEEK_MILLIS = BUCKETS * BUCKET_MILLIS;
+    private static final int VERSION = 1;
+    private final Graph graph;
+    // the profile id for every edge
+    private final DataAccess edgeProfiles;
+    // the speeds of every profile as one byte per bucket
+    private final DataAccess profiles;
+    private int edges;
+    private int profileCount;
+    // to find existing profiles when adding new ones, created only on demand
+    private Map<ByteBuffer, Integer> profileIds;
+
+    public SpeedProfileStorage(Graph graph, Directory dir) {
+        this.graph = graph;
+        edgeProfiles = dir.find("speed_profiles_edges");
+        profiles = dir.find("speed_profiles");
+    }
+
+    /**
+     * Converts the specified time into the milliseconds since the start of the week in the time zone of the
+     * profiles.
+     *
+     * @param timeZoneOffset the offset of the time zone of the profiles to UTC at the specified time
+     */
+    public static long toWeekMillis(long epochMillis, int timeZoneOffset) {
+        // 1970-01-01 was a Thursday
+        long weekMillis = (epochMillis + timeZoneOffset + 3 * 24 * 3600 * 1000L) % WEEK_MILLIS;
+        return weekMillis < 0 ? weekMillis + WEEK_MILLIS : weekMillis;
+    }
+
+    /**
+     * @param weekMillis the milliseconds since the start of a week, bigger values continue in the next week
+     */
+    public static int getBucket(long weekMillis) {
+        return (int) ((weekMillis % WEEK_MILLIS) / BUCKET_MILLIS);
+    }
+
+    /**
+     * Adds the specified profile if it does not exist already.
+     *
+     * @param speeds the speed in km/h for every bucket, from 0 to 255
+     * @return the id of the profile
+     */
+    public int addProfile(int[] speeds) {
+        if (speeds.length != BUCKETS)
+            throw new IllegalArgumentException("A speed profile needs " + BUCKETS + " speeds but had " + speeds.length);
+
+        byte[] bytes = new byte[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            if (speeds[i] < 0 || speeds[i] > 255)
+                throw new IllegalArgumentException("Speed has to be between 0 and 255 km/h but was " + speeds[i]);
+            bytes[i] = (byte) speeds[i];
+        }
+
+        if (profileIds == null) {
+            profileIds = new HashMap<>(Math.max(16, profileCount * 2));
+            for (int id = 1; id <= profileCount; id++) {
+                byte[] existing = new byte[BUCKETS];
+                for (int i = 0; i < BUCKETS; i++) {
+                    existing[i] = (byte) getSpeed(id, i);
+                }
+                profileIds.put(ByteBuffer.wrap(existing), id);
+            }
+        }
+
+        ByteBuffer key = ByteBuffer.wrap(bytes);
+        Integer id = profileIds.get(key);
+        if (id != null)
+            return id;
+
+        profileCount++;
+        long pointer = (long) (profileCount - 1) * BUCKETS;
+        profiles.ensureCapacity(pointer + BUCKETS);
+        // the buckets are written as whole ints, so that reading a speed never crosses the border of a segment
+        for (int i = 0; i < BUCKETS; i += 4) {
+            profiles.setInt(pointer + i, (bytes[i] & 0xFF) | (bytes[i + 1] & 0xFF) << 8
+                    | (bytes[i + 2] & 0xFF) << 16 | (bytes[i + 3] & 0xFF) << 24);
+        }
+        profileIds.put(key, profileCount);
+        return profileCount;
+    }
+
+    /**
+     * @return the speed in km/h of the specified profile and bucket or 0 if the profile has no speed for it
+     */
+    public int getSpeed(int profileId, int bucket) {
+        long pointer = (long) (profileId - 1) * BUCKETS + (bucket & ~3);
+        return (profiles.getInt(pointer) >>> (8 * (bucket & 3))) & 0xFF;
+    }
+
+    public void setProfile(int edgeId, int profileId) {
+        if (profileId < 0 || profileId > profileCount)
+            throw new IllegalArgumentException("Profile " + profileId + " does not exist");
+
+        edgeProfiles.setInt((long) checkEdge(edgeId) * 4, profileId);
+    }
+
+    /**
+     * @return the id of the profile of the specified edge or 0 if it has no profile
+     */
+    public int getProfile(int edgeId) {
+        return edgeProfiles.getInt((long) checkEdge(edgeId) * 4);
+    }
+
+    private int checkEdge(int edgeId) {
+        if (edgeId < 0 || edgeId >= edges)
+            throw new IllegalArgumentException("Edge " + edgeId + " is not valid, the storage was created for " + edges + " edges");
+        return edgeId;
+    }
+
+    public int getProfileCount() {
+        return profileCount;
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (!edgeProfiles.loadExisting())
+            return false;
+        if (!profiles.loadExisting())
+            throw new IllegalStateException("Edges of the speed profiles loaded but not the profiles");
+
+        int version = edgeProfiles.getHeader(0);
+        if (version != VERSION)
+            throw new IllegalArgumentException("Cannot load speed profiles due to incompatible version. Storage used version: " + version + ", expected: " + VERSION);
+        edges = edgeProfiles.getHeader(4);
+        if (edges != graph.getAllEdges().length())
+            throw new IllegalArgumentException("Cannot load speed profiles as written for different graph storage with " + edges + " edges, not " + graph.getAllEdges().length());
+
+        profileCount = profiles.getHeader(0);
+        return true;
+    }
+
+    /**
+     * Creates the storage for all edges of the graph, without profiles.
+     */
+    @Override
+    public SpeedProfileStorage create(long byteCount) {
+        edges = graph.getAllEdges().length();
+        edgeProfiles.create(Math.max(byteCount, (long) edges * 4));
+        edgeProfiles.ensureCapacity((long) edges * 4);
+        for (long pointer = 0; pointer < (long) edges * 4; pointer += 4) {
+            edgeProfiles.setInt(pointer, 0);
+        }
+        profiles.create(BUCKETS * 100);
+        profileCount = 0;
+        return this;
+    }
+
+    @Override
+    public void flush() {
+        edgeProfiles.setHeader(0, VERSION);
+        edgeProfiles.setHeader(4, edges);
+        profiles.setHeader(0, profileCount);
+        edgeProfiles.flush();
+        profiles.flush();
+    }
+
+    @Override
+    public void close() {
+        edgeProfiles.close();
+        profiles.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return edgeProfiles.isClosed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return edgeProfiles.getCapacity() + profiles.getCapacity();
+    }
+
+    @Override
+    public String toString() {
+        return "speed_profiles, edges:" + edges + ", profiles:" + profileCount;
+    }
+}
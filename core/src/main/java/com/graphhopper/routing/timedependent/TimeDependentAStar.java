@@ -0,0 +1,65 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.timedependent;
+
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.BeelineWeightApproximator;
+import com.graphhopper.routing.weighting.WeightApproximator;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.Parameters;
+
+/**
+ * The time-dependent variant of A*. The approximation has to be admissible for the time-dependent weights, which is
+ * the case for the beeline approximation as the TimeDependentWeighting limits the speeds to the maximum speed.
+ */
+public class TimeDependentAStar extends TimeDependentDijkstra {
+    private WeightApproximator weightApprox;
+
+    public TimeDependentAStar(Graph graph, TimeDependentWeighting weighting, TraversalMode tMode) {
+        super(graph, weighting, tMode);
+        BeelineWeightApproximator defaultApprox = new BeelineWeightApproximator(nodeAccess, weighting);
+        defaultApprox.setDistanceCalc(Helper.DIST_PLANE);
+        setApproximation(defaultApprox);
+    }
+
+    /**
+     * @param approx defines how distance to goal Node is approximated
+     */
+    public TimeDependentAStar setApproximation(WeightApproximator approx) {
+        weightApprox = approx;
+        return this;
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        weightApprox.setTo(to);
+        return super.calcPath(from, to);
+    }
+
+    @Override
+    protected double approximate(int node) {
+        return weightApprox.approximate(node);
+    }
+
+    @Override
+    public String getName() {
+        return Parameters.Algorithms.ASTAR + "|time_dependent";
+    }
+}
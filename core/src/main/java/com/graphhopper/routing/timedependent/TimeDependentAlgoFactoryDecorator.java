@@ -0,0 +1,206 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.timedependent;
+
+import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.RoutingAlgorithmFactory;
+import com.graphhopper.routing.RoutingAlgorithmFactoryDecorator;
+import com.graphhopper.routing.RoutingAlgorithmFactorySimple;
+import com.graphhopper.routing.util.HintsMap;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Parameters.TimeDependent;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.TimeZone;
+
+import static com.graphhopper.util.Helper.getMemInfo;
+import static com.graphhopper.util.Helper.toLowerCase;
+import static com.graphhopper.util.Parameters.Algorithms.*;
+
+/**
+ * This class enables time-dependent routing with the speed profiles of a SpeedProfileStorage. If a request specifies
+ * a departure time the algorithm is replaced by the time-dependent variant, otherwise the algorithm factory is not
+ * changed. CH cannot be used for time-dependent requests.
+ */
+public class TimeDependentAlgoFactoryDecorator implements RoutingAlgorithmFactoryDecorator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TimeDependentAlgoFactoryDecorator.class);
+    private boolean enabled = false;
+    private String speedProfilesFile = "";
+    private TimeZone timeZone = TimeZone.getTimeZone("UTC");
+    private SpeedProfileStorage speedProfiles;
+
+    @Override
+    public void init(CmdArgs args) {
+        setSpeedProfilesFile(args.get(TimeDependent.FILE, speedProfilesFile));
+        setTimeZone(TimeZone.getTimeZone(args.get(TimeDependent.INIT_TIME_ZONE, timeZone.getID())));
+    }
+
+    /**
+     * Enables time-dependent routing if the file is not empty. The file is only read if the speed profiles cannot be
+     * loaded from the graph folder.
+     */
+    public TimeDependentAlgoFactoryDecorator setSpeedProfilesFile(String speedProfilesFile) {
+        this.speedProfilesFile = speedProfilesFile;
+        enabled = !speedProfilesFile.isEmpty();
+        return this;
+    }
+
+    public String getSpeedProfilesFile() {
+        return speedProfilesFile;
+    }
+
+    /**
+     * @param timeZone the time zone of the speed profiles, which is used to convert the departure time
+     */
+    public TimeDependentAlgoFactoryDecorator setTimeZone(TimeZone timeZone) {
+        this.timeZone = timeZone;
+        return this;
+    }
+
+    public final TimeDependentAlgoFactoryDecorator setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    @Override
+    public final boolean isEnabled() {
+        return enabled;
+    }
+
+    public SpeedProfileStorage getSpeedProfiles() {
+        return speedProfiles;
+    }
+
+    /**
+     * Loads the speed profiles from the graph folder or reads them from the speed profiles file if they do not exist.
+     *
+     * @return true if the speed profiles were read from the file
+     */
+    public boolean loadOrRead(GraphHopperStorage ghStorage, LocationIndex locationIndex) {
+        SpeedProfileStorage tmpSpeedProfiles = new SpeedProfileStorage(ghStorage, ghStorage.getDirectory());
+        if (tmpSpeedProfiles.loadExisting()) {
+            speedProfiles = tmpSpeedProfiles;
+            return false;
+        }
+
+        if (speedProfilesFile.isEmpty())
+            throw new IllegalStateException("Speed profiles cannot be loaded and no file is specified via " + TimeDependent.FILE);
+
+        StopWatch sw = new StopWatch().start();
+        tmpSpeedProfiles.create(1000);
+        int edges;
+        try {
+            edges = new SpeedProfileReader(tmpSpeedProfiles, locationIndex).read(new File(speedProfilesFile));
+        } catch (IOException ex) {
+            throw new RuntimeException("Cannot read speed profiles from " + speedProfilesFile, ex);
+        }
+        tmpSpeedProfiles.flush();
+        speedProfiles = tmpSpeedProfiles;
+        LOGGER.info("read speed profiles of " + edges + " edges in " + sw.stop().getSeconds() + "s, "
+                + speedProfiles + ", " + getMemInfo());
+        return true;
+    }
+
+    public void close() {
+        if (speedProfiles != null && !speedProfiles.isClosed())
+            speedProfiles.close();
+    }
+
+    @Override
+    public RoutingAlgorithmFactory getDecoratedAlgorithmFactory(RoutingAlgorithmFactory defaultAlgoFactory, HintsMap map) {
+        if (!isEnabled() || !map.has(TimeDependent.DEPARTURE_TIME))
+            return defaultAlgoFactory;
+
+        if (speedProfiles == null)
+            throw new IllegalStateException("Speed profiles are not loaded");
+
+        long departureTime = parseDepartureTime(map.get(TimeDependent.DEPARTURE_TIME, ""));
+        return new TimeDependentAlgoFactory(SpeedProfileStorage.toWeekMillis(departureTime, timeZone.getOffset(departureTime)));
+    }
+
+    /**
+     * @return the departure time in milliseconds since the epoch. A date without a time zone is interpreted in the
+     * time zone of the speed profiles.
+     */
+    long parseDepartureTime(String str) {
+        str = str.trim();
+        try {
+            return Long.parseLong(str);
+        } catch (NumberFormatException ex) {
+            // try a date
+        }
+
+        try {
+            return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX").parse(str).getTime();
+        } catch (ParseException ex) {
+            // try a date without time zone
+        }
+
+        try {
+            SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");
+            format.setTimeZone(timeZone);
+            return format.parse(str).getTime();
+        } catch (ParseException ex) {
+            throw new IllegalArgumentException("Cannot parse " + TimeDependent.DEPARTURE_TIME + " " + str
+                    + ". Use e.g. 2018-05-04T08:00:00Z or the milliseconds since the epoch");
+        }
+    }
+
+    private class TimeDependentAlgoFactory implements RoutingAlgorithmFactory {
+        private long departureTime;
+        private TimeDependentDijkstra prevAlgo;
+
+        TimeDependentAlgoFactory(long departureTime) {
+            this.departureTime = departureTime;
+        }
+
+        @Override
+        public RoutingAlgorithm createAlgo(Graph g, AlgorithmOptions opts) {
+            TimeDependentWeighting weighting = new TimeDependentWeighting(opts.getWeighting(), speedProfiles, g);
+            String algoStr = opts.getAlgorithm();
+            TimeDependentDijkstra algo;
+            if (DIJKSTRA.equalsIgnoreCase(algoStr) || DIJKSTRA_BI.equalsIgnoreCase(algoStr)) {
+                algo = new TimeDependentDijkstra(g, weighting, opts.getTraversalMode());
+            } else if (ASTAR.equalsIgnoreCase(algoStr) || ASTAR_BI.equalsIgnoreCase(algoStr)) {
+                TimeDependentAStar aStar = new TimeDependentAStar(g, weighting, opts.getTraversalMode());
+                aStar.setApproximation(RoutingAlgorithmFactorySimple.getApproximation(toLowerCase(algoStr), opts, g.getNodeAccess()));
+                algo = aStar;
+            } else {
+                throw new IllegalArgumentException("Algorithm " + algoStr + " is not supported for time-dependent routing");
+            }
+
+            // the legs of a route are calculated one after another and a leg departs on arrival of the previous one
+            if (prevAlgo != null)
+                departureTime = prevAlgo.getArrivalTime();
+            prevAlgo = algo;
+            algo.setDepartureTime(departureTime);
+            algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+            return algo;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.timedependent;
+
+import com.carrotsearch.hppc.IntObjectMap;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.AbstractRoutingAlgorithm;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.SPTEntry;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.Parameters;
+
+import java.util.PriorityQueue;
+
+/**
+ * Implements a time-dependent Dijkstra. The weight of an edge is calculated for the time the edge is entered, which is
+ * the departure time plus the travel time of the path to its base node. A bidirectional search is not possible as the
+ * arrival time and so the weights of the backward search are unknown.
+ * <p>
+ * As the speeds of the profiles change every 15 minutes a later departure can arrive earlier on an edge. This is
+ * ignored, i.e. waiting is never considered.
+ */
+public class TimeDependentDijkstra extends AbstractRoutingAlgorithm {
+    private final TimeDependentWeighting tdWeighting;
+    private IntObjectMap<TimeDependentEntry> fromMap;
+    private PriorityQueue<TimeDependentEntry> fromHeap;
+    private TimeDependentEntry currEdge;
+    private int visitedNodes;
+    private int to = -1;
+    private long departureTime;
+
+    public TimeDependentDijkstra(Graph graph, TimeDependentWeighting weighting, TraversalMode tMode) {
+        super(graph, weighting, tMode);
+        this.tdWeighting = weighting;
+        int size = Math.min(Math.max(200, graph.getNodes() / 10), 2000);
+        fromHeap = new PriorityQueue<>(size);
+        fromMap = new GHIntObjectHashMap<>(size);
+    }
+
+    /**
+     * @param weekMillis the departure time in milliseconds since the start of the week, see
+     *                   SpeedProfileStorage.toWeekMillis
+     */
+    public TimeDependentDijkstra setDepartureTime(long weekMillis) {
+        this.departureTime = weekMillis;
+        return this;
+    }
+
+    /**
+     * @return the arrival time at the destination in milliseconds since the start of the week of the departure or
+     * the departure time if no path was found
+     */
+    public long getArrivalTime() {
+        return currEdge == null || !finished() ? departureTime : departureTime + currEdge.time;
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        checkAlreadyRun();
+        this.to = to;
+        currEdge = new TimeDependentEntry(EdgeIterator.NO_EDGE, from, approximate(from), 0, 0);
+        if (!traversalMode.isEdgeBased()) {
+            fromMap.put(from, currEdge);
+        }
+        runAlgo();
+        return extractPath();
+    }
+
+    /**
+     * @return the estimated weight from the specified node to the destination, 0 for Dijkstra
+     */
+    protected double approximate(int node) {
+        return 0;
+    }
+
+    private void runAlgo() {
+        EdgeExplorer explorer = outEdgeExplorer;
+        while (true) {
+            visitedNodes++;
+            if (isMaxVisitedNodesExceeded() || finished())
+                break;
+
+            long weekMillis = departureTime + currEdge.time;
+            EdgeIterator iter = explorer.setBaseNode(currEdge.adjNode);
+            while (iter.next()) {
+                if (!accept(iter, currEdge.edge))
+                    continue;
+
+                double tmpWeight = tdWeighting.calcWeight(iter, false, currEdge.edge, weekMillis)
+                        + currEdge.weightOfVisitedPath;
+                if (Double.isInfinite(tmpWeight))
+                    continue;
+
+                int traversalId = traversalMode.createTraversalId(iter, false);
+                TimeDependentEntry entry = fromMap.get(traversalId);
+                if (entry != null && entry.weightOfVisitedPath <= tmpWeight)
+                    continue;
+
+                long tmpTime = currEdge.time + tdWeighting.calcMillis(iter, false, currEdge.edge, weekMillis);
+                double estimationFullWeight = tmpWeight + approximate(iter.getAdjNode());
+                if (entry == null) {
+                    entry = new TimeDependentEntry(iter.getEdge(), iter.getAdjNode(), estimationFullWeight, tmpWeight, tmpTime);
+                    fromMap.put(traversalId, entry);
+                } else {
+                    fromHeap.remove(entry);
+                    entry.edge = iter.getEdge();
+                    entry.weight = estimationFullWeight;
+                    entry.weightOfVisitedPath = tmpWeight;
+                    entry.time = tmpTime;
+                }
+                entry.parent = currEdge;
+                fromHeap.add(entry);
+            }
+
+            if (fromHeap.isEmpty())
+                break;
+
+            currEdge = fromHeap.poll();
+            if (currEdge == null)
+                throw new AssertionError("Empty edge cannot happen");
+        }
+    }
+
+    @Override
+    protected boolean finished() {
+        return currEdge.adjNode == to;
+    }
+
+    @Override
+    protected Path extractPath() {
+        if (currEdge == null || !finished())
+            return createEmptyPath();
+
+        return new TimeDependentPath(graph, weighting).
+                setWeight(currEdge.weightOfVisitedPath).setSPTEntry(currEdge).extract();
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    @Override
+    public String getName() {
+        return Parameters.Algorithms.DIJKSTRA + "|time_dependent";
+    }
+
+    static class TimeDependentEntry extends SPTEntry {
+        double weightOfVisitedPath;
+        // the travel time from the departure in milliseconds
+        long time;
+
+        TimeDependentEntry(int edgeId, int adjNode, double weightForHeap, double weightOfVisitedPath, long time) {
+            super(edgeId, adjNode, weightForHeap);
+            this.weightOfVisitedPath = weightOfVisitedPath;
+            this.time = time;
+        }
+
+        @Override
+        public double getWeightOfVisitedPath() {
+            return weightOfVisitedPath;
+        }
+    }
+}
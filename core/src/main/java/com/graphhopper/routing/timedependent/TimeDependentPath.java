@@ -0,0 +1,39 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.timedependent;
+
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+
+/**
+ * The time of this path is the travel time determined by the time-dependent search, because the time of an edge
+ * depends on the time it was entered.
+ */
+class TimeDependentPath extends Path {
+    TimeDependentPath(Graph graph, Weighting weighting) {
+        super(graph, weighting);
+    }
+
+    @Override
+    public Path extract() {
+        super.extract();
+        time = ((TimeDependentDijkstra.TimeDependentEntry) sptEntry).time;
+        return this;
+    }
+}
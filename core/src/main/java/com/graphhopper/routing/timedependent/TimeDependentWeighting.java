@@ -0,0 +1,111 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.timedependent;
+
+import com.graphhopper.routing.QueryGraph;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.weighting.AbstractAdjustedWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeIteratorState;
+
+/**
+ * This weighting uses the speed of the profile of an edge at a certain time instead of the speed of the flag encoder.
+ * It adds the difference of the travel times in seconds to the weight of the super weighting, so it is meant to be
+ * used with the fastest weighting. Without a time the super weighting is used unchanged.
+ * <p>
+ * The speeds of the profiles are limited to the maximum speed of the flag encoder to keep the beeline approximation
+ * of the TimeDependentAStar admissible.
+ */
+public class TimeDependentWeighting extends AbstractAdjustedWeighting {
+    private final SpeedProfileStorage speedProfiles;
+    private final FlagEncoder encoder;
+    private final QueryGraph queryGraph;
+    private final double maxSpeed;
+
+    /**
+     * @param graph the graph the edges are from, for a QueryGraph the profiles of the original edges are used
+     */
+    public TimeDependentWeighting(Weighting superWeighting, SpeedProfileStorage speedProfiles, Graph graph) {
+        super(superWeighting);
+        this.speedProfiles = speedProfiles;
+        this.encoder = superWeighting.getFlagEncoder();
+        this.queryGraph = graph instanceof QueryGraph ? (QueryGraph) graph : null;
+        this.maxSpeed = encoder.getMaxSpeed();
+    }
+
+    @Override
+    public double getMinWeight(double distance) {
+        return superWeighting.getMinWeight(distance);
+    }
+
+    @Override
+    public double calcWeight(EdgeIteratorState edgeState, boolean reverse, int prevOrNextEdgeId) {
+        return superWeighting.calcWeight(edgeState, reverse, prevOrNextEdgeId);
+    }
+
+    /**
+     * @param weekMillis the time when the edge is entered in milliseconds since the start of the week
+     */
+    public double calcWeight(EdgeIteratorState edgeState, boolean reverse, int prevOrNextEdgeId, long weekMillis) {
+        double weight = superWeighting.calcWeight(edgeState, reverse, prevOrNextEdgeId);
+        if (Double.isInfinite(weight))
+            return weight;
+
+        return Math.max(0, weight + calcDelayMillis(edgeState, reverse, weekMillis) / 1000);
+    }
+
+    /**
+     * @param weekMillis the time when the edge is entered in milliseconds since the start of the week
+     */
+    public long calcMillis(EdgeIteratorState edgeState, boolean reverse, int prevOrNextEdgeId, long weekMillis) {
+        return superWeighting.calcMillis(edgeState, reverse, prevOrNextEdgeId)
+                + Math.round(calcDelayMillis(edgeState, reverse, weekMillis));
+    }
+
+    /**
+     * @return the travel time with the speed of the profile minus the travel time with the speed of the encoder
+     */
+    private double calcDelayMillis(EdgeIteratorState edgeState, boolean reverse, long weekMillis) {
+        int edge = queryGraph == null ? edgeState.getEdge() : queryGraph.getOriginalEdgeId(edgeState.getEdge());
+        int profile = speedProfiles.getProfile(edge);
+        if (profile == 0)
+            return 0;
+
+        int speed = speedProfiles.getSpeed(profile, SpeedProfileStorage.getBucket(weekMillis));
+        if (speed == 0)
+            return 0;
+
+        long flags = edgeState.getFlags();
+        double encoderSpeed = reverse ? encoder.getReverseSpeed(flags) : encoder.getSpeed(flags);
+        if (encoderSpeed <= 0)
+            return 0;
+
+        double distance = edgeState.getDistance();
+        return distance * 3600 / Math.min(speed, maxSpeed) - distance * 3600 / encoderSpeed;
+    }
+
+    public SpeedProfileStorage getSpeedProfiles() {
+        return speedProfiles;
+    }
+
+    @Override
+    public String getName() {
+        return "time_dependent";
+    }
+}
@@ -17,11 +17,13 @@
  */
 package com.graphhopper.routing.util;
 
+import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.storage.CHGraph;
 import com.graphhopper.util.EdgeIteratorState;
 
 public class IgnoreNodeFilter implements EdgeFilter {
     private int avoidNode;
+    private GHBitSet avoidNodes;
     private CHGraph graph;
     private int maxLevel;
 
@@ -35,10 +37,20 @@ public class IgnoreNodeFilter implements EdgeFilter {
         return this;
     }
 
+    /**
+     * Additionally ignores all nodes of the specified set, e.g. the nodes that are currently contracted in parallel.
+     * Use null to disable this.
+     */
+    public IgnoreNodeFilter setAvoidNodes(GHBitSet avoidNodes) {
+        this.avoidNodes = avoidNodes;
+        return this;
+    }
+
     @Override
     public final boolean accept(EdgeIteratorState iter) {
         // ignore if it is skipNode or adjNode is already contracted
         int node = iter.getAdjNode();
-        return avoidNode != node && graph.getLevel(node) == maxLevel;
+        return avoidNode != node && graph.getLevel(node) == maxLevel
+                && (avoidNodes == null || !avoidNodes.contains(node));
     }
 }
@@ -55,6 +55,11 @@ public class BeelineWeightApproximator implements WeightApproximator {
         return new BeelineWeightApproximator(nodeAccess, weighting).setDistanceCalc(distanceCalc).setEpsilon(epsilon);
     }
 
+    @Override
+    public boolean recalculate(int currentNode) {
+        return false;
+    }
+
     @Override
     public double approximate(int fromNode) {
         double fromLat = nodeAccess.getLatitude(fromNode);
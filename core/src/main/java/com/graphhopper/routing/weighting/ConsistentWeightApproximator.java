@@ -60,6 +60,17 @@ public class ConsistentWeightApproximator {
         return weightApproximation;
     }
 
+    /**
+     * @param fromNode the current node of the forward search
+     * @param toNode   the current node of the backward search
+     * @return true if the approximation changed
+     */
+    public boolean recalculate(int fromNode, int toNode) {
+        boolean forwardChanged = uniDirApproximatorForward.recalculate(fromNode);
+        boolean reverseChanged = uniDirApproximatorReverse.recalculate(toNode);
+        return forwardChanged || reverseChanged;
+    }
+
     @Override
     public String toString() {
         return uniDirApproximatorForward.toString();
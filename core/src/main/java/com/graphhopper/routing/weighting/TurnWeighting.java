@@ -102,6 +102,13 @@ public class TurnWeighting implements Weighting {
         return millis + turnCostsInMillis;
     }
 
+    /**
+     * @return the weighting of the edges without the turn costs
+     */
+    public Weighting getSuperWeighting() {
+        return superWeighting;
+    }
+
     /**
      * This method calculates the turn weight separately.
      */
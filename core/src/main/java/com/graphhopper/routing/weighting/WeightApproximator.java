@@ -39,4 +39,12 @@ public interface WeightApproximator {
      * towards the 'to'.
      */
     WeightApproximator reverse();
+
+    /**
+     * Gives the approximator the chance to adapt to the progress of a search, e.g. by selecting better landmarks
+     * for the specified node.
+     *
+     * @return true if approximate returns different values afterwards
+     */
+    boolean recalculate(int currentNode);
 }
@@ -115,6 +115,13 @@ public abstract class AbstractDataAccess implements DataAccess {
         return bytes;
     }
 
+    @Override
+    public void getInts(long bytePos, int[] values, int length) {
+        for (int i = 0; i < length; i++) {
+            values[i] = getInt(bytePos + i * 4L);
+        }
+    }
+
     protected void copyHeader(DataAccess da) {
         for (int h = 0; h < header.length * 4; h += 4) {
             da.setHeader(h, getHeader(h));
@@ -17,6 +17,8 @@
  */
 package com.graphhopper.storage;
 
+import com.carrotsearch.hppc.IntLongMap;
+import com.carrotsearch.hppc.cursors.IntLongCursor;
 import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.coll.SparseIntIntArray;
@@ -32,6 +34,9 @@ import org.slf4j.LoggerFactory;
 
 import static com.graphhopper.util.Helper.nf;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -86,6 +91,12 @@ class BaseGraph implements Graph {
     private int edgeEntryIndex, nodeEntryIndex;
     private long maxGeoRef;
     private boolean frozen = false;
+    // the current version of the flags changed via GraphHopperStorage.changeEdgeFlags
+    private volatile EdgeFlagOverlay flagOverlay = EdgeFlagOverlay.EMPTY;
+    private final ThreadLocal<EdgeFlagOverlay> pinnedFlagOverlay = new ThreadLocal<>();
+    // older versions that might still be pinned by a reader
+    private final List<EdgeFlagOverlay> retiredFlagOverlays = new ArrayList<>();
+    private final Object flagOverlayLock = new Object();
 
     public BaseGraph(Directory dir, final EncodingManager encodingManager, boolean withElevation,
                      InternalGraphEventListener listener, GraphExtension extendedStorage) {
@@ -337,6 +348,110 @@ class BaseGraph implements Graph {
         extStorage.setSegmentSize(bytes);
     }
 
+    /**
+     * @return the version of the changed edge flags that new iterators use, i.e. the version pinned by the current
+     * thread or the latest version
+     */
+    EdgeFlagOverlay getFlagOverlay() {
+        EdgeFlagOverlay pinned = pinnedFlagOverlay.get();
+        return pinned == null ? flagOverlay : pinned;
+    }
+
+    /**
+     * @return the pinned version or null if the current thread already pinned a version
+     */
+    EdgeFlagOverlay pinFlagOverlay() {
+        if (pinnedFlagOverlay.get() != null)
+            return null;
+
+        while (true) {
+            EdgeFlagOverlay overlay = flagOverlay;
+            overlay.readers.incrementAndGet();
+            // if a new version was published in the meantime the writer might have missed our pin
+            if (overlay == flagOverlay) {
+                pinnedFlagOverlay.set(overlay);
+                return overlay;
+            }
+            overlay.readers.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return the pinned version or null if the current thread already pinned the specified version
+     */
+    EdgeFlagOverlay pinFlagOverlay(EdgeFlagOverlay overlay) {
+        EdgeFlagOverlay pinned = pinnedFlagOverlay.get();
+        if (pinned == overlay)
+            return null;
+        if (pinned != null)
+            throw new IllegalStateException("The current thread already pinned another version: " + pinned + ", requested: " + overlay);
+
+        // a version without readers might have been merged already, so its flags are not reliable anymore
+        if (overlay.readers.getAndIncrement() == 0) {
+            overlay.readers.decrementAndGet();
+            throw new IllegalStateException("The version " + overlay + " is not pinned by another thread");
+        }
+        pinnedFlagOverlay.set(overlay);
+        return overlay;
+    }
+
+    /**
+     * @return the version pinned by the current thread or null
+     */
+    EdgeFlagOverlay getPinnedFlagOverlay() {
+        return pinnedFlagOverlay.get();
+    }
+
+    void unpinFlagOverlay(EdgeFlagOverlay overlay) {
+        if (overlay == null)
+            return;
+
+        pinnedFlagOverlay.remove();
+        // the last reader of an older version enables the merge, otherwise the overlay would grow under steady load
+        if (overlay.readers.decrementAndGet() == 0 && overlay.retired)
+            mergeFlagOverlay();
+    }
+
+    void publishFlags(IntLongMap changes) {
+        synchronized (flagOverlayLock) {
+            EdgeFlagOverlay old = flagOverlay;
+            flagOverlay = old.with(changes);
+            retire(old);
+            mergeFlagOverlay();
+        }
+    }
+
+    private void retire(EdgeFlagOverlay overlay) {
+        overlay.retired = true;
+        retiredFlagOverlays.add(overlay);
+    }
+
+    /**
+     * Writes the flags of the current version into the edges DataAccess and publishes an empty version. This is only
+     * done if no reader pinned an older version, because such a reader would see the new flags of the edges that are
+     * not contained in its version. Otherwise the last of these readers does the merge when it unpins its version.
+     */
+    void mergeFlagOverlay() {
+        synchronized (flagOverlayLock) {
+            Iterator<EdgeFlagOverlay> iter = retiredFlagOverlays.iterator();
+            while (iter.hasNext()) {
+                if (iter.next().readers.get() == 0)
+                    iter.remove();
+            }
+
+            EdgeFlagOverlay current = flagOverlay;
+            if (current.isEmpty() || !retiredFlagOverlays.isEmpty())
+                return;
+
+            for (IntLongCursor c : current.getAll()) {
+                edgeAccess.setFlags_(edgeAccess.toPointer(c.key), false, c.value);
+            }
+            // readers of the current version still use its flags, which are now identical to the stored ones
+            flagOverlay = current.cleared();
+            retire(current);
+        }
+    }
+
     synchronized void freeze() {
         if (isFrozen())
             throw new IllegalStateException("base graph already frozen");
@@ -978,6 +1093,8 @@ class BaseGraph implements Graph {
             // always use base graph edge access
             setEdgeId(baseGraph.edgeAccess.getEdgeRef(baseNode));
             _setBaseNode(baseNode);
+            // explorers can be reused across requests
+            flagOverlay = baseGraph.getFlagOverlay();
             return this;
         }
 
@@ -1013,6 +1130,7 @@ class BaseGraph implements Graph {
                 throw new IllegalStateException("call next before detaching or setEdgeId (edgeId:" + edgeId + " vs. next " + nextEdgeId + ")");
 
             EdgeIterable iter = edgeAccess.createSingleEdge(filter);
+            iter.flagOverlay = flagOverlay;
             boolean ret;
             if (reverseArg) {
                 ret = iter.init(edgeId, baseNode);
@@ -1073,6 +1191,7 @@ class BaseGraph implements Graph {
                 throw new IllegalStateException("call next before detaching");
 
             AllEdgeIterator iter = new AllEdgeIterator(baseGraph, edgeAccess);
+            iter.flagOverlay = flagOverlay;
             iter.edgeId = edgeId;
             iter.edgePointer = edgePointer;
             if (reverseArg) {
@@ -1102,11 +1221,14 @@ class BaseGraph implements Graph {
         boolean freshFlags;
         int edgeId = -1;
         private long cachedFlags;
+        // the version of the changed flags is fixed when the iterator is created
+        EdgeFlagOverlay flagOverlay;
 
         public CommonEdgeIterator(long edgePointer, EdgeAccess edgeAccess, BaseGraph baseGraph) {
             this.edgePointer = edgePointer;
             this.edgeAccess = edgeAccess;
             this.baseGraph = baseGraph;
+            this.flagOverlay = baseGraph.getFlagOverlay();
         }
 
         @Override
@@ -1132,7 +1254,13 @@ class BaseGraph implements Graph {
 
         final long getDirectFlags() {
             if (!freshFlags) {
-                cachedFlags = edgeAccess.getFlags_(edgePointer, reverse);
+                if (flagOverlay.isEmpty() || !flagOverlay.contains(edgeId)) {
+                    cachedFlags = edgeAccess.getFlags_(edgePointer, reverse);
+                } else {
+                    cachedFlags = flagOverlay.getFlags(edgeId);
+                    if (reverse)
+                        cachedFlags = edgeAccess.reverseFlags(edgePointer, cachedFlags);
+                }
                 freshFlags = true;
             }
             return cachedFlags;
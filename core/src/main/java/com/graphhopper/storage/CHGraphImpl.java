@@ -22,6 +22,7 @@ import com.graphhopper.routing.util.AllCHEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.routing.weighting.AbstractWeighting;
+import com.graphhopper.routing.weighting.TurnWeighting;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.storage.BaseGraph.AllEdgeIterator;
 import com.graphhopper.storage.BaseGraph.CommonEdgeIterator;
@@ -53,13 +54,15 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
     private final BaseGraph baseGraph;
     private final EdgeAccess chEdgeAccess;
     private final Weighting weighting;
+    // shortcuts of an edge-based CHGraph store their first and last original edge, see EdgeBasedNodeContractor
+    private final boolean edgeBased;
     int N_CH_REF;
     int shortcutEntryBytes;
     // the nodesCH storage is limited via baseGraph.nodeCount too
     int nodeCHEntryBytes;
     private int N_LEVEL;
     // shortcut memory layout is synced with edges indices until E_FLAGS, then:
-    private int S_SKIP_EDGE1, S_SKIP_EDGE2;
+    private int S_SKIP_EDGE1, S_SKIP_EDGE2, S_ORIG_FIRST, S_ORIG_LAST;
     private int shortcutCount = 0;
 
     CHGraphImpl(Weighting w, Directory dir, final BaseGraph baseGraph) {
@@ -67,6 +70,7 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
             throw new IllegalStateException("Weighting for CHGraph cannot be null");
 
         this.weighting = w;
+        this.edgeBased = w instanceof TurnWeighting;
         this.baseGraph = baseGraph;
         final String name = AbstractWeighting.weightingToFileName(w);
         this.nodesCH = dir.find("nodes_ch_" + name);
@@ -130,6 +134,14 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         return weighting;
     }
 
+    /**
+     * @return true if this CHGraph is prepared for edge-based traversal, which is the case if its weighting is a
+     * TurnWeighting
+     */
+    public final boolean isEdgeBased() {
+        return edgeBased;
+    }
+
     @Override
     public boolean isShortcut(int edgeId) {
         assert baseGraph.isFrozen() : "level graph not yet frozen";
@@ -165,6 +177,8 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         boolean ret = iter.init(scId, b);
         assert ret;
         iter.setSkippedEdges(EdgeIterator.NO_EDGE, EdgeIterator.NO_EDGE);
+        if (edgeBased)
+            iter.setFirstAndLastOrigEdges(EdgeIterator.NO_EDGE, EdgeIterator.NO_EDGE);
         return iter;
     }
 
@@ -304,6 +318,24 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         edge.setFlags(weightLong | accessFlags);
     }
 
+    /**
+     * @param atNodeA true for the original edge at the node A of the storage, false for the one at node B
+     */
+    final int getOrigEdge(CHEdgeIteratorState edge, long edgePointer, boolean atNodeA) {
+        if (!edgeBased || !edge.isShortcut())
+            return edge.getEdge();
+
+        return shortcuts.getInt(edgePointer + (atNodeA ? S_ORIG_FIRST : S_ORIG_LAST));
+    }
+
+    final void setOrigEdges(long edgePointer, int origAtNodeA, int origAtNodeB) {
+        if (!edgeBased)
+            throw new IllegalStateException("The original edges of a shortcut are only stored for an edge-based CHGraph");
+
+        shortcuts.setInt(edgePointer + S_ORIG_FIRST, origAtNodeA);
+        shortcuts.setInt(edgePointer + S_ORIG_LAST, origAtNodeB);
+    }
+
     final double getWeight(CommonEdgeIterator edge) {
         // no need for reverseFlags call (shortcut has identical weight if both dies) and also no need for 64bit
         long flags32bit = edge.getDirectFlags();
@@ -355,7 +387,14 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         // shortcuts
         S_SKIP_EDGE1 = ea.E_FLAGS + 4;
         S_SKIP_EDGE2 = S_SKIP_EDGE1 + 4;
-        shortcutEntryBytes = S_SKIP_EDGE2 + 4;
+        if (edgeBased) {
+            S_ORIG_FIRST = S_SKIP_EDGE2 + 4;
+            S_ORIG_LAST = S_ORIG_FIRST + 4;
+            shortcutEntryBytes = S_ORIG_LAST + 4;
+        } else {
+            S_ORIG_FIRST = S_ORIG_LAST = -1;
+            shortcutEntryBytes = S_SKIP_EDGE2 + 4;
+        }
 
         // node based data:
         N_LEVEL = 0;
@@ -455,6 +494,22 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
             return shortcuts.getInt(edgePointer + S_SKIP_EDGE2);
         }
 
+        @Override
+        public final int getOrigEdgeFirst() {
+            return getOrigEdge(this, edgePointer, !reverse);
+        }
+
+        @Override
+        public final int getOrigEdgeLast() {
+            return getOrigEdge(this, edgePointer, reverse);
+        }
+
+        @Override
+        public final void setFirstAndLastOrigEdges(int origFirst, int origLast) {
+            checkShortcut(true, "setFirstAndLastOrigEdges");
+            setOrigEdges(edgePointer, reverse ? origLast : origFirst, reverse ? origFirst : origLast);
+        }
+
         @Override
         public final boolean isShortcut() {
             // assert baseGraph.isFrozen() : "chgraph not yet frozen";
@@ -620,6 +675,22 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
             return shortcuts.getInt(edgePointer + S_SKIP_EDGE2);
         }
 
+        @Override
+        public final int getOrigEdgeFirst() {
+            return getOrigEdge(this, edgePointer, !reverse);
+        }
+
+        @Override
+        public final int getOrigEdgeLast() {
+            return getOrigEdge(this, edgePointer, reverse);
+        }
+
+        @Override
+        public final void setFirstAndLastOrigEdges(int origFirst, int origLast) {
+            checkShortcut(true, "setFirstAndLastOrigEdges");
+            setOrigEdges(edgePointer, reverse ? origLast : origFirst, reverse ? origFirst : origLast);
+        }
+
         @Override
         public final boolean isShortcut() {
             assert baseGraph.isFrozen() : "level graph not yet frozen";
@@ -53,6 +53,16 @@ public class DAType {
      * embedded data stores.
      */
     public static final DAType MMAP_RO = new DAType(MemRef.MMAP, true, false, false);
+    /**
+     * Memory mapped DA object that is accessed via the native address of the mapped segments, which makes reads
+     * lock-free. See MMapUnsafeDataAccess.
+     */
+    public static final DAType MMAP_UNSAFE = new DAType(MemRef.MMAP_UNSAFE, true, false, true);
+    /**
+     * Read-only variant of MMAP_UNSAFE. The graph can be shared by all threads and processes on the same host via
+     * the page cache of the operating system.
+     */
+    public static final DAType MMAP_UNSAFE_RO = new DAType(MemRef.MMAP_UNSAFE, true, false, false);
     /**
      * Experimental API. Do not use yet.
      */
@@ -78,6 +88,8 @@ public class DAType {
         DAType type;
         if (dataAccess.contains("SYNC"))
             throw new IllegalArgumentException("SYNC option is no longer supported, see #982");
+        else if (dataAccess.contains("MMAP_UNSAFE"))
+            type = DAType.MMAP_UNSAFE;
         else if (dataAccess.contains("MMAP"))
             type = DAType.MMAP;
         else if (dataAccess.contains("UNSAFE"))
@@ -107,8 +119,11 @@ public class DAType {
         return memRef == MemRef.HEAP;
     }
 
+    /**
+     * @return true if data is memory mapped, i.e. for MMAP and MMAP_UNSAFE
+     */
     public boolean isMMap() {
-        return memRef == MemRef.MMAP;
+        return memRef == MemRef.MMAP || memRef == MemRef.MMAP_UNSAFE;
     }
 
     /**
@@ -130,6 +145,8 @@ public class DAType {
         String str;
         if (getMemRef() == MemRef.MMAP)
             str = "MMAP";
+        else if (getMemRef() == MemRef.MMAP_UNSAFE)
+            str = "MMAP_UNSAFE";
         else if (getMemRef() == MemRef.HEAP)
             str = "RAM";
         else
@@ -168,7 +185,7 @@ public class DAType {
     }
 
     public enum MemRef {
-        HEAP, MMAP, UNSAFE
+        HEAP, MMAP, MMAP_UNSAFE, UNSAFE
         /*, DIRECT */
 
     }
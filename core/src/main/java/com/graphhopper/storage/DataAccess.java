@@ -76,6 +76,15 @@ public interface DataAccess extends Storable<DataAccess> {
      */
     void getBytes(long bytePos, byte[] values, int length);
 
+    /**
+     * Get 'length' ints from position 'bytePos'. Reading a whole row at once avoids the overhead per getInt call
+     * for implementations that can copy the values directly.
+     * <p>
+     *
+     * @param values acts as output
+     */
+    void getInts(long bytePos, int[] values, int length);
+
     /**
      * Set 4 bytes at the header space index to the specified value
      */
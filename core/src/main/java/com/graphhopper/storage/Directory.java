@@ -57,6 +57,12 @@ public interface Directory {
      */
     void remove(DataAccess da);
 
+    /**
+     * Closes the specified object and removes it from the directory without removing its files, so that it can be
+     * loaded again via find.
+     */
+    void close(DataAccess da);
+
     /**
      * @return the default type of a newly created DataAccess object
      */
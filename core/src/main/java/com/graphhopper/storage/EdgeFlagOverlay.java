@@ -0,0 +1,93 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.carrotsearch.hppc.IntLongMap;
+import com.graphhopper.coll.GHIntLongHashMap;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable version of edge flags that overrides the flags stored in the edges DataAccess. A new version is
+ * created for every change, so a reader that pinned a version via {@link GraphHopperStorage#pinEdgeFlags()} is never
+ * affected by later changes. The flags are stored in the direction of the edge in the storage, i.e. not reversed.
+ */
+public final class EdgeFlagOverlay {
+    static final EdgeFlagOverlay EMPTY = new EdgeFlagOverlay(0, new GHIntLongHashMap(0));
+    private final long version;
+    private final GHIntLongHashMap flags;
+    // the number of readers that pinned this version
+    final AtomicInteger readers = new AtomicInteger();
+    // true once a newer version was published
+    volatile boolean retired;
+
+    private EdgeFlagOverlay(long version, GHIntLongHashMap flags) {
+        this.version = version;
+        this.flags = flags;
+    }
+
+    /**
+     * @return a new version containing the flags of this version and the specified changes
+     */
+    EdgeFlagOverlay with(IntLongMap changes) {
+        GHIntLongHashMap newFlags = new GHIntLongHashMap(flags.size() + changes.size());
+        newFlags.putAll(flags);
+        newFlags.putAll(changes);
+        return new EdgeFlagOverlay(version + 1, newFlags);
+    }
+
+    /**
+     * @return a new instance without flags, i.e. the edges DataAccess is used for all edges. The flags are the same
+     * after they were written into the edges DataAccess, so the version number is kept.
+     */
+    EdgeFlagOverlay cleared() {
+        return new EdgeFlagOverlay(version, new GHIntLongHashMap(0));
+    }
+
+    /**
+     * @return the version number, which only changes if the flags of an edge change
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return flags.size();
+    }
+
+    boolean isEmpty() {
+        return flags.isEmpty();
+    }
+
+    boolean contains(int edgeId) {
+        return flags.containsKey(edgeId);
+    }
+
+    long getFlags(int edgeId) {
+        return flags.get(edgeId);
+    }
+
+    IntLongMap getAll() {
+        return flags;
+    }
+
+    @Override
+    public String toString() {
+        return "version:" + version + ", edges:" + flags.size() + ", readers:" + readers.get();
+    }
+}
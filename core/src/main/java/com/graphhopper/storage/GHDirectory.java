@@ -113,6 +113,8 @@ public class GHDirectory implements Directory {
                 da = new RAMDataAccess(name, location, true, byteOrder);
             else
                 da = new RAMDataAccess(name, location, false, byteOrder);
+        } else if (type.getMemRef() == DAType.MemRef.MMAP_UNSAFE) {
+            da = new MMapUnsafeDataAccess(name, location, byteOrder, type.isAllowWrites());
         } else if (type.isMMap()) {
             da = new MMapDataAccess(name, location, byteOrder, type.isAllowWrites());
         } else {
@@ -147,6 +149,16 @@ public class GHDirectory implements Directory {
         removeDA(da, da.getName(), true);
     }
 
+    @Override
+    public void close(DataAccess da) {
+        removeFromMap(da.getName());
+        // avoid the clean hack as this can be called for many objects
+        if (da instanceof MMapDataAccess)
+            ((MMapDataAccess) da).close(false);
+        else
+            da.close();
+    }
+
     void removeDA(DataAccess da, String name, boolean forceClean) {
         if (da instanceof MMapDataAccess)
             ((MMapDataAccess) da).close(forceClean);
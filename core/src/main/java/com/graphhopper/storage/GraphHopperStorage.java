@@ -17,6 +17,7 @@
  */
 package com.graphhopper.storage;
 
+import com.carrotsearch.hppc.IntLongMap;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
 import com.graphhopper.routing.util.EncodingManager;
@@ -295,10 +296,68 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
             cg.flush();
         }
 
+        // if a reader still uses an older version the changed flags stay in memory and are stored with a later flush
+        baseGraph.mergeFlagOverlay();
         baseGraph.flush();
         properties.flush();
     }
 
+    /**
+     * Publishes the specified flags as a new version without blocking readers. Iterators created afterwards use the
+     * new flags, except for threads that pinned an older version via pinEdgeFlags. The flags are written into the
+     * edges DataAccess once no reader uses an older version anymore.
+     *
+     * @param changes the new flags per edge id in the direction of the edge in the storage, i.e. as returned from
+     *                getEdgeIteratorState(edgeId, Integer.MIN_VALUE)
+     */
+    public void changeEdgeFlags(IntLongMap changes) {
+        if (changes.isEmpty())
+            return;
+
+        baseGraph.publishFlags(changes);
+    }
+
+    /**
+     * Pins the current version of the edge flags for the current thread, so that all iterators created afterwards in
+     * this thread use the same flags regardless of concurrent calls of changeEdgeFlags. Every call must be followed
+     * by unpinEdgeFlags.
+     *
+     * @return the pinned version or null if the current thread already pinned a version
+     */
+    public EdgeFlagOverlay pinEdgeFlags() {
+        return baseGraph.pinFlagOverlay();
+    }
+
+    /**
+     * Pins the specified version for the current thread. This is used for work that a reader hands over to other
+     * threads: the reader pins a version and passes it to the workers, which use the same flags. The version must
+     * stay pinned by the reader until all workers called unpinEdgeFlags.
+     *
+     * @return the pinned version or null if the current thread already pinned this version
+     * @throws IllegalStateException if the current thread pinned another version or no other thread pinned it
+     */
+    public EdgeFlagOverlay pinEdgeFlags(EdgeFlagOverlay overlay) {
+        return baseGraph.pinFlagOverlay(overlay);
+    }
+
+    /**
+     * @return the version pinned by the current thread or null if it did not pin a version
+     */
+    public EdgeFlagOverlay getPinnedEdgeFlags() {
+        return baseGraph.getPinnedFlagOverlay();
+    }
+
+    public void unpinEdgeFlags(EdgeFlagOverlay overlay) {
+        baseGraph.unpinFlagOverlay(overlay);
+    }
+
+    /**
+     * @return the version of the edge flags that the current thread uses, i.e. the pinned or the latest version
+     */
+    public long getEdgeFlagsVersion() {
+        return baseGraph.getFlagOverlay().getVersion();
+    }
+
     @Override
     public void close() {
         properties.close();
@@ -0,0 +1,311 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.util.Constants;
+import com.graphhopper.util.Helper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.graphhopper.storage.UnsafeDataAccess.UNSAFE;
+
+/**
+ * A DataAccess implementation using a memory-mapped file like MMapDataAccess, but the mapped segments are read and
+ * written via their native address instead of via the ByteBuffer API. This avoids the synchronization that
+ * MMapDataAccess needs, so any number of threads can read concurrently and at the speed of plain memory access.
+ * Mapped read-only (MMAP_UNSAFE_RO) the OS page cache is shared between all threads and all processes that use the
+ * same files, and loading does not copy anything.
+ * <p>
+ * Like RAMDataAccess writes are not synchronized, so the data must not be changed while it is read from other
+ * threads. Accessing a closed object can crash the JVM instead of throwing an exception, as the segments are
+ * unmapped on close. Segments are mapped one by one, so use a larger segment size for big graphs to reduce the
+ * number of mappings.
+ */
+public final class MMapUnsafeDataAccess extends AbstractDataAccess {
+    private static final long ADDRESS_OFFSET;
+    private static final long BYTE_ARRAY_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
+    private static final long INT_ARRAY_OFFSET = UNSAFE.arrayBaseOffset(int[].class);
+
+    static {
+        try {
+            ADDRESS_OFFSET = UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+        } catch (NoSuchFieldException ex) {
+            throw new AssertionError(ex);
+        }
+    }
+
+    private final boolean allowWrites;
+    // unsafe uses the native order
+    private final boolean swapBytes;
+    private RandomAccessFile raFile;
+    // the buffers have to be referenced as long as the segments are used, otherwise they could get unmapped
+    private List<MappedByteBuffer> buffers = new ArrayList<>();
+    private long[] addresses = new long[0];
+
+    MMapUnsafeDataAccess(String name, String location, ByteOrder order, boolean allowWrites) {
+        super(name, location, order);
+        this.allowWrites = allowWrites;
+        this.swapBytes = !order.equals(ByteOrder.nativeOrder());
+    }
+
+    private void initRandomAccessFile() {
+        if (raFile != null)
+            return;
+
+        try {
+            // raFile necessary for loadExisting and create
+            raFile = new RandomAccessFile(getFullName(), allowWrites ? "rw" : "r");
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    public MMapUnsafeDataAccess create(long bytes) {
+        if (!buffers.isEmpty())
+            throw new IllegalThreadStateException("already created");
+
+        if (!allowWrites)
+            throw new IllegalStateException("Cannot create " + getFullName() + " as writes are not allowed");
+
+        initRandomAccessFile();
+        bytes = Math.max(10 * 4, bytes);
+        setSegmentSize(segmentSizeInBytes);
+        ensureCapacity(bytes);
+        return this;
+    }
+
+    @Override
+    public boolean ensureCapacity(long bytes) {
+        if (bytes < 0)
+            throw new IllegalArgumentException("new capacity has to be strictly positive");
+
+        if (bytes <= getCapacity())
+            return false;
+
+        long longSegmentSize = segmentSizeInBytes;
+        int segmentsToMap = (int) (bytes / longSegmentSize);
+        if (bytes % longSegmentSize != 0)
+            segmentsToMap++;
+        if (segmentsToMap <= 0)
+            throw new IllegalStateException("Too many segments needs to be allocated. Increase segmentSize.");
+
+        int oldSegments = buffers.size();
+        long[] newAddresses = Arrays.copyOf(addresses, segmentsToMap);
+        long bufferStart = HEADER_OFFSET + oldSegments * longSegmentSize;
+        int i = oldSegments;
+        try {
+            for (; i < segmentsToMap; i++) {
+                MappedByteBuffer buffer = raFile.getChannel().map(
+                        allowWrites ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                        bufferStart, longSegmentSize);
+                buffers.add(buffer);
+                newAddresses[i] = UNSAFE.getLong(buffer, ADDRESS_OFFSET);
+                bufferStart += longSegmentSize;
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Couldn't map segment " + i + " of " + segmentsToMap + " for " + name
+                    + " at position " + bufferStart + " for " + bytes + " bytes", ex);
+        }
+        // publish the new segments at once
+        addresses = newAddresses;
+        return true;
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (!buffers.isEmpty())
+            throw new IllegalStateException("already initialized");
+
+        if (isClosed())
+            throw new IllegalStateException("already closed");
+
+        File file = new File(getFullName());
+        if (!file.exists() || file.length() == 0)
+            return false;
+
+        initRandomAccessFile();
+        try {
+            long byteCount = readHeader(raFile);
+            if (byteCount < 0)
+                return false;
+
+            ensureCapacity(byteCount - HEADER_OFFSET);
+            return true;
+        } catch (IOException ex) {
+            throw new RuntimeException("Problem while loading " + getFullName(), ex);
+        }
+    }
+
+    @Override
+    public void flush() {
+        if (isClosed())
+            throw new IllegalStateException("already closed");
+
+        if (!allowWrites)
+            return;
+
+        try {
+            for (MappedByteBuffer buffer : buffers) {
+                buffer.force();
+            }
+            writeHeader(raFile, raFile.length(), segmentSizeInBytes);
+            raFile.getFD().sync();
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        clean(0);
+        Helper.close(raFile);
+    }
+
+    private void clean(int fromSegment) {
+        addresses = Arrays.copyOf(addresses, fromSegment);
+        for (int i = fromSegment; i < buffers.size(); i++) {
+            MMapDataAccess.cleanMappedByteBuffer(buffers.get(i));
+        }
+        buffers = new ArrayList<>(buffers.subList(0, fromSegment));
+    }
+
+    @Override
+    public void setInt(long bytePos, int value) {
+        if (swapBytes)
+            value = Integer.reverseBytes(value);
+        UNSAFE.putInt(addresses[(int) (bytePos >>> segmentSizePower)] + (bytePos & indexDivisor), value);
+    }
+
+    @Override
+    public int getInt(long bytePos) {
+        int value = UNSAFE.getInt(addresses[(int) (bytePos >>> segmentSizePower)] + (bytePos & indexDivisor));
+        return swapBytes ? Integer.reverseBytes(value) : value;
+    }
+
+    @Override
+    public void getInts(long bytePos, int[] values, int length) {
+        int index = (int) (bytePos & indexDivisor);
+        if (swapBytes || index + length * 4L > segmentSizeInBytes) {
+            super.getInts(bytePos, values, length);
+        } else {
+            UNSAFE.copyMemory(null, addresses[(int) (bytePos >>> segmentSizePower)] + index, values, INT_ARRAY_OFFSET, length * 4L);
+        }
+    }
+
+    @Override
+    public void setShort(long bytePos, short value) {
+        if (swapBytes)
+            value = Short.reverseBytes(value);
+        UNSAFE.putShort(addresses[(int) (bytePos >>> segmentSizePower)] + (bytePos & indexDivisor), value);
+    }
+
+    @Override
+    public short getShort(long bytePos) {
+        short value = UNSAFE.getShort(addresses[(int) (bytePos >>> segmentSizePower)] + (bytePos & indexDivisor));
+        return swapBytes ? Short.reverseBytes(value) : value;
+    }
+
+    @Override
+    public void setBytes(long bytePos, byte[] values, int length) {
+        assert length <= segmentSizeInBytes : "the length has to be smaller or equal to the segment size: " + length + " vs. " + segmentSizeInBytes;
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        int delta = index + length - segmentSizeInBytes;
+        if (delta > 0)
+            length -= delta;
+
+        UNSAFE.copyMemory(values, BYTE_ARRAY_OFFSET, null, addresses[bufferIndex] + index, length);
+        if (delta > 0)
+            UNSAFE.copyMemory(values, BYTE_ARRAY_OFFSET + length, null, addresses[bufferIndex + 1], delta);
+    }
+
+    @Override
+    public void getBytes(long bytePos, byte[] values, int length) {
+        assert length <= segmentSizeInBytes : "the length has to be smaller or equal to the segment size: " + length + " vs. " + segmentSizeInBytes;
+        int bufferIndex = (int) (bytePos >>> segmentSizePower);
+        int index = (int) (bytePos & indexDivisor);
+        int delta = index + length - segmentSizeInBytes;
+        if (delta > 0)
+            length -= delta;
+
+        UNSAFE.copyMemory(null, addresses[bufferIndex] + index, values, BYTE_ARRAY_OFFSET, length);
+        if (delta > 0)
+            UNSAFE.copyMemory(null, addresses[bufferIndex + 1], values, BYTE_ARRAY_OFFSET + length, delta);
+    }
+
+    @Override
+    public long getCapacity() {
+        return (long) buffers.size() * segmentSizeInBytes;
+    }
+
+    @Override
+    public int getSegments() {
+        return buffers.size();
+    }
+
+    @Override
+    public void trimTo(long capacity) {
+        if (capacity < segmentSizeInBytes)
+            capacity = segmentSizeInBytes;
+
+        int remainingSegNo = (int) (capacity / segmentSizeInBytes);
+        if (capacity % segmentSizeInBytes != 0)
+            remainingSegNo++;
+
+        if (remainingSegNo >= buffers.size())
+            return;
+
+        clean(remainingSegNo);
+        try {
+            // windows does not allow changing the length of an open files
+            if (!Constants.WINDOWS && allowWrites)
+                raFile.setLength(HEADER_OFFSET + remainingSegNo * (long) segmentSizeInBytes);
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    public void rename(String newName) {
+        if (!checkBeforeRename(newName))
+            return;
+
+        close();
+        super.rename(newName);
+        // 'reopen' with newName
+        raFile = null;
+        closed = false;
+        loadExisting();
+    }
+
+    @Override
+    public DAType getType() {
+        return allowWrites ? DAType.MMAP_UNSAFE : DAType.MMAP_UNSAFE_RO;
+    }
+}
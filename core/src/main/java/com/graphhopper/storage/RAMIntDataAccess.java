@@ -209,6 +209,20 @@ class RAMIntDataAccess extends AbstractDataAccess {
         return segments[bufferIndex][index];
     }
 
+    @Override
+    public void getInts(long bytePos, int[] values, int length) {
+        assert segmentSizeIntsPower > 0 : "call create or loadExisting before usage!";
+        long intPos = bytePos >>> 2;
+        int bufferIndex = (int) (intPos >>> segmentSizeIntsPower);
+        int index = (int) (intPos & indexDivisor);
+        int[] seg = segments[bufferIndex];
+        if (index + length > seg.length) {
+            super.getInts(bytePos, values, length);
+        } else {
+            System.arraycopy(seg, index, values, 0, length);
+        }
+    }
+
     @Override
     public final void setShort(long bytePos, short value) {
         assert segmentSizeIntsPower > 0 : "call create or loadExisting before usage!";
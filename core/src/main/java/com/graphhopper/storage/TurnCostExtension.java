@@ -17,6 +17,8 @@
  */
 package com.graphhopper.storage;
 
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntIndexedContainer;
 import com.graphhopper.util.EdgeIterator;
 
 /**
@@ -24,6 +26,11 @@ import com.graphhopper.util.EdgeIterator;
  * towards the first entry within a node cost table to identify turn restrictions, or later, turn
  * getCosts.
  * <p>
+ * The entries of a node form a linked list. After the import {@link #optimize()} should be called, which stores the
+ * entries of every node contiguously and sorted by the from and to edge and adds a bitset of all nodes with entries.
+ * Then the lookups for most nodes only read a single bit and the others scan a short block of consecutive entries
+ * instead of following the pointers of the list.
+ * <p>
  *
  * @author Karl Hübner
  * @author Peter Karich
@@ -43,6 +50,9 @@ public class TurnCostExtension implements GraphExtension {
     private int turnCostsEntryIndex = -4;
     private int turnCostsEntryBytes;
     private int turnCostsCount;
+    // the number of nodes covered by the bitset, which is stored behind the entries. 0 if the storage is not optimized
+    private int optimizedNodes;
+    private Graph graph;
     private NodeAccess nodeAccess;
 
     public TurnCostExtension() {
@@ -59,6 +69,7 @@ public class TurnCostExtension implements GraphExtension {
         if (turnCostsCount > 0)
             throw new AssertionError("The turn cost storage must be initialized only once.");
 
+        this.graph = graph;
         this.nodeAccess = graph.getNodeAccess();
         this.turnCosts = dir.find("turn_costs");
     }
@@ -83,6 +94,7 @@ public class TurnCostExtension implements GraphExtension {
     public void flush() {
         turnCosts.setHeader(0, turnCostsEntryBytes);
         turnCosts.setHeader(1 * 4, turnCostsCount);
+        turnCosts.setHeader(2 * 4, optimizedNodes);
         turnCosts.flush();
     }
 
@@ -103,6 +115,7 @@ public class TurnCostExtension implements GraphExtension {
 
         turnCostsEntryBytes = turnCosts.getHeader(0);
         turnCostsCount = turnCosts.getHeader(4);
+        optimizedNodes = turnCosts.getHeader(2 * 4);
         return true;
     }
 
@@ -129,6 +142,8 @@ public class TurnCostExtension implements GraphExtension {
      *                  new flags and write this merged flag.
      */
     public void mergeOrOverwriteTurnInfo(int fromEdge, int viaNode, int toEdge, long turnFlags, boolean merge) {
+        // a new entry would overwrite the bitset and break the order of the entries
+        optimizedNodes = 0;
         int newEntryIndex = turnCostsCount;
         ensureTurnCostIndex(newEntryIndex);
         boolean oldEntryFound = false;
@@ -198,6 +213,9 @@ public class TurnCostExtension implements GraphExtension {
     }
 
     private long nextCostFlags(int edgeFrom, int nodeVia, int edgeTo) {
+        if (optimizedNodes > 0)
+            return nextCostFlagsOptimized(edgeFrom, nodeVia, edgeTo);
+
         int turnCostIndex = nodeAccess.getAdditionalNodeField(nodeVia);
         int i = 0;
         for (; i < 1000; i++) {
@@ -221,6 +239,129 @@ public class TurnCostExtension implements GraphExtension {
         return EMPTY_FLAGS;
     }
 
+    private long nextCostFlagsOptimized(int edgeFrom, int nodeVia, int edgeTo) {
+        // nodes without entries are skipped via the bitset, nodes created after optimize have no entries
+        if (nodeVia >= optimizedNodes)
+            return EMPTY_FLAGS;
+        long bitsetPtr = (long) turnCostsCount * turnCostsEntryBytes;
+        if ((turnCosts.getInt(bitsetPtr + (nodeVia >>> 5) * 4L) & (1 << (nodeVia & 31))) == 0)
+            return EMPTY_FLAGS;
+
+        // the entries of the node are stored one after another and sorted by the from and then the to edge
+        long turnCostPtr = (long) nodeAccess.getAdditionalNodeField(nodeVia) * turnCostsEntryBytes;
+        while (true) {
+            int tmpFrom = turnCosts.getInt(turnCostPtr + TC_FROM);
+            if (tmpFrom > edgeFrom)
+                return EMPTY_FLAGS;
+            if (tmpFrom == edgeFrom) {
+                int tmpTo = turnCosts.getInt(turnCostPtr + TC_TO);
+                if (tmpTo == edgeTo)
+                    return turnCosts.getInt(turnCostPtr + TC_FLAGS);
+                if (tmpTo > edgeTo)
+                    return EMPTY_FLAGS;
+            }
+            if (turnCosts.getInt(turnCostPtr + TC_NEXT) == NO_TURN_ENTRY)
+                return EMPTY_FLAGS;
+            turnCostPtr += turnCostsEntryBytes;
+        }
+    }
+
+    /**
+     * Rewrites the entries so that the entries of every node are stored one after another and sorted by the from and
+     * the to edge. Entries that are no longer referenced are removed. Additionally a bitset of the nodes with entries
+     * is stored, so that lookups for all other nodes are fast. Adding an entry afterwards is possible, but then
+     * lookups follow the linked list again until optimize is called again. Call this method after the import and
+     * before the graph is used.
+     */
+    public void optimize() {
+        int nodes = graph.getNodes();
+        // the new entries in the new order
+        IntArrayList newEntries = new IntArrayList(turnCostsCount * 4);
+        IntArrayList nodeEntries = new IntArrayList();
+        int[] bits = new int[(nodes + 31) >>> 5];
+        for (int node = 0; node < nodes; node++) {
+            int turnCostIndex = nodeAccess.getAdditionalNodeField(node);
+            if (turnCostIndex == NO_TURN_ENTRY)
+                continue;
+
+            nodeEntries.clear();
+            for (int i = 0; turnCostIndex != NO_TURN_ENTRY; i++) {
+                if (i >= 1000)
+                    throw new IllegalStateException("something went wrong: there seems to be no end of the turn cost-list!?");
+
+                long turnCostPtr = (long) turnCostIndex * turnCostsEntryBytes;
+                // entries that were cleared do not need to be kept
+                if (turnCosts.getInt(turnCostPtr + TC_FLAGS) != EMPTY_FLAGS)
+                    nodeEntries.add(turnCostIndex);
+                turnCostIndex = turnCosts.getInt(turnCostPtr + TC_NEXT);
+            }
+            if (nodeEntries.isEmpty()) {
+                nodeAccess.setAdditionalNodeField(node, NO_TURN_ENTRY);
+                continue;
+            }
+
+            sortEntries(nodeEntries);
+            int newIndex = newEntries.size() / 4;
+            nodeAccess.setAdditionalNodeField(node, newIndex);
+            bits[node >>> 5] |= 1 << (node & 31);
+            for (int i = 0; i < nodeEntries.size(); i++) {
+                long turnCostPtr = (long) nodeEntries.get(i) * turnCostsEntryBytes;
+                newEntries.add(turnCosts.getInt(turnCostPtr + TC_FROM));
+                newEntries.add(turnCosts.getInt(turnCostPtr + TC_TO));
+                newEntries.add(turnCosts.getInt(turnCostPtr + TC_FLAGS));
+                // the list is kept, so that entries can still be added and merged
+                newEntries.add(i + 1 < nodeEntries.size() ? newIndex + i + 1 : NO_TURN_ENTRY);
+            }
+        }
+
+        turnCostsCount = newEntries.size() / 4;
+        ensureTurnCostIndex(turnCostsCount);
+        for (int i = 0; i < turnCostsCount; i++) {
+            long turnCostPtr = (long) i * turnCostsEntryBytes;
+            turnCosts.setInt(turnCostPtr + TC_FROM, newEntries.get(i * 4));
+            turnCosts.setInt(turnCostPtr + TC_TO, newEntries.get(i * 4 + 1));
+            turnCosts.setInt(turnCostPtr + TC_FLAGS, newEntries.get(i * 4 + 2));
+            turnCosts.setInt(turnCostPtr + TC_NEXT, newEntries.get(i * 4 + 3));
+        }
+        long bitsetPtr = (long) turnCostsCount * turnCostsEntryBytes;
+        turnCosts.ensureCapacity(bitsetPtr + bits.length * 4L);
+        for (int i = 0; i < bits.length; i++) {
+            turnCosts.setInt(bitsetPtr + i * 4L, bits[i]);
+        }
+        optimizedNodes = nodes;
+    }
+
+    /**
+     * Sorts the specified entry indices by the from and then the to edge. A node has only a few entries.
+     */
+    private void sortEntries(IntArrayList entries) {
+        for (int i = 1; i < entries.size(); i++) {
+            int index = entries.get(i);
+            int j = i - 1;
+            while (j >= 0 && compareEntries(entries.get(j), index) > 0) {
+                entries.set(j + 1, entries.get(j));
+                j--;
+            }
+            entries.set(j + 1, index);
+        }
+    }
+
+    private int compareEntries(int index1, int index2) {
+        long ptr1 = (long) index1 * turnCostsEntryBytes;
+        long ptr2 = (long) index2 * turnCostsEntryBytes;
+        int res = Integer.compare(turnCosts.getInt(ptr1 + TC_FROM), turnCosts.getInt(ptr2 + TC_FROM));
+        if (res != 0)
+            return res;
+        return Integer.compare(turnCosts.getInt(ptr1 + TC_TO), turnCosts.getInt(ptr2 + TC_TO));
+    }
+
+    /**
+     * @return true if {@link #optimize()} was called and no entry was added afterwards
+     */
+    public boolean isOptimized() {
+        return optimizedNodes > 0;
+    }
+
     private void ensureTurnCostIndex(int nodeIndex) {
         turnCosts.ensureCapacity(((long) nodeIndex + 4) * turnCostsEntryBytes);
     }
@@ -256,10 +397,44 @@ public class TurnCostExtension implements GraphExtension {
 
         turnCosts.copyTo(clonedTC.turnCosts);
         clonedTC.turnCostsCount = turnCostsCount;
+        clonedTC.optimizedNodes = optimizedNodes;
 
         return clonedStorage;
     }
 
+    /**
+     * Adds the turn cost entries of this storage to the specified one, e.g. after the graph was sorted. Every entry
+     * of an old node id i is added to the node oldToNewNodes.get(i) and the edge ids are mapped via oldToNewEdges.
+     * Entries of removed nodes or edges, i.e. those mapped to a negative id, are skipped.
+     */
+    public TurnCostExtension copyTo(TurnCostExtension to, IntIndexedContainer oldToNewNodes, IntIndexedContainer oldToNewEdges) {
+        for (int node = 0; node < oldToNewNodes.size(); node++) {
+            int newNode = oldToNewNodes.get(node);
+            if (newNode < 0)
+                continue;
+
+            int turnCostIndex = nodeAccess.getAdditionalNodeField(node);
+            for (int i = 0; turnCostIndex != NO_TURN_ENTRY; i++) {
+                if (i >= 1000)
+                    throw new IllegalStateException("something went wrong: there seems to be no end of the turn cost-list!?");
+
+                long turnCostPtr = (long) turnCostIndex * turnCostsEntryBytes;
+                int newFromEdge = mapEdge(oldToNewEdges, turnCosts.getInt(turnCostPtr + TC_FROM));
+                int newToEdge = mapEdge(oldToNewEdges, turnCosts.getInt(turnCostPtr + TC_TO));
+                if (newFromEdge >= 0 && newToEdge >= 0)
+                    to.mergeOrOverwriteTurnInfo(newFromEdge, newNode, newToEdge,
+                            turnCosts.getInt(turnCostPtr + TC_FLAGS), false);
+
+                turnCostIndex = turnCosts.getInt(turnCostPtr + TC_NEXT);
+            }
+        }
+        return to;
+    }
+
+    private static int mapEdge(IntIndexedContainer oldToNewEdges, int edge) {
+        return edge >= 0 && edge < oldToNewEdges.size() ? oldToNewEdges.get(edge) : -1;
+    }
+
     @Override
     public boolean isClosed() {
         return turnCosts.isClosed();
@@ -43,6 +43,7 @@ import java.nio.ByteOrder;
 public class UnsafeDataAccess extends AbstractDataAccess {
     @SuppressWarnings("all")
     static final sun.misc.Unsafe UNSAFE;
+    private static final long INT_ARRAY_OFFSET;
 
     static {
         try {
@@ -52,6 +53,7 @@ public class UnsafeDataAccess extends AbstractDataAccess {
             Field field = sun.misc.Unsafe.class.getDeclaredField("theUnsafe");
             field.setAccessible(true);
             UNSAFE = (sun.misc.Unsafe) field.get(null);
+            INT_ARRAY_OFFSET = UNSAFE.arrayBaseOffset(int[].class);
         } catch (Exception e) {
             throw new AssertionError(e);
         }
@@ -192,6 +194,11 @@ public class UnsafeDataAccess extends AbstractDataAccess {
         return UNSAFE.getInt(address + bytePos);
     }
 
+    @Override
+    public void getInts(long bytePos, int[] values, int length) {
+        UNSAFE.copyMemory(null, address + bytePos, values, INT_ARRAY_OFFSET, length * 4L);
+    }
+
     @Override
     public short getShort(long bytePos) {
         return UNSAFE.getShort(address + bytePos);
@@ -18,7 +18,9 @@
 package com.graphhopper.storage.change;
 
 import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.cursors.IntLongCursor;
 import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.coll.GHIntLongHashMap;
 import com.graphhopper.json.geo.JsonFeature;
 import com.graphhopper.routing.util.DefaultEdgeFilter;
 import com.graphhopper.routing.util.EdgeFilter;
@@ -26,6 +28,7 @@ import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FlagEncoder;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.GraphEdgeIdFinder;
+import com.graphhopper.storage.GraphHopperStorage;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.util.EdgeIteratorState;
 
@@ -41,7 +44,9 @@ import java.util.Map;
 /**
  * This graph applies permanent changes passed as JsonFeature to the specified graph.
  * <p>
- * This class is not thread-safe. It is currently only safe to use it via GraphHopper.changeGraph
+ * For a GraphHopperStorage all changes of one applyChanges call are published at once as a new version of the edge
+ * flags, so concurrent routing requests are not blocked and see either none or all of the changes. This class is not
+ * thread-safe and only one change should be applied at a time, like GraphHopper.changeGraph does.
  *
  * @author Peter Karich
  */
@@ -70,6 +75,8 @@ public class ChangeGraphHelper {
             throw new NullPointerException("EncodingManager cannot be null to change existing graph");
 
         long updates = 0;
+        // the new flags in the direction of the edge in the storage
+        GHIntLongHashMap changedFlags = new GHIntLongHashMap();
         for (JsonFeature jsonFeature : features) {
             if (!jsonFeature.hasProperties())
                 throw new IllegalArgumentException("One feature has no properties, please specify properties e.g. speed or access");
@@ -77,19 +84,26 @@ public class ChangeGraphHelper {
             List<String> encodersAsStr = (List) jsonFeature.getProperty("vehicles");
             if (encodersAsStr == null) {
                 for (FlagEncoder encoder : em.fetchEdgeEncoders()) {
-                    updates += applyChange(jsonFeature, encoder);
+                    updates += applyChange(jsonFeature, encoder, changedFlags);
                 }
             } else {
                 for (String encoderStr : encodersAsStr) {
-                    updates += applyChange(jsonFeature, em.getEncoder(encoderStr));
+                    updates += applyChange(jsonFeature, em.getEncoder(encoderStr), changedFlags);
                 }
             }
         }
 
+        if (graph instanceof GraphHopperStorage) {
+            ((GraphHopperStorage) graph).changeEdgeFlags(changedFlags);
+        } else {
+            for (IntLongCursor c : changedFlags) {
+                graph.getEdgeIteratorState(c.key, Integer.MIN_VALUE).setFlags(c.value);
+            }
+        }
         return updates;
     }
 
-    private long applyChange(JsonFeature jsonFeature, FlagEncoder encoder) {
+    private long applyChange(JsonFeature jsonFeature, FlagEncoder encoder, GHIntLongHashMap changedFlags) {
         long updates = 0;
         EdgeFilter filter = DefaultEdgeFilter.allEdges(encoder);
         GHIntHashSet edges = new GHIntHashSet();
@@ -105,22 +119,24 @@ public class ChangeGraphHelper {
         while (iter.hasNext()) {
             int edgeId = iter.next().value;
             EdgeIteratorState edge = graph.getEdgeIteratorState(edgeId, Integer.MIN_VALUE);
+            // a previous feature could have changed the edge already
+            long flags = changedFlags.containsKey(edgeId) ? changedFlags.get(edgeId) : edge.getFlags();
             if (props.containsKey("access")) {
                 boolean value = (boolean) props.get("access");
                 updates++;
                 if (enableLogging)
                     logger.info(encoder.toString() + " - access change via feature " + jsonFeature.getId());
-                edge.setFlags(encoder.setAccess(edge.getFlags(), value, value));
+                changedFlags.put(edgeId, encoder.setAccess(flags, value, value));
 
             } else if (props.containsKey("speed")) {
                 // TODO use different speed for the different directions (see e.g. Bike2WeightFlagEncoder)
                 double value = ((Number) props.get("speed")).doubleValue();
-                double oldSpeed = encoder.getSpeed(edge.getFlags());
+                double oldSpeed = encoder.getSpeed(flags);
                 if (oldSpeed != value) {
                     updates++;
                     if (enableLogging)
                         logger.info(encoder.toString() + " - speed change via feature " + jsonFeature.getId() + ". Old: " + oldSpeed + ", new:" + value);
-                    edge.setFlags(encoder.setSpeed(edge.getFlags(), value));
+                    changedFlags.put(edgeId, encoder.setSpeed(flags, value));
                 }
             }
         }
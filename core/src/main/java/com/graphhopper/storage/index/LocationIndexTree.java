@@ -20,8 +20,11 @@ package com.graphhopper.storage.index;
 import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.carrotsearch.hppc.predicates.IntPredicate;
+import com.carrotsearch.hppc.sorting.IndirectComparator;
+import com.carrotsearch.hppc.sorting.IndirectSort;
 import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.coll.GHLongObjectHashMap;
 import com.graphhopper.coll.GHTBitSet;
 import com.graphhopper.geohash.SpatialKeyAlgo;
 import com.graphhopper.routing.util.EdgeFilter;
@@ -41,6 +44,8 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * This implementation implements an n-tree to get the closest node or edge from GPS coordinates.
@@ -456,24 +461,29 @@ public class LocationIndexTree implements LocationIndex {
      */
     public final boolean findNetworkEntries(double queryLat, double queryLon,
                                             GHIntHashSet foundEntries, int iteration) {
+        return findNetworkEntries(queryLat, queryLon, foundEntries, iteration, null);
+    }
+
+    private boolean findNetworkEntries(double queryLat, double queryLon,
+                                       GHIntHashSet foundEntries, int iteration, TileCache tileCache) {
         // find entries in border of searchbox
         for (int yreg = -iteration; yreg <= iteration; yreg++) {
             double subqueryLat = queryLat + yreg * deltaLat;
             double subqueryLonA = queryLon - iteration * deltaLon;
             double subqueryLonB = queryLon + iteration * deltaLon;
-            findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonA);
+            findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonA, tileCache);
 
             // minor optimization for iteration == 0
             if (iteration > 0)
-                findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonB);
+                findNetworkEntriesSingleRegion(foundEntries, subqueryLat, subqueryLonB, tileCache);
         }
 
         for (int xreg = -iteration + 1; xreg <= iteration - 1; xreg++) {
             double subqueryLon = queryLon + xreg * deltaLon;
             double subqueryLatA = queryLat - iteration * deltaLat;
             double subqueryLatB = queryLat + iteration * deltaLat;
-            findNetworkEntriesSingleRegion(foundEntries, subqueryLatA, subqueryLon);
-            findNetworkEntriesSingleRegion(foundEntries, subqueryLatB, subqueryLon);
+            findNetworkEntriesSingleRegion(foundEntries, subqueryLatA, subqueryLon, tileCache);
+            findNetworkEntriesSingleRegion(foundEntries, subqueryLatB, subqueryLon, tileCache);
         }
 
         if (iteration % 2 != 0) {
@@ -510,21 +520,118 @@ public class LocationIndexTree implements LocationIndex {
         return min;
     }
 
+    /**
+     * This method collects the node indices of all cells that intersect the specified area. Every edge is stored
+     * in all cells it crosses, so the edges of the found nodes include all edges of the area, e.g. to draw a map
+     * tile, but also some edges outside of it.
+     */
+    public final void findNetworkEntries(BBox bbox, GHIntHashSet foundEntries) {
+        BBox bounds = graph.getBounds();
+        double minLat = Math.max(bbox.minLat, bounds.minLat), maxLat = Math.min(bbox.maxLat, bounds.maxLat);
+        double minLon = Math.max(bbox.minLon, bounds.minLon), maxLon = Math.min(bbox.maxLon, bounds.maxLon);
+        if (minLat > maxLat || minLon > maxLon)
+            return;
+
+        for (double lat = minLat; ; lat += deltaLat) {
+            lat = Math.min(lat, maxLat);
+            for (double lon = minLon; ; lon += deltaLon) {
+                lon = Math.min(lon, maxLon);
+                findNetworkEntriesSingleRegion(foundEntries, lat, lon);
+                if (lon >= maxLon)
+                    break;
+            }
+            if (lat >= maxLat)
+                break;
+        }
+    }
+
     public final void findNetworkEntriesSingleRegion(GHIntHashSet storedNetworkEntryIds, double queryLat, double queryLon) {
         long keyPart = createReverseKey(queryLat, queryLon);
         fillIDs(keyPart, START_POINTER, storedNetworkEntryIds, 0);
     }
 
+    private void findNetworkEntriesSingleRegion(GHIntHashSet storedNetworkEntryIds, double queryLat, double queryLon,
+                                                TileCache tileCache) {
+        if (tileCache == null)
+            findNetworkEntriesSingleRegion(storedNetworkEntryIds, queryLat, queryLon);
+        else
+            tileCache.fill(storedNetworkEntryIds, queryLat, queryLon);
+    }
+
     @Override
     public QueryResult findClosest(final double queryLat, final double queryLon, final EdgeFilter edgeFilter) {
         if (isClosed())
             throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
 
+        return findClosest(queryLat, queryLon, edgeFilter, null);
+    }
+
+    /**
+     * Finds the closest edges for many points at once. The points are sorted by their spatial key before the lookup,
+     * so that close points are handled one after another and the tiles read from the tree are shared between them.
+     *
+     * @return the results in the order of the specified points
+     */
+    public List<QueryResult> findClosestBatch(double[] lats, double[] lons, EdgeFilter edgeFilter) {
+        return findClosestBatch(lats, lons, edgeFilter, null);
+    }
+
+    /**
+     * Same as {@link #findClosestBatch(double[], double[], EdgeFilter)}, but if the pool is not null the sorted points
+     * are split into chunks that are looked up in parallel. The edge filter must be thread safe then. The workers use
+     * the edge flags of the calling thread.
+     */
+    public List<QueryResult> findClosestBatch(double[] lats, double[] lons, EdgeFilter edgeFilter, ForkJoinPool pool) {
+        if (isClosed())
+            throw new IllegalStateException("You need to create a new LocationIndex instance as it is already closed");
+        if (lats.length != lons.length)
+            throw new IllegalArgumentException("The number of latitudes " + lats.length + " and longitudes " + lons.length + " differ");
+
+        final long[] keys = new long[lats.length];
+        for (int i = 0; i < lats.length; i++) {
+            keys[i] = keyAlgo.encode(lats[i], lons[i]);
+        }
+        int[] order = IndirectSort.mergesort(0, keys.length, new IndirectComparator() {
+            @Override
+            public int compare(int indexA, int indexB) {
+                return Long.compare(keys[indexA], keys[indexB]);
+            }
+        });
+
+        QueryResult[] results = new QueryResult[lats.length];
+        if (pool == null) {
+            findClosestRange(lats, lons, edgeFilter, order, results, 0, order.length);
+        } else if (graph instanceof GraphHopperStorage) {
+            GraphHopperStorage storage = (GraphHopperStorage) graph;
+            EdgeFlagOverlay pinned = storage.pinEdgeFlags();
+            try {
+                pool.invoke(new BatchLookupTask(lats, lons, edgeFilter, order, results, 0, order.length,
+                        storage, storage.getPinnedEdgeFlags()));
+            } finally {
+                storage.unpinEdgeFlags(pinned);
+            }
+        } else {
+            pool.invoke(new BatchLookupTask(lats, lons, edgeFilter, order, results, 0, order.length, null, null));
+        }
+        return Arrays.asList(results);
+    }
+
+    private void findClosestRange(double[] lats, double[] lons, EdgeFilter edgeFilter, int[] order,
+                                  QueryResult[] results, int from, int to) {
+        TileCache tileCache = new TileCache();
+        for (int i = from; i < to; i++) {
+            int index = order[i];
+            results[index] = findClosest(lats[index], lons[index], edgeFilter, tileCache);
+        }
+    }
+
+    private QueryResult findClosest(final double queryLat, final double queryLon, final EdgeFilter edgeFilter,
+                                    TileCache tileCache) {
         GHIntHashSet allCollectedEntryIds = new GHIntHashSet();
         final QueryResult closestMatch = new QueryResult(queryLat, queryLon);
         for (int iteration = 0; iteration < maxRegionSearch; iteration++) {
             GHIntHashSet storedNetworkEntryIds = new GHIntHashSet();
-            boolean earlyFinish = findNetworkEntries(queryLat, queryLon, storedNetworkEntryIds, iteration);
+            boolean earlyFinish = findNetworkEntries(queryLat, queryLon, storedNetworkEntryIds, iteration, tileCache);
             storedNetworkEntryIds.removeAll(allCollectedEntryIds);
             allCollectedEntryIds.addAll(storedNetworkEntryIds);
 
@@ -685,6 +792,79 @@ public class LocationIndexTree implements LocationIndex {
         return queryResults;
     }
     
+    /**
+     * Remembers the node ids of the tiles that were already read from the tree, so that close points of a batch do
+     * not walk the tree for the same tile again. Not thread safe.
+     */
+    private class TileCache {
+        private static final int MAX_TILES = 10_000;
+        private final GHLongObjectHashMap<int[]> tiles = new GHLongObjectHashMap<>();
+        private final GHIntHashSet tmpSet = new GHIntHashSet();
+
+        void fill(GHIntHashSet set, double lat, double lon) {
+            long keyPart = createReverseKey(lat, lon);
+            int[] ids = tiles.get(keyPart);
+            if (ids == null) {
+                if (tiles.size() >= MAX_TILES)
+                    tiles.clear();
+
+                tmpSet.clear();
+                fillIDs(keyPart, START_POINTER, tmpSet, 0);
+                ids = tmpSet.toArray();
+                tiles.put(keyPart, ids);
+            }
+            for (int id : ids) {
+                set.add(id);
+            }
+        }
+    }
+
+    private class BatchLookupTask extends RecursiveAction {
+        private static final int CHUNK_SIZE = 256;
+        private final double[] lats;
+        private final double[] lons;
+        private final EdgeFilter edgeFilter;
+        private final int[] order;
+        private final QueryResult[] results;
+        private final int from;
+        private final int to;
+        // the version of the edge flags pinned by the calling thread or null if the graph has no flag versions
+        private final GraphHopperStorage storage;
+        private final EdgeFlagOverlay flags;
+
+        BatchLookupTask(double[] lats, double[] lons, EdgeFilter edgeFilter, int[] order, QueryResult[] results,
+                        int from, int to, GraphHopperStorage storage, EdgeFlagOverlay flags) {
+            this.lats = lats;
+            this.lons = lons;
+            this.edgeFilter = edgeFilter;
+            this.order = order;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.storage = storage;
+            this.flags = flags;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= CHUNK_SIZE) {
+                // pin only while no other task can run in this thread
+                EdgeFlagOverlay pinned = storage == null ? null : storage.pinEdgeFlags(flags);
+                try {
+                    findClosestRange(lats, lons, edgeFilter, order, results, from, to);
+                } finally {
+                    if (storage != null)
+                        storage.unpinEdgeFlags(pinned);
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            invokeAll(new BatchLookupTask(lats, lons, edgeFilter, order, results, from, middle, storage, flags),
+                    new BatchLookupTask(lats, lons, edgeFilter, order, results, middle, to, storage, flags));
+        }
+    }
+
     // make entries static as otherwise we get an additional reference to this class (memory waste)
     interface InMemEntry {
         boolean isLeaf();
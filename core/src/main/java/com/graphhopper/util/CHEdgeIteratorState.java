@@ -38,6 +38,28 @@ public interface CHEdgeIteratorState extends EdgeIteratorState {
      */
     void setSkippedEdges(int edge1, int edge2);
 
+    /**
+     * Returns the original edge at the base node, i.e. the first original edge when this (shortcut) edge is traversed
+     * from the base to the adjacent node. For original edges and for shortcuts of a node-based CHGraph this is
+     * the edge itself.
+     */
+    int getOrigEdgeFirst();
+
+    /**
+     * Returns the original edge at the adjacent node, i.e. the last original edge when this (shortcut) edge is
+     * traversed from the base to the adjacent node. For original edges and for shortcuts of a node-based CHGraph this
+     * is the edge itself.
+     */
+    int getOrigEdgeLast();
+
+    /**
+     * Sets the first and the last original edge of this shortcut, only applicable for an edge-based CHGraph.
+     *
+     * @param origFirst the original edge at the base node
+     * @param origLast  the original edge at the adjacent node
+     */
+    void setFirstAndLastOrigEdges(int origFirst, int origLast);
+
     /**
      * @return true if this edge is a shortcut, false otherwise.
      */
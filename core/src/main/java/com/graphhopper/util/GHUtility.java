@@ -18,9 +18,12 @@
 package com.graphhopper.util;
 
 import com.carrotsearch.hppc.IntIndexedContainer;
+import com.carrotsearch.hppc.sorting.IndirectComparator;
+import com.carrotsearch.hppc.sorting.IndirectSort;
 import com.graphhopper.coll.GHBitSet;
 import com.graphhopper.coll.GHBitSetImpl;
 import com.graphhopper.coll.GHIntArrayList;
+import com.graphhopper.geohash.SpatialKeyAlgo;
 import com.graphhopper.routing.util.AllCHEdgesIterator;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
@@ -196,18 +199,14 @@ public class GHUtility {
 
     public static Graph shuffle(Graph g, Graph sortedGraph) {
         int nodes = g.getNodes();
-        GHIntArrayList list = new GHIntArrayList(nodes);
-        list.fill(nodes, -1);
-        for (int i = 0; i < nodes; i++) {
-            list.set(i, i);
-        }
+        GHIntArrayList list = identityList(nodes);
         list.shuffle(new Random());
         return createSortedGraph(g, sortedGraph, list);
     }
 
     /**
-     * Sorts the graph according to depth-first search traversal. Other traversals have either no
-     * significant difference (bfs) for querying or are worse (z-curve).
+     * Sorts the graph according to depth-first search traversal. A bfs traversal has no significant difference
+     * for querying. See sortSpatially for an order that keeps nearby nodes together.
      */
     public static Graph sortDFS(Graph g, Graph sortedGraph) {
         int nodes = g.getNodes();
@@ -234,22 +233,96 @@ public class GHUtility {
         return createSortedGraph(g, sortedGraph, list);
     }
 
+    /**
+     * Sorts the graph along a space filling curve (Z-order via SpatialKeyAlgo), so that nodes which are close to
+     * each other get similar ids. As the edges are created in the order of their first node this keeps the data
+     * of a region close together in the node, edge and geometry storages as well as in the location index.
+     */
+    public static Graph sortSpatially(Graph g, Graph sortedGraph) {
+        int nodes = g.getNodes();
+        BBox bounds = g.getBounds();
+        if (!bounds.isValid())
+            return createSortedGraph(g, sortedGraph, identityList(nodes));
+
+        // 31 bits for latitude and longitude each are enough for a precision of a few millimeters
+        SpatialKeyAlgo keyAlgo = new SpatialKeyAlgo(62).bounds(bounds);
+        NodeAccess na = g.getNodeAccess();
+        final long[] keys = new long[nodes];
+        for (int node = 0; node < nodes; node++) {
+            keys[node] = keyAlgo.encode(na.getLatitude(node), na.getLongitude(node));
+        }
+        // stable, i.e. nodes with the same key keep their order
+        int[] sortedNodes = IndirectSort.mergesort(0, nodes, new IndirectComparator() {
+            @Override
+            public int compare(int indexA, int indexB) {
+                return Long.compare(keys[indexA], keys[indexB]);
+            }
+        });
+
+        GHIntArrayList list = new GHIntArrayList(nodes);
+        list.fill(nodes, -1);
+        for (int i = 0; i < nodes; i++) {
+            list.set(sortedNodes[i], i);
+        }
+        return createSortedGraph(g, sortedGraph, list);
+    }
+
+    private static GHIntArrayList identityList(int size) {
+        GHIntArrayList list = new GHIntArrayList(size);
+        list.fill(size, -1);
+        for (int i = 0; i < size; i++) {
+            list.set(i, i);
+        }
+        return list;
+    }
+
+    /**
+     * Copies the nodes, edges and turn costs of fromGraph into toSortedGraph where the node ids are mapped via
+     * oldToNewNodeList. The edges are created in the order of their smaller new node id, so that the edges of a
+     * node are close together in the storage.
+     */
     static Graph createSortedGraph(Graph fromGraph, Graph toSortedGraph, final IntIndexedContainer oldToNewNodeList) {
+        int nodes = fromGraph.getNodes();
         AllEdgesIterator eIter = fromGraph.getAllEdges();
+        GHIntArrayList oldEdges = new GHIntArrayList(eIter.length());
+        GHIntArrayList firstNodes = new GHIntArrayList(eIter.length());
+        int maxEdgeId = -1;
         while (eIter.next()) {
-            int base = eIter.getBaseNode();
-            int newBaseIndex = oldToNewNodeList.get(base);
-            int adj = eIter.getAdjNode();
-            int newAdjIndex = oldToNewNodeList.get(adj);
+            int newBaseIndex = oldToNewNodeList.get(eIter.getBaseNode());
+            int newAdjIndex = oldToNewNodeList.get(eIter.getAdjNode());
 
             // ignore empty entries
             if (newBaseIndex < 0 || newAdjIndex < 0)
                 continue;
 
-            eIter.copyPropertiesTo(toSortedGraph.edge(newBaseIndex, newAdjIndex));
+            oldEdges.add(eIter.getEdge());
+            firstNodes.add(Math.min(newBaseIndex, newAdjIndex));
+            maxEdgeId = Math.max(maxEdgeId, eIter.getEdge());
+        }
+
+        // counting sort of the edges by their first node, the order of edges with the same first node is kept
+        int[] offsets = new int[nodes + 1];
+        for (int i = 0; i < firstNodes.size(); i++) {
+            offsets[firstNodes.get(i) + 1]++;
+        }
+        for (int node = 0; node < nodes; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+        int[] sortedEdges = new int[oldEdges.size()];
+        for (int i = 0; i < oldEdges.size(); i++) {
+            sortedEdges[offsets[firstNodes.get(i)]++] = oldEdges.get(i);
+        }
+
+        GHIntArrayList oldToNewEdgeList = new GHIntArrayList(maxEdgeId + 1);
+        oldToNewEdgeList.fill(maxEdgeId + 1, -1);
+        for (int oldEdge : sortedEdges) {
+            EdgeIteratorState edgeState = fromGraph.getEdgeIteratorState(oldEdge, Integer.MIN_VALUE);
+            EdgeIteratorState newEdgeState = toSortedGraph.edge(oldToNewNodeList.get(edgeState.getBaseNode()),
+                    oldToNewNodeList.get(edgeState.getAdjNode()));
+            edgeState.copyPropertiesTo(newEdgeState);
+            oldToNewEdgeList.set(oldEdge, newEdgeState.getEdge());
         }
 
-        int nodes = fromGraph.getNodes();
         NodeAccess na = fromGraph.getNodeAccess();
         NodeAccess sna = toSortedGraph.getNodeAccess();
         for (int old = 0; old < nodes; old++) {
@@ -259,6 +332,10 @@ public class GHUtility {
             else
                 sna.setNode(newIndex, na.getLatitude(old), na.getLongitude(old));
         }
+
+        if (fromGraph.getExtension() instanceof TurnCostExtension && toSortedGraph.getExtension() instanceof TurnCostExtension)
+            ((TurnCostExtension) fromGraph.getExtension()).copyTo((TurnCostExtension) toSortedGraph.getExtension(),
+                    oldToNewNodeList, oldToNewEdgeList);
         return toSortedGraph;
     }
 
@@ -302,8 +379,12 @@ public class GHUtility {
         Directory outdir = guessDirectory(store);
         boolean is3D = store.getNodeAccess().is3D();
 
+        // the extension is bound to the graph it was initialized with
+        GraphExtension extension = store.getExtension();
+        if (extension instanceof TurnCostExtension)
+            extension = new TurnCostExtension();
         return new GraphHopperStorage(store.getCHWeightings(), outdir, store.getEncodingManager(),
-                is3D, store.getExtension()).
+                is3D, extension).
                 create(store.getNodes());
     }
 
@@ -500,6 +581,21 @@ public class GHUtility {
             throw new UnsupportedOperationException("Not supported. Edge is empty.");
         }
 
+        @Override
+        public int getOrigEdgeFirst() {
+            throw new UnsupportedOperationException("Not supported. Edge is empty.");
+        }
+
+        @Override
+        public int getOrigEdgeLast() {
+            throw new UnsupportedOperationException("Not supported. Edge is empty.");
+        }
+
+        @Override
+        public void setFirstAndLastOrigEdges(int origFirst, int origLast) {
+            throw new UnsupportedOperationException("Not supported. Edge is empty.");
+        }
+
         @Override
         public double getWeight() {
             throw new UnsupportedOperationException("Not supported. Edge is empty.");
@@ -18,6 +18,7 @@
 package com.graphhopper;
 
 import com.graphhopper.json.geo.JsonFeature;
+import com.graphhopper.routing.RouteCache;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.GraphBuilder;
@@ -25,6 +26,7 @@ import com.graphhopper.storage.GraphHopperStorage;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.storage.change.ChangeGraphHelper;
 import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.util.Parameters;
 import com.graphhopper.util.PointList;
 import com.graphhopper.util.shapes.BBox;
 import org.junit.Test;
@@ -86,6 +88,76 @@ public class GraphHopperAPITest {
         instance.close();
     }
 
+    @Test
+    public void testReuseRequestState() {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        initGraph(graph);
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(4, 41.9, 10.2);
+        graph.edge(1, 2, 10, false);
+        graph.edge(0, 4, 40, true);
+        graph.edge(4, 3, 40, true);
+
+        GraphHopper instance = new GraphHopper().
+                setStoreOnFlush(false).
+                setEncodingManager(encodingManager).setCHEnabled(false).
+                setReuseRequestState(true).
+                loadGraph(graph);
+        for (int i = 0; i < 3; i++) {
+            GHRequest req = new GHRequest(42, 10.4, 42, 10);
+            GHResponse rsp = instance.route(req);
+            assertFalse(req.getHints().has(Parameters.Routing.NATIVE_SEARCH));
+            assertFalse(rsp.hasErrors());
+            assertEquals(80, rsp.getBest().getDistance(), 1e-6);
+            assertEquals(3, rsp.getBest().getPoints().getSize());
+
+            // the virtual nodes of the previous request must not be visible
+            rsp = instance.route(new GHRequest(41.95, 10.1, 42, 10.4));
+            assertFalse(rsp.hasErrors());
+            assertEquals(3, rsp.getBest().getPoints().getSize());
+            assertEquals(41.95, rsp.getBest().getPoints().getLatitude(0), 1e-5);
+        }
+        instance.close();
+    }
+
+    @Test
+    public void testRouteCache() {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        initGraph(graph);
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(4, 41.9, 10.2);
+        graph.edge(1, 2, 10, false);
+        graph.edge(0, 4, 40, true);
+        graph.edge(4, 3, 40, true);
+
+        RouteCache routeCache = new RouteCache(10, 0);
+        GraphHopper instance = new GraphHopper().
+                setStoreOnFlush(false).
+                setEncodingManager(encodingManager).setCHEnabled(false).
+                setRouteCache(routeCache).
+                loadGraph(graph);
+        GHResponse rsp = instance.route(new GHRequest(42, 10.4, 42, 10));
+        assertFalse(rsp.hasErrors());
+        assertEquals(80, rsp.getBest().getDistance(), 1e-6);
+        assertEquals(0, routeCache.getHits());
+        assertEquals(1, routeCache.getMisses());
+        assertEquals(1, routeCache.getSize());
+
+        // every hit returns its own copy, so modifying it does not change later hits
+        GHResponse hit = instance.route(new GHRequest(42, 10.4, 42, 10));
+        assertNotSame(rsp, hit);
+        assertEquals(80, hit.getBest().getDistance(), 1e-6);
+        assertEquals(1, routeCache.getHits());
+        hit.getBest().setDistance(0);
+        assertEquals(80, instance.route(new GHRequest(42, 10.4, 42, 10)).getBest().getDistance(), 1e-6);
+        assertEquals(2, routeCache.getHits());
+
+        // errors are not cached
+        assertTrue(instance.route(new GHRequest(42, 10.4, 10, 10)).hasErrors());
+        assertEquals(1, routeCache.getSize());
+        instance.close();
+    }
+
     @Test
     public void testDisconnected179() {
         GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
@@ -142,7 +214,7 @@ public class GraphHopperAPITest {
                 return new ChangeGraphHelper(graph, locationIndex) {
                     @Override
                     public long applyChanges(EncodingManager em, Collection<JsonFeature> features) {
-                        // force sleep inside the lock and let the main thread run until the lock barrier
+                        // force sleep while changing and let the main thread route in the meantime
                         latch.countDown();
                         try {
                             Thread.sleep(400);
@@ -179,14 +251,18 @@ public class GraphHopperAPITest {
         });
 
         latch.await();
-        assertEquals(0, checkPointCounter.get());
+        // routing is not blocked by the change and does not see it yet
         rsp = graphHopper.route(new GHRequest(42, 10.4, 42, 10));
         assertFalse(rsp.toString(), rsp.hasErrors());
-        assertEquals(8400, rsp.getBest().getTime());
+        assertEquals(1800, rsp.getBest().getTime());
+        assertEquals(0, checkPointCounter.get());
 
         executorService.shutdown();
         executorService.awaitTermination(3, TimeUnit.SECONDS);
-
         assertEquals(2, checkPointCounter.get());
+
+        rsp = graphHopper.route(new GHRequest(42, 10.4, 42, 10));
+        assertFalse(rsp.toString(), rsp.hasErrors());
+        assertEquals(8400, rsp.getBest().getTime());
     }
 }
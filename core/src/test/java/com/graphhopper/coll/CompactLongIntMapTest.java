@@ -0,0 +1,143 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.carrotsearch.hppc.cursors.LongIntCursor;
+import com.graphhopper.storage.RAMDirectory;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompactLongIntMapTest {
+    @Test
+    public void testGetAndUpdate() {
+        CompactLongIntMap map = new CompactLongIntMap(new RAMDirectory(), "test", -1);
+        map.put(9, 0);
+        map.put(10, -50);
+        map.put(11, 2);
+        map.put(1000, 3);
+        map.put(Long.MAX_VALUE, 6);
+        assertEquals(5, map.getSize());
+        assertEquals(-1, map.get(8));
+        assertEquals(0, map.get(9));
+        assertEquals(-50, map.get(10));
+        assertEquals(2, map.get(11));
+        assertEquals(-1, map.get(12));
+        assertEquals(3, map.get(1000));
+        assertEquals(6, map.get(Long.MAX_VALUE));
+
+        assertEquals(-50, map.put(10, 7));
+        assertEquals(7, map.get(10));
+
+        // not ascending
+        assertEquals(-1, map.put(500, 8));
+        assertEquals(-1, map.put(-Long.MAX_VALUE, 9));
+        assertEquals(7, map.getSize());
+        assertEquals(8, map.get(500));
+        assertEquals(9, map.get(-Long.MAX_VALUE));
+
+        map.optimize();
+        assertEquals(7, map.getSize());
+        assertEquals(8, map.get(500));
+        assertEquals(9, map.get(-Long.MAX_VALUE));
+        assertEquals(7, map.get(10));
+        assertEquals(6, map.get(Long.MAX_VALUE));
+        assertEquals(-1, map.get(501));
+    }
+
+    @Test
+    public void testRandom() {
+        Random rand = new Random(123);
+        LongIntHashMap expected = new LongIntHashMap();
+        // a small buffer to force many merges
+        CompactLongIntMap map = new CompactLongIntMap(new RAMDirectory(), "test", -1, 100);
+        long key = 0;
+        for (int i = 0; i < 20_000; i++) {
+            // mostly ascending keys with random gaps like OSM ids, sometimes old or far away keys
+            int r = rand.nextInt(10);
+            long tmpKey;
+            if (r < 6) {
+                key += 1 + rand.nextInt(rand.nextBoolean() ? 10 : 100_000);
+                tmpKey = key;
+            } else if (r < 9) {
+                tmpKey = (long) (rand.nextDouble() * key);
+            } else {
+                tmpKey = rand.nextLong();
+            }
+            int value = rand.nextInt();
+            int old = map.put(tmpKey, value);
+            assertEquals(expected.getOrDefault(tmpKey, -1), old);
+            expected.put(tmpKey, value);
+        }
+
+        assertEquals(expected.size(), map.getSize());
+        for (LongIntCursor c : expected) {
+            assertEquals(c.value, map.get(c.key));
+        }
+        for (int i = 0; i < 1000; i++) {
+            long tmpKey = rand.nextLong();
+            assertEquals(expected.getOrDefault(tmpKey, -1), map.get(tmpKey));
+        }
+
+        map.optimize();
+        assertEquals(expected.size(), map.getSize());
+        for (LongIntCursor c : expected) {
+            assertEquals(c.value, map.get(c.key));
+        }
+    }
+
+    @Test
+    public void testClear() {
+        RAMDirectory dir = new RAMDirectory();
+        CompactLongIntMap map = new CompactLongIntMap(dir, "test", -1, 10);
+        for (int i = 0; i < 100; i++) {
+            map.put(100 - i, i);
+        }
+        map.optimize();
+        assertEquals(3, dir.getAll().size());
+        map.clear();
+        assertEquals(0, dir.getAll().size());
+    }
+
+    @Test
+    public void testDescendingKeys() {
+        RAMDirectory dir = new RAMDirectory();
+        CompactLongIntMap map = new CompactLongIntMap(dir, "test", -1, 10);
+        for (int i = 0; i < 10_000; i++) {
+            map.put(10_000 - i, i);
+        }
+        // the merged runs have geometrically decreasing sizes
+        assertTrue(dir.getAll().size() + " data accesses", dir.getAll().size() <= 3 * 12);
+        assertEquals(10_000, map.getSize());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, map.get(10_000 - i));
+        }
+        assertEquals(-1, map.get(0));
+
+        map.optimize();
+        assertEquals(3, dir.getAll().size());
+        assertEquals(10_000, map.getSize());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, map.get(10_000 - i));
+        }
+    }
+}
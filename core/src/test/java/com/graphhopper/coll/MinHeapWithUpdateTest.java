@@ -0,0 +1,119 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import org.junit.Test;
+
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MinHeapWithUpdateTest {
+    @Test
+    public void testBasic() {
+        MinHeapWithUpdate heap = new MinHeapWithUpdate(10);
+        heap.push(1, 20);
+        heap.push(2, 123);
+        heap.push(3, 120);
+        heap.push(4, 130);
+        heap.push(5, 80);
+        assertEquals(5, heap.size());
+        assertEquals(1, heap.peekId());
+        assertEquals(20, heap.peekValue(), 1e-6);
+
+        assertEquals(1, heap.poll());
+        assertEquals(5, heap.poll());
+        assertEquals(3, heap.poll());
+        assertFalse(heap.contains(3));
+        assertTrue(heap.contains(2));
+        assertEquals(2, heap.size());
+    }
+
+    @Test
+    public void testUpdate() {
+        MinHeapWithUpdate heap = new MinHeapWithUpdate(10);
+        heap.push(1, 20);
+        heap.push(2, 30);
+        heap.push(3, 40);
+        heap.update(3, 10);
+        assertEquals(3, heap.peekId());
+        heap.update(3, 50);
+        assertEquals(1, heap.poll());
+        assertEquals(2, heap.poll());
+        assertEquals(3, heap.poll());
+        assertTrue(heap.isEmpty());
+    }
+
+    @Test
+    public void testClearAndGrow() {
+        MinHeapWithUpdate heap = new MinHeapWithUpdate(3);
+        heap.push(0, 5);
+        heap.push(2, 3);
+        heap.clear();
+        assertTrue(heap.isEmpty());
+        assertFalse(heap.contains(0));
+        assertFalse(heap.contains(2));
+
+        heap.ensureCapacity(10);
+        assertEquals(10, heap.getCapacity());
+        heap.push(9, 1);
+        heap.push(2, 2);
+        assertEquals(9, heap.poll());
+        assertEquals(2, heap.poll());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPushTwice() {
+        MinHeapWithUpdate heap = new MinHeapWithUpdate(3);
+        heap.push(1, 5);
+        heap.push(1, 3);
+    }
+
+    @Test
+    public void testRandomUpdates() {
+        Random rand = new Random(42);
+        int capacity = 500;
+        MinHeapWithUpdate heap = new MinHeapWithUpdate(capacity);
+        double[] values = new double[capacity];
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 2000; i++) {
+                int id = rand.nextInt(capacity);
+                double value = rand.nextDouble() * 100;
+                if (heap.contains(id))
+                    heap.update(id, value);
+                else
+                    heap.push(id, value);
+                values[id] = value;
+            }
+
+            PriorityQueue<Double> expected = new PriorityQueue<>();
+            for (int id = 0; id < capacity; id++) {
+                if (heap.contains(id))
+                    expected.add(values[id]);
+            }
+            assertEquals(expected.size(), heap.size());
+            while (!heap.isEmpty()) {
+                double value = heap.peekValue();
+                int id = heap.poll();
+                assertEquals(expected.poll(), value, 1e-10);
+                assertEquals(values[id], value, 1e-10);
+            }
+        }
+    }
+}
@@ -23,6 +23,12 @@ import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
 
@@ -99,6 +105,52 @@ public class SRTMProviderTest {
         assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
     }
 
+    @Test
+    public void testGetHeightOfEvictedTile() {
+        instance = new SRTMProvider("./files/");
+        instance.setMaxCachedTiles(2);
+        assertEquals(466, instance.getEle(49.968651, 11.574869), 1e-1);
+        assertEquals(1678, instance.getEle(-28.88316, -71.070557), 1e-1);
+        assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
+        assertEquals(2, instance.tiles.size());
+
+        // the evicted tile is mapped again from the cache directory
+        assertEquals(330, instance.getEle(49.958233, 11.558647), 1e-1);
+        assertEquals(466, instance.getEle(49.968651, 11.574869), 1e-1);
+        assertEquals(2, instance.tiles.size());
+        assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
+        assertEquals(1678, instance.getEle(-28.88316, -71.070557), 1e-1);
+    }
+
+    @Test
+    public void testEvictTileWhileOtherThreadsReadIt() throws Exception {
+        instance = new SRTMProvider("./files/");
+        instance.setMaxCachedTiles(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        for (int j = 0; j < 50; j++) {
+                            assertEquals(466, instance.getEle(49.968651, 11.574869), 1e-1);
+                            assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
+                            assertEquals(1678, instance.getEle(-28.88316, -71.070557), 1e-1);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, instance.tiles.size());
+    }
+
     @Ignore
     public void testGetEle() {
         instance = new SRTMProvider();
@@ -0,0 +1,37 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.GraphHopperStorage;
+
+/**
+ * Runs the common routing tests for {@link AStarBidirectionNative}, which supports only node based traversal.
+ */
+public class AStarBidirectionNativeTest extends AbstractRoutingAlgorithmTester {
+    @Override
+    public RoutingAlgorithmFactory createFactory(GraphHopperStorage prepareGraph, AlgorithmOptions prepareOpts) {
+        return new RoutingAlgorithmFactory() {
+            @Override
+            public RoutingAlgorithm createAlgo(Graph g, AlgorithmOptions opts) {
+                return new AStarBidirectionNative(g, opts.getWeighting(), TraversalMode.NODE_BASED);
+            }
+        };
+    }
+}
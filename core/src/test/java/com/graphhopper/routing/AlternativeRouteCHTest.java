@@ -0,0 +1,200 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntIndexedContainer;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.graphhopper.routing.AbstractRoutingAlgorithmTester.updateDistancesFor;
+import static org.junit.Assert.*;
+
+public class AlternativeRouteCHTest {
+    private final CarFlagEncoder carEncoder = new CarFlagEncoder();
+    private final EncodingManager encodingManager = new EncodingManager(carEncoder);
+    private final Weighting weighting = new FastestWeighting(carEncoder);
+
+    private GraphHopperStorage createTestGraph() {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).setCHGraph(weighting).create();
+        /* 9
+         _/\
+         1  2-3-4-10
+         \   /   \
+         5--6-7---8
+         */
+        graph.edge(1, 9, 1, true);
+        graph.edge(9, 2, 1, true);
+        graph.edge(2, 3, 1, true);
+        graph.edge(3, 4, 1, true);
+        graph.edge(4, 10, 1, true);
+        graph.edge(5, 6, 1, true);
+        graph.edge(6, 7, 1, true);
+        graph.edge(7, 8, 1, true);
+        graph.edge(1, 5, 2, true);
+        graph.edge(6, 3, 1, true);
+        graph.edge(4, 8, 1, true);
+
+        updateDistancesFor(graph, 5, 0.00, 0.05);
+        updateDistancesFor(graph, 6, 0.00, 0.10);
+        updateDistancesFor(graph, 7, 0.00, 0.15);
+        updateDistancesFor(graph, 8, 0.00, 0.25);
+        updateDistancesFor(graph, 1, 0.05, 0.00);
+        updateDistancesFor(graph, 9, 0.10, 0.05);
+        updateDistancesFor(graph, 2, 0.05, 0.10);
+        updateDistancesFor(graph, 3, 0.05, 0.15);
+        updateDistancesFor(graph, 4, 0.05, 0.25);
+        updateDistancesFor(graph, 10, 0.05, 0.30);
+        return graph;
+    }
+
+    private GraphHopperStorage createRandomGraph(long seed, int nodes) {
+        GraphHopperStorage ghStorage = new GraphBuilder(encodingManager).setCHGraph(weighting).create();
+        Random rand = new Random(seed);
+        NodeAccess na = ghStorage.getNodeAccess();
+        for (int node = 0; node < nodes; node++) {
+            na.setNode(node, 49 + rand.nextDouble() / 10, 11 + rand.nextDouble() / 10);
+        }
+        for (int i = 0; i < nodes * 2; i++) {
+            int from = rand.nextInt(nodes);
+            int to = rand.nextInt(nodes);
+            if (from == to)
+                continue;
+
+            EdgeIteratorState edge = ghStorage.edge(from, to, 10 + rand.nextInt(500), rand.nextInt(4) > 0);
+            edge.setFlags(carEncoder.setProperties(10 + 10 * rand.nextInt(10), true, edge.isBackward(carEncoder)));
+        }
+        return ghStorage;
+    }
+
+    private PrepareContractionHierarchies prepare(GraphHopperStorage ghStorage) {
+        PrepareContractionHierarchies prepare = new PrepareContractionHierarchies(new GHDirectory("", DAType.RAM_INT),
+                ghStorage, ghStorage.getGraph(CHGraph.class, weighting), TraversalMode.NODE_BASED);
+        prepare.doWork();
+        return prepare;
+    }
+
+    private List<Path> calcPaths(PrepareContractionHierarchies prepare, GraphHopperStorage ghStorage, int from, int to,
+                                 PMap hints) {
+        AlgorithmOptions opts = AlgorithmOptions.start().algorithm(Parameters.Algorithms.ALT_ROUTE).
+                weighting(weighting).traversalMode(TraversalMode.NODE_BASED).hints(hints).build();
+        RoutingAlgorithm algo = prepare.createAlgo(ghStorage.getGraph(CHGraph.class, weighting), opts);
+        assertTrue(algo instanceof AlternativeRouteCH);
+        return algo.calcPaths(from, to);
+    }
+
+    @Test
+    public void testCalcAlternatives() {
+        GraphHopperStorage ghStorage = createTestGraph();
+        PrepareContractionHierarchies prepare = prepare(ghStorage);
+        PMap hints = new PMap().put(Parameters.Algorithms.AltRoute.MAX_WEIGHT, 2).
+                put(Parameters.Algorithms.AltRoute.MAX_SHARE, 0.5).
+                put(Parameters.Algorithms.AltRoute.MAX_PATHS, 3);
+        List<Path> paths = calcPaths(prepare, ghStorage, 5, 4, hints);
+        // only nodes reached by both upward searches are via node candidates, so 5-6-7-8-4 is not found here
+        assertEquals(2, paths.size());
+
+        Path bestPath = new DijkstraBidirectionRef(ghStorage, weighting, TraversalMode.NODE_BASED).calcPath(5, 4);
+        assertEquals(bestPath.getWeight(), paths.get(0).getWeight(), 1e-3);
+        assertEquals(IntArrayList.from(5, 6, 3, 4), paths.get(0).calcNodes());
+        assertEquals(IntArrayList.from(5, 1, 9, 2, 3, 4), paths.get(1).calcNodes());
+        assertEquals(2416.0, paths.get(1).getWeight(), .1);
+
+        // the alternative shares too much with the best path
+        hints.put(Parameters.Algorithms.AltRoute.MAX_SHARE, 0.1);
+        assertEquals(1, calcPaths(prepare, ghStorage, 5, 4, hints).size());
+    }
+
+    @Test
+    public void testRandomGraphs() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (long seed = 0; seed < 10; seed++) {
+                GraphHopperStorage ghStorage = createRandomGraph(seed, 300);
+                PrepareContractionHierarchies prepare = prepare(ghStorage);
+                PMap hints = new PMap().put(Parameters.Algorithms.AltRoute.MAX_PATHS, 3);
+                Random rand = new Random(seed);
+                for (int i = 0; i < 20; i++) {
+                    int from = rand.nextInt(ghStorage.getNodes());
+                    int to = rand.nextInt(ghStorage.getNodes());
+                    String msg = "seed:" + seed + ", " + from + "->" + to;
+                    prepare.setAlternativeRouteExecutor(null, 1);
+                    List<Path> paths = calcPaths(prepare, ghStorage, from, to, hints);
+                    checkPaths(msg, ghStorage, paths, from, to);
+
+                    // the concurrent test of the candidates must not change the result
+                    prepare.setAlternativeRouteExecutor(executor, 3);
+                    List<Path> concurrentPaths = calcPaths(prepare, ghStorage, from, to, hints);
+                    assertEquals(msg, paths.size(), concurrentPaths.size());
+                    for (int p = 0; p < paths.size(); p++) {
+                        assertEquals(msg, paths.get(p).calcNodes(), concurrentPaths.get(p).calcNodes());
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void checkPaths(String msg, Graph graph, List<Path> paths, int from, int to) {
+        Path bestPath = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+        assertEquals(msg, bestPath.isFound(), paths.get(0).isFound());
+        if (!bestPath.isFound())
+            return;
+
+        assertEquals(msg, bestPath.getWeight(), paths.get(0).getWeight(), 1e-2);
+        assertTrue(msg, paths.size() <= 3);
+        IntHashSet bestEdges = new IntHashSet();
+        for (EdgeIteratorState edge : paths.get(0).calcEdges()) {
+            bestEdges.add(edge.getEdge());
+        }
+        for (Path alternative : paths.subList(1, paths.size())) {
+            IntIndexedContainer nodes = alternative.calcNodes();
+            assertEquals(msg, from, nodes.get(0));
+            assertEquals(msg, to, nodes.get(nodes.size() - 1));
+            assertEquals(msg + ", loop in " + nodes, nodes.size(), new IntHashSet(nodes).size());
+
+            double weight = 0, shareWeight = 0;
+            for (EdgeIteratorState edge : alternative.calcEdges()) {
+                double edgeWeight = weighting.calcWeight(edge, false, -1);
+                weight += edgeWeight;
+                if (bestEdges.contains(edge.getEdge()))
+                    shareWeight += edgeWeight;
+            }
+            assertEquals(msg, alternative.getWeight(), weight, 1e-2);
+            assertTrue(msg, weight <= 1.4 * bestPath.getWeight() + 1e-2);
+            assertTrue(msg, weight >= bestPath.getWeight() - 1e-2);
+            assertTrue(msg, shareWeight <= 0.6 * bestPath.getWeight() + 1e-2);
+        }
+    }
+}
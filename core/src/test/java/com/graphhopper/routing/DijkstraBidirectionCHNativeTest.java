@@ -0,0 +1,50 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.Parameters;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the CH tests with the native search enabled, i.e. with {@link DijkstraBidirectionCHNative} instead of
+ * {@link DijkstraBidirectionCH}.
+ */
+public class DijkstraBidirectionCHNativeTest extends DijkstraBidirectionCHTest {
+    @Override
+    public RoutingAlgorithmFactory createFactory(GraphHopperStorage ghStorage, AlgorithmOptions opts) {
+        final RoutingAlgorithmFactory chFactory = super.createFactory(ghStorage, opts);
+        return new RoutingAlgorithmFactory() {
+            @Override
+            public RoutingAlgorithm createAlgo(Graph g, AlgorithmOptions opts) {
+                opts.getHints().put(Parameters.Routing.NATIVE_SEARCH, true);
+                return chFactory.createAlgo(g, opts);
+            }
+        };
+    }
+
+    @Test
+    public void testNativeAlgoIsUsed() {
+        GraphHopperStorage ghStorage = createGHStorage(false);
+        initDirectedAndDiffSpeed(ghStorage, carEncoder);
+        assertTrue(createAlgo(ghStorage) instanceof DijkstraBidirectionCHNative);
+    }
+}
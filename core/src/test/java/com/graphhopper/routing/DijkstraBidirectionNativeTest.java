@@ -0,0 +1,72 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.GraphHopperStorage;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs the common routing tests for {@link DijkstraBidirectionNative}, which supports only node based traversal.
+ */
+public class DijkstraBidirectionNativeTest extends AbstractRoutingAlgorithmTester {
+    @Override
+    public RoutingAlgorithmFactory createFactory(GraphHopperStorage prepareGraph, AlgorithmOptions prepareOpts) {
+        return new RoutingAlgorithmFactory() {
+            @Override
+            public RoutingAlgorithm createAlgo(Graph g, AlgorithmOptions opts) {
+                return new DijkstraBidirectionNative(g, opts.getWeighting(), TraversalMode.NODE_BASED);
+            }
+        };
+    }
+
+    @Test
+    public void testCompareWithDijkstraBidirectionRef() {
+        GraphHopperStorage graph = createGHStorage(false);
+        Random rand = new Random(7);
+        int nodes = 200;
+        for (int node = 0; node < nodes; node++) {
+            updateDistancesFor(graph, node, 49 + rand.nextDouble() / 10, 11 + rand.nextDouble() / 10);
+        }
+        for (int i = 0; i < nodes * 2; i++) {
+            int from = rand.nextInt(nodes);
+            int to = rand.nextInt(nodes);
+            if (from != to)
+                graph.edge(from, to, 10 + rand.nextInt(500), rand.nextInt(4) > 0);
+        }
+
+        // the search states are reused for every query
+        Weighting weighting = defaultOpts.getWeighting();
+        for (int i = 0; i < 100; i++) {
+            int from = rand.nextInt(nodes);
+            int to = rand.nextInt(nodes);
+            Path refPath = new DijkstraBidirectionRef(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+            Path path = new DijkstraBidirectionNative(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+            String msg = from + "->" + to;
+            assertEquals(msg, refPath.isFound(), path.isFound());
+            assertEquals(msg, refPath.getWeight(), path.getWeight(), 1e-6);
+            assertEquals(msg, refPath.getDistance(), path.getDistance(), 1e-6);
+        }
+    }
+}
@@ -219,6 +219,40 @@ public class QueryGraphTest {
         assertNull(GHUtility.getEdge(queryGraph, 3, 1));
     }
 
+    @Test
+    public void testReset() {
+        initGraph(g);
+        EdgeIterator iter = g.createEdgeExplorer().setBaseNode(1);
+        iter.next();
+        QueryResult res1 = createLocationResult(2, 1.7, iter, 1, PILLAR);
+        QueryResult res2 = createLocationResult(1.5, 2, iter, 0, EDGE);
+        QueryGraph queryGraph = new QueryGraph(g);
+        queryGraph.lookup(Arrays.asList(res1, res2));
+        assertEquals(5, queryGraph.getNodes());
+
+        try {
+            queryGraph.lookup(Arrays.asList(res1));
+            fail("lookup must not be called twice without reset");
+        } catch (IllegalStateException ex) {
+        }
+
+        queryGraph.reset();
+        assertEquals(3, queryGraph.getNodes());
+        assertTrue(queryGraph.getUnfavoredVirtualEdges().isEmpty());
+
+        iter = g.createEdgeExplorer().setBaseNode(2);
+        iter.next();
+        QueryResult res3 = createLocationResult(0.5, 0.1, iter, 0, EDGE);
+        queryGraph.lookup(Arrays.asList(res3));
+        assertEquals(4, queryGraph.getNodes());
+        assertEquals(3, res3.getClosestNode());
+        assertEquals(new GHPoint(0.5, 0), res3.getSnappedPoint());
+        assertEquals(2, getPoints(queryGraph, 0, 3).getSize());
+        assertEquals(2, getPoints(queryGraph, 3, 2).getSize());
+        assertNull(GHUtility.getEdge(queryGraph, 3, 1));
+        assertEquals(GHUtility.asSet(1, 3), GHUtility.getNeighbors(queryGraph.createEdgeExplorer().setBaseNode(0)));
+    }
+
     @Test
     public void testOneWay() {
         NodeAccess na = g.getNodeAccess();
@@ -0,0 +1,160 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.Instruction;
+import com.graphhopper.util.InstructionAnnotation;
+import com.graphhopper.util.InstructionList;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RouteCacheTest {
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        RouteCache cache = new RouteCache(2, 0);
+        cache.put("1", createResponse(1));
+        cache.put("2", createResponse(2));
+        assertEquals(1, cache.get("1").getBest().getDistance(), 1e-6);
+        cache.put("3", createResponse(3));
+
+        assertEquals(2, cache.getSize());
+        assertNull(cache.get("2"));
+        assertEquals(1, cache.get("1").getBest().getDistance(), 1e-6);
+        assertEquals(3, cache.get("3").getBest().getDistance(), 1e-6);
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertNull(cache.get("1"));
+    }
+
+    @Test
+    public void testReturnCopies() {
+        RouteCache cache = new RouteCache(10, 0);
+        GHResponse rsp = createResponse(1);
+        rsp.getBest().setPoints(Helper.createPointList(1, 1, 2, 2));
+        rsp.getBest().setInstructions(new InstructionList(null));
+        rsp.getBest().getInstructions().add(new Instruction(Instruction.CONTINUE_ON_STREET, "road",
+                InstructionAnnotation.EMPTY, Helper.createPointList(1, 1, 2, 2)));
+        cache.put("1", rsp);
+        // modifying the response after it was cached does not change the entry
+        rsp.getBest().setDistance(10);
+
+        GHResponse hit1 = cache.get("1");
+        assertNotSame(rsp, hit1);
+        PathWrapper path = hit1.getBest();
+        assertEquals(1, path.getDistance(), 1e-6);
+        path.setDistance(20);
+        path.getPoints().set(0, 5, 5, Double.NaN);
+        path.getInstructions().get(0).setName("other");
+        hit1.addDebugInfo("first request");
+
+        // the next hit is not affected by the modifications of the previous one
+        GHResponse hit2 = cache.get("1");
+        assertNotSame(hit1, hit2);
+        assertEquals(1, hit2.getBest().getDistance(), 1e-6);
+        assertEquals(1, hit2.getBest().getPoints().getLat(0), 1e-6);
+        assertEquals("road", hit2.getBest().getInstructions().get(0).getName());
+        assertEquals("", hit2.getDebugInfo());
+    }
+
+    private static GHResponse createResponse(double distance) {
+        GHResponse rsp = new GHResponse();
+        rsp.add(new PathWrapper().setDistance(distance));
+        return rsp;
+    }
+
+    @Test
+    public void testExpire() {
+        final long[] time = {1000};
+        RouteCache cache = new RouteCache(10, 500) {
+            @Override
+            long getTime() {
+                return time[0];
+            }
+        };
+        cache.put("1", createResponse(1));
+        time[0] = 1499;
+        assertNotNull(cache.get("1"));
+        time[0] = 1500;
+        assertNull(cache.get("1"));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testCreateKey() {
+        EncodingManager em = new EncodingManager(new CarFlagEncoder());
+        GraphHopperStorage graph = new GraphBuilder(em).create();
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 50.000, 10.000);
+        na.setNode(1, 50.010, 10.000);
+        na.setNode(2, 50.010, 10.010);
+        graph.edge(0, 1, 1100, true);
+        graph.edge(1, 2, 700, true);
+        LocationIndex index = new LocationIndexTree(graph, new RAMDirectory()).prepareIndex();
+
+        GHRequest request = new GHRequest(49.9999, 9.9999, 50.0102, 10.0101);
+        String key = RouteCache.createKey(request, lookup(index, request), 0);
+        // different coordinates that snap to the same nodes
+        GHRequest sameSnap = new GHRequest(49.9998, 10.0, 50.0101, 10.0102);
+        assertEquals(key, RouteCache.createKey(sameSnap, lookup(index, sameSnap), 0));
+
+        // the edge flags changed
+        assertNotEquals(key, RouteCache.createKey(request, lookup(index, request), 1));
+
+        GHRequest otherSnap = new GHRequest(50.005, 10.0001, 50.0102, 10.0101);
+        assertNotEquals(key, RouteCache.createKey(otherSnap, lookup(index, otherSnap), 0));
+
+        GHRequest otherHints = new GHRequest(49.9999, 9.9999, 50.0102, 10.0101).setWeighting("shortest");
+        assertNotEquals(key, RouteCache.createKey(otherHints, lookup(index, otherHints), 0));
+
+        // the order of the hints does not matter
+        GHRequest hints1 = new GHRequest(49.9999, 9.9999, 50.0102, 10.0101);
+        hints1.getHints().put("a", 1).put("b", 2);
+        GHRequest hints2 = new GHRequest(49.9999, 9.9999, 50.0102, 10.0101);
+        hints2.getHints().put("b", 2).put("a", 1);
+        assertEquals(RouteCache.createKey(hints1, lookup(index, hints1), 0),
+                RouteCache.createKey(hints2, lookup(index, hints2), 0));
+    }
+
+    private static List<QueryResult> lookup(LocationIndex index, GHRequest request) {
+        return Arrays.asList(
+                index.findClosest(request.getPoints().get(0).lat, request.getPoints().get(0).lon, EdgeFilter.ALL_EDGES),
+                index.findClosest(request.getPoints().get(1).lat, request.getPoints().get(1).lon, EdgeFilter.ALL_EDGES));
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.util.EdgeIterator;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SearchStateTest {
+    @Test
+    public void testReset() {
+        SearchState state = new SearchState(5);
+        state.setEntry(3, 1.5, 2, 7);
+        state.getHeap().push(3, 1.5);
+        assertTrue(state.isReached(3));
+        assertFalse(state.isReached(2));
+        assertEquals(1.5, state.getWeight(3), 1e-6);
+        assertEquals(2, state.getParentNode(3));
+        assertEquals(7, state.getParentEdge(3));
+
+        state.reset();
+        assertFalse(state.isReached(3));
+        assertEquals(Double.MAX_VALUE, state.getWeight(3), 1e-6);
+        assertEquals(EdgeIterator.NO_EDGE, state.getParentEdge(3));
+        assertTrue(state.getHeap().isEmpty());
+    }
+
+    @Test
+    public void testAcquireGrows() {
+        SearchStatePool pool = new SearchStatePool(2);
+        SearchState state = pool.acquire(5);
+        state.setEntry(4, 1, -1, EdgeIterator.NO_EDGE);
+        pool.release(state);
+
+        SearchState other = pool.acquire(20);
+        assertSame(state, other);
+        other.setEntry(19, 2, 4, 3);
+        other.getHeap().push(19, 2);
+        assertTrue(other.isReached(19));
+        assertFalse(other.isReached(4));
+        pool.release(other);
+    }
+
+    @Test
+    public void testPoolIsBounded() {
+        SearchStatePool pool = new SearchStatePool(1);
+        SearchState first = pool.acquire(5);
+        SearchState second = pool.acquire(5);
+        pool.release(first);
+        pool.release(second);
+        assertEquals(1, pool.getSize());
+
+        pool.clear();
+        assertEquals(0, pool.getSize());
+        assertNotSame(first, pool.acquire(5));
+    }
+}
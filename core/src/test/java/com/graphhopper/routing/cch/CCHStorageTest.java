@@ -0,0 +1,116 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.cch;
+
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.Helper;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class CCHStorageTest {
+    private final EncodingManager encodingManager = new EncodingManager(new CarFlagEncoder());
+
+    private GraphHopperStorage createGraph() {
+        // 0-1
+        // | |
+        // 3-2
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        graph.edge(0, 1, 100, true);
+        graph.edge(1, 2, 100, true);
+        // the access flags do not matter
+        graph.edge(2, 3, 100, false);
+        graph.edge(3, 0, 100, true);
+        return graph;
+    }
+
+    @Test
+    public void testContract() {
+        GraphHopperStorage graph = createGraph();
+        CCHStorage storage = new CCHStorage(graph, graph.getDirectory()).create(100);
+        storage.contract(new int[]{3, 0, 1, 2});
+        assertEquals(4, storage.getNodes());
+        assertEquals(0, storage.getRank(3));
+        assertEquals(3, storage.getRank(2));
+        assertEquals(1, storage.getNode(2));
+
+        // contracting 3 connects 0 and 2, contracting 0 connects 1 and 2 which exists already
+        assertEquals(5, storage.getArcs());
+        assertArcs(storage, 0, 1, 3);
+        assertArcs(storage, 1, 2, 3);
+        assertArcs(storage, 2, 3);
+        assertArcs(storage, 3);
+        assertEquals(-1, storage.findArc(0, 2));
+        assertEquals(storage.getFirstArc(1) + 1, storage.findArc(1, 3));
+
+        try {
+            new CCHStorage(graph, graph.getDirectory()).create(100).contract(new int[]{3, 0, 0, 2});
+            fail("order is not a permutation");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    private static void assertArcs(CCHStorage storage, int rank, int... expectedUpper) {
+        int first = storage.getFirstArc(rank);
+        assertEquals(expectedUpper.length, storage.getFirstArc(rank + 1) - first);
+        for (int i = 0; i < expectedUpper.length; i++) {
+            assertEquals(expectedUpper[i], storage.getUpper(first + i));
+        }
+    }
+
+    @Test
+    public void testStoreAndLoad() {
+        String location = "./target/tmp/cch";
+        Helper.removeDir(new File(location));
+        GraphHopperStorage graph = createGraph();
+        GHDirectory dir = new GHDirectory(location, DAType.RAM_STORE);
+        dir.create();
+        CCHStorage storage = new CCHStorage(graph, dir);
+        assertFalse(storage.loadExisting());
+        storage.create(100);
+        storage.contract(new NestedDissection(graph).calcOrder());
+        int arcs = storage.getArcs();
+        storage.flush();
+        storage.close();
+
+        storage = new CCHStorage(graph, new GHDirectory(location, DAType.RAM_STORE));
+        assertTrue(storage.loadExisting());
+        assertEquals(4, storage.getNodes());
+        assertEquals(arcs, storage.getArcs());
+        for (int node = 0; node < 4; node++) {
+            assertEquals(node, storage.getNode(storage.getRank(node)));
+        }
+        storage.close();
+
+        graph.edge(1, 3, 100, true);
+        storage = new CCHStorage(graph, new GHDirectory(location, DAType.RAM_STORE));
+        try {
+            storage.loadExisting();
+            fail("graph has changed");
+        } catch (IllegalArgumentException ex) {
+        }
+        Helper.removeDir(new File(location));
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.cch;
+
+import com.graphhopper.coll.GHIntLongHashMap;
+import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.DijkstraBidirectionRef;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.QueryGraph;
+import com.graphhopper.routing.RoutingAlgorithmFactory;
+import com.graphhopper.routing.RoutingAlgorithmFactorySimple;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.HintsMap;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.ShortestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.DistanceCalc;
+import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.Parameters;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class DijkstraBidirectionCCHTest {
+    private final CarFlagEncoder carEncoder = new CarFlagEncoder();
+    private final EncodingManager encodingManager = new EncodingManager(carEncoder);
+    private final Weighting weighting = new FastestWeighting(carEncoder);
+    private final DistanceCalc distCalc = new DistanceCalcEarth();
+
+    private GraphHopperStorage createRandomGraph(long seed, int nodes) {
+        GraphHopperStorage ghStorage = new GraphBuilder(encodingManager).create();
+        Random rand = new Random(seed);
+        NodeAccess na = ghStorage.getNodeAccess();
+        for (int node = 0; node < nodes; node++) {
+            na.setNode(node, 49 + rand.nextDouble() / 10, 11 + rand.nextDouble() / 10);
+        }
+        for (int i = 0; i < nodes * 2; i++) {
+            int from = rand.nextInt(nodes);
+            int to = rand.nextInt(nodes);
+            // the distance has to fit to the coordinates as the CCH can use an edge of the graph instead of the
+            // virtual edges of a query point
+            double distance = distCalc.calcDist(na.getLat(from), na.getLon(from), na.getLat(to), na.getLon(to));
+            EdgeIteratorState edge = ghStorage.edge(from, to, Math.max(1, distance), rand.nextInt(4) > 0);
+            edge.setFlags(carEncoder.setProperties(10 + 10 * rand.nextInt(10), true, edge.isBackward(carEncoder)));
+        }
+        return ghStorage;
+    }
+
+    private CCHStorage prepare(GraphHopperStorage ghStorage) {
+        CCHStorage storage = new CCHStorage(ghStorage, ghStorage.getDirectory()).create(100);
+        storage.contract(new NestedDissection(ghStorage).calcOrder());
+        return storage;
+    }
+
+    private void compareWithDijkstra(Graph graph, Weighting weighting, CCHMetric metric, int from, int to) {
+        Path expected = new DijkstraBidirectionRef(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+        Path path = new DijkstraBidirectionCCH(graph, weighting, metric).calcPath(from, to);
+        String msg = from + "->" + to;
+        assertEquals(msg, expected.isFound(), path.isFound());
+        if (!expected.isFound())
+            return;
+
+        assertEquals(msg, expected.getWeight(), path.getWeight(), 1e-3);
+        // for shortest parallel edges with different speeds lead to different times
+        if (weighting instanceof FastestWeighting)
+            assertEquals(msg, expected.getTime(), path.getTime(), 10);
+        assertEquals(msg, from, path.calcNodes().get(0));
+        assertEquals(msg, to, path.calcNodes().get(path.calcNodes().size() - 1));
+    }
+
+    @Test
+    public void testCompareWithDijkstra() {
+        GraphHopperStorage ghStorage = createRandomGraph(42, 300);
+        CCHCustomizer customizer = new CCHCustomizer(prepare(ghStorage), ghStorage);
+        Weighting shortest = new ShortestWeighting(carEncoder);
+        CCHMetric fastestMetric = customizer.customize(weighting, null);
+        CCHMetric shortestMetric = customizer.customize(shortest, null);
+        Random rand = new Random(1);
+        for (int i = 0; i < 300; i++) {
+            int from = rand.nextInt(300);
+            int to = rand.nextInt(300);
+            compareWithDijkstra(ghStorage, weighting, fastestMetric, from, to);
+            compareWithDijkstra(ghStorage, shortest, shortestMetric, from, to);
+        }
+    }
+
+    @Test
+    public void testParallelCustomization() {
+        GraphHopperStorage ghStorage = createRandomGraph(3, 3000);
+        CCHStorage storage = prepare(ghStorage);
+        CCHCustomizer customizer = new CCHCustomizer(storage, ghStorage);
+        CCHMetric metric = customizer.customize(weighting, null);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            CCHMetric parallelMetric = customizer.customize(weighting, pool);
+            for (int arc = 0; arc < storage.getArcs(); arc++) {
+                assertEquals(metric.getWeight(arc, true), parallelMetric.getWeight(arc, true), 0);
+                assertEquals(metric.getWeight(arc, false), parallelMetric.getWeight(arc, false), 0);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testVirtualNodes() {
+        GraphHopperStorage ghStorage = createRandomGraph(7, 100);
+        CCHMetric metric = new CCHCustomizer(prepare(ghStorage), ghStorage).customize(weighting, null);
+        // two query points on the same edge are connected directly
+        QueryGraph queryGraph = new QueryGraph(ghStorage);
+        queryGraph.lookup(Arrays.asList(createQueryResult(ghStorage, 3, 0.2), createQueryResult(ghStorage, 3, 0.7),
+                createQueryResult(ghStorage, 11, 0.5)));
+        int nodes = ghStorage.getNodes();
+        for (int from : new int[]{nodes, nodes + 1, nodes + 2, 5}) {
+            for (int to = 0; to < queryGraph.getNodes(); to++) {
+                compareWithDijkstra(queryGraph, weighting, metric, from, to);
+            }
+        }
+    }
+
+    @Test
+    public void testCustomizeAfterChange() {
+        GraphHopperStorage ghStorage = createRandomGraph(11, 200);
+        CCHCustomizer customizer = new CCHCustomizer(prepare(ghStorage), ghStorage);
+        CCHMetric metric = customizer.customize(weighting, null);
+        Path path = new DijkstraBidirectionCCH(ghStorage, weighting, metric).calcPath(0, 150);
+        assertTrue(path.isFound());
+
+        // block the edges of the path and make them slower in the other direction
+        GHIntLongHashMap changes = new GHIntLongHashMap();
+        for (EdgeIteratorState edge : path.calcEdges()) {
+            changes.put(edge.getEdge(), carEncoder.setProperties(5, false, false));
+        }
+        ghStorage.changeEdgeFlags(changes);
+        assertNotEquals(metric.getEdgeFlagsVersion(), ghStorage.getEdgeFlagsVersion());
+
+        CCHMetric newMetric = customizer.customize(weighting, null);
+        assertEquals(ghStorage.getEdgeFlagsVersion(), newMetric.getEdgeFlagsVersion());
+        for (int to = 0; to < 200; to++) {
+            compareWithDijkstra(ghStorage, weighting, newMetric, 0, to);
+            compareWithDijkstra(ghStorage, weighting, newMetric, to, 0);
+        }
+    }
+
+    @Test
+    public void testDecoratorUsesOnlyCurrentMetrics() {
+        GraphHopperStorage ghStorage = createRandomGraph(5, 100);
+        CCHAlgoFactoryDecorator decorator = new CCHAlgoFactoryDecorator().setEnabled(true).addWeighting(weighting);
+        assertTrue(decorator.loadOrPrepare(ghStorage));
+        RoutingAlgorithmFactory defaultFactory = new RoutingAlgorithmFactorySimple();
+        HintsMap hints = new HintsMap("fastest").setVehicle("car");
+        assertTrue(decorator.getDecoratedAlgorithmFactory(defaultFactory, hints) instanceof CCHAlgoFactoryDecorator.CCHAlgoFactory);
+        assertSame(defaultFactory, decorator.getDecoratedAlgorithmFactory(defaultFactory, new HintsMap("shortest").setVehicle("car")));
+        assertSame(defaultFactory, decorator.getDecoratedAlgorithmFactory(defaultFactory, new HintsMap(hints).put(Parameters.CCH.DISABLE, true)));
+
+        GHIntLongHashMap changes = new GHIntLongHashMap();
+        changes.put(0, carEncoder.setProperties(5, true, true));
+        ghStorage.changeEdgeFlags(changes);
+        assertSame(defaultFactory, decorator.getDecoratedAlgorithmFactory(defaultFactory, hints));
+
+        decorator.customize();
+        RoutingAlgorithmFactory factory = decorator.getDecoratedAlgorithmFactory(defaultFactory, hints);
+        assertTrue(factory instanceof CCHAlgoFactoryDecorator.CCHAlgoFactory);
+        AlgorithmOptions opts = AlgorithmOptions.start().algorithm(Parameters.Algorithms.DIJKSTRA_BI).weighting(weighting).build();
+        assertTrue(factory.createAlgo(ghStorage, opts) instanceof DijkstraBidirectionCCH);
+        opts = AlgorithmOptions.start(opts).algorithm(Parameters.Algorithms.DIJKSTRA).build();
+        assertFalse(factory.createAlgo(ghStorage, opts) instanceof DijkstraBidirectionCCH);
+        decorator.close();
+    }
+
+    @Test
+    public void testWrongWeighting() {
+        GraphHopperStorage ghStorage = createRandomGraph(7, 20);
+        CCHMetric metric = new CCHCustomizer(prepare(ghStorage), ghStorage).customize(weighting, null);
+        try {
+            new DijkstraBidirectionCCH(ghStorage, new ShortestWeighting(carEncoder), metric);
+            fail("weighting differs");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    private QueryResult createQueryResult(GraphHopperStorage ghStorage, int edgeId, double factor) {
+        EdgeIteratorState edge = ghStorage.getEdgeIteratorState(edgeId, Integer.MIN_VALUE);
+        NodeAccess na = ghStorage.getNodeAccess();
+        double lat = na.getLat(edge.getBaseNode()) + (na.getLat(edge.getAdjNode()) - na.getLat(edge.getBaseNode())) * factor;
+        double lon = na.getLon(edge.getBaseNode()) + (na.getLon(edge.getAdjNode()) - na.getLon(edge.getBaseNode())) * factor;
+        QueryResult qr = new QueryResult(lat, lon);
+        qr.setClosestEdge(edge);
+        qr.setWayIndex(0);
+        qr.setSnappedPosition(QueryResult.Position.EDGE);
+        qr.calcSnappedPoint(distCalc);
+        return qr;
+    }
+}
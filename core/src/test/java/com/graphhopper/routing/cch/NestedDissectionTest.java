@@ -0,0 +1,76 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.cch;
+
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class NestedDissectionTest {
+    private final EncodingManager encodingManager = new EncodingManager(new CarFlagEncoder());
+
+    @Test
+    public void testLine() {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        NodeAccess na = graph.getNodeAccess();
+        for (int node = 0; node < 7; node++) {
+            na.setNode(node, 49, 11 + node * 0.01);
+            if (node > 0)
+                graph.edge(node - 1, node, 1000, true);
+        }
+        int[] order = new NestedDissection(graph).calcOrder();
+        // the first split separates 0-2 and 3-6 via node 2, then 3-6 is separated via node 4
+        assertEquals(2, order[6]);
+        assertEquals(4, order[5]);
+        assertPermutation(order);
+    }
+
+    @Test
+    public void testRandomGraph() {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        Random rand = new Random(12);
+        NodeAccess na = graph.getNodeAccess();
+        for (int node = 0; node < 500; node++) {
+            na.setNode(node, 49 + rand.nextDouble() / 10, 11 + rand.nextDouble() / 10);
+        }
+        for (int i = 0; i < 1000; i++) {
+            graph.edge(rand.nextInt(500), rand.nextInt(500), 100, true);
+        }
+        assertPermutation(new NestedDissection(graph).calcOrder());
+        assertPermutation(new NestedDissection(graph).setLeafSize(20).calcOrder());
+    }
+
+    private static void assertPermutation(int[] order) {
+        int[] sorted = order.clone();
+        Arrays.sort(sorted);
+        int[] expected = new int[order.length];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = i;
+        }
+        assertArrayEquals(expected, sorted);
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.*;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.DefaultEdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.TurnWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.*;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.util.GHUtility.getEdge;
+import static com.graphhopper.util.Parameters.Algorithms.DIJKSTRA_BI;
+import static org.junit.Assert.*;
+
+public class EdgeBasedNodeContractorTest {
+    private final CarFlagEncoder encoder = new CarFlagEncoder(5, 5, 127);
+    private final EncodingManager encodingManager = new EncodingManager(encoder);
+    private final TurnCostExtension turnCostExtension = new TurnCostExtension();
+    private final TurnWeighting weighting = new TurnWeighting(new FastestWeighting(encoder), turnCostExtension);
+    private final GraphHopperStorage graph = new GraphHopperStorage(Collections.<Weighting>singletonList(weighting),
+            new RAMDirectory(), encodingManager, false, turnCostExtension).create(1000);
+    private final CHGraph chGraph = graph.getGraph(CHGraph.class, weighting);
+
+    private PrepareContractionHierarchies prepare() {
+        PrepareContractionHierarchies pch = new PrepareContractionHierarchies(new GHDirectory("", DAType.RAM_INT),
+                graph, chGraph, TraversalMode.EDGE_BASED_2DIR);
+        pch.doWork();
+        return pch;
+    }
+
+    private void restrictTurn(int fromEdge, int viaNode, int toEdge) {
+        turnCostExtension.addTurnInfo(fromEdge, viaNode, toEdge, encoder.getTurnFlags(true, 0));
+    }
+
+    @Test
+    public void testShortcutStoresFirstAndLastOriginalEdge() {
+        // 0-1-2 with a turn restriction from 0-1 to 1-2
+        EdgeIteratorState edge01 = graph.edge(0, 1, 100, true);
+        EdgeIteratorState edge12 = graph.edge(1, 2, 100, true);
+        restrictTurn(edge01.getEdge(), 1, edge12.getEdge());
+        graph.freeze();
+        for (int node = 0; node < 3; node++) {
+            chGraph.setLevel(node, chGraph.getNodes());
+        }
+
+        EdgeBasedNodeContractor contractor = new EdgeBasedNodeContractor(new GHDirectory("", DAType.RAM_INT),
+                graph, chGraph, weighting, new PMap());
+        contractor.initFromGraph();
+        contractor.prepareContraction();
+        contractor.contractNode(1);
+        assertEquals(1, contractor.getAddedShortcutsCount());
+
+        CHEdgeIteratorState shortcut = null;
+        CHEdgeIterator iter = chGraph.createEdgeExplorer().setBaseNode(2);
+        while (iter.next()) {
+            if (iter.isShortcut()) {
+                shortcut = iter;
+                break;
+            }
+        }
+        assertNotNull(shortcut);
+        assertEquals(0, shortcut.getAdjNode());
+        assertTrue(shortcut.isForward(encoder));
+        assertFalse(shortcut.isBackward(encoder));
+        assertEquals(edge12.getEdge(), shortcut.getOrigEdgeFirst());
+        assertEquals(edge01.getEdge(), shortcut.getOrigEdgeLast());
+        assertEquals(200, shortcut.getDistance(), 1e-6);
+        contractor.close();
+    }
+
+    @Test
+    public void testTurnRestrictions() {
+        // 0---1
+        // |   /
+        // 2--3--4
+        // |  |  |
+        // 5--6--7
+        graph.edge(0, 1, 3, true);
+        graph.edge(0, 2, 1, true);
+        graph.edge(1, 3, 1, true);
+        graph.edge(2, 3, 1, true);
+        graph.edge(3, 4, 1, true);
+        graph.edge(2, 5, .5, true);
+        graph.edge(3, 6, 1, true);
+        graph.edge(4, 7, 1, true);
+        graph.edge(5, 6, 1, true);
+        graph.edge(6, 7, 1, true);
+        // no left turn from 2-3 to 3-1, no u-turn at 6 and no turn from 5-6 to 6-3
+        restrictTurn(getEdge(graph, 2, 3).getEdge(), 3, getEdge(graph, 3, 1).getEdge());
+        restrictTurn(getEdge(graph, 3, 6).getEdge(), 6, getEdge(graph, 6, 3).getEdge());
+        restrictTurn(getEdge(graph, 5, 6).getEdge(), 6, getEdge(graph, 6, 3).getEdge());
+        restrictTurn(getEdge(graph, 4, 3).getEdge(), 3, getEdge(graph, 3, 2).getEdge());
+        turnCostExtension.addTurnInfo(getEdge(graph, 2, 3).getEdge(), 3, getEdge(graph, 3, 4).getEdge(), encoder.getTurnFlags(false, 3));
+        PrepareContractionHierarchies pch = prepare();
+
+        Path path = calcCHPath(pch, chGraph, weighting, 2, 1);
+        assertTrue(path.isFound());
+        assertEquals(IntArrayList.from(2, 0, 1), path.calcNodes());
+        compareWithDijkstra(pch);
+    }
+
+    @Test
+    public void testRandomGraphs() {
+        for (long seed = 0; seed < 10; seed++) {
+            Random rnd = new Random(seed);
+            GraphHopperStorage g = createStorage();
+            buildRandomGraph(g, rnd, 50, true);
+            PrepareContractionHierarchies pch = new PrepareContractionHierarchies(new GHDirectory("", DAType.RAM_INT),
+                    g, g.getGraph(CHGraph.class), TraversalMode.EDGE_BASED_2DIR);
+            pch.doWork();
+            compareWithDijkstra(g, pch, rnd, 200);
+        }
+    }
+
+    @Test
+    public void testRandomGraphsWithVirtualNodes() {
+        for (long seed = 0; seed < 5; seed++) {
+            Random rnd = new Random(seed);
+            GraphHopperStorage g = createStorage();
+            buildRandomGraph(g, rnd, 50, false);
+            PrepareContractionHierarchies pch = new PrepareContractionHierarchies(new GHDirectory("", DAType.RAM_INT),
+                    g, g.getGraph(CHGraph.class), TraversalMode.EDGE_BASED_2DIR);
+            pch.doWork();
+
+            AllEdgesIterator edges = g.getAllEdges();
+            for (int i = 0; i < 50; i++) {
+                int[] edgeIds = {rnd.nextInt(edges.length()), rnd.nextInt(edges.length())};
+                if (edgeIds[0] == edgeIds[1])
+                    continue;
+
+                // separate query results for both query graphs as the lookup changes them
+                QueryGraph baseQueryGraph = new QueryGraph(g);
+                baseQueryGraph.lookup(createQueryResults(g, edgeIds));
+                QueryGraph chQueryGraph = new QueryGraph(g.getGraph(CHGraph.class));
+                chQueryGraph.lookup(createQueryResults(g, edgeIds));
+                int from = baseQueryGraph.getNodes() - 2;
+                int to = baseQueryGraph.getNodes() - 1;
+                TurnWeighting baseWeighting = createWeighting(baseQueryGraph);
+                Path expected = new Dijkstra(baseQueryGraph, baseWeighting, TraversalMode.EDGE_BASED_2DIR).calcPath(from, to);
+                TurnWeighting chWeighting = createWeighting(chQueryGraph);
+                Path path = calcCHPath(pch, chQueryGraph, chWeighting, from, to);
+                assertPathsEqual(expected, path, chWeighting, "seed: " + seed + ", edges: " + edgeIds[0] + ", " + edgeIds[1]);
+            }
+        }
+    }
+
+    @Test
+    public void testUnsupported() {
+        graph.edge(0, 1, 100, true);
+        try {
+            new PrepareContractionHierarchies(new GHDirectory("", DAType.RAM_INT), graph, chGraph, TraversalMode.NODE_BASED);
+            fail("node-based traversal of an edge-based CHGraph should not be possible");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            new PrepareContractionHierarchies(new GHDirectory("", DAType.RAM_INT), graph, chGraph, TraversalMode.EDGE_BASED_1DIR);
+            fail("only EDGE_BASED_2DIR should be supported");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+
+        PrepareContractionHierarchies pch = prepare();
+        assertTrue(pch.isEdgeBased());
+        try {
+            pch.createManyToMany(chGraph);
+            fail("many-to-many should not be supported");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        try {
+            pch.createAlgo(chGraph, AlgorithmOptions.start().algorithm(Parameters.Algorithms.ASTAR_BI).weighting(weighting).
+                    traversalMode(TraversalMode.EDGE_BASED_2DIR).build());
+            fail("only dijkstrabi should be supported");
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    private GraphHopperStorage createStorage() {
+        TurnCostExtension tcExt = new TurnCostExtension();
+        TurnWeighting tmpWeighting = new TurnWeighting(new FastestWeighting(encoder), tcExt);
+        return new GraphHopperStorage(Collections.<Weighting>singletonList(tmpWeighting), new RAMDirectory(),
+                encodingManager, false, tcExt).create(1000);
+    }
+
+    private TurnWeighting createWeighting(Graph g) {
+        return new TurnWeighting(new FastestWeighting(encoder), (TurnCostExtension) g.getExtension());
+    }
+
+    /**
+     * Creates a graph with one-way roads, parallel edges and optionally loops as well as random turn costs and turn
+     * restrictions.
+     */
+    private void buildRandomGraph(GraphHopperStorage g, Random rnd, int nodes, boolean withLoops) {
+        NodeAccess na = g.getNodeAccess();
+        for (int i = 0; i < nodes; i++) {
+            na.setNode(i, 49 + rnd.nextDouble() * 0.05, 11 + rnd.nextDouble() * 0.05);
+        }
+        DistanceCalc distCalc = new DistanceCalcEarth();
+        for (int i = 0; i < 2 * nodes; i++) {
+            int a = rnd.nextInt(nodes);
+            int b = withLoops && rnd.nextInt(30) == 0 ? a : rnd.nextInt(nodes);
+            if (a == b && !withLoops)
+                continue;
+
+            double dist = a == b ? 50 + rnd.nextInt(200) : distCalc.calcDist(na.getLat(a), na.getLon(a), na.getLat(b), na.getLon(b));
+            EdgeIteratorState edge = g.edge(a, b, Math.max(1, dist), a == b || rnd.nextInt(5) > 0);
+            edge.setFlags(encoder.setSpeed(edge.getFlags(), 10 + 10 * rnd.nextInt(10)));
+        }
+
+        TurnCostExtension tcExt = (TurnCostExtension) g.getExtension();
+        EdgeExplorer inExplorer = g.createEdgeExplorer(DefaultEdgeFilter.inEdges(encoder));
+        EdgeExplorer outExplorer = g.createEdgeExplorer(DefaultEdgeFilter.outEdges(encoder));
+        for (int node = 0; node < nodes; node++) {
+            EdgeIterator inIter = inExplorer.setBaseNode(node);
+            while (inIter.next()) {
+                EdgeIterator outIter = outExplorer.setBaseNode(node);
+                while (outIter.next()) {
+                    int r = rnd.nextInt(10);
+                    if (inIter.getEdge() == outIter.getEdge() || r > 2)
+                        continue;
+
+                    tcExt.addTurnInfo(inIter.getEdge(), node, outIter.getEdge(), r == 0
+                            ? encoder.getTurnFlags(true, 0) : encoder.getTurnFlags(false, 1 + rnd.nextInt(100)));
+                }
+            }
+        }
+    }
+
+    private List<QueryResult> createQueryResults(Graph g, int[] edgeIds) {
+        List<QueryResult> result = new ArrayList<>();
+        for (int edgeId : edgeIds) {
+            EdgeIteratorState edge = g.getEdgeIteratorState(edgeId, Integer.MIN_VALUE);
+            NodeAccess na = g.getNodeAccess();
+            double lat = (na.getLat(edge.getBaseNode()) + na.getLat(edge.getAdjNode())) / 2;
+            double lon = (na.getLon(edge.getBaseNode()) + na.getLon(edge.getAdjNode())) / 2;
+            QueryResult qr = new QueryResult(lat, lon);
+            qr.setClosestEdge(edge);
+            qr.setWayIndex(0);
+            qr.setSnappedPosition(QueryResult.Position.EDGE);
+            qr.calcSnappedPoint(new DistanceCalcEarth());
+            result.add(qr);
+        }
+        return result;
+    }
+
+    private Path calcCHPath(PrepareContractionHierarchies pch, Graph g, TurnWeighting turnWeighting, int from, int to) {
+        RoutingAlgorithm algo = pch.createAlgo(g, AlgorithmOptions.start().algorithm(DIJKSTRA_BI).
+                weighting(turnWeighting).traversalMode(TraversalMode.EDGE_BASED_2DIR).build());
+        return algo.calcPath(from, to);
+    }
+
+    private void compareWithDijkstra(PrepareContractionHierarchies pch) {
+        for (int from = 0; from < graph.getNodes(); from++) {
+            for (int to = 0; to < graph.getNodes(); to++) {
+                if (from == to)
+                    continue;
+
+                Path expected = new Dijkstra(graph, weighting, TraversalMode.EDGE_BASED_2DIR).calcPath(from, to);
+                assertPathsEqual(expected, calcCHPath(pch, chGraph, weighting, from, to), weighting, from + "->" + to);
+            }
+        }
+    }
+
+    private void compareWithDijkstra(GraphHopperStorage g, PrepareContractionHierarchies pch, Random rnd, int queries) {
+        CHGraph lg = g.getGraph(CHGraph.class);
+        TurnWeighting turnWeighting = (TurnWeighting) ((CHGraphImpl) lg).getWeighting();
+        for (int i = 0; i < queries; i++) {
+            int from = rnd.nextInt(g.getNodes());
+            int to = rnd.nextInt(g.getNodes());
+            if (from == to)
+                continue;
+
+            Path expected = new Dijkstra(g, turnWeighting, TraversalMode.EDGE_BASED_2DIR).calcPath(from, to);
+            assertPathsEqual(expected, calcCHPath(pch, lg, turnWeighting, from, to), turnWeighting, from + "->" + to);
+        }
+    }
+
+    /**
+     * @param turnWeighting the weighting for the graph of the path, which can differ from the one of the expected path
+     */
+    private void assertPathsEqual(Path expected, Path path, Weighting turnWeighting, String msg) {
+        assertEquals(msg, expected.isFound(), path.isFound());
+        if (!expected.isFound())
+            return;
+
+        // the weight of the shortcuts is stored with a limited precision
+        assertEquals(msg, expected.getWeight(), path.getWeight(), 1e-2);
+        // the unpacked path has to be valid and as expensive as the calculated weight
+        double weight = 0;
+        int prevEdge = EdgeIterator.NO_EDGE;
+        for (EdgeIteratorState edge : path.calcEdges()) {
+            weight += turnWeighting.calcWeight(edge, false, prevEdge);
+            prevEdge = edge.getEdge();
+        }
+        assertEquals(msg, path.getWeight(), weight, 1e-2);
+        assertEquals(msg, expected.calcNodes().get(0), path.calcNodes().get(0));
+    }
+}
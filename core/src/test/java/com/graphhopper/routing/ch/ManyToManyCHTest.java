@@ -0,0 +1,130 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.QueryGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.EdgeIteratorState;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ManyToManyCHTest {
+    private final CarFlagEncoder carEncoder = new CarFlagEncoder();
+    private final EncodingManager encodingManager = new EncodingManager(carEncoder);
+    private final Weighting weighting = new FastestWeighting(carEncoder);
+
+    private GraphHopperStorage createRandomGraph(long seed, int nodes) {
+        GraphHopperStorage ghStorage = new GraphBuilder(encodingManager).setCHGraph(weighting).create();
+        Random rand = new Random(seed);
+        NodeAccess na = ghStorage.getNodeAccess();
+        for (int node = 0; node < nodes; node++) {
+            na.setNode(node, 49 + rand.nextDouble() / 10, 11 + rand.nextDouble() / 10);
+        }
+        for (int i = 0; i < nodes * 2; i++) {
+            int from = rand.nextInt(nodes);
+            int to = rand.nextInt(nodes);
+            if (from == to)
+                continue;
+
+            EdgeIteratorState edge = ghStorage.edge(from, to, 10 + rand.nextInt(500), rand.nextInt(4) > 0);
+            edge.setFlags(carEncoder.setProperties(10 + 10 * rand.nextInt(10), true, edge.isBackward(carEncoder)));
+        }
+        return ghStorage;
+    }
+
+    private PrepareContractionHierarchies prepare(GraphHopperStorage ghStorage) {
+        PrepareContractionHierarchies prepare = new PrepareContractionHierarchies(new GHDirectory("", DAType.RAM_INT),
+                ghStorage, ghStorage.getGraph(CHGraph.class, weighting), TraversalMode.NODE_BASED);
+        prepare.doWork();
+        return prepare;
+    }
+
+    @Test
+    public void testCompareWithDijkstra() {
+        for (boolean stallOnDemand : Arrays.asList(true, false)) {
+            GraphHopperStorage ghStorage = createRandomGraph(42, 300);
+            PrepareContractionHierarchies prepare = prepare(ghStorage);
+            int[] fromNodes = {0, 3, 17, 120, 299, 3};
+            int[] toNodes = {5, 3, 250, 120, 42, 77, 199};
+            ManyToManyCH.Result result = prepare.createManyToMany(ghStorage.getGraph(CHGraph.class, weighting)).
+                    setStallOnDemand(stallOnDemand).calcMatrix(fromNodes, toNodes);
+            for (int i = 0; i < fromNodes.length; i++) {
+                for (int j = 0; j < toNodes.length; j++) {
+                    Path path = new Dijkstra(ghStorage, weighting, TraversalMode.NODE_BASED).calcPath(fromNodes[i], toNodes[j]);
+                    String msg = fromNodes[i] + "->" + toNodes[j];
+                    assertEquals(msg, path.isFound(), result.isFound(i, j));
+                    if (!path.isFound())
+                        continue;
+
+                    assertEquals(msg, path.getWeight(), result.getWeight(i, j), 1e-2);
+                    assertEquals(msg, path.getDistance(), result.getDistance(i, j), 1e-2);
+                    assertEquals(msg, path.getTime(), result.getTime(i, j), 5);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testVirtualNodes() {
+        GraphHopperStorage ghStorage = createRandomGraph(7, 100);
+        PrepareContractionHierarchies prepare = prepare(ghStorage);
+        CHGraph chGraph = ghStorage.getGraph(CHGraph.class, weighting);
+
+        // snap the points to the middle of the edges
+        QueryResult from = createQueryResult(ghStorage, 3);
+        QueryResult to = createQueryResult(ghStorage, 11);
+        QueryGraph queryGraph = new QueryGraph(chGraph);
+        queryGraph.lookup(from, to);
+        ManyToManyCH.Result result = prepare.createManyToMany(queryGraph).
+                calcMatrix(new int[]{from.getClosestNode(), to.getClosestNode()}, new int[]{to.getClosestNode()});
+
+        QueryGraph baseQueryGraph = new QueryGraph(ghStorage);
+        baseQueryGraph.lookup(createQueryResult(ghStorage, 3), createQueryResult(ghStorage, 11));
+        Path path = new Dijkstra(baseQueryGraph, weighting, TraversalMode.NODE_BASED).calcPath(from.getClosestNode(), to.getClosestNode());
+        assertEquals(path.isFound(), result.isFound(0, 0));
+        assertEquals(path.getWeight(), result.getWeight(0, 0), 1e-2);
+        assertEquals(path.getDistance(), result.getDistance(0, 0), 1e-2);
+        assertEquals(0, result.getWeight(1, 0), 1e-6);
+    }
+
+    private QueryResult createQueryResult(GraphHopperStorage ghStorage, int edgeId) {
+        EdgeIteratorState edge = ghStorage.getEdgeIteratorState(edgeId, Integer.MIN_VALUE);
+        NodeAccess na = ghStorage.getNodeAccess();
+        double lat = (na.getLat(edge.getBaseNode()) + na.getLat(edge.getAdjNode())) / 2;
+        double lon = (na.getLon(edge.getBaseNode()) + na.getLon(edge.getAdjNode())) / 2;
+        QueryResult qr = new QueryResult(lat, lon);
+        qr.setClosestEdge(edge);
+        qr.setWayIndex(0);
+        qr.setSnappedPosition(QueryResult.Position.EDGE);
+        qr.calcSnappedPoint(new DistanceCalcEarth());
+        return qr;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.QueryGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.EdgeIteratorState;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class OneToAllCHTest {
+    private final CarFlagEncoder carEncoder = new CarFlagEncoder();
+    private final EncodingManager encodingManager = new EncodingManager(carEncoder);
+    private final Weighting weighting = new FastestWeighting(carEncoder);
+
+    private GraphHopperStorage createRandomGraph(long seed, int nodes) {
+        GraphHopperStorage ghStorage = new GraphBuilder(encodingManager).setCHGraph(weighting).create();
+        Random rand = new Random(seed);
+        NodeAccess na = ghStorage.getNodeAccess();
+        for (int node = 0; node < nodes; node++) {
+            na.setNode(node, 49 + rand.nextDouble() / 10, 11 + rand.nextDouble() / 10);
+        }
+        for (int i = 0; i < nodes * 2; i++) {
+            int from = rand.nextInt(nodes);
+            int to = rand.nextInt(nodes);
+            if (from == to)
+                continue;
+
+            EdgeIteratorState edge = ghStorage.edge(from, to, 10 + rand.nextInt(500), rand.nextInt(4) > 0);
+            edge.setFlags(carEncoder.setProperties(10 + 10 * rand.nextInt(10), true, edge.isBackward(carEncoder)));
+        }
+        return ghStorage;
+    }
+
+    private PrepareContractionHierarchies prepare(GraphHopperStorage ghStorage) {
+        PrepareContractionHierarchies prepare = new PrepareContractionHierarchies(new GHDirectory("", DAType.RAM_INT),
+                ghStorage, ghStorage.getGraph(CHGraph.class, weighting), TraversalMode.NODE_BASED);
+        prepare.doWork();
+        return prepare;
+    }
+
+    @Test
+    public void testCompareWithDijkstra() {
+        GraphHopperStorage ghStorage = createRandomGraph(42, 300);
+        OneToAllCH oneToAll = prepare(ghStorage).createOneToAll();
+        for (boolean reverse : new boolean[]{false, true}) {
+            for (int startNode : new int[]{0, 17, 120, 299}) {
+                oneToAll.setReverse(reverse).calc(startNode);
+                for (int node = 0; node < ghStorage.getNodes(); node++) {
+                    Dijkstra dijkstra = new Dijkstra(ghStorage, weighting, TraversalMode.NODE_BASED);
+                    Path path = reverse ? dijkstra.calcPath(node, startNode) : dijkstra.calcPath(startNode, node);
+                    String msg = startNode + "->" + node + ", reverse:" + reverse;
+                    assertEquals(msg, path.isFound(), oneToAll.isReached(node));
+                    if (!path.isFound())
+                        continue;
+
+                    assertEquals(msg, path.getWeight(), oneToAll.getWeight(node), 1e-2);
+                    assertEquals(msg, path.getDistance(), oneToAll.getDistance(node), 1e-2);
+                    assertEquals(msg, path.getTime(), oneToAll.getTime(node), 5);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testLimitsAndSeveralStartNodes() {
+        GraphHopperStorage ghStorage = createRandomGraph(7, 200);
+        OneToAllCH oneToAll = prepare(ghStorage).createOneToAll();
+        oneToAll.setTimeLimit(20_000).calc(3);
+        int reached = 0;
+        for (int node = 0; node < ghStorage.getNodes(); node++) {
+            Path path = new Dijkstra(ghStorage, weighting, TraversalMode.NODE_BASED).calcPath(3, node);
+            // the limit only hides nodes that cannot be reached in time
+            if (path.isFound() && path.getTime() <= 20_000) {
+                assertTrue(oneToAll.isReached(node));
+                assertEquals(path.getTime(), oneToAll.getTime(node), 5);
+                reached++;
+            } else {
+                assertFalse(oneToAll.isReached(node));
+                assertEquals(Long.MAX_VALUE, oneToAll.getTime(node));
+            }
+        }
+        assertTrue(reached > 1 && reached < ghStorage.getNodes() / 2);
+
+        oneToAll.setTimeLimit(Long.MAX_VALUE).setDistanceLimit(2000).calc(3, 50, 51);
+        for (int node = 0; node < ghStorage.getNodes(); node++) {
+            double distance = Double.MAX_VALUE;
+            double weight = Double.MAX_VALUE;
+            for (int startNode : new int[]{3, 50, 51}) {
+                Path path = new Dijkstra(ghStorage, weighting, TraversalMode.NODE_BASED).calcPath(startNode, node);
+                if (path.isFound() && path.getWeight() < weight) {
+                    weight = path.getWeight();
+                    distance = path.getDistance();
+                }
+            }
+            if (distance <= 2000)
+                assertEquals(weight, oneToAll.getWeight(node), 1e-2);
+            else if (oneToAll.isReached(node))
+                // reached via another path that is within the limit
+                assertTrue(oneToAll.getDistance(node) <= 2000);
+        }
+    }
+
+    @Test
+    public void testVirtualNode() {
+        GraphHopperStorage ghStorage = createRandomGraph(7, 100);
+        OneToAllCH oneToAll = prepare(ghStorage).createOneToAll();
+        CHGraph chGraph = ghStorage.getGraph(CHGraph.class, weighting);
+
+        QueryGraph queryGraph = new QueryGraph(chGraph);
+        queryGraph.lookup(createQueryResult(ghStorage, 3), createQueryResult(ghStorage, 11));
+        QueryGraph baseQueryGraph = new QueryGraph(ghStorage);
+        baseQueryGraph.lookup(createQueryResult(ghStorage, 3), createQueryResult(ghStorage, 11));
+        int startNode = ghStorage.getNodes();
+        oneToAll.calc(queryGraph, startNode);
+        for (int node = 0; node < queryGraph.getNodes(); node++) {
+            Path path = new Dijkstra(baseQueryGraph, weighting, TraversalMode.NODE_BASED).calcPath(startNode, node);
+            String msg = startNode + "->" + node;
+            assertEquals(msg, path.isFound(), oneToAll.isReached(node));
+            if (path.isFound())
+                assertEquals(msg, path.getWeight(), oneToAll.getWeight(node), 1e-2);
+        }
+    }
+
+    private QueryResult createQueryResult(GraphHopperStorage ghStorage, int edgeId) {
+        EdgeIteratorState edge = ghStorage.getEdgeIteratorState(edgeId, Integer.MIN_VALUE);
+        NodeAccess na = ghStorage.getNodeAccess();
+        double lat = (na.getLat(edge.getBaseNode()) + na.getLat(edge.getAdjNode())) / 2;
+        double lon = (na.getLon(edge.getBaseNode()) + na.getLon(edge.getAdjNode())) / 2;
+        QueryResult qr = new QueryResult(lat, lon);
+        qr.setClosestEdge(edge);
+        qr.setWayIndex(0);
+        qr.setSnappedPosition(QueryResult.Position.EDGE);
+        qr.calcSnappedPoint(new DistanceCalcEarth());
+        return qr;
+    }
+}
@@ -34,6 +34,7 @@ import org.junit.Test;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import static com.graphhopper.util.Parameters.Algorithms.DIJKSTRA_BI;
 import static org.junit.Assert.*;
@@ -486,6 +487,48 @@ public class PrepareContractionHierarchiesTest {
         checkPath(ghStorage, bikeWeighting, 9, 5, IntArrayList.from(3, 10, 14, 16, 13, 12));
     }
 
+    @Test
+    public void testParallelContraction() {
+        GraphHopperStorage g = createGHStorage();
+        Random rand = new Random(12);
+        int nodes = 500;
+        NodeAccess na = g.getNodeAccess();
+        for (int node = 0; node < nodes; node++) {
+            na.setNode(node, 49 + rand.nextDouble() / 10, 11 + rand.nextDouble() / 10);
+        }
+        for (int i = 0; i < nodes * 2; i++) {
+            int from = rand.nextInt(nodes);
+            int to = rand.nextInt(nodes);
+            if (from != to)
+                g.edge(from, to, 10 + rand.nextInt(500), rand.nextInt(4) > 0);
+        }
+        CHGraph lg = g.getGraph(CHGraph.class);
+        PrepareContractionHierarchies prepare = new PrepareContractionHierarchies(dir, g, lg, tMode).
+                setParams(new PMap(CHParameters.CONTRACTION_THREADS + "=4"));
+        prepare.doWork();
+        for (int node = 0; node < nodes; node++) {
+            assertNotEquals(nodes, lg.getLevel(node));
+        }
+
+        for (int i = 0; i < 200; i++) {
+            int from = rand.nextInt(nodes);
+            int to = rand.nextInt(nodes);
+            Path refPath = new Dijkstra(g, weighting, tMode).calcPath(from, to);
+            Path path = prepare.createAlgo(lg, new AlgorithmOptions(DIJKSTRA_BI, weighting, tMode)).calcPath(from, to);
+            String msg = from + "->" + to;
+            assertEquals(msg, refPath.isFound(), path.isFound());
+            assertEquals(msg, refPath.getWeight(), path.getWeight(), 1e-3);
+            assertEquals(msg, refPath.getDistance(), path.getDistance(), 1e-3);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidContractionThreads() {
+        GraphHopperStorage g = createGHStorage();
+        new PrepareContractionHierarchies(dir, g, g.getGraph(CHGraph.class), tMode).
+                setParams(new PMap(CHParameters.CONTRACTION_THREADS + "=0"));
+    }
+
     void checkPath(GraphHopperStorage ghStorage, Weighting w, int expShortcuts, double expDistance, IntIndexedContainer expNodes) {
         CHGraph lg = ghStorage.getGraph(CHGraph.class, w);
         PrepareContractionHierarchies prepare = new PrepareContractionHierarchies(dir, ghStorage, lg, tMode);
@@ -34,6 +34,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.*;
 
@@ -84,7 +85,8 @@ public class LandmarkStorageTest {
     public void testSetGetWeight() {
         ghStorage.edge(0, 1, 40, true);
         Directory dir = new RAMDirectory();
-        DataAccess da = dir.find("landmarks_fastest_car");
+        // the landmark weights are stored as ints
+        DataAccess da = dir.find("landmarks_fastest_car", DAType.RAM_INT);
         da.create(2000);
 
         LandmarkStorage lms = new LandmarkStorage(ghStorage, dir, new FastestWeighting(encoder), 4).
@@ -172,6 +174,43 @@ public class LandmarkStorageTest {
         assertEquals("[4, 0]", Arrays.toString(storage.getLandmarks(1)));
     }
 
+    @Test
+    public void testParallelLandmarkWeights() {
+        // a grid with some oneways
+        int size = 10;
+        NodeAccess na = ghStorage.getNodeAccess();
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int node = row * size + col;
+                na.setNode(node, 50 + row * 0.001, 10 + col * 0.001);
+                if (col + 1 < size)
+                    ghStorage.edge(node, node + 1, 100 + (node % 7) * 10, node % 5 != 0);
+                if (row + 1 < size)
+                    ghStorage.edge(node, node + size, 100 + (node % 3) * 20, true);
+            }
+        }
+
+        LandmarkStorage sequential = new LandmarkStorage(ghStorage, new RAMDirectory(), new FastestWeighting(encoder), 8);
+        sequential.setMinimumNodes(2);
+        sequential.createLandmarks();
+
+        LandmarkStorage parallel = new LandmarkStorage(ghStorage, new RAMDirectory(), new FastestWeighting(encoder), 8);
+        parallel.setMinimumNodes(2);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        parallel.setForkJoinPool(pool);
+        parallel.createLandmarks();
+        pool.shutdown();
+
+        assertEquals(sequential.getSubnetworksWithLandmarks(), parallel.getSubnetworksWithLandmarks());
+        assertEquals(Arrays.toString(sequential.getLandmarks(1)), Arrays.toString(parallel.getLandmarks(1)));
+        for (int node = 0; node < ghStorage.getNodes(); node++) {
+            for (int lmIdx = 0; lmIdx < 8; lmIdx++) {
+                assertEquals(sequential.getFromWeight(lmIdx, node), parallel.getFromWeight(lmIdx, node));
+                assertEquals(sequential.getToWeight(lmIdx, node), parallel.getToWeight(lmIdx, node));
+            }
+        }
+    }
+
     @Test
     public void testWeightingConsistence() {
         // create an indifferent problem: shortest weighting can pass the speed==0 edge but fastest cannot (?)
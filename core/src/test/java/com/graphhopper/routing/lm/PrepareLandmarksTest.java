@@ -29,6 +29,7 @@ import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.Helper;
+import com.graphhopper.util.Parameters;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -65,25 +66,7 @@ public class PrepareLandmarksTest
         // create graph with lat,lon 
         // 0  1  2  ...
         // 15 16 17 ...
-        Random rand = new Random(0);
-        int width = 15, height = 15;
-
-        for (int hIndex = 0; hIndex < height; hIndex++) {
-            for (int wIndex = 0; wIndex < width; wIndex++) {
-                int node = wIndex + hIndex * width;
-
-                long flags = encoder.setProperties(20 + rand.nextDouble() * 30, true, true);
-                // do not connect first with last column!
-                if (wIndex + 1 < width)
-                    graph.edge(node, node + 1).setFlags(flags);
-
-                // avoid dead ends
-                if (hIndex + 1 < height)
-                    graph.edge(node, node + width).setFlags(flags);
-
-                AbstractRoutingAlgorithmTester.updateDistancesFor(graph, node, -hIndex / 50.0, wIndex / 50.0);
-            }
-        }
+        initGrid(new Random(0), 15, 15);
         Directory dir = new RAMDirectory();
         LocationIndex index = new LocationIndexTree(graph, dir);
         index.prepareIndex();
@@ -172,6 +155,57 @@ public class PrepareLandmarksTest
         assertEquals(expectedAlgo.getVisitedNodes(), qGraphOneDirAlgo.getVisitedNodes() + 133);
     }
 
+    @Test
+    public void testActiveLandmarkRecalculation() {
+        initGrid(new Random(1), 15, 15);
+        Weighting weighting = new FastestWeighting(encoder);
+        PrepareLandmarks prepare = new PrepareLandmarks(new RAMDirectory(), graph, weighting, 8, 2);
+        prepare.setMinimumNodes(2);
+        prepare.doWork();
+
+        // the bulk read of all landmarks of a node returns the same weights
+        LandmarkStorage store = prepare.getLandmarkStorage();
+        int[] row = new int[store.getLandmarkCount()];
+        for (int node = 0; node < graph.getNodes(); node++) {
+            store.getWeights(node, row);
+            for (int lmIdx = 0; lmIdx < row.length; lmIdx++) {
+                assertEquals(store.getFromWeight(lmIdx, node), LandmarkStorage.getFromWeight(row[lmIdx]));
+                assertEquals(store.getToWeight(lmIdx, node), LandmarkStorage.getToWeight(row[lmIdx]));
+            }
+        }
+
+        AlgorithmOptions opts = AlgorithmOptions.start().weighting(weighting).traversalMode(tm).build();
+        opts.getHints().put(Parameters.Landmark.ACTIVE_RECALCULATION_INTERVAL, 3);
+        Random rand = new Random(2);
+        for (int i = 0; i < 50; i++) {
+            int from = rand.nextInt(graph.getNodes());
+            int to = rand.nextInt(graph.getNodes());
+            Path expectedPath = new Dijkstra(graph, weighting, tm).calcPath(from, to);
+            RoutingAlgorithm algo = prepare.getDecoratedAlgorithm(graph, new AStarBidirection(graph, weighting, tm), opts);
+            Path path = algo.calcPath(from, to);
+            assertEquals(expectedPath.getWeight(), path.getWeight(), 1e-3);
+        }
+    }
+
+    private void initGrid(Random rand, int width, int height) {
+        for (int hIndex = 0; hIndex < height; hIndex++) {
+            for (int wIndex = 0; wIndex < width; wIndex++) {
+                int node = wIndex + hIndex * width;
+
+                long flags = encoder.setProperties(20 + rand.nextDouble() * 30, true, true);
+                // do not connect first with last column!
+                if (wIndex + 1 < width)
+                    graph.edge(node, node + 1).setFlags(flags);
+
+                // avoid dead ends
+                if (hIndex + 1 < height)
+                    graph.edge(node, node + width).setFlags(flags);
+
+                AbstractRoutingAlgorithmTester.updateDistancesFor(graph, node, -hIndex / 50.0, wIndex / 50.0);
+            }
+        }
+    }
+
     @Test
     public void testStoreAndLoad() {
         graph.edge(0, 1, 80_000, true);
@@ -0,0 +1,106 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.timedependent;
+
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndexTree;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static com.graphhopper.routing.AbstractRoutingAlgorithmTester.updateDistancesFor;
+import static com.graphhopper.util.GHUtility.getEdge;
+import static org.junit.Assert.*;
+
+public class SpeedProfileReaderTest {
+    private GraphHopperStorage graph;
+    private SpeedProfileStorage speedProfiles;
+    private SpeedProfileReader reader;
+
+    @Before
+    public void setUp() {
+        graph = new GraphBuilder(new EncodingManager(new CarFlagEncoder())).create();
+        // 0-1-2
+        graph.edge(0, 1, 1, true);
+        graph.edge(1, 2, 1, true);
+        updateDistancesFor(graph, 0, 0.00, 0.00);
+        updateDistancesFor(graph, 1, 0.01, 0.01);
+        updateDistancesFor(graph, 2, 0.00, 0.02);
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+        speedProfiles = new SpeedProfileStorage(graph, new RAMDirectory()).create(100);
+        reader = new SpeedProfileReader(speedProfiles, index);
+    }
+
+    private String createLine(double lat, double lon, int speedCount, int speed) {
+        StringBuilder sb = new StringBuilder().append(lat).append(',').append(lon);
+        for (int i = 0; i < speedCount; i++) {
+            sb.append(',');
+            // no data in the first bucket of every hour
+            if (i % 4 != 0)
+                sb.append(speed + i % 24);
+        }
+        return sb.append('\n').toString();
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        String csv = "# lat,lon,speeds\n"
+                + createLine(0.006, 0.005, SpeedProfileStorage.BUCKETS, 50)
+                + "\n"
+                + createLine(0.006, 0.015, 96, 50);
+        assertEquals(2, reader.read(new StringReader(csv)));
+
+        int profile01 = speedProfiles.getProfile(getEdge(graph, 0, 1).getEdge());
+        int profile12 = speedProfiles.getProfile(getEdge(graph, 1, 2).getEdge());
+        assertEquals(1, profile01);
+        // the daily speeds are repeated for every day and result in the same profile
+        assertEquals(1, profile12);
+        assertEquals(1, speedProfiles.getProfileCount());
+        assertEquals(0, speedProfiles.getSpeed(profile01, 0));
+        assertEquals(51, speedProfiles.getSpeed(profile01, 1));
+        assertEquals(50 + 23, speedProfiles.getSpeed(profile12, 96 + 23));
+    }
+
+    @Test
+    public void testInvalidLine() throws IOException {
+        try {
+            reader.read(new StringReader(createLine(0.006, 0.005, 100, 50)));
+            fail("wrong number of speeds");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith("Line 1 needs"));
+        }
+        try {
+            reader.read(new StringReader(createLine(0.006, 0.005, 96, 50).replace(",51,", ",fast,")));
+            fail("speed is not a number");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith("Cannot parse line 1"));
+        }
+        try {
+            reader.read(new StringReader(createLine(0.006, 0.005, 96, 300)));
+            fail("speed is too high");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.timedependent;
+
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.GHDirectory;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.Helper;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class SpeedProfileStorageTest {
+    private final EncodingManager encodingManager = new EncodingManager(new CarFlagEncoder());
+
+    private GraphHopperStorage createGraph() {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        graph.edge(0, 1, 100, true);
+        graph.edge(1, 2, 100, true);
+        graph.edge(2, 3, 100, true);
+        return graph;
+    }
+
+    private int[] createSpeeds(int offset) {
+        int[] speeds = new int[SpeedProfileStorage.BUCKETS];
+        for (int i = 0; i < speeds.length; i++) {
+            speeds[i] = (i + offset) % 256;
+        }
+        return speeds;
+    }
+
+    @Test
+    public void testAddAndGet() {
+        GraphHopperStorage graph = createGraph();
+        SpeedProfileStorage storage = new SpeedProfileStorage(graph, graph.getDirectory()).create(100);
+        assertEquals(0, storage.getProfile(0));
+        assertEquals(0, storage.getProfile(2));
+
+        int profile1 = storage.addProfile(createSpeeds(0));
+        int profile2 = storage.addProfile(createSpeeds(7));
+        assertEquals(1, profile1);
+        assertEquals(2, profile2);
+        // the same speeds result in the same profile
+        assertEquals(profile1, storage.addProfile(createSpeeds(0)));
+        assertEquals(2, storage.getProfileCount());
+
+        storage.setProfile(0, profile2);
+        storage.setProfile(2, profile1);
+        assertEquals(profile2, storage.getProfile(0));
+        assertEquals(0, storage.getProfile(1));
+        assertEquals(profile1, storage.getProfile(2));
+
+        for (int bucket = 0; bucket < SpeedProfileStorage.BUCKETS; bucket++) {
+            assertEquals(bucket % 256, storage.getSpeed(profile1, bucket));
+            assertEquals((bucket + 7) % 256, storage.getSpeed(profile2, bucket));
+        }
+
+        try {
+            storage.setProfile(3, profile1);
+            fail("edge does not exist");
+        } catch (IllegalArgumentException ex) {
+        }
+        try {
+            storage.setProfile(1, 3);
+            fail("profile does not exist");
+        } catch (IllegalArgumentException ex) {
+        }
+        try {
+            storage.addProfile(new int[10]);
+            fail("too few speeds");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    @Test
+    public void testWeekMillis() {
+        // Monday 2018-05-07 00:00 UTC
+        long monday = 1525651200000L;
+        assertEquals(0, SpeedProfileStorage.toWeekMillis(monday, 0));
+        assertEquals(0, SpeedProfileStorage.getBucket(SpeedProfileStorage.toWeekMillis(monday, 0)));
+        long mondayMorning = monday + (8 * 60 + 20) * 60 * 1000L;
+        assertEquals(33, SpeedProfileStorage.getBucket(SpeedProfileStorage.toWeekMillis(mondayMorning, 0)));
+        // Sunday 23:50
+        assertEquals(SpeedProfileStorage.BUCKETS - 1, SpeedProfileStorage.getBucket(SpeedProfileStorage.toWeekMillis(monday - 10 * 60 * 1000L, 0)));
+        // Monday 00:00 at UTC+2 is Sunday 22:00 UTC
+        int offset = 2 * 3600 * 1000;
+        assertEquals(0, SpeedProfileStorage.toWeekMillis(monday - offset, offset));
+        // times after the end of the week continue in the next week
+        assertEquals(1, SpeedProfileStorage.getBucket(SpeedProfileStorage.WEEK_MILLIS + SpeedProfileStorage.BUCKET_MILLIS));
+        assertEquals(0, SpeedProfileStorage.toWeekMillis(0, 0) % SpeedProfileStorage.BUCKET_MILLIS);
+    }
+
+    @Test
+    public void testStoreAndLoad() {
+        String location = "./target/tmp/speed-profiles";
+        Helper.removeDir(new File(location));
+        GraphHopperStorage graph = createGraph();
+        GHDirectory dir = new GHDirectory(location, DAType.RAM_STORE);
+        dir.create();
+        SpeedProfileStorage storage = new SpeedProfileStorage(graph, dir);
+        assertFalse(storage.loadExisting());
+        storage.create(100);
+        storage.setProfile(1, storage.addProfile(createSpeeds(3)));
+        storage.flush();
+        storage.close();
+
+        storage = new SpeedProfileStorage(graph, new GHDirectory(location, DAType.RAM_STORE));
+        assertTrue(storage.loadExisting());
+        assertEquals(1, storage.getProfileCount());
+        assertEquals(0, storage.getProfile(0));
+        assertEquals(1, storage.getProfile(1));
+        int[] speeds = new int[SpeedProfileStorage.BUCKETS];
+        for (int bucket = 0; bucket < speeds.length; bucket++) {
+            speeds[bucket] = storage.getSpeed(1, bucket);
+        }
+        assertTrue(Arrays.equals(createSpeeds(3), speeds));
+        // loaded profiles are found again
+        assertEquals(1, storage.addProfile(createSpeeds(3)));
+        assertEquals(2, storage.addProfile(createSpeeds(4)));
+        storage.close();
+
+        // the storage must not be used for a different graph
+        graph.edge(3, 4, 100, true);
+        storage = new SpeedProfileStorage(graph, new GHDirectory(location, DAType.RAM_STORE));
+        try {
+            storage.loadExisting();
+            fail("the graph has more edges");
+        } catch (IllegalArgumentException ex) {
+        }
+        Helper.removeDir(new File(location));
+    }
+}
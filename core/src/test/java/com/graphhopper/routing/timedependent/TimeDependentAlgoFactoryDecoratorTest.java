@@ -0,0 +1,127 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.timedependent;
+
+import com.graphhopper.routing.AlgorithmOptions;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.RoutingAlgorithmFactory;
+import com.graphhopper.routing.RoutingAlgorithmFactorySimple;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.HintsMap;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.Parameters;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.TimeZone;
+
+import static com.graphhopper.routing.AbstractRoutingAlgorithmTester.updateDistancesFor;
+import static org.junit.Assert.*;
+
+public class TimeDependentAlgoFactoryDecoratorTest {
+    @Test
+    public void testParseDepartureTime() {
+        TimeDependentAlgoFactoryDecorator decorator = new TimeDependentAlgoFactoryDecorator();
+        // Monday 2018-05-07 00:00 UTC
+        long monday = 1525651200000L;
+        assertEquals(monday, decorator.parseDepartureTime("1525651200000"));
+        assertEquals(monday, decorator.parseDepartureTime("2018-05-07T00:00:00Z"));
+        assertEquals(monday, decorator.parseDepartureTime("2018-05-07T02:00:00+02:00"));
+        assertEquals(monday, decorator.parseDepartureTime("2018-05-07T00:00:00"));
+
+        // without time zone the one of the profiles is used
+        decorator.setTimeZone(TimeZone.getTimeZone("Europe/Berlin"));
+        assertEquals(monday - 2 * 3600 * 1000, decorator.parseDepartureTime("2018-05-07T00:00:00"));
+        assertEquals(monday, decorator.parseDepartureTime("2018-05-07T00:00:00Z"));
+
+        try {
+            decorator.parseDepartureTime("tomorrow");
+            fail("cannot be parsed");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    @Test
+    public void testDecoratedAlgorithmFactory() throws IOException {
+        CarFlagEncoder carEncoder = new CarFlagEncoder();
+        GraphHopperStorage graph = new GraphBuilder(new EncodingManager(carEncoder)).create();
+        graph.edge(0, 1, 1, true);
+        updateDistancesFor(graph, 0, 0.00, 0.00);
+        updateDistancesFor(graph, 1, 0.01, 0.01);
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+
+        TimeDependentAlgoFactoryDecorator decorator = new TimeDependentAlgoFactoryDecorator().setEnabled(true);
+        try {
+            decorator.loadOrRead(graph, index);
+            fail("no file specified");
+        } catch (IllegalStateException ex) {
+        }
+        RoutingAlgorithmFactory defaultFactory = new RoutingAlgorithmFactorySimple();
+        assertSame(defaultFactory, decorator.getDecoratedAlgorithmFactory(defaultFactory, new HintsMap()));
+        HintsMap hints = new HintsMap().put(Parameters.TimeDependent.DEPARTURE_TIME, "2018-05-07T08:00:00Z");
+        try {
+            decorator.getDecoratedAlgorithmFactory(defaultFactory, hints);
+            fail("speed profiles not loaded");
+        } catch (IllegalStateException ex) {
+        }
+
+        String location = "./target/tmp/speed-profiles-decorator";
+        Helper.removeDir(new File(location));
+        new File(location).mkdirs();
+        File file = new File(location, "profiles.csv");
+        StringBuilder sb = new StringBuilder("0.005,0.005");
+        for (int i = 0; i < 96; i++) {
+            sb.append(",50");
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), Helper.UTF_CS)) {
+            writer.write(sb.toString());
+        }
+        decorator.setSpeedProfilesFile(file.getPath());
+        assertTrue(decorator.loadOrRead(graph, index));
+        assertEquals(1, decorator.getSpeedProfiles().getProfile(0));
+        Helper.removeDir(new File(location));
+
+        RoutingAlgorithmFactory factory = decorator.getDecoratedAlgorithmFactory(defaultFactory, hints);
+        AlgorithmOptions opts = AlgorithmOptions.start().algorithm(Parameters.Algorithms.ASTAR_BI).
+                weighting(new FastestWeighting(carEncoder)).build();
+        RoutingAlgorithm algo = factory.createAlgo(graph, opts);
+        assertTrue(algo instanceof TimeDependentAStar);
+        algo.calcPath(0, 1);
+        long arrival = ((TimeDependentAStar) algo).getArrivalTime();
+        assertTrue(arrival > 8 * 3600 * 1000);
+
+        // the next leg departs on arrival
+        TimeDependentDijkstra nextAlgo = (TimeDependentDijkstra) factory.createAlgo(graph,
+                AlgorithmOptions.start(opts).algorithm(Parameters.Algorithms.DIJKSTRA_BI).build());
+        assertFalse(nextAlgo instanceof TimeDependentAStar);
+        assertEquals(arrival, nextAlgo.getArrivalTime());
+
+        try {
+            factory.createAlgo(graph, AlgorithmOptions.start(opts).algorithm(Parameters.Algorithms.ALT_ROUTE).build());
+            fail("not supported");
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.timedependent;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.QueryGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.Helper;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+import static com.graphhopper.routing.AbstractRoutingAlgorithmTester.updateDistancesFor;
+import static com.graphhopper.util.GHUtility.getEdge;
+import static org.junit.Assert.*;
+
+public class TimeDependentDijkstraTest {
+    private static final long HOUR = 3600 * 1000L;
+    private final CarFlagEncoder carEncoder = new CarFlagEncoder();
+    private final EncodingManager encodingManager = new EncodingManager(carEncoder);
+    private final Weighting weighting = new FastestWeighting(carEncoder);
+
+    /**
+     * A fast road 0-1-3 that is jammed on Monday from 7:00 to 9:00 between 1 and 3 and a slower road 0-2-3.
+     */
+    private GraphHopperStorage createTestGraph() {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        graph.edge(0, 1, 1, true).setFlags(carEncoder.setProperties(100, true, true));
+        graph.edge(1, 3, 1, true).setFlags(carEncoder.setProperties(100, true, true));
+        graph.edge(0, 2, 1, true).setFlags(carEncoder.setProperties(60, true, true));
+        graph.edge(2, 3, 1, true).setFlags(carEncoder.setProperties(60, true, true));
+        updateDistancesFor(graph, 0, 0.00, 0.00);
+        updateDistancesFor(graph, 1, 0.01, 0.05);
+        updateDistancesFor(graph, 2, -0.01, 0.05);
+        updateDistancesFor(graph, 3, 0.00, 0.10);
+        return graph;
+    }
+
+    private SpeedProfileStorage createJam(GraphHopperStorage graph) {
+        SpeedProfileStorage speedProfiles = new SpeedProfileStorage(graph, new RAMDirectory()).create(100);
+        int[] speeds = new int[SpeedProfileStorage.BUCKETS];
+        for (int bucket = 7 * 4; bucket < 9 * 4; bucket++) {
+            speeds[bucket] = 10;
+        }
+        speedProfiles.setProfile(getEdge(graph, 1, 3).getEdge(), speedProfiles.addProfile(speeds));
+        return speedProfiles;
+    }
+
+    private Path calcPath(GraphHopperStorage graph, SpeedProfileStorage speedProfiles, boolean aStar, int from, int to, long departureTime) {
+        TimeDependentWeighting tdWeighting = new TimeDependentWeighting(weighting, speedProfiles, graph);
+        TimeDependentDijkstra algo = aStar
+                ? new TimeDependentAStar(graph, tdWeighting, TraversalMode.NODE_BASED)
+                : new TimeDependentDijkstra(graph, tdWeighting, TraversalMode.NODE_BASED);
+        algo.setDepartureTime(departureTime);
+        Path path = algo.calcPath(from, to);
+        if (path.isFound())
+            assertEquals(departureTime + path.getTime(), algo.getArrivalTime());
+        return path;
+    }
+
+    @Test
+    public void testDepartureTime() {
+        GraphHopperStorage graph = createTestGraph();
+        SpeedProfileStorage speedProfiles = createJam(graph);
+        Path staticPath = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(0, 3);
+        assertEquals(IntArrayList.from(0, 1, 3), staticPath.calcNodes());
+
+        for (boolean aStar : new boolean[]{false, true}) {
+            Path path = calcPath(graph, speedProfiles, aStar, 0, 3, 3 * HOUR);
+            assertEquals(IntArrayList.from(0, 1, 3), path.calcNodes());
+            assertEquals(staticPath.getTime(), path.getTime());
+            assertEquals(staticPath.getWeight(), path.getWeight(), 1e-6);
+
+            path = calcPath(graph, speedProfiles, aStar, 0, 3, 8 * HOUR);
+            assertEquals(IntArrayList.from(0, 2, 3), path.calcNodes());
+
+            // the next day there is no jam
+            path = calcPath(graph, speedProfiles, aStar, 0, 3, 24 * HOUR + 8 * HOUR);
+            assertEquals(IntArrayList.from(0, 1, 3), path.calcNodes());
+
+            // the edge 1-3 is entered after the start of the jam
+            path = calcPath(graph, speedProfiles, aStar, 0, 3, 7 * HOUR - 60 * 1000);
+            assertEquals(IntArrayList.from(0, 2, 3), path.calcNodes());
+
+            // the jam is over on arrival at 1
+            path = calcPath(graph, speedProfiles, aStar, 0, 3, 9 * HOUR - 60 * 1000);
+            assertEquals(IntArrayList.from(0, 1, 3), path.calcNodes());
+
+            // the time of the path is the one of its edges at the departure, without profiles the encoder speed
+            path = calcPath(graph, speedProfiles, aStar, 0, 3, 8 * HOUR);
+            long expectedTime = weighting.calcMillis(getEdge(graph, 0, 2), false, EdgeIterator.NO_EDGE)
+                    + weighting.calcMillis(getEdge(graph, 2, 3), false, EdgeIterator.NO_EDGE);
+            assertEquals(expectedTime, path.getTime());
+        }
+    }
+
+    @Test
+    public void testQueryGraph() {
+        GraphHopperStorage graph = createTestGraph();
+        SpeedProfileStorage speedProfiles = createJam(graph);
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+        QueryResult qr = index.findClosest(0.005, 0.075, EdgeFilter.ALL_EDGES);
+        assertEquals(getEdge(graph, 1, 3).getEdge(), qr.getClosestEdge().getEdge());
+        QueryGraph queryGraph = new QueryGraph(graph);
+        queryGraph.lookup(Collections.singletonList(qr));
+
+        // the virtual edges use the profile of the original edge
+        TimeDependentWeighting tdWeighting = new TimeDependentWeighting(weighting, speedProfiles, queryGraph);
+        Path path = new TimeDependentDijkstra(queryGraph, tdWeighting, TraversalMode.NODE_BASED).
+                setDepartureTime(3 * HOUR).calcPath(1, qr.getClosestNode());
+        long freeTime = path.getTime();
+        path = new TimeDependentDijkstra(queryGraph, tdWeighting, TraversalMode.NODE_BASED).
+                setDepartureTime(8 * HOUR).calcPath(1, qr.getClosestNode());
+        // 10 instead of 100km/h
+        assertEquals(freeTime * 10, path.getTime(), 10);
+        assertEquals(IntArrayList.from(1, qr.getClosestNode()), path.calcNodes());
+    }
+
+    @Test
+    public void testRandomGraphs() {
+        for (long seed = 0; seed < 10; seed++) {
+            Random rand = new Random(seed);
+            GraphHopperStorage graph = createRandomGraph(rand, 200);
+            SpeedProfileStorage speedProfiles = new SpeedProfileStorage(graph, new RAMDirectory()).create(100);
+            int[][] profiles = new int[5][SpeedProfileStorage.BUCKETS];
+            for (int[] speeds : profiles) {
+                for (int bucket = 0; bucket < speeds.length; bucket++) {
+                    // also faster than the encoder speed and without data
+                    speeds[bucket] = rand.nextInt(5) == 0 ? 0 : 5 + rand.nextInt(250);
+                }
+            }
+            for (int edge = 0; edge < graph.getAllEdges().length(); edge++) {
+                if (rand.nextBoolean())
+                    speedProfiles.setProfile(edge, speedProfiles.addProfile(profiles[rand.nextInt(profiles.length)]));
+            }
+            assertEquals(profiles.length, speedProfiles.getProfileCount());
+
+            TimeDependentWeighting tdWeighting = new TimeDependentWeighting(weighting, speedProfiles, graph);
+            for (int i = 0; i < 20; i++) {
+                int from = rand.nextInt(graph.getNodes());
+                int to = rand.nextInt(graph.getNodes());
+                long departureTime = (long) (rand.nextDouble() * SpeedProfileStorage.WEEK_MILLIS);
+                String msg = "seed:" + seed + ", " + from + "->" + to + ", departure:" + departureTime;
+                Path path = calcPath(graph, speedProfiles, false, from, to, departureTime);
+                Path aStarPath = calcPath(graph, speedProfiles, true, from, to, departureTime);
+                assertEquals(msg, path.isFound(), aStarPath.isFound());
+                if (!path.isFound())
+                    continue;
+
+                assertEquals(msg, path.getWeight(), aStarPath.getWeight(), 1e-3);
+                // the weight and the time of the path are the ones of its edges at the time they are entered
+                double weight = 0;
+                long time = 0;
+                int prevEdge = EdgeIterator.NO_EDGE;
+                for (EdgeIteratorState edge : path.calcEdges()) {
+                    weight += tdWeighting.calcWeight(edge, false, prevEdge, departureTime + time);
+                    time += tdWeighting.calcMillis(edge, false, prevEdge, departureTime + time);
+                    prevEdge = edge.getEdge();
+                }
+                assertEquals(msg, weight, path.getWeight(), 1e-3);
+                assertEquals(msg, time, path.getTime());
+            }
+        }
+    }
+
+    private GraphHopperStorage createRandomGraph(Random rand, int nodes) {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).create();
+        NodeAccess na = graph.getNodeAccess();
+        for (int node = 0; node < nodes; node++) {
+            na.setNode(node, 49 + rand.nextDouble() / 10, 11 + rand.nextDouble() / 10);
+        }
+        for (int i = 0; i < nodes * 2; i++) {
+            int from = rand.nextInt(nodes);
+            int to = rand.nextInt(nodes);
+            if (from == to)
+                continue;
+
+            // not shorter than the beeline to keep the approximation of A* admissible
+            double distance = Helper.DIST_EARTH.calcDist(na.getLat(from), na.getLon(from), na.getLat(to), na.getLon(to));
+            EdgeIteratorState edge = graph.edge(from, to, distance * (1.05 + rand.nextDouble()), rand.nextInt(4) > 0);
+            edge.setFlags(carEncoder.setProperties(10 + 10 * rand.nextInt(10), true, edge.isBackward(carEncoder)));
+        }
+        return graph;
+    }
+}
@@ -200,6 +200,30 @@ public abstract class DataAccessTest {
         da.close();
     }
 
+    @Test
+    public void testGetInts() {
+        DataAccess da = createDataAccess(name);
+        da.setSegmentSize(128);
+        da.create(10);
+        da.ensureCapacity(500);
+        for (int i = 0; i < 125; i++) {
+            da.setInt(i * 4, i * 1000 - 7);
+        }
+
+        int[] values = new int[10];
+        da.getInts(40, values, 10);
+        for (int i = 0; i < 10; i++) {
+            assertEquals((i + 10) * 1000 - 7, values[i]);
+        }
+
+        // crosses the border between two segments
+        da.getInts(112, values, 10);
+        for (int i = 0; i < 10; i++) {
+            assertEquals((i + 28) * 1000 - 7, values[i]);
+        }
+        da.close();
+    }
+
     @Test
     public void testTrimTo() {
         DataAccess da = createDataAccess(name);
@@ -17,6 +17,7 @@
  */
 package com.graphhopper.storage;
 
+import com.graphhopper.coll.GHIntLongHashMap;
 import com.graphhopper.util.*;
 import com.graphhopper.util.shapes.BBox;
 import org.junit.Test;
@@ -189,6 +190,115 @@ public class GraphHopperStorageTest extends AbstractGraphStorageTester {
         graph.optimize();
     }
 
+    @Test
+    public void testChangeEdgeFlags() throws InterruptedException {
+        graph = createGHStorage();
+        final int edge1 = graph.edge(0, 1, 10, true).setFlags(carEncoder.setProperties(60, true, true)).getEdge();
+        final int edge2 = graph.edge(1, 2, 10, true).setFlags(carEncoder.setProperties(60, true, true)).getEdge();
+
+        EdgeFlagOverlay pinned = graph.pinEdgeFlags();
+        assertNotNull(pinned);
+        assertNull(graph.pinEdgeFlags());
+        // the flags are changed from another thread while this thread still uses the pinned version
+        runInOtherThread(new Runnable() {
+            @Override
+            public void run() {
+                GHIntLongHashMap changes = new GHIntLongHashMap();
+                changes.put(edge1, carEncoder.setProperties(20, true, false));
+                graph.changeEdgeFlags(changes);
+            }
+        });
+        EdgeIteratorState edge = graph.getEdgeIteratorState(edge1, 1);
+        assertEquals(60, carEncoder.getSpeed(edge.getFlags()), 1e-3);
+        assertTrue(carEncoder.isBackward(edge.getFlags()));
+        graph.unpinEdgeFlags(pinned);
+        // the last reader of the old version merged the changes into the storage
+        pinned = graph.pinEdgeFlags();
+        assertEquals(0, pinned.size());
+        graph.unpinEdgeFlags(pinned);
+
+        edge = graph.getEdgeIteratorState(edge1, 1);
+        assertEquals(20, carEncoder.getSpeed(edge.getFlags()), 1e-3);
+        assertFalse(carEncoder.isBackward(edge.getFlags()));
+        edge = graph.getEdgeIteratorState(edge1, 0);
+        assertTrue(carEncoder.isBackward(edge.getFlags()));
+        assertFalse(carEncoder.isForward(edge.getFlags()));
+
+        // no reader uses an older version anymore, so the next change is written into the storage
+        runInOtherThread(new Runnable() {
+            @Override
+            public void run() {
+                GHIntLongHashMap changes = new GHIntLongHashMap();
+                changes.put(edge2, carEncoder.setProperties(30, true, true));
+                graph.changeEdgeFlags(changes);
+            }
+        });
+        pinned = graph.pinEdgeFlags();
+        assertEquals(0, pinned.size());
+        assertEquals(20, carEncoder.getSpeed(graph.getEdgeIteratorState(edge1, 1).getFlags()), 1e-3);
+        assertEquals(30, carEncoder.getSpeed(graph.getEdgeIteratorState(edge2, 2).getFlags()), 1e-3);
+
+        // a flush must not write the new flags into the storage while this thread still uses the old version
+        runInOtherThread(new Runnable() {
+            @Override
+            public void run() {
+                GHIntLongHashMap changes = new GHIntLongHashMap();
+                changes.put(edge2, carEncoder.setProperties(40, true, true));
+                graph.changeEdgeFlags(changes);
+                graph.flush();
+            }
+        });
+        assertEquals(30, carEncoder.getSpeed(graph.getEdgeIteratorState(edge2, 2).getFlags()), 1e-3);
+        graph.unpinEdgeFlags(pinned);
+        pinned = graph.pinEdgeFlags();
+        assertEquals(0, pinned.size());
+        assertEquals(40, carEncoder.getSpeed(graph.getEdgeIteratorState(edge2, 2).getFlags()), 1e-3);
+        graph.unpinEdgeFlags(pinned);
+    }
+
+    @Test
+    public void testPinEdgeFlagsInWorker() throws InterruptedException {
+        graph = createGHStorage();
+        final int edge = graph.edge(0, 1, 10, true).setFlags(carEncoder.setProperties(60, true, true)).getEdge();
+
+        final EdgeFlagOverlay pinned = graph.pinEdgeFlags();
+        GHIntLongHashMap changes = new GHIntLongHashMap();
+        changes.put(edge, carEncoder.setProperties(20, true, true));
+        // the change is published as new version, but this thread still uses the pinned one
+        graph.changeEdgeFlags(changes);
+        assertSame(pinned, graph.getPinnedEdgeFlags());
+        assertNull(graph.pinEdgeFlags(pinned));
+
+        final double[] workerSpeed = new double[1];
+        runInOtherThread(new Runnable() {
+            @Override
+            public void run() {
+                EdgeFlagOverlay workerPinned = graph.pinEdgeFlags(pinned);
+                try {
+                    workerSpeed[0] = carEncoder.getSpeed(graph.getEdgeIteratorState(edge, 1).getFlags());
+                } finally {
+                    graph.unpinEdgeFlags(workerPinned);
+                }
+            }
+        });
+        assertEquals(60, workerSpeed[0], 1e-3);
+        graph.unpinEdgeFlags(pinned);
+        assertEquals(20, carEncoder.getSpeed(graph.getEdgeIteratorState(edge, 1).getFlags()), 1e-3);
+
+        try {
+            graph.pinEdgeFlags(pinned);
+            fail("a version that nobody pinned anymore must not be used");
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    private static void runInOtherThread(Runnable runnable) throws InterruptedException {
+        Thread thread = new Thread(runnable);
+        thread.start();
+        thread.join();
+    }
+
     @Test
     public void testBigDataEdge() {
         Directory dir = new RAMDirectory();
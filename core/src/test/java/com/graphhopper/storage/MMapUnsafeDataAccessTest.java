@@ -0,0 +1,96 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import org.junit.Test;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class MMapUnsafeDataAccessTest extends DataAccessTest {
+    @Override
+    public DataAccess createDataAccess(String name) {
+        return new MMapUnsafeDataAccess(name, directory, defaultOrder, true).setSegmentSize(128);
+    }
+
+    @Test
+    public void testMixRAM2MMapUnsafe() {
+        DataAccess da = new RAMDataAccess(name, directory, true, defaultOrder);
+        assertFalse(da.loadExisting());
+        da.create(300);
+        da.setInt(7 * 4, 123);
+        da.setShort(50 * 4, (short) -3);
+        da.flush();
+        da.close();
+        da = new MMapUnsafeDataAccess(name, directory, defaultOrder, false);
+        assertTrue(da.loadExisting());
+        assertEquals(123, da.getInt(7 * 4));
+        assertEquals(-3, da.getShort(50 * 4));
+        assertEquals(DAType.MMAP_UNSAFE_RO, da.getType());
+        da.close();
+    }
+
+    @Test
+    public void testBigEndian() {
+        DataAccess da = new MMapUnsafeDataAccess(name, directory, ByteOrder.BIG_ENDIAN, true).setSegmentSize(128);
+        da.create(300);
+        da.setInt(3 * 4, 0x01020304);
+        byte[] bytes = new byte[4];
+        da.getBytes(3 * 4, bytes, 4);
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, bytes);
+        da.close();
+    }
+
+    @Test
+    public void testConcurrentReads() throws Exception {
+        final DataAccess da = createDataAccess(name);
+        final int ints = 10000;
+        da.create(ints * 4);
+        for (int i = 0; i < ints; i++) {
+            da.setInt(i * 4, i * 7);
+        }
+        da.flush();
+
+        ExecutorService service = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            results.add(service.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    for (int i = 0; i < ints; i++) {
+                        if (da.getInt(i * 4) != i * 7)
+                            return false;
+                    }
+                    return true;
+                }
+            }));
+        }
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        service.shutdown();
+        da.close();
+    }
+}
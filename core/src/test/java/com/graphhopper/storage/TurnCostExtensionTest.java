@@ -4,10 +4,14 @@ import com.graphhopper.routing.util.BikeFlagEncoder;
 import com.graphhopper.routing.util.CarFlagEncoder;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.util.Helper;
 import org.junit.Test;
 
+import java.io.File;
+import java.util.Random;
+
 import static com.graphhopper.util.GHUtility.getEdge;
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class TurnCostExtensionTest {
 
@@ -115,4 +119,82 @@ public class TurnCostExtensionTest {
         assertEquals(Double.POSITIVE_INFINITY, carEncoder.getTurnCost(flags023), 0);
         assertEquals(Double.POSITIVE_INFINITY, bikeEncoder.getTurnCost(flags023), 0);
     }
+
+    @Test
+    public void testOptimize() {
+        FlagEncoder carEncoder = new CarFlagEncoder(5, 5, 3);
+        EncodingManager manager = new EncodingManager(carEncoder);
+        GraphHopperStorage g = new GraphBuilder(manager).create();
+        Random rand = new Random(12);
+        int nodes = 100, edges = 300;
+        for (int i = 0; i < edges; i++) {
+            g.edge(rand.nextInt(nodes), rand.nextInt(nodes), 1, true);
+        }
+        TurnCostExtension tcs = (TurnCostExtension) g.getExtension();
+        long[][][] expected = new long[edges][nodes][];
+        for (int i = 0; i < 1000; i++) {
+            int from = rand.nextInt(edges), via = rand.nextInt(nodes), to = rand.nextInt(edges);
+            int r = rand.nextInt(10);
+            long flags = r == 0 ? 0 : r < 3 ? carEncoder.getTurnFlags(true, 0) : carEncoder.getTurnFlags(false, r % 3);
+            tcs.mergeOrOverwriteTurnInfo(from, via, to, flags, false);
+            if (expected[from][via] == null)
+                expected[from][via] = new long[edges];
+            expected[from][via][to] = flags;
+        }
+        assertFalse(tcs.isOptimized());
+        tcs.optimize();
+        assertTrue(tcs.isOptimized());
+        assertTurnCostFlags(expected, tcs);
+
+        // adding entries is still possible
+        tcs.addTurnInfo(1, 2, 3, carEncoder.getTurnFlags(true, 0));
+        assertFalse(tcs.isOptimized());
+        if (expected[1][2] == null)
+            expected[1][2] = new long[edges];
+        expected[1][2][3] |= carEncoder.getTurnFlags(true, 0);
+        assertTurnCostFlags(expected, tcs);
+
+        tcs.optimize();
+        assertTurnCostFlags(expected, tcs);
+    }
+
+    @Test
+    public void testOptimizeAndLoad() {
+        String location = "./target/tmp/turn-costs-optimize";
+        Helper.removeDir(new File(location));
+        FlagEncoder carEncoder = new CarFlagEncoder(5, 5, 3);
+        EncodingManager manager = new EncodingManager(carEncoder);
+        GraphHopperStorage g = new GraphBuilder(manager).setLocation(location).setStore(true).create();
+        initGraph(g);
+        TurnCostExtension tcs = (TurnCostExtension) g.getExtension();
+        int edge42 = getEdge(g, 4, 2).getEdge();
+        int edge23 = getEdge(g, 2, 3).getEdge();
+        int edge02 = getEdge(g, 0, 2).getEdge();
+        tcs.addTurnInfo(edge42, 2, edge23, carEncoder.getTurnFlags(true, 0));
+        tcs.addTurnInfo(edge02, 2, edge23, carEncoder.getTurnFlags(false, 2));
+        tcs.optimize();
+        g.flush();
+        g.close();
+
+        g = new GraphBuilder(manager).setLocation(location).setStore(true).load();
+        tcs = (TurnCostExtension) g.getExtension();
+        assertTrue(tcs.isOptimized());
+        assertEquals(Double.POSITIVE_INFINITY, carEncoder.getTurnCost(tcs.getTurnCostFlags(edge42, 2, edge23)), 0);
+        assertEquals(2, carEncoder.getTurnCost(tcs.getTurnCostFlags(edge02, 2, edge23)), 0);
+        assertEquals(0, tcs.getTurnCostFlags(edge23, 2, edge02));
+        assertEquals(0, tcs.getTurnCostFlags(edge02, 0, edge23));
+        g.close();
+        Helper.removeDir(new File(location));
+    }
+
+    private void assertTurnCostFlags(long[][][] expected, TurnCostExtension tcs) {
+        for (int from = 0; from < expected.length; from++) {
+            for (int via = 0; via < expected[from].length; via++) {
+                for (int to = 0; to < expected.length; to++) {
+                    long flags = expected[from][via] == null ? 0 : expected[from][via][to];
+                    assertEquals(flags, tcs.getTurnCostFlags(from, via, to));
+                }
+            }
+        }
+    }
 }
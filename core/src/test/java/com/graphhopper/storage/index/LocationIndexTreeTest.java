@@ -25,6 +25,7 @@ import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.NodeAccess;
 import com.graphhopper.storage.RAMDirectory;
 import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.BBox;
 import com.graphhopper.util.shapes.GHPoint;
 import org.junit.Test;
 
@@ -32,6 +33,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -571,4 +574,91 @@ public class LocationIndexTreeTest extends AbstractLocationIndexTester {
                 Arrays.asList(edge4_5.getEdge(), edge4_7.getEdge()), ids);
     }
 
+    @Test
+    public void testFindClosestBatch() {
+        CarFlagEncoder carEncoder = new CarFlagEncoder();
+        Graph graph = createGHStorage(new RAMDirectory(), new EncodingManager(carEncoder), false);
+        NodeAccess na = graph.getNodeAccess();
+        int MAX = 30;
+        for (int latIdx = 0; latIdx < MAX; latIdx++) {
+            for (int lonIdx = 0; lonIdx < MAX; lonIdx++) {
+                int index = lonIdx * MAX + latIdx;
+                na.setNode(index, 0.002 * latIdx, 0.003 * lonIdx);
+                if (latIdx < MAX - 1)
+                    graph.edge(index, index + 1, 200, true);
+
+                if (lonIdx < MAX - 1)
+                    graph.edge(index, index + MAX, 300, true);
+            }
+        }
+        LocationIndexTree index = createIndexNoPrepare(graph, 300);
+        index.prepareIndex();
+
+        Random rand = new Random(1);
+        double[] lats = new double[1000];
+        double[] lons = new double[1000];
+        for (int i = 0; i < lats.length; i++) {
+            lats[i] = rand.nextDouble() * 0.06;
+            lons[i] = rand.nextDouble() * 0.09;
+        }
+        EdgeFilter filter = DefaultEdgeFilter.allEdges(carEncoder);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (ForkJoinPool tmpPool : Arrays.asList(null, pool)) {
+                List<QueryResult> results = index.findClosestBatch(lats, lons, filter, tmpPool);
+                assertEquals(lats.length, results.size());
+                for (int i = 0; i < lats.length; i++) {
+                    QueryResult expected = index.findClosest(lats[i], lons[i], filter);
+                    QueryResult qr = results.get(i);
+                    assertTrue(qr.isValid());
+                    assertEquals(expected.getQueryPoint(), qr.getQueryPoint());
+                    assertEquals(expected.getQueryDistance(), qr.getQueryDistance(), 1e-6);
+                    assertEquals(expected.getSnappedPoint().lat, qr.getSnappedPoint().lat, 1e-8);
+                    assertEquals(expected.getSnappedPoint().lon, qr.getSnappedPoint().lon, 1e-8);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testFindNetworkEntriesOfBBox() {
+        Graph graph = createGHStorage(new RAMDirectory(), encodingManager, false);
+        NodeAccess na = graph.getNodeAccess();
+        int MAX = 30;
+        for (int latIdx = 0; latIdx < MAX; latIdx++) {
+            for (int lonIdx = 0; lonIdx < MAX; lonIdx++) {
+                int index = lonIdx * MAX + latIdx;
+                na.setNode(index, 0.002 * latIdx, 0.003 * lonIdx);
+                if (latIdx < MAX - 1)
+                    graph.edge(index, index + 1, 200, true);
+
+                if (lonIdx < MAX - 1)
+                    graph.edge(index, index + MAX, 300, true);
+            }
+        }
+        LocationIndexTree index = createIndex(graph, 300);
+
+        BBox bbox = new BBox(0.02, 0.035, 0.01, 0.02);
+        GHIntHashSet set = new GHIntHashSet();
+        index.findNetworkEntries(bbox, set);
+        assertTrue(set.size() < MAX * MAX / 4);
+        // every edge inside of the area is reachable from a found node
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        for (int node = 0; node < graph.getNodes(); node++) {
+            if (!bbox.contains(na.getLat(node), na.getLon(node)))
+                continue;
+
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                assertTrue(set.contains(node) || set.contains(iter.getAdjNode()));
+            }
+        }
+
+        // outside of the graph
+        set.clear();
+        index.findNetworkEntries(new BBox(1, 2, 1, 2), set);
+        assertTrue(set.isEmpty());
+    }
 }
@@ -18,6 +18,8 @@
 package com.graphhopper.util;
 
 import com.graphhopper.coll.GHIntLongHashMap;
+import com.graphhopper.geohash.SpatialKeyAlgo;
+import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.CarFlagEncoder;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FlagEncoder;
@@ -104,6 +106,76 @@ public class GHUtilityTest {
         GHUtility.sortDFS(g, createGraph());
     }
 
+    @Test
+    public void testSortSpatially() {
+        Graph g = initUnsorted(createGraph());
+        Graph newG = GHUtility.sortSpatially(g, createGraph());
+        assertEquals(g.getNodes(), newG.getNodes());
+        assertEquals(g.getAllEdges().length(), newG.getAllEdges().length());
+
+        // the nodes are ordered along the z-curve
+        SpatialKeyAlgo keyAlgo = new SpatialKeyAlgo(62).bounds(g.getBounds());
+        NodeAccess na = newG.getNodeAccess();
+        for (int node = 1; node < newG.getNodes(); node++) {
+            assertTrue(keyAlgo.encode(na.getLatitude(node - 1), na.getLongitude(node - 1))
+                    <= keyAlgo.encode(na.getLatitude(node), na.getLongitude(node)));
+        }
+        assertEquals(0, na.getLatitude(0), 1e-4); // 0
+        assertEquals(4.5, na.getLatitude(newG.getNodes() - 1), 1e-4); // 2
+
+        // the edges are ordered by their first node and keep their properties
+        AllEdgesIterator iter = newG.getAllEdges();
+        int prevFirstNode = -1;
+        while (iter.next()) {
+            int firstNode = Math.min(iter.getBaseNode(), iter.getAdjNode());
+            assertTrue(prevFirstNode <= firstNode);
+            prevFirstNode = firstNode;
+
+            EdgeIteratorState oldEdge = GHUtility.getEdge(g, findNode(g, na, iter.getBaseNode()),
+                    findNode(g, na, iter.getAdjNode()));
+            assertEquals(oldEdge.getDistance(), iter.getDistance(), 1e-6);
+        }
+        EdgeIteratorState edge = GHUtility.getEdge(newG, findNode(newG, g.getNodeAccess(), 7), findNode(newG, g.getNodeAccess(), 3));
+        assertTrue(edge.isForward(carEncoder));
+        assertFalse(edge.isBackward(carEncoder));
+    }
+
+    private static int findNode(Graph g, NodeAccess otherNodeAccess, int otherNode) {
+        NodeAccess na = g.getNodeAccess();
+        for (int node = 0; node < g.getNodes(); node++) {
+            if (na.getLatitude(node) == otherNodeAccess.getLatitude(otherNode)
+                    && na.getLongitude(node) == otherNodeAccess.getLongitude(otherNode))
+                return node;
+        }
+        throw new IllegalArgumentException("node not found " + otherNode);
+    }
+
+    @Test
+    public void testSortWithTurnCosts() {
+        GraphHopperStorage g = new GraphHopperStorage(new RAMDirectory(), encodingManager, false,
+                new TurnCostExtension()).create(100);
+        initUnsorted(g);
+        TurnCostExtension turnCosts = (TurnCostExtension) g.getExtension();
+        // edge 5: 8-1, edge 0: 8-2, edge 4: 1-2
+        turnCosts.addTurnInfo(5, 8, 0, 3);
+        turnCosts.addTurnInfo(4, 2, 0, 7);
+
+        GraphHopperStorage newG = GHUtility.newStorage(g);
+        assertNotSame(g.getExtension(), newG.getExtension());
+        GHUtility.sortSpatially(g, newG);
+
+        NodeAccess na = g.getNodeAccess();
+        int newNode8 = findNode(newG, na, 8);
+        int newNode2 = findNode(newG, na, 2);
+        int newEdge0 = GHUtility.getEdge(newG, newNode8, newNode2).getEdge();
+        int newEdge4 = GHUtility.getEdge(newG, findNode(newG, na, 1), newNode2).getEdge();
+        int newEdge5 = GHUtility.getEdge(newG, newNode8, findNode(newG, na, 1)).getEdge();
+        TurnCostExtension newTurnCosts = (TurnCostExtension) newG.getExtension();
+        assertEquals(3, newTurnCosts.getTurnCostFlags(newEdge5, newNode8, newEdge0));
+        assertEquals(7, newTurnCosts.getTurnCostFlags(newEdge4, newNode2, newEdge0));
+        assertEquals(0, newTurnCosts.getTurnCostFlags(newEdge0, newNode2, newEdge4));
+    }
+
     @Test
     public void testCopyWithSelfRef() {
         Graph g = initUnsorted(createGraph());
@@ -0,0 +1,137 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.graphhopper.routing.ch.OneToAllCH;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.NodeAccess;
+import org.locationtech.jts.geom.Coordinate;
+
+import java.util.*;
+
+import static com.graphhopper.isochrone.algorithm.Isochrone.ExploreType.DISTANCE;
+import static com.graphhopper.isochrone.algorithm.Isochrone.ExploreType.TIME;
+
+/**
+ * Calculates the same buckets as Isochrone but on a graph prepared with contraction hierarchies. Instead of a Dijkstra
+ * that stops at the limit it uses OneToAllCH, whose duration hardly depends on the limit, so large isochrones are
+ * possible. The OneToAllCH can be reused for the next request to avoid the allocation of its arrays.
+ */
+public class IsochroneCH {
+    private final Graph graph;
+    private final OneToAllCH oneToAll;
+    private final boolean reverseFlow;
+    private double limit = -1;
+    private double finishLimit = -1;
+    private Isochrone.ExploreType exploreType = TIME;
+
+    /**
+     * @param graph the CHGraph of the OneToAllCH or a QueryGraph wrapping it
+     */
+    public IsochroneCH(Graph graph, OneToAllCH oneToAll, boolean reverseFlow) {
+        this.graph = graph;
+        this.oneToAll = oneToAll;
+        this.reverseFlow = reverseFlow;
+    }
+
+    /**
+     * Time limit in seconds
+     */
+    public void setTimeLimit(double limit) {
+        exploreType = TIME;
+        this.limit = limit * 1000;
+        // same as Isochrone: explore a bit more for the points outside of the last bucket
+        this.finishLimit = this.limit + Math.max(this.limit * 0.14, 200_000);
+    }
+
+    /**
+     * Distance limit in meter
+     */
+    public void setDistanceLimit(double limit) {
+        exploreType = DISTANCE;
+        this.limit = limit;
+        this.finishLimit = limit + Math.max(limit * 0.14, 2_000);
+    }
+
+    public List<List<Coordinate>> searchGPS(int from, int bucketCount) {
+        searchInternal(from);
+
+        double bucketSize = limit / bucketCount;
+        List<List<Coordinate>> buckets = new ArrayList<>(bucketCount + 1);
+        for (int i = 0; i < bucketCount + 1; i++) {
+            buckets.add(new ArrayList<Coordinate>());
+        }
+        NodeAccess na = graph.getNodeAccess();
+        for (int node = 0; node < graph.getNodes(); node++) {
+            if (!oneToAll.isReached(node))
+                continue;
+
+            int bucketIndex = (int) (getExploreValue(node) / bucketSize);
+            if (bucketIndex > bucketCount)
+                continue;
+
+            buckets.get(bucketIndex).add(new Coordinate(na.getLongitude(node), na.getLatitude(node)));
+        }
+        return buckets;
+    }
+
+    public List<Set<Integer>> search(int from, int bucketCount) {
+        searchInternal(from);
+
+        double bucketSize = limit / bucketCount;
+        List<Set<Integer>> list = new ArrayList<>(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            list.add(new HashSet<Integer>());
+        }
+        for (int node = 0; node < graph.getNodes(); node++) {
+            if (!oneToAll.isReached(node))
+                continue;
+
+            int bucketIndex = (int) (getExploreValue(node) / bucketSize);
+            if (bucketIndex == bucketCount)
+                bucketIndex = bucketCount - 1;
+            else if (bucketIndex > bucketCount)
+                continue;
+
+            list.get(bucketIndex).add(node);
+        }
+        return list;
+    }
+
+    private void searchInternal(int from) {
+        if (limit < 0)
+            throw new IllegalStateException("Set a time or distance limit before the search");
+
+        oneToAll.setReverse(reverseFlow);
+        if (exploreType == TIME)
+            oneToAll.setTimeLimit((long) finishLimit).setDistanceLimit(Double.MAX_VALUE);
+        else
+            oneToAll.setTimeLimit(Long.MAX_VALUE).setDistanceLimit(finishLimit);
+        oneToAll.calc(graph, from);
+    }
+
+    private double getExploreValue(int node) {
+        if (exploreType == TIME)
+            return oneToAll.getTime(node);
+        return oneToAll.getDistance(node);
+    }
+
+    public int getVisitedNodes() {
+        return oneToAll.getVisitedNodes();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.graphhopper.routing.ch.OneToAllCH;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.*;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class IsochroneCHTest {
+
+    private final CarFlagEncoder carEncoder = new CarFlagEncoder();
+    private final EncodingManager encodingManager = new EncodingManager(carEncoder);
+    private final Weighting weighting = new FastestWeighting(carEncoder);
+
+    // same graph as in IsochroneTest
+    private GraphHopperStorage createGraph() {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).setCHGraph(weighting).create();
+        graph.edge(0, 1).setDistance(70).setFlags(carEncoder.setProperties(10, true, false));
+        graph.edge(0, 4).setDistance(50).setFlags(carEncoder.setProperties(20, true, false));
+        graph.edge(1, 4).setDistance(70).setFlags(carEncoder.setProperties(10, true, true));
+        graph.edge(1, 5).setDistance(70).setFlags(carEncoder.setProperties(10, true, true));
+        graph.edge(1, 2).setDistance(200).setFlags(carEncoder.setProperties(10, true, true));
+        graph.edge(5, 2).setDistance(50).setFlags(carEncoder.setProperties(10, true, false));
+        graph.edge(2, 3).setDistance(50).setFlags(carEncoder.setProperties(10, true, false));
+        graph.edge(5, 3).setDistance(110).setFlags(carEncoder.setProperties(20, true, false));
+        graph.edge(3, 7).setDistance(70).setFlags(carEncoder.setProperties(10, true, false));
+        graph.edge(4, 6).setDistance(50).setFlags(carEncoder.setProperties(20, true, false));
+        graph.edge(5, 4).setDistance(70).setFlags(carEncoder.setProperties(10, true, false));
+        graph.edge(5, 6).setDistance(70).setFlags(carEncoder.setProperties(10, true, false));
+        graph.edge(7, 5).setDistance(50).setFlags(carEncoder.setProperties(20, true, false));
+        graph.edge(6, 7).setDistance(50).setFlags(carEncoder.setProperties(20, true, true));
+        return graph;
+    }
+
+    @Test
+    public void testSearch() {
+        GraphHopperStorage graph = createGraph();
+        CHGraph chGraph = graph.getGraph(CHGraph.class, weighting);
+        PrepareContractionHierarchies prepare = new PrepareContractionHierarchies(new GHDirectory("", DAType.RAM_INT),
+                graph, chGraph, TraversalMode.NODE_BASED);
+        prepare.doWork();
+        OneToAllCH oneToAll = prepare.createOneToAll();
+
+        IsochroneCH instance = new IsochroneCH(chGraph, oneToAll, false);
+        instance.setTimeLimit(60);
+        List<Set<Integer>> res = instance.search(0, 5);
+        assertEquals("[[0, 4], [6], [1, 7], [5], [2, 3]]", res.toString());
+
+        // the OneToAllCH can be reused
+        instance = new IsochroneCH(chGraph, oneToAll, false);
+        instance.setTimeLimit(30);
+        res = instance.search(0, 5);
+        assertEquals("[[0], [4], [], [6], [1, 7]]", res.toString());
+    }
+}
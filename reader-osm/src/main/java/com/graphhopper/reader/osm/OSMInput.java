@@ -20,9 +20,16 @@ package com.graphhopper.reader.osm;
 import com.graphhopper.reader.ReaderElement;
 
 import javax.xml.stream.XMLStreamException;
+import java.util.List;
 
 public interface OSMInput extends AutoCloseable {
     ReaderElement getNext() throws XMLStreamException;
 
+    /**
+     * @return the next elements in file order or null if the end of the file was reached. For PBF files this is
+     * the content of one decoded blob.
+     */
+    List<ReaderElement> getNextBlock() throws XMLStreamException;
+
     int getUnprocessedElements();
 }
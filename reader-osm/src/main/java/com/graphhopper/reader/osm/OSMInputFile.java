@@ -27,6 +27,9 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.*;
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -40,8 +43,13 @@ import java.util.zip.ZipInputStream;
  * @author Nop
  */
 public class OSMInputFile implements Sink, OSMInput {
+    private static final int XML_BLOCK_SIZE = 10_000;
     private final InputStream bis;
-    private final BlockingQueue<ReaderElement> itemQueue;
+    // for pbf the decoded blobs are passed as a whole to reduce the synchronization per element
+    private final BlockingQueue<List<ReaderElement>> blockQueue;
+    private List<ReaderElement> currentBlock = Collections.emptyList();
+    private int currentIndex;
+    private boolean xmlEndReached;
     Thread pbfReaderThread;
     private boolean eof;
     // for xml parsing
@@ -54,7 +62,8 @@ public class OSMInputFile implements Sink, OSMInput {
 
     public OSMInputFile(File file) throws IOException {
         bis = decode(file);
-        itemQueue = new LinkedBlockingQueue<>(50_000);
+        // a blob contains up to 8000 elements
+        blockQueue = new LinkedBlockingQueue<>(16);
     }
 
     public OSMInputFile open() throws XMLStreamException {
@@ -174,6 +183,44 @@ public class OSMInputFile implements Sink, OSMInput {
         return null;
     }
 
+    @Override
+    public List<ReaderElement> getNextBlock() throws XMLStreamException {
+        if (eof)
+            throw new IllegalStateException("EOF reached");
+
+        List<ReaderElement> block;
+        if (binary) {
+            if (currentIndex < currentBlock.size()) {
+                block = currentBlock.subList(currentIndex, currentBlock.size());
+                currentIndex = currentBlock.size();
+                return block;
+            }
+            block = getNextPBFBlock();
+        } else if (xmlEndReached) {
+            block = null;
+        } else {
+            block = new ArrayList<>(XML_BLOCK_SIZE);
+            ReaderElement item;
+            while (block.size() < XML_BLOCK_SIZE) {
+                item = getNextXML();
+                if (item == null) {
+                    // the parser must not be called again after the end of the document
+                    xmlEndReached = true;
+                    break;
+                }
+                block.add(item);
+            }
+            if (block.isEmpty())
+                block = null;
+        }
+
+        if (block != null)
+            return block;
+
+        eof = true;
+        return null;
+    }
+
     private ReaderElement getNextXML() throws XMLStreamException {
 
         int event = parser.next();
@@ -245,17 +292,24 @@ public class OSMInputFile implements Sink, OSMInput {
     }
 
     @Override
-    public void process(ReaderElement item) {
+    public void process(List<ReaderElement> block) {
+        if (block.isEmpty())
+            return;
+
         try {
             // blocks if full
-            itemQueue.put(item);
+            blockQueue.put(block);
         } catch (InterruptedException ex) {
             throw new RuntimeException(ex);
         }
     }
 
     public int getUnprocessedElements() {
-        return itemQueue.size();
+        int count = currentBlock.size() - currentIndex;
+        for (List<ReaderElement> block : blockQueue) {
+            count += block.size();
+        }
+        return count;
     }
 
     @Override
@@ -264,17 +318,29 @@ public class OSMInputFile implements Sink, OSMInput {
     }
 
     private ReaderElement getNextPBF() {
-        ReaderElement next = null;
+        if (currentIndex >= currentBlock.size()) {
+            List<ReaderElement> block = getNextPBFBlock();
+            if (block == null)
+                return null;
+
+            currentBlock = block;
+            currentIndex = 0;
+        }
+        return currentBlock.get(currentIndex++);
+    }
+
+    private List<ReaderElement> getNextPBFBlock() {
+        List<ReaderElement> next = null;
         while (next == null) {
-            if (!hasIncomingData && itemQueue.isEmpty()) {
+            if (!hasIncomingData && blockQueue.isEmpty()) {
                 // we are done, stop polling
                 eof = true;
                 break;
             }
 
             try {
-                // we cannot use "itemQueue.take()" as it blocks and hasIncomingData can change
-                next = itemQueue.poll(10, TimeUnit.MILLISECONDS);
+                // we cannot use "blockQueue.take()" as it blocks and hasIncomingData can change
+                next = blockQueue.poll(10, TimeUnit.MILLISECONDS);
             } catch (InterruptedException ex) {
                 eof = true;
                 break;
@@ -38,6 +38,7 @@ import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
 
 import static com.graphhopper.util.Helper.nf;
 
@@ -89,6 +90,8 @@ public class OSMReader implements DataReader {
     private long skippedLocations;
     private final EncodingManager encodingManager;
     private int workerThreads = 2;
+    private int filterWorkerThreads = 1;
+    private int elevationWorkerThreads = 1;
     // Using the correct Map<Long, Integer> is hard. We need a memory efficient and fast solution for big data sets!
     //
     // very slow: new SparseLongLongArray
@@ -96,9 +99,10 @@ public class OSMReader implements DataReader {
     // same here: not applicable as ways introduces the nodes in 'wrong' order: new OSMIDSegmentedMap
     // memory overhead due to open addressing and full rehash:
     //        nodeOsmIdToIndexMap = new BigLongIntMap(expectedNodes, EMPTY);
-    // smaller memory overhead for bigger data sets because of avoiding a "rehash"
+    // smaller memory overhead for bigger data sets because of avoiding a "rehash": new GHLongIntBTree
+    // delta compressed keys outside of the heap, unordered keys are buffered and merged: new CompactLongIntMap
     // remember how many times a node was used to identify tower nodes
-    private LongIntMap osmNodeIdToInternalNodeMap;
+    private CompactLongIntMap osmNodeIdToInternalNodeMap;
     private GHLongLongHashMap osmNodeIdToNodeFlagsMap;
     private GHLongLongHashMap osmWayIdToRouteWeightMap;
     // stores osm way ids used by relations to identify which edge ids needs to be mapped later
@@ -120,7 +124,7 @@ public class OSMReader implements DataReader {
         this.nodeAccess = graph.getNodeAccess();
         this.encodingManager = ghStorage.getEncodingManager();
 
-        osmNodeIdToInternalNodeMap = new GHLongIntBTree(200);
+        osmNodeIdToInternalNodeMap = new CompactLongIntMap(ghStorage.getDirectory(), "tmp_osm_node_map", EMPTY_NODE);
         osmNodeIdToNodeFlagsMap = new GHLongLongHashMap(200, .5f);
         osmWayIdToRouteWeightMap = new GHLongLongHashMap(200, .5f);
         pillarInfo = new PillarInfo(nodeAccess.is3D(), ghStorage.getDirectory());
@@ -139,6 +143,8 @@ public class OSMReader implements DataReader {
 
         StopWatch sw1 = new StopWatch().start();
         preProcess(osmFile);
+        // merge the buffered node ids before the lookups of the second pass
+        getNodeMap().optimize();
         sw1.stop();
 
         StopWatch sw2 = new StopWatch().start();
@@ -155,49 +161,184 @@ public class OSMReader implements DataReader {
      * compact graph data structure.
      */
     void preProcess(File osmFile) {
+        ExecutorService executor = createExecutor();
         try (OSMInput in = openOsmInputFile(osmFile)) {
             long tmpWayCounter = 1;
             long tmpRelationCounter = 1;
-            ReaderElement item;
-            while ((item = in.getNext()) != null) {
-                if (item.isType(ReaderElement.WAY)) {
-                    final ReaderWay way = (ReaderWay) item;
-                    boolean valid = filterWay(way);
-                    if (valid) {
-                        LongIndexedContainer wayNodes = way.getNodes();
-                        int s = wayNodes.size();
-                        for (int index = 0; index < s; index++) {
-                            prepareHighwayNode(wayNodes.get(index));
+            List<ReaderElement> block;
+            while ((block = in.getNextBlock()) != null) {
+                boolean[] acceptedWays = filterWays(block, executor);
+                for (int i = 0; i < block.size(); i++) {
+                    ReaderElement item = block.get(i);
+                    if (item.isType(ReaderElement.WAY)) {
+                        if (acceptedWays[i]) {
+                            LongIndexedContainer wayNodes = ((ReaderWay) item).getNodes();
+                            int s = wayNodes.size();
+                            for (int index = 0; index < s; index++) {
+                                prepareHighwayNode(wayNodes.get(index));
+                            }
+
+                            if (++tmpWayCounter % 10_000_000 == 0) {
+                                LOGGER.info(nf(tmpWayCounter) + " (preprocess), osmIdMap:" + nf(getNodeMap().getSize()) + " ("
+                                        + getNodeMap().getMemoryUsage() + "MB) " + Helper.getMemInfo());
+                            }
                         }
+                    } else if (item.isType(ReaderElement.RELATION)) {
+                        final ReaderRelation relation = (ReaderRelation) item;
+                        if (!relation.isMetaRelation() && relation.hasTag("type", "route"))
+                            prepareWaysWithRelationInfo(relation);
 
-                        if (++tmpWayCounter % 10_000_000 == 0) {
-                            LOGGER.info(nf(tmpWayCounter) + " (preprocess), osmIdMap:" + nf(getNodeMap().getSize()) + " ("
-                                    + getNodeMap().getMemoryUsage() + "MB) " + Helper.getMemInfo());
+                        if (relation.hasTag("type", "restriction"))
+                            prepareRestrictionRelation(relation);
+
+                        if (++tmpRelationCounter % 100_000 == 0) {
+                            LOGGER.info(nf(tmpRelationCounter) + " (preprocess), osmWayMap:" + nf(getRelFlagsMap().size())
+                                    + " " + Helper.getMemInfo());
                         }
+                    } else if (item.isType(ReaderElement.FILEHEADER)) {
+                        final OSMFileHeader fileHeader = (OSMFileHeader) item;
+                        osmDataDate = Helper.createFormatter().parse(fileHeader.getTag("timestamp"));
                     }
-                } else if (item.isType(ReaderElement.RELATION)) {
-                    final ReaderRelation relation = (ReaderRelation) item;
-                    if (!relation.isMetaRelation() && relation.hasTag("type", "route"))
-                        prepareWaysWithRelationInfo(relation);
+                }
+            }
+        } catch (Exception ex) {
+            throw new RuntimeException("Problem while parsing file", ex);
+        } finally {
+            if (executor != null)
+                executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return an executor to process the elements of one block in parallel or null if only one worker thread is
+     * configured
+     */
+    private ExecutorService createExecutor() {
+        int threads = Math.max(filterWorkerThreads, elevationWorkerThreads);
+        return threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+    }
+
+    /**
+     * Calls filterWay for all ways of the specified block. Uses the executor if not null, so filterWay and the
+     * acceptWay methods of the encoders must be thread safe.
+     *
+     * @return true at the indices of the ways that are accepted
+     */
+    private boolean[] filterWays(final List<ReaderElement> block, ExecutorService executor) {
+        final boolean[] accepted = new boolean[block.size()];
+        forEachIndex(block.size(), filterWorkerThreads, executor, new IndexTask() {
+            @Override
+            public void run(int index) {
+                ReaderElement item = block.get(index);
+                accepted[index] = item.isType(ReaderElement.WAY) && filterWay((ReaderWay) item);
+            }
+        });
+        return accepted;
+    }
+
+    /**
+     * Looks up all nodes of the specified block in the node map. The lookups do not change the map so they can run
+     * in parallel as long as nothing else modifies the map.
+     *
+     * @return true at the indices of the nodes that are used by ways
+     */
+    private boolean[] findRequiredNodes(final List<ReaderElement> block, final LongIntMap nodeFilter,
+                                        ExecutorService executor) {
+        final boolean[] required = new boolean[block.size()];
+        forEachIndex(block.size(), filterWorkerThreads, executor, new IndexTask() {
+            @Override
+            public void run(int index) {
+                ReaderElement item = block.get(index);
+                required[index] = item.isType(ReaderElement.NODE) && nodeFilter.get(item.getId()) != EMPTY_NODE;
+            }
+        });
+        return required;
+    }
+
+    /**
+     * Looks up the elevation of the required nodes of the specified block. The nodes are sorted by the degree cell they
+     * are located in and every worker thread gets a contiguous range of them, so that a thread reads only from a few
+     * tiles of the elevation provider and loads every tile at most once. The lookup only runs in parallel if more
+     * than one elevation worker thread is configured, i.e. if the ElevationProvider is known to be thread safe.
+     *
+     * @return the elevations at the indices of the required nodes or null if the graph has no elevation
+     */
+    private double[] findElevations(final List<ReaderElement> block, boolean[] requiredNodes, ExecutorService executor) {
+        if (!nodeAccess.is3D())
+            return null;
+
+        // the cell in the upper bits and the index in the block in the lower bits, so sorting groups the nodes by cell
+        long[] cellAndIndex = new long[block.size()];
+        int size = 0;
+        for (int i = 0; i < block.size(); i++) {
+            if (requiredNodes[i] && isInBounds((ReaderNode) block.get(i))) {
+                ReaderNode node = (ReaderNode) block.get(i);
+                long cell = ((long) Math.floor(node.getLat()) + 90) * 360 + (long) Math.floor(node.getLon()) + 180;
+                cellAndIndex[size++] = cell << 32 | i;
+            }
+        }
+        Arrays.sort(cellAndIndex, 0, size);
 
-                    if (relation.hasTag("type", "restriction"))
-                        prepareRestrictionRelation(relation);
+        final int[] indices = new int[size];
+        for (int i = 0; i < size; i++) {
+            indices[i] = (int) cellAndIndex[i];
+        }
+        final double[] elevations = new double[block.size()];
+        forEachIndex(size, elevationWorkerThreads, executor, new IndexTask() {
+            @Override
+            public void run(int index) {
+                int blockIndex = indices[index];
+                elevations[blockIndex] = getElevation((ReaderNode) block.get(blockIndex));
+            }
+        });
+        return elevations;
+    }
 
-                    if (++tmpRelationCounter % 100_000 == 0) {
-                        LOGGER.info(nf(tmpRelationCounter) + " (preprocess), osmWayMap:" + nf(getRelFlagsMap().size())
-                                + " " + Helper.getMemInfo());
+    /**
+     * Runs the task for all indices in [0, size). If the executor is not null and more than one thread is specified
+     * the indices are split into one contiguous range per thread.
+     */
+    private void forEachIndex(final int size, int threads, ExecutorService executor, final IndexTask task) {
+        if (executor == null || threads < 2 || size < 2 * threads) {
+            for (int i = 0; i < size; i++) {
+                task.run(i);
+            }
+            return;
+        }
+
+        List<Callable<Object>> callables = new ArrayList<>(threads);
+        final int rangeSize = (size + threads - 1) / threads;
+        for (int start = 0; start < size; start += rangeSize) {
+            final int from = start;
+            callables.add(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    int to = Math.min(from + rangeSize, size);
+                    for (int i = from; i < to; i++) {
+                        task.run(i);
                     }
-                } else if (item.isType(ReaderElement.FILEHEADER)) {
-                    final OSMFileHeader fileHeader = (OSMFileHeader) item;
-                    osmDataDate = Helper.createFormatter().parse(fileHeader.getTag("timestamp"));
+                    return null;
                 }
-
+            });
+        }
+        try {
+            for (Future<Object> future : executor.invokeAll(callables)) {
+                future.get();
             }
-        } catch (Exception ex) {
-            throw new RuntimeException("Problem while parsing file", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new RuntimeException(ex.getCause());
         }
     }
 
+    private interface IndexTask {
+        void run(int index);
+    }
+
     private void prepareRestrictionRelation(ReaderRelation relation) {
         OSMTurnRelation turnRelation = createTurnRelation(relation);
         if (turnRelation != null) {
@@ -251,39 +392,46 @@ public class OSMReader implements DataReader {
         long wayStart = -1;
         long relationStart = -1;
         long counter = 1;
+        ExecutorService executor = createExecutor();
         try (OSMInput in = openOsmInputFile(osmFile)) {
             LongIntMap nodeFilter = getNodeMap();
 
-            ReaderElement item;
-            while ((item = in.getNext()) != null) {
-                switch (item.getType()) {
-                    case ReaderElement.NODE:
-                        if (nodeFilter.get(item.getId()) != EMPTY_NODE) {
-                            processNode((ReaderNode) item);
-                        }
-                        break;
-
-                    case ReaderElement.WAY:
-                        if (wayStart < 0) {
-                            LOGGER.info(nf(counter) + ", now parsing ways");
-                            wayStart = counter;
-                        }
-                        processWay((ReaderWay) item);
-                        break;
-                    case ReaderElement.RELATION:
-                        if (relationStart < 0) {
-                            LOGGER.info(nf(counter) + ", now parsing relations");
-                            relationStart = counter;
-                        }
-                        processRelation((ReaderRelation) item);
-                        break;
-                    case ReaderElement.FILEHEADER:
-                        break;
-                    default:
-                        throw new IllegalStateException("Unknown type " + item.getType());
-                }
-                if (++counter % 200_000_000 == 0) {
-                    LOGGER.info(nf(counter) + ", locs:" + nf(locations) + " (" + skippedLocations + ") " + Helper.getMemInfo());
+            List<ReaderElement> block;
+            while ((block = in.getNextBlock()) != null) {
+                // the node and elevation lookups of a block run in parallel, but nodes and edges have to be created in order
+                boolean[] requiredNodes = findRequiredNodes(block, nodeFilter, executor);
+                double[] elevations = findElevations(block, requiredNodes, executor);
+                for (int i = 0; i < block.size(); i++) {
+                    ReaderElement item = block.get(i);
+                    switch (item.getType()) {
+                        case ReaderElement.NODE:
+                            if (requiredNodes[i]) {
+                                processNode((ReaderNode) item, elevations == null ? Double.NaN : elevations[i]);
+                            }
+                            break;
+
+                        case ReaderElement.WAY:
+                            if (wayStart < 0) {
+                                LOGGER.info(nf(counter) + ", now parsing ways");
+                                wayStart = counter;
+                            }
+                            processWay((ReaderWay) item);
+                            break;
+                        case ReaderElement.RELATION:
+                            if (relationStart < 0) {
+                                LOGGER.info(nf(counter) + ", now parsing relations");
+                                relationStart = counter;
+                            }
+                            processRelation((ReaderRelation) item);
+                            break;
+                        case ReaderElement.FILEHEADER:
+                            break;
+                        default:
+                            throw new IllegalStateException("Unknown type " + item.getType());
+                    }
+                    if (++counter % 200_000_000 == 0) {
+                        LOGGER.info(nf(counter) + ", locs:" + nf(locations) + " (" + skippedLocations + ") " + Helper.getMemInfo());
+                    }
                 }
             }
 
@@ -293,6 +441,9 @@ public class OSMReader implements DataReader {
             // logger.info("storage nodes:" + storage.nodes() + " vs. graph nodes:" + storage.getGraph().nodes());
         } catch (Exception ex) {
             throw new RuntimeException("Couldn't process file " + osmFile + ", error: " + ex.getMessage(), ex);
+        } finally {
+            if (executor != null)
+                executor.shutdownNow();
         }
 
         finishedReading();
@@ -512,9 +663,9 @@ public class OSMReader implements DataReader {
             return Double.NaN;
     }
 
-    private void processNode(ReaderNode node) {
+    private void processNode(ReaderNode node, double ele) {
         if (isInBounds(node)) {
-            addNode(node);
+            addNode(node, ele);
 
             // analyze node tags for barriers
             if (node.hasTags()) {
@@ -530,13 +681,16 @@ public class OSMReader implements DataReader {
     }
 
     boolean addNode(ReaderNode node) {
+        return addNode(node, getElevation(node));
+    }
+
+    private boolean addNode(ReaderNode node, double ele) {
         int nodeType = getNodeMap().get(node.getId());
         if (nodeType == EMPTY_NODE)
             return false;
 
         double lat = node.getLat();
         double lon = node.getLon();
-        double ele = getElevation(node);
         if (nodeType == TOWER_NODE) {
             addTowerNode(node.getId(), lat, lon, ele);
         } else if (nodeType == PILLAR_NODE) {
@@ -777,6 +931,7 @@ public class OSMReader implements DataReader {
         printInfo("way");
         pillarInfo.clear();
         eleProvider.release();
+        osmNodeIdToInternalNodeMap.clear();
         osmNodeIdToInternalNodeMap = null;
         osmNodeIdToNodeFlagsMap = null;
         osmWayIdToRouteWeightMap = null;
@@ -887,12 +1042,41 @@ public class OSMReader implements DataReader {
         return this;
     }
 
+    /**
+     * Sets the number of threads that decode the PBF blobs.
+     */
     @Override
     public OSMReader setWorkerThreads(int numOfWorkers) {
         this.workerThreads = numOfWorkers;
         return this;
     }
 
+    /**
+     * Sets the number of threads that filter the ways and look up the required nodes of a block. Default is 1. Use
+     * more threads only if the acceptWay methods of all FlagEncoders are thread safe, like the built-in encoders.
+     */
+    @Override
+    public OSMReader setFilterWorkerThreads(int filterWorkerThreads) {
+        if (filterWorkerThreads < 1)
+            throw new IllegalArgumentException("filter worker threads must be at least 1 but was " + filterWorkerThreads);
+
+        this.filterWorkerThreads = filterWorkerThreads;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads that look up the elevations of the nodes of a block. Default is 1. Use more threads
+     * only if the ElevationProvider is thread safe, like the SRTM and tiff based providers.
+     */
+    @Override
+    public OSMReader setElevationWorkerThreads(int elevationWorkerThreads) {
+        if (elevationWorkerThreads < 1)
+            throw new IllegalArgumentException("elevation worker threads must be at least 1 but was " + elevationWorkerThreads);
+
+        this.elevationWorkerThreads = elevationWorkerThreads;
+        return this;
+    }
+
     @Override
     public OSMReader setElevationProvider(ElevationProvider eleProvider) {
         if (eleProvider == null)
@@ -87,14 +87,12 @@ public class PbfDecoder implements Runnable {
                 throw new RuntimeException("A PBF decoding worker thread failed, aborting.", blobResult.getException());
             }
 
-            // Send the processed entities to the sink. We can release the lock
-            // for the duration of processing to allow worker threads to post
-            // their results.
+            // Send the processed entities to the sink as one block. We can release
+            // the lock for the duration of processing to allow worker threads to
+            // post their results.
             lock.unlock();
             try {
-                for (ReaderElement entity : blobResult.getEntities()) {
-                    sink.process(entity);
-                }
+                sink.process(blobResult.getEntities());
             } finally {
                 lock.lock();
             }
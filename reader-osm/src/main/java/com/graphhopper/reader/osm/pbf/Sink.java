@@ -19,11 +19,16 @@ package com.graphhopper.reader.osm.pbf;
 
 import com.graphhopper.reader.ReaderElement;
 
+import java.util.List;
+
 /**
  * @author Nop
  */
 public interface Sink {
-    void process(ReaderElement item);
+    /**
+     * Receives all elements of one decoded block in file order.
+     */
+    void process(List<ReaderElement> block);
 
     void complete();
 }
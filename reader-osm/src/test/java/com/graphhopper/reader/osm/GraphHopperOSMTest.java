@@ -116,6 +116,27 @@ public class GraphHopperOSMTest {
         }
     }
 
+    @Test
+    public void testOptimizeTurnCostsOnlyOnImport() {
+        GraphHopper closableInstance = new GraphHopperOSM().
+                setStoreOnFlush(true).
+                setCHEnabled(false).
+                setEncodingManager(new EncodingManager(new CarFlagEncoder(5, 5, 1))).
+                setGraphHopperLocation(ghLoc).
+                setDataReaderFile(testOsm);
+        closableInstance.importOrLoad();
+        assertTrue(((TurnCostExtension) closableInstance.getGraphHopperStorage().getExtension()).isOptimized());
+        closableInstance.close();
+
+        // the optimized entries were stored by the import
+        closableInstance = new GraphHopperOSM().
+                setStoreOnFlush(true).
+                setCHEnabled(false);
+        assertTrue(closableInstance.load(ghLoc));
+        assertTrue(((TurnCostExtension) closableInstance.getGraphHopperStorage().getExtension()).isOptimized());
+        closableInstance.close();
+    }
+
     @Test
     public void testLoadOSMNoCH() {
         GraphHopper gh = new GraphHopperOSM().setStoreOnFlush(true).setCHEnabled(false).
@@ -665,6 +665,82 @@ public class OSMReaderTest {
                 edge.fetchWayGeometry(3));
     }
 
+    @Test
+    public void testReadEleInParallel() {
+        GraphHopperStorage sequential = importMonacoWithElevation(1);
+        GraphHopperStorage parallel = importMonacoWithElevation(4);
+        assertEquals(sequential.getNodes(), parallel.getNodes());
+        NodeAccess na = sequential.getNodeAccess();
+        NodeAccess parallelNA = parallel.getNodeAccess();
+        int nodesWithEle = 0;
+        for (int node = 0; node < sequential.getNodes(); node++) {
+            assertEquals(na.getLat(node), parallelNA.getLat(node), 1e-6);
+            assertEquals(na.getEle(node), parallelNA.getEle(node), 1e-6);
+            if (na.getEle(node) != 0)
+                nodesWithEle++;
+        }
+        assertTrue(nodesWithEle > sequential.getNodes() / 2);
+    }
+
+    private GraphHopperStorage importMonacoWithElevation(int elevationWorkerThreads) {
+        CmdArgs args = new CmdArgs().
+                put("graph.flag_encoders", "car").
+                put("prepare.ch.weightings", "no").
+                put("graph.elevation.provider", "srtm").
+                put("graph.elevation.cache_dir", GraphHopperIT.DIR).
+                put("graph.elevation.dataaccess", "RAM").
+                put("datareader.file", GraphHopperIT.DIR + "/monaco.osm.gz").
+                put("datareader.elevation_worker_threads", elevationWorkerThreads).
+                put("graph.location", dir + "/monaco" + elevationWorkerThreads);
+        GraphHopper hopper = new GraphHopperOSM().init(args).setStoreOnFlush(false).importOrLoad();
+        return hopper.getGraphHopperStorage();
+    }
+
+    @Test
+    public void testFilterInParallel() {
+        // the XML file is read via getNextBlock and the PBF file is decoded in parallel and passed via Sink.process
+        for (String file : Arrays.asList("monaco.osm.gz", "andorra.osm.pbf")) {
+            GraphHopperStorage sequential = importWithFilterThreads(file, 1);
+            GraphHopperStorage parallel = importWithFilterThreads(file, 4);
+            assertSameGraph(sequential, parallel);
+        }
+    }
+
+    private GraphHopperStorage importWithFilterThreads(String file, int threads) {
+        CmdArgs args = new CmdArgs().
+                put("graph.flag_encoders", "car,foot").
+                put("prepare.ch.weightings", "no").
+                put("datareader.file", GraphHopperIT.DIR + "/" + file).
+                put("datareader.worker_threads", threads).
+                put("datareader.filter_worker_threads", threads).
+                put("graph.location", dir + "/filter" + threads);
+        GraphHopper hopper = new GraphHopperOSM().init(args).setStoreOnFlush(false).importOrLoad();
+        return hopper.getGraphHopperStorage();
+    }
+
+    private static void assertSameGraph(GraphHopperStorage expected, GraphHopperStorage graph) {
+        assertEquals(expected.getNodes(), graph.getNodes());
+        assertEquals(expected.getAllEdges().length(), graph.getAllEdges().length());
+        NodeAccess expectedNA = expected.getNodeAccess();
+        NodeAccess na = graph.getNodeAccess();
+        for (int node = 0; node < expected.getNodes(); node++) {
+            assertEquals(expectedNA.getLat(node), na.getLat(node), 1e-9);
+            assertEquals(expectedNA.getLon(node), na.getLon(node), 1e-9);
+        }
+        AllEdgesIterator expectedIter = expected.getAllEdges();
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (expectedIter.next()) {
+            assertTrue(iter.next());
+            assertEquals(expectedIter.getBaseNode(), iter.getBaseNode());
+            assertEquals(expectedIter.getAdjNode(), iter.getAdjNode());
+            assertEquals(expectedIter.getDistance(), iter.getDistance(), 1e-9);
+            assertEquals(expectedIter.getFlags(), iter.getFlags());
+            assertEquals(expectedIter.getName(), iter.getName());
+            assertEquals(expectedIter.fetchWayGeometry(0), iter.fetchWayGeometry(0));
+        }
+        assertFalse(iter.next());
+    }
+
     /**
      * Tests the combination of different turn cost flags by different encoders.
      */
@@ -17,18 +17,22 @@
  */
 package com.graphhopper.http;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphhopper.GHResponse;
 import com.graphhopper.PathWrapper;
-import com.graphhopper.util.Helper;
-import com.graphhopper.util.PointList;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.text.NumberFormat;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * Code which handles polyline encoding and other web stuff.
@@ -184,4 +188,138 @@ public class WebHelper {
         return json;
     }
 
+    /**
+     * Writes the same JSON as jsonObject directly to the specified generator. The points, instructions and path
+     * details are written one by one, so no intermediate object tree is created even for long routes.
+     */
+    public static void writeJson(JsonGenerator gen, GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded, float took) throws IOException {
+        gen.writeStartObject();
+        gen.writeObjectFieldStart("hints");
+        for (Map.Entry<String, String> hint : ghRsp.getHints().toMap().entrySet()) {
+            gen.writeStringField(hint.getKey(), hint.getValue());
+        }
+        gen.writeEndObject();
+
+        // If you replace GraphHopper with your own brand name, this is fine.
+        // Still it would be highly appreciated if you mention us in your about page!
+        gen.writeObjectFieldStart("info");
+        gen.writeArrayFieldStart("copyrights");
+        gen.writeString("GraphHopper");
+        gen.writeString("OpenStreetMap contributors");
+        gen.writeEndArray();
+        gen.writeNumberField("took", Math.round(took * 1000));
+        gen.writeEndObject();
+
+        gen.writeArrayFieldStart("paths");
+        for (PathWrapper ar : ghRsp.getAll()) {
+            gen.writeStartObject();
+            gen.writeNumberField("distance", Helper.round(ar.getDistance(), 3));
+            gen.writeNumberField("weight", Helper.round6(ar.getRouteWeight()));
+            gen.writeNumberField("time", ar.getTime());
+            gen.writeNumberField("transfers", ar.getNumChanges());
+            if (!ar.getDescription().isEmpty()) {
+                gen.writeArrayFieldStart("description");
+                for (String description : ar.getDescription()) {
+                    gen.writeString(description);
+                }
+                gen.writeEndArray();
+            }
+            if (calcPoints) {
+                gen.writeBooleanField("points_encoded", pointsEncoded);
+                if (ar.getPoints().getSize() >= 2) {
+                    gen.writeArrayFieldStart("bbox");
+                    for (Double number : ar.calcBBox2D().toGeoJson()) {
+                        gen.writeNumber(number);
+                    }
+                    gen.writeEndArray();
+                }
+                gen.writeFieldName("points");
+                writePoints(gen, ar.getPoints(), enableElevation, pointsEncoded);
+                if (enableInstructions) {
+                    gen.writeFieldName("instructions");
+                    writeInstructions(gen, ar.getInstructions());
+                }
+                gen.writeObjectField("legs", ar.getLegs());
+                gen.writeObjectFieldStart("details");
+                for (Map.Entry<String, List<PathDetail>> entry : ar.getPathDetails().entrySet()) {
+                    gen.writeArrayFieldStart(entry.getKey());
+                    for (PathDetail detail : entry.getValue()) {
+                        gen.writeObject(detail);
+                    }
+                    gen.writeEndArray();
+                }
+                gen.writeEndObject();
+                gen.writeNumberField("ascend", ar.getAscend());
+                gen.writeNumberField("descend", ar.getDescend());
+            }
+            gen.writeFieldName("snapped_waypoints");
+            writePoints(gen, ar.getWaypoints(), enableElevation, pointsEncoded);
+            if (ar.getFare() != null) {
+                gen.writeStringField("fare", NumberFormat.getCurrencyInstance(Locale.ROOT).format(ar.getFare()));
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    /**
+     * Writes the points as encoded polyline or as GeoJSON LineString like PointList.toLineString.
+     */
+    private static void writePoints(JsonGenerator gen, PointList points, boolean enableElevation, boolean pointsEncoded) throws IOException {
+        if (pointsEncoded) {
+            gen.writeString(encodePolyline(points, enableElevation));
+            return;
+        }
+
+        gen.writeStartObject();
+        gen.writeStringField("type", "LineString");
+        gen.writeArrayFieldStart("coordinates");
+        // a single point is not supported in the specification #1412
+        int size = points.getSize() == 1 ? 2 : points.getSize();
+        for (int i = 0; i < size; i++) {
+            int index = Math.min(i, points.getSize() - 1);
+            gen.writeStartArray();
+            gen.writeNumber(PointList.round6(points.getLongitude(index)));
+            gen.writeNumber(PointList.round6(points.getLatitude(index)));
+            if (enableElevation)
+                gen.writeNumber(PointList.round2(points.getElevation(index)));
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    /**
+     * Writes the instructions like InstructionList.createJson.
+     */
+    private static void writeInstructions(JsonGenerator gen, InstructionList instructions) throws IOException {
+        gen.writeStartArray();
+        int pointsIndex = 0;
+        for (Instruction instruction : instructions) {
+            gen.writeStartObject();
+            gen.writeStringField("text", instructions.getTurnDescription(instruction));
+            InstructionAnnotation ia = instruction.getAnnotation();
+            if (!ia.isEmpty()) {
+                gen.writeStringField("annotation_text", ia.getMessage());
+                gen.writeNumberField("annotation_importance", ia.getImportance());
+            }
+            gen.writeStringField("street_name", instruction.getName());
+            gen.writeNumberField("time", instruction.getTime());
+            gen.writeNumberField("distance", Helper.round(instruction.getDistance(), 3));
+            gen.writeNumberField("sign", instruction.getSign());
+            for (Map.Entry<String, Object> entry : instruction.getExtraInfoJSON().entrySet()) {
+                gen.writeObjectField(entry.getKey(), entry.getValue());
+            }
+
+            int tmpIndex = pointsIndex + instruction.getLength();
+            gen.writeArrayFieldStart("interval");
+            gen.writeNumber(pointsIndex);
+            gen.writeNumber(tmpIndex);
+            gen.writeEndArray();
+            pointsIndex = tmpIndex;
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+    }
 }
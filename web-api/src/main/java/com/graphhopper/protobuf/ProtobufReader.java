@@ -0,0 +1,160 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.protobuf;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.graphhopper.protobuf.ProtobufWriter.*;
+
+/**
+ * Reads the protocol buffers wire format written by ProtobufWriter or any other protocol buffers implementation.
+ * Call next to move to the next field and then one of the read methods matching the type of the field or skip.
+ */
+public class ProtobufReader {
+    private static final int FIXED32 = 5;
+    private final byte[] bytes;
+    private final int end;
+    private int position;
+    private int field;
+    private int wireType;
+
+    public ProtobufReader(byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    ProtobufReader(byte[] bytes, int start, int end) {
+        this.bytes = bytes;
+        this.position = start;
+        this.end = end;
+    }
+
+    /**
+     * @return false if the end of the message is reached
+     */
+    public boolean next() {
+        if (!hasRemaining())
+            return false;
+
+        long tag = readVarint();
+        field = (int) (tag >>> 3);
+        wireType = (int) (tag & 0x7);
+        return true;
+    }
+
+    /**
+     * @return true if there are more bytes, e.g. more values of a packed repeated field
+     */
+    public boolean hasRemaining() {
+        return position < end;
+    }
+
+    public int getField() {
+        return field;
+    }
+
+    /**
+     * @return true if the current field is length delimited, i.e. a repeated scalar field is packed
+     */
+    public boolean isLengthDelimited() {
+        return wireType == LENGTH_DELIMITED;
+    }
+
+    public long readVarint() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (position >= end)
+                throw new IllegalStateException("Unexpected end of protobuf message");
+            byte b = bytes[position++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return result;
+        }
+        throw new IllegalStateException("Malformed varint at position " + position);
+    }
+
+    public long readSVarint() {
+        long value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    public boolean readBool() {
+        return readVarint() != 0;
+    }
+
+    public double readDouble() {
+        checkRemaining(8);
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits |= (bytes[position++] & 0xFFL) << (8 * i);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    public String readString() {
+        int length = readLength();
+        String str = new String(bytes, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return str;
+    }
+
+    /**
+     * @return a reader for the nested message or the values of a packed repeated field
+     */
+    public ProtobufReader readMessage() {
+        int length = readLength();
+        ProtobufReader reader = new ProtobufReader(bytes, position, position + length);
+        position += length;
+        return reader;
+    }
+
+    /**
+     * Skips the value of the current field, e.g. because it is unknown.
+     */
+    public void skip() {
+        switch (wireType) {
+            case VARINT:
+                readVarint();
+                break;
+            case FIXED64:
+                checkRemaining(8);
+                position += 8;
+                break;
+            case LENGTH_DELIMITED:
+                int length = readLength();
+                position += length;
+                break;
+            case FIXED32:
+                checkRemaining(4);
+                position += 4;
+                break;
+            default:
+                throw new IllegalStateException("Unsupported wire type " + wireType + " of field " + field);
+        }
+    }
+
+    private int readLength() {
+        long length = readVarint();
+        checkRemaining(length);
+        return (int) length;
+    }
+
+    private void checkRemaining(long length) {
+        if (length < 0 || position + length > end)
+            throw new IllegalStateException("Unexpected end of protobuf message");
+    }
+}
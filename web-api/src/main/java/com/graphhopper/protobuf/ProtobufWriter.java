@@ -0,0 +1,155 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.protobuf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Writes the protocol buffers wire format without generated classes, see
+ * https://developers.google.com/protocol-buffers/docs/encoding
+ * <p>
+ * Nested messages and packed repeated fields are written into a separate ProtobufWriter and then added via
+ * writeBytes, which prefixes them with their length.
+ */
+public class ProtobufWriter {
+    static final int VARINT = 0;
+    static final int FIXED64 = 1;
+    static final int LENGTH_DELIMITED = 2;
+
+    private byte[] bytes;
+    private int size;
+
+    public ProtobufWriter() {
+        this(64);
+    }
+
+    public ProtobufWriter(int capacity) {
+        bytes = new byte[capacity];
+    }
+
+    /**
+     * Writes an int32, int64, uint32, uint64 or enum field.
+     */
+    public ProtobufWriter writeVarint(int field, long value) {
+        writeTag(field, VARINT);
+        return appendVarint(value);
+    }
+
+    /**
+     * Writes a sint32 or sint64 field, which is more compact for negative values.
+     */
+    public ProtobufWriter writeSVarint(int field, long value) {
+        writeTag(field, VARINT);
+        return appendSVarint(value);
+    }
+
+    public ProtobufWriter writeBool(int field, boolean value) {
+        return writeVarint(field, value ? 1 : 0);
+    }
+
+    public ProtobufWriter writeDouble(int field, double value) {
+        writeTag(field, FIXED64);
+        return appendDouble(value);
+    }
+
+    public ProtobufWriter writeString(int field, String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeTag(field, LENGTH_DELIMITED);
+        appendVarint(utf8.length);
+        return appendBytes(utf8, utf8.length);
+    }
+
+    /**
+     * Writes the content of the specified writer as nested message or as packed repeated field.
+     */
+    public ProtobufWriter writeBytes(int field, ProtobufWriter content) {
+        writeTag(field, LENGTH_DELIMITED);
+        appendVarint(content.size);
+        return appendBytes(content.bytes, content.size);
+    }
+
+    /**
+     * Appends the fields of the specified writer, i.e. merges them into this message.
+     */
+    public ProtobufWriter append(ProtobufWriter content) {
+        return appendBytes(content.bytes, content.size);
+    }
+
+    private void writeTag(int field, int wireType) {
+        appendVarint((field << 3) | wireType);
+    }
+
+    /**
+     * Appends a value without tag, e.g. for a packed repeated field.
+     */
+    public ProtobufWriter appendVarint(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+        return this;
+    }
+
+    public ProtobufWriter appendSVarint(long value) {
+        return appendVarint((value << 1) ^ (value >> 63));
+    }
+
+    public ProtobufWriter appendDouble(double value) {
+        ensureCapacity(8);
+        long bits = Double.doubleToRawLongBits(value);
+        for (int i = 0; i < 8; i++) {
+            bytes[size++] = (byte) (bits >>> (8 * i));
+        }
+        return this;
+    }
+
+    private ProtobufWriter appendBytes(byte[] values, int length) {
+        ensureCapacity(length);
+        System.arraycopy(values, 0, bytes, size, length);
+        size += length;
+        return this;
+    }
+
+    private void ensureCapacity(int additionalBytes) {
+        if (size + additionalBytes > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(size + additionalBytes, bytes.length * 2));
+    }
+
+    /**
+     * Removes all bytes but keeps the allocated memory for reuse.
+     */
+    public ProtobufWriter clear() {
+        size = 0;
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+}
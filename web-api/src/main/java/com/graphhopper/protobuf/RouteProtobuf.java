@@ -0,0 +1,548 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.protobuf;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+
+import java.util.*;
+
+/**
+ * Converts a GHResponse from and into the binary protocol buffers format defined in route.proto. Compared to the
+ * JSON format the coordinates are delta encoded integers instead of polyline strings, the instruction intervals
+ * are a packed list of lengths and the path details are stored column by column. The instructions are written like
+ * in the JSON format of WebHelper, so the translated texts and extra information are identical.
+ */
+public class RouteProtobuf {
+    public static final String MEDIA_TYPE = "application/x-protobuf";
+    private static final double COORDINATE_FACTOR = 1e6;
+    private static final double ELEVATION_FACTOR = 100;
+
+    public static byte[] toBytes(GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, float took) {
+        ProtobufWriter rsp = new ProtobufWriter(1024);
+        for (PathWrapper path : ghRsp.getAll()) {
+            rsp.writeBytes(1, writePath(path, enableInstructions, calcPoints, enableElevation));
+        }
+        rsp.writeVarint(2, Math.round(took * 1000));
+        for (Map.Entry<String, String> hint : ghRsp.getHints().toMap().entrySet()) {
+            rsp.writeBytes(3, new ProtobufWriter().writeString(1, hint.getKey()).writeString(2, hint.getValue()));
+        }
+        return rsp.toByteArray();
+    }
+
+    private static ProtobufWriter writePath(PathWrapper path, boolean enableInstructions, boolean calcPoints, boolean enableElevation) {
+        ProtobufWriter writer = new ProtobufWriter(256);
+        writer.writeDouble(1, Helper.round(path.getDistance(), 3));
+        writer.writeDouble(2, Helper.round6(path.getRouteWeight()));
+        writer.writeVarint(3, path.getTime());
+        writer.writeVarint(4, path.getNumChanges());
+        for (String description : path.getDescription()) {
+            writer.writeString(5, description);
+        }
+        if (calcPoints) {
+            writer.writeBytes(6, writePoints(path.getPoints(), enableElevation));
+            if (enableInstructions) {
+                InstructionList instructions = path.getInstructions();
+                ProtobufWriter intervals = new ProtobufWriter(instructions.size() + 1);
+                for (Instruction instruction : instructions) {
+                    writer.writeBytes(8, writeInstruction(instructions, instruction));
+                    intervals.appendVarint(instruction.getLength());
+                }
+                writer.writeBytes(9, intervals);
+            }
+            for (Map.Entry<String, List<PathDetail>> entry : path.getPathDetails().entrySet()) {
+                writer.writeBytes(10, writePathDetails(entry.getKey(), entry.getValue()));
+            }
+            writer.writeDouble(11, path.getAscend());
+            writer.writeDouble(12, path.getDescend());
+        }
+        writer.writeBytes(7, writePoints(path.getWaypoints(), enableElevation));
+        return writer;
+    }
+
+    private static ProtobufWriter writePoints(PointList points, boolean enableElevation) {
+        ProtobufWriter lats = new ProtobufWriter(points.size() * 2 + 1);
+        ProtobufWriter lons = new ProtobufWriter(points.size() * 2 + 1);
+        ProtobufWriter eles = new ProtobufWriter();
+        boolean withElevation = enableElevation && points.is3D();
+        int prevLat = 0, prevLon = 0, prevEle = 0;
+        for (int i = 0; i < points.size(); i++) {
+            int lat = (int) Math.round(points.getLatitude(i) * COORDINATE_FACTOR);
+            lats.appendSVarint(lat - prevLat);
+            prevLat = lat;
+            int lon = (int) Math.round(points.getLongitude(i) * COORDINATE_FACTOR);
+            lons.appendSVarint(lon - prevLon);
+            prevLon = lon;
+            if (withElevation) {
+                int ele = (int) Math.round(points.getElevation(i) * ELEVATION_FACTOR);
+                eles.appendSVarint(ele - prevEle);
+                prevEle = ele;
+            }
+        }
+        ProtobufWriter writer = new ProtobufWriter(lats.size() + lons.size() + eles.size() + 9);
+        writer.writeBytes(1, lats).writeBytes(2, lons);
+        if (withElevation)
+            writer.writeBytes(3, eles);
+        return writer;
+    }
+
+    private static ProtobufWriter writeInstruction(InstructionList instructions, Instruction instruction) {
+        ProtobufWriter writer = new ProtobufWriter();
+        writer.writeSVarint(1, instruction.getSign());
+        // like in JSON a missing text or street name is read as empty string
+        String text = instructions.getTurnDescription(instruction);
+        if (text != null)
+            writer.writeString(2, text);
+        if (instruction.getName() != null)
+            writer.writeString(3, instruction.getName());
+        writer.writeDouble(4, Helper.round(instruction.getDistance(), 3));
+        writer.writeVarint(5, instruction.getTime());
+        InstructionAnnotation ia = instruction.getAnnotation();
+        if (!ia.isEmpty()) {
+            writer.writeString(6, ia.getMessage());
+            writer.writeVarint(7, ia.getImportance());
+        }
+        for (Map.Entry<String, Object> entry : instruction.getExtraInfoJSON().entrySet()) {
+            writer.writeBytes(8, new ProtobufWriter().writeString(1, entry.getKey()).writeBytes(2, writeValue(entry.getValue())));
+        }
+        return writer;
+    }
+
+    private static ProtobufWriter writeValue(Object value) {
+        ProtobufWriter writer = new ProtobufWriter();
+        if (value instanceof Double || value instanceof Float)
+            writer.writeDouble(1, ((Number) value).doubleValue());
+        else if (value instanceof Long || value instanceof Integer)
+            writer.writeSVarint(2, ((Number) value).longValue());
+        else if (value instanceof Boolean)
+            writer.writeBool(3, (Boolean) value);
+        else if (value instanceof String)
+            writer.writeString(4, (String) value);
+        else
+            throw new IllegalArgumentException("Unsupported type for protobuf value " + value.getClass());
+        return writer;
+    }
+
+    private static ProtobufWriter writePathDetails(String name, List<PathDetail> details) {
+        ProtobufWriter firsts = new ProtobufWriter(details.size() + 1);
+        ProtobufWriter lengths = new ProtobufWriter(details.size() + 1);
+        ProtobufWriter values = new ProtobufWriter(details.size() * 2 + 1);
+        ProtobufWriter nullIndices = new ProtobufWriter();
+        int valueField = -1;
+        int prevLast = 0;
+        for (int i = 0; i < details.size(); i++) {
+            PathDetail detail = details.get(i);
+            firsts.appendVarint(detail.getFirst() - prevLast);
+            lengths.appendVarint(detail.getLast() - detail.getFirst());
+            prevLast = detail.getLast();
+
+            // all values of a path detail have the same type, so they are stored as one packed column
+            Object value = detail.getValue();
+            int tmpField;
+            if (value == null) {
+                // JSON writes null, which is not a valid value in a column
+                nullIndices.appendVarint(i);
+                continue;
+            } else if (value instanceof Double || value instanceof Float) {
+                tmpField = 4;
+                values.appendDouble(((Number) value).doubleValue());
+            } else if (value instanceof Long || value instanceof Integer) {
+                tmpField = 5;
+                values.appendSVarint(((Number) value).longValue());
+            } else if (value instanceof Boolean) {
+                tmpField = 6;
+                values.appendVarint((Boolean) value ? 1 : 0);
+            } else if (value instanceof String) {
+                tmpField = 7;
+            } else {
+                throw new IllegalArgumentException("Unsupported type for PathDetail.value " + value.getClass());
+            }
+            if (valueField >= 0 && valueField != tmpField)
+                throw new IllegalArgumentException("All values of the path detail " + name + " must have the same type");
+            valueField = tmpField;
+        }
+
+        ProtobufWriter writer = new ProtobufWriter(firsts.size() + lengths.size() + values.size() + 16);
+        writer.writeString(1, name).writeBytes(2, firsts).writeBytes(3, lengths);
+        if (valueField == 7) {
+            // strings cannot be packed
+            for (PathDetail detail : details) {
+                if (detail.getValue() != null)
+                    writer.writeString(7, (String) detail.getValue());
+            }
+        } else if (valueField >= 0) {
+            writer.writeBytes(valueField, values);
+        }
+        if (nullIndices.size() > 0)
+            writer.writeBytes(8, nullIndices);
+        return writer;
+    }
+
+    /**
+     * Creates the GHResponse from the protobuf format.
+     *
+     * @param turnDescription if true the translated instruction text is used as name of the instructions,
+     *                        otherwise the street name
+     */
+    public static GHResponse fromBytes(byte[] bytes, boolean turnDescription) {
+        GHResponse ghRsp = new GHResponse();
+        ProtobufReader reader = new ProtobufReader(bytes);
+        while (reader.next()) {
+            switch (reader.getField()) {
+                case 1:
+                    ghRsp.add(readPath(reader.readMessage(), turnDescription));
+                    break;
+                case 3:
+                    ProtobufReader hint = reader.readMessage();
+                    String key = "", value = "";
+                    while (hint.next()) {
+                        if (hint.getField() == 1)
+                            key = hint.readString();
+                        else if (hint.getField() == 2)
+                            value = hint.readString();
+                        else
+                            hint.skip();
+                    }
+                    ghRsp.getHints().put(key, value);
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+        return ghRsp;
+    }
+
+    private static PathWrapper readPath(ProtobufReader reader, boolean turnDescription) {
+        PathWrapper path = new PathWrapper();
+        List<String> description = new ArrayList<>();
+        List<ProtobufReader> instructions = new ArrayList<>();
+        IntColumn intervals = new IntColumn();
+        Map<String, List<PathDetail>> pathDetails = new HashMap<>();
+        while (reader.next()) {
+            switch (reader.getField()) {
+                case 1:
+                    path.setDistance(reader.readDouble());
+                    break;
+                case 2:
+                    path.setRouteWeight(reader.readDouble());
+                    break;
+                case 3:
+                    path.setTime(reader.readVarint());
+                    break;
+                case 4:
+                    path.setNumChanges((int) reader.readVarint());
+                    break;
+                case 5:
+                    description.add(reader.readString());
+                    break;
+                case 6:
+                    path.setPoints(readPoints(reader.readMessage()));
+                    break;
+                case 7:
+                    path.setWaypoints(readPoints(reader.readMessage()));
+                    break;
+                case 8:
+                    instructions.add(reader.readMessage());
+                    break;
+                case 9:
+                    intervals.read(reader, false);
+                    break;
+                case 10:
+                    readPathDetails(reader.readMessage(), pathDetails);
+                    break;
+                case 11:
+                    path.setAscend(reader.readDouble());
+                    break;
+                case 12:
+                    path.setDescend(reader.readDouble());
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+        if (!description.isEmpty())
+            path.setDescription(description);
+        if (!instructions.isEmpty()) {
+            if (intervals.size != instructions.size())
+                throw new IllegalStateException("Every instruction needs an interval, instructions: "
+                        + instructions.size() + ", intervals: " + intervals.size);
+            InstructionList il = new InstructionList(instructions.size(), null);
+            int viaCount = 1;
+            int from = 0;
+            for (int i = 0; i < instructions.size(); i++) {
+                int to = from + intervals.values[i];
+                PointList instPL = new PointList(to - from + 1, path.getPoints().is3D());
+                for (int j = from; j <= to; j++) {
+                    instPL.add(path.getPoints(), j);
+                }
+                Instruction instr = readInstruction(instructions.get(i), instPL, turnDescription);
+                if (instr instanceof ViaInstruction)
+                    ((ViaInstruction) instr).setViaCount(viaCount++);
+                il.add(instr);
+                from = to;
+            }
+            path.setInstructions(il);
+        }
+        if (!pathDetails.isEmpty())
+            path.addPathDetails(pathDetails);
+        return path;
+    }
+
+    private static PointList readPoints(ProtobufReader reader) {
+        IntColumn lats = new IntColumn(), lons = new IntColumn(), eles = new IntColumn();
+        while (reader.next()) {
+            switch (reader.getField()) {
+                case 1:
+                    lats.read(reader, true);
+                    break;
+                case 2:
+                    lons.read(reader, true);
+                    break;
+                case 3:
+                    eles.read(reader, true);
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+        if (lats.size != lons.size)
+            throw new IllegalStateException("Every point needs a latitude and a longitude, latitudes: "
+                    + lats.size + ", longitudes: " + lons.size);
+        boolean is3D = eles.size > 0;
+        if (is3D && eles.size != lats.size)
+            throw new IllegalStateException("Every point needs an elevation, points: " + lats.size + ", elevations: " + eles.size);
+
+        PointList points = new PointList(lats.size, is3D);
+        int lat = 0, lon = 0, ele = 0;
+        for (int i = 0; i < lats.size; i++) {
+            lat += lats.values[i];
+            lon += lons.values[i];
+            if (is3D) {
+                ele += eles.values[i];
+                points.add(lat / COORDINATE_FACTOR, lon / COORDINATE_FACTOR, ele / ELEVATION_FACTOR);
+            } else {
+                points.add(lat / COORDINATE_FACTOR, lon / COORDINATE_FACTOR);
+            }
+        }
+        return points;
+    }
+
+    private static Instruction readInstruction(ProtobufReader reader, PointList instPL, boolean turnDescription) {
+        int sign = 0;
+        String text = "", streetName = "", annotationText = null;
+        int annotationImportance = 0;
+        double distance = 0;
+        long time = 0;
+        Map<String, Object> extraInfo = new LinkedHashMap<>();
+        while (reader.next()) {
+            switch (reader.getField()) {
+                case 1:
+                    sign = (int) reader.readSVarint();
+                    break;
+                case 2:
+                    text = reader.readString();
+                    break;
+                case 3:
+                    streetName = reader.readString();
+                    break;
+                case 4:
+                    distance = reader.readDouble();
+                    break;
+                case 5:
+                    time = reader.readVarint();
+                    break;
+                case 6:
+                    annotationText = reader.readString();
+                    break;
+                case 7:
+                    annotationImportance = (int) reader.readVarint();
+                    break;
+                case 8:
+                    readExtraInfo(reader.readMessage(), extraInfo);
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+
+        String name = turnDescription ? text : streetName;
+        InstructionAnnotation ia = annotationText == null ? InstructionAnnotation.EMPTY
+                : new InstructionAnnotation(annotationImportance, annotationText);
+        Instruction instr;
+        if (sign == Instruction.USE_ROUNDABOUT || sign == Instruction.LEAVE_ROUNDABOUT) {
+            RoundaboutInstruction ri = new RoundaboutInstruction(sign, name, ia, instPL);
+            if (extraInfo.containsKey("exit_number"))
+                ri.setExitNumber(((Number) extraInfo.get("exit_number")).intValue());
+            if (Boolean.TRUE.equals(extraInfo.get("exited")))
+                ri.setExited();
+            if (extraInfo.containsKey("turn_angle")) {
+                double angle = ((Number) extraInfo.get("turn_angle")).doubleValue();
+                ri.setDirOfRotation(angle);
+                ri.setRadian((angle < 0 ? -Math.PI : Math.PI) - angle);
+            }
+            instr = ri;
+        } else {
+            if (sign == Instruction.REACHED_VIA)
+                instr = new ViaInstruction(name, ia, instPL);
+            else if (sign == Instruction.FINISH)
+                instr = new FinishInstruction(name, instPL, 0);
+            else
+                instr = new Instruction(sign, name, ia, instPL);
+            for (Map.Entry<String, Object> entry : extraInfo.entrySet()) {
+                instr.setExtraInfo(entry.getKey(), entry.getValue());
+            }
+        }
+
+        // the translation was done by the routing service, see GraphHopperWeb
+        if (turnDescription)
+            instr.setUseRawName();
+
+        instr.setDistance(distance).setTime(time);
+        return instr;
+    }
+
+    private static void readExtraInfo(ProtobufReader reader, Map<String, Object> extraInfo) {
+        String key = null;
+        Object value = null;
+        while (reader.next()) {
+            if (reader.getField() == 1) {
+                key = reader.readString();
+            } else if (reader.getField() == 2) {
+                ProtobufReader valueReader = reader.readMessage();
+                while (valueReader.next()) {
+                    switch (valueReader.getField()) {
+                        case 1:
+                            value = valueReader.readDouble();
+                            break;
+                        case 2:
+                            value = valueReader.readSVarint();
+                            break;
+                        case 3:
+                            value = valueReader.readBool();
+                            break;
+                        case 4:
+                            value = valueReader.readString();
+                            break;
+                        default:
+                            valueReader.skip();
+                    }
+                }
+            } else {
+                reader.skip();
+            }
+        }
+        if (key != null && value != null)
+            extraInfo.put(key, value);
+    }
+
+    private static void readPathDetails(ProtobufReader reader, Map<String, List<PathDetail>> pathDetails) {
+        String name = null;
+        IntColumn firsts = new IntColumn(), lengths = new IntColumn(), nullIndices = new IntColumn();
+        List<PathDetail> details = new ArrayList<>();
+        while (reader.next()) {
+            switch (reader.getField()) {
+                case 1:
+                    name = reader.readString();
+                    break;
+                case 2:
+                    firsts.read(reader, false);
+                    break;
+                case 3:
+                    lengths.read(reader, false);
+                    break;
+                case 4:
+                case 5:
+                case 6:
+                    int valueField = reader.getField();
+                    if (reader.isLengthDelimited()) {
+                        ProtobufReader values = reader.readMessage();
+                        while (values.hasRemaining()) {
+                            details.add(readPathDetail(values, valueField));
+                        }
+                    } else {
+                        details.add(readPathDetail(reader, valueField));
+                    }
+                    break;
+                case 7:
+                    details.add(new PathDetail(reader.readString()));
+                    break;
+                case 8:
+                    nullIndices.read(reader, false);
+                    break;
+                default:
+                    reader.skip();
+            }
+        }
+        // the indices are ascending, so the entries before an index are already at their position
+        for (int i = 0; i < nullIndices.size; i++) {
+            int index = nullIndices.values[i];
+            if (index > details.size())
+                throw new IllegalStateException("Invalid null index " + index + " of path detail " + name);
+            details.add(index, new PathDetail((String) null));
+        }
+        if (name == null || firsts.size != details.size() || lengths.size != details.size())
+            throw new IllegalStateException("Invalid path detail " + name + ", values: " + details.size()
+                    + ", firsts: " + firsts.size + ", lengths: " + lengths.size);
+
+        int last = 0;
+        for (int i = 0; i < details.size(); i++) {
+            PathDetail detail = details.get(i);
+            detail.setFirst(last + firsts.values[i]);
+            last = detail.getFirst() + lengths.values[i];
+            detail.setLast(last);
+        }
+        pathDetails.put(name, details);
+    }
+
+    private static PathDetail readPathDetail(ProtobufReader reader, int valueField) {
+        if (valueField == 4)
+            return new PathDetail(reader.readDouble());
+        else if (valueField == 5)
+            return new PathDetail(reader.readSVarint());
+        else
+            return new PathDetail(reader.readBool());
+    }
+
+    /**
+     * The values of a repeated integer field that can be packed or not.
+     */
+    private static class IntColumn {
+        int[] values = new int[16];
+        int size;
+
+        void read(ProtobufReader reader, boolean signed) {
+            if (!reader.isLengthDelimited()) {
+                add((int) (signed ? reader.readSVarint() : reader.readVarint()));
+                return;
+            }
+
+            ProtobufReader packed = reader.readMessage();
+            while (packed.hasRemaining()) {
+                add((int) (signed ? packed.readSVarint() : packed.readVarint()));
+            }
+        }
+
+        void add(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.protobuf;
+
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.shapes.BBox;
+
+import java.util.*;
+
+/**
+ * Creates a Mapbox vector tile, see https://github.com/mapbox/vector-tile-spec/tree/master/2.1 . The coordinates of
+ * the features are projected into the tile via web mercator and the lines are clipped at the tile border plus a
+ * buffer, so that renderers can draw lines across tile borders without gaps.
+ */
+public class VectorTileEncoder {
+    public static final String MEDIA_TYPE = "application/vnd.mapbox-vector-tile";
+    private static final int MOVE_TO = 1;
+    private static final int LINE_TO = 2;
+    private static final int LINESTRING = 2;
+    private final int z;
+    private final int x;
+    private final int y;
+    private final int extent;
+    private final int buffer;
+    private final List<Layer> layers = new ArrayList<>();
+
+    public VectorTileEncoder(int z, int x, int y) {
+        this(z, x, y, 4096, 64);
+    }
+
+    /**
+     * @param extent the number of integer coordinates per tile side
+     * @param buffer the number of integer coordinates the lines are kept outside of the tile
+     */
+    public VectorTileEncoder(int z, int x, int y, int extent, int buffer) {
+        if (z < 0 || z > 30 || x < 0 || y < 0 || x >= (1 << z) || y >= (1 << z))
+            throw new IllegalArgumentException("Invalid tile " + z + "/" + x + "/" + y);
+
+        this.z = z;
+        this.x = x;
+        this.y = y;
+        this.extent = extent;
+        this.buffer = buffer;
+    }
+
+    /**
+     * @return the area of the tile including the buffer
+     */
+    public BBox getBBox() {
+        double tiles = 1 << z;
+        double bufferTiles = (double) buffer / extent;
+        double maxLat = toLat((y - bufferTiles) / tiles);
+        double minLat = toLat((y + 1 + bufferTiles) / tiles);
+        double minLon = Math.max(-180, (x - bufferTiles) / tiles * 360 - 180);
+        double maxLon = Math.min(180, (x + 1 + bufferTiles) / tiles * 360 - 180);
+        return new BBox(minLon, maxLon, minLat, maxLat);
+    }
+
+    private static double toLat(double mercatorY) {
+        double lat = Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * mercatorY))));
+        return Math.max(-85.0511, Math.min(85.0511, lat));
+    }
+
+    double toTileX(double lon) {
+        return ((lon + 180) / 360 * (1 << z) - x) * extent;
+    }
+
+    double toTileY(double lat) {
+        double sin = Math.sin(Math.toRadians(lat));
+        double mercatorY = 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+        return (mercatorY * (1 << z) - y) * extent;
+    }
+
+    /**
+     * @return the distance in meter that corresponds to one integer coordinate of this tile at the specified latitude
+     */
+    public double getResolution(double lat) {
+        return 2 * Math.PI * 6_378_137 * Math.cos(Math.toRadians(lat)) / ((double) (1 << z) * extent);
+    }
+
+    public Layer addLayer(String name) {
+        Layer layer = new Layer(name);
+        layers.add(layer);
+        return layer;
+    }
+
+    public byte[] toByteArray() {
+        ProtobufWriter tile = new ProtobufWriter(1024);
+        for (Layer layer : layers) {
+            if (layer.featureCount > 0)
+                tile.writeBytes(3, layer.toWriter());
+        }
+        return tile.toByteArray();
+    }
+
+    public class Layer {
+        private final String name;
+        // the already encoded features, i.e. the field 2 of the layer message
+        private final ProtobufWriter features = new ProtobufWriter(1024);
+        private int featureCount;
+        private final Map<String, Integer> keys = new LinkedHashMap<>();
+        private final Map<Object, Integer> values = new LinkedHashMap<>();
+        // the clipped part of the line that is currently created, as pairs of integer coordinates
+        private int[] part = new int[64];
+        private int partSize;
+        private final ProtobufWriter geometry = new ProtobufWriter(256);
+        // the cursor of the geometry commands, which is relative to the previous part of the same feature
+        private int cursorX;
+        private int cursorY;
+
+        private Layer(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Adds the points as a line feature if a part of the line is inside of the tile. If the line leaves the
+         * tile and enters it again the feature becomes a multi line.
+         *
+         * @param properties the properties of the feature, null values are skipped
+         * @return false if the line is completely outside of the tile
+         */
+        public boolean addLine(long id, PointList points, Map<String, ?> properties) {
+            if (points.size() < 2)
+                return false;
+
+            geometry.clear();
+            cursorX = 0;
+            cursorY = 0;
+            partSize = 0;
+            double min = -buffer, max = extent + buffer;
+            double prevX = toTileX(points.getLon(0)), prevY = toTileY(points.getLat(0));
+            for (int i = 1; i < points.size(); i++) {
+                double currX = toTileX(points.getLon(i)), currY = toTileY(points.getLat(i));
+                addClipped(prevX, prevY, currX, currY, min, max);
+                prevX = currX;
+                prevY = currY;
+            }
+            finishPart();
+            if (geometry.isEmpty())
+                return false;
+
+            ProtobufWriter tags = new ProtobufWriter();
+            for (Map.Entry<String, ?> property : properties.entrySet()) {
+                if (property.getValue() == null)
+                    continue;
+
+                tags.appendVarint(index(keys, property.getKey()));
+                tags.appendVarint(index(values, property.getValue()));
+            }
+            ProtobufWriter feature = new ProtobufWriter(geometry.size() + tags.size() + 16);
+            feature.writeVarint(1, id);
+            feature.writeBytes(2, tags);
+            feature.writeVarint(3, LINESTRING);
+            feature.writeBytes(4, geometry);
+            features.writeBytes(2, feature);
+            featureCount++;
+            return true;
+        }
+
+        /**
+         * Clips the segment with the algorithm of Liang-Barsky and appends the remaining part to the current part.
+         */
+        private void addClipped(double x0, double y0, double x1, double y1, double min, double max) {
+            double dx = x1 - x0, dy = y1 - y0;
+            double[] p = {-dx, dx, -dy, dy};
+            double[] q = {x0 - min, max - x0, y0 - min, max - y0};
+            double t0 = 0, t1 = 1;
+            for (int i = 0; i < 4; i++) {
+                if (p[i] == 0) {
+                    if (q[i] < 0)
+                        return;
+                } else {
+                    double r = q[i] / p[i];
+                    if (p[i] < 0) {
+                        if (r > t1)
+                            return;
+                        if (r > t0)
+                            t0 = r;
+                    } else {
+                        if (r < t0)
+                            return;
+                        if (r < t1)
+                            t1 = r;
+                    }
+                }
+            }
+
+            if (t0 > 0) {
+                // the segment enters the tile
+                finishPart();
+                addPoint(x0 + t0 * dx, y0 + t0 * dy);
+            } else if (partSize == 0) {
+                addPoint(x0, y0);
+            }
+            addPoint(x0 + t1 * dx, y0 + t1 * dy);
+            if (t1 < 1)
+                // the segment leaves the tile
+                finishPart();
+        }
+
+        private void addPoint(double tileX, double tileY) {
+            int intX = (int) Math.round(tileX), intY = (int) Math.round(tileY);
+            if (partSize > 0 && part[partSize - 2] == intX && part[partSize - 1] == intY)
+                return;
+
+            if (partSize == part.length)
+                part = Arrays.copyOf(part, part.length * 2);
+            part[partSize++] = intX;
+            part[partSize++] = intY;
+        }
+
+        /**
+         * Writes the current part as MoveTo and LineTo commands into the geometry of the feature.
+         */
+        private void finishPart() {
+            if (partSize >= 4) {
+                geometry.appendVarint(command(MOVE_TO, 1));
+                appendDelta(part[0], part[1]);
+                geometry.appendVarint(command(LINE_TO, partSize / 2 - 1));
+                for (int i = 2; i < partSize; i += 2) {
+                    appendDelta(part[i], part[i + 1]);
+                }
+            }
+            partSize = 0;
+        }
+
+        private void appendDelta(int tileX, int tileY) {
+            geometry.appendSVarint(tileX - cursorX);
+            geometry.appendSVarint(tileY - cursorY);
+            cursorX = tileX;
+            cursorY = tileY;
+        }
+
+        private int command(int id, int count) {
+            return (id & 0x7) | (count << 3);
+        }
+
+        private <T> int index(Map<T, Integer> map, T key) {
+            Integer index = map.get(key);
+            if (index == null) {
+                index = map.size();
+                map.put(key, index);
+            }
+            return index;
+        }
+
+        public int getFeatureCount() {
+            return featureCount;
+        }
+
+        private ProtobufWriter toWriter() {
+            ProtobufWriter layer = new ProtobufWriter(features.size() + 256);
+            layer.writeVarint(15, 2);
+            layer.writeString(1, name);
+            layer.append(features);
+            for (String key : keys.keySet()) {
+                layer.writeString(3, key);
+            }
+            for (Object value : values.keySet()) {
+                layer.writeBytes(4, writeValue(value));
+            }
+            layer.writeVarint(5, extent);
+            return layer;
+        }
+
+        private ProtobufWriter writeValue(Object value) {
+            ProtobufWriter writer = new ProtobufWriter(16);
+            if (value instanceof Boolean) {
+                writer.writeBool(7, (Boolean) value);
+            } else if (value instanceof Double || value instanceof Float) {
+                writer.writeDouble(3, ((Number) value).doubleValue());
+            } else if (value instanceof Number) {
+                long longValue = ((Number) value).longValue();
+                if (longValue < 0)
+                    writer.writeSVarint(6, longValue);
+                else
+                    writer.writeVarint(5, longValue);
+            } else {
+                writer.writeString(1, value.toString());
+            }
+            return writer;
+        }
+    }
+}
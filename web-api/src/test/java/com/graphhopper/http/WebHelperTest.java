@@ -17,11 +17,20 @@
  */
 package com.graphhopper.http;
 
-import com.graphhopper.util.Helper;
-import com.graphhopper.util.PointList;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -79,4 +88,43 @@ public class WebHelperTest {
     public void testEncode1e6() throws Exception {
         assertEquals("ohdfzAgt}bVoEL", WebHelper.encodePolyline(Helper.createPointList(47.827608, 12.123476, 47.827712, 12.123469), false, 1e6));
     }
+
+    @Test
+    public void testWriteJsonEqualsJsonObject() throws Exception {
+        PointList points = Helper.createPointList(47.827608, 12.123476, 47.827712, 12.123469, 47.8279, 12.1237);
+        InstructionList il = new InstructionList(null);
+        Instruction instr = new Instruction(Instruction.CONTINUE_ON_STREET, "main", new InstructionAnnotation(1, "toll"),
+                Helper.createPointList(47.827608, 12.123476, 47.827712, 12.123469));
+        instr.setExtraInfo("heading", 12.5);
+        instr.setUseRawName();
+        instr.setDistance(20.1234).setTime(2000);
+        il.add(instr);
+        FinishInstruction finish = new FinishInstruction("", Helper.createPointList(47.8279, 12.1237), 0);
+        finish.setUseRawName();
+        il.add(finish);
+
+        PathWrapper path = new PathWrapper();
+        path.setPoints(points);
+        path.setWaypoints(Helper.createPointList(47.827608, 12.123476, 47.8279, 12.1237));
+        path.setInstructions(il);
+        path.setDistance(30.5).setTime(3000).setRouteWeight(3.25);
+        path.setDescription(Arrays.asList("via main"));
+        PathDetail detail = new PathDetail(50.0);
+        detail.setFirst(0);
+        detail.setLast(2);
+        path.addPathDetails(Collections.singletonMap("average_speed", Arrays.asList(detail)));
+        GHResponse rsp = new GHResponse();
+        rsp.add(path);
+        rsp.getHints().put("visited_nodes.sum", "10");
+
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        for (boolean pointsEncoded : new boolean[]{true, false}) {
+            StringWriter writer = new StringWriter();
+            JsonGenerator gen = objectMapper.getFactory().createGenerator(writer);
+            WebHelper.writeJson(gen, rsp, true, true, false, pointsEncoded, 0.1f);
+            gen.close();
+            String expected = objectMapper.writeValueAsString(WebHelper.jsonObject(rsp, true, true, false, pointsEncoded, 0.1f));
+            assertEquals(objectMapper.readTree(expected), objectMapper.readTree(writer.toString()));
+        }
+    }
 }
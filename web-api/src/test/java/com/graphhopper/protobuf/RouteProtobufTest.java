@@ -0,0 +1,201 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.protobuf;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.PathWrapper;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RouteProtobufTest {
+
+    @Test
+    public void testWriteAndRead() {
+        PointList points = Helper.createPointList3D(52.5, 13.4, 30, 52.51, 13.41, 35.5, 52.52, 13.39, 31, 52.52, 13.38, 29);
+        InstructionList il = new InstructionList(null);
+        Instruction continueInstr = new Instruction(Instruction.CONTINUE_ON_STREET, "Main Street", InstructionAnnotation.EMPTY,
+                copy(points, 0, 1));
+        continueInstr.setExtraInfo("heading", 12.5);
+        // avoid the translation
+        continueInstr.setUseRawName();
+        continueInstr.setDistance(1234.5).setTime(100_000);
+        il.add(continueInstr);
+        RoundaboutInstruction roundabout = new RoundaboutInstruction(Instruction.USE_ROUNDABOUT, "Ring",
+                new InstructionAnnotation(1, "toll"), copy(points, 1, 3));
+        roundabout.setExitNumber(2).setExited().setDirOfRotation(-1).setRadian(1.5);
+        roundabout.setUseRawName();
+        roundabout.setDistance(500).setTime(60_000);
+        il.add(roundabout);
+        FinishInstruction finish = new FinishInstruction("", copy(points, 3, 4), 0);
+        finish.setUseRawName();
+        il.add(finish);
+
+        PathWrapper path = new PathWrapper();
+        path.setPoints(points);
+        path.setWaypoints(Helper.createPointList3D(52.5, 13.4, 30, 52.52, 13.38, 29));
+        path.setInstructions(il);
+        path.setDistance(1734.5).setTime(160_000).setRouteWeight(170.25);
+        path.setAscend(5.5);
+        path.setDescend(6.5);
+        path.setDescription(Arrays.asList("a", "b"));
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        details.put("average_speed", Arrays.asList(detail(new PathDetail(50.0), 0, 2), detail(new PathDetail(30.5), 2, 3)));
+        details.put("edge_id", Arrays.asList(detail(new PathDetail(-7), 0, 1), detail(new PathDetail(123456789012L), 1, 3)));
+        details.put("street_name", Arrays.asList(detail(new PathDetail("Main Street"), 0, 3)));
+        details.put("toll", Arrays.asList(detail(new PathDetail(false), 1, 2), detail(new PathDetail(true), 2, 3)));
+        path.addPathDetails(details);
+
+        GHResponse ghRsp = new GHResponse();
+        ghRsp.add(path);
+        ghRsp.getHints().put("visited_nodes.sum", "42");
+
+        byte[] bytes = RouteProtobuf.toBytes(ghRsp, true, true, true, 0.012f);
+        GHResponse result = RouteProtobuf.fromBytes(bytes, true);
+        assertEquals("42", result.getHints().get("visited_nodes.sum", ""));
+        assertEquals(1, result.getAll().size());
+        PathWrapper resPath = result.getBest();
+        assertEquals(1734.5, resPath.getDistance(), 1e-6);
+        assertEquals(160_000, resPath.getTime());
+        assertEquals(170.25, resPath.getRouteWeight(), 1e-6);
+        assertEquals(5.5, resPath.getAscend(), 1e-6);
+        assertEquals(6.5, resPath.getDescend(), 1e-6);
+        assertEquals(Arrays.asList("a", "b"), resPath.getDescription());
+        assertEquals(points, resPath.getPoints());
+        assertEquals(path.getWaypoints(), resPath.getWaypoints());
+
+        InstructionList resIL = resPath.getInstructions();
+        assertEquals(3, resIL.size());
+        assertEquals("Main Street", resIL.get(0).getName());
+        assertEquals(Instruction.CONTINUE_ON_STREET, resIL.get(0).getSign());
+        assertEquals(12.5, resIL.get(0).getExtraInfoJSON().get("heading"));
+        assertEquals(1234.5, resIL.get(0).getDistance(), 1e-6);
+        assertEquals(100_000, resIL.get(0).getTime());
+        // like for JSON the points of an instruction include the first point of the next instruction
+        assertEquals(2, resIL.get(0).getLength());
+        RoundaboutInstruction resRoundabout = (RoundaboutInstruction) resIL.get(1);
+        assertEquals("Ring", resRoundabout.getName());
+        assertEquals(2, resRoundabout.getExitNumber());
+        assertEquals(roundabout.getTurnAngle(), resRoundabout.getTurnAngle(), 0.01);
+        assertEquals("toll", resRoundabout.getAnnotation().getMessage());
+        assertEquals(1, resRoundabout.getAnnotation().getImportance());
+        assertEquals(3, resRoundabout.getLength());
+        assertEquals(Instruction.FINISH, resIL.get(2).getSign());
+        assertEquals(52.52, resIL.get(2).getPoints().getLat(0), 1e-6);
+
+        Map<String, List<PathDetail>> resDetails = resPath.getPathDetails();
+        assertEquals(4, resDetails.size());
+        assertDetail(resDetails.get("average_speed").get(1), 2, 3, 30.5);
+        assertDetail(resDetails.get("edge_id").get(0), 0, 1, -7L);
+        assertDetail(resDetails.get("edge_id").get(1), 1, 3, 123456789012L);
+        assertDetail(resDetails.get("street_name").get(0), 0, 3, "Main Street");
+        assertDetail(resDetails.get("toll").get(0), 1, 2, false);
+    }
+
+    @Test
+    public void testWithoutPointsAndElevation() {
+        PathWrapper path = new PathWrapper();
+        path.setPoints(Helper.createPointList3D(52.5, 13.4, 30, 52.51, 13.41, 35.5));
+        path.setWaypoints(Helper.createPointList3D(52.5, 13.4, 30, 52.51, 13.41, 35.5));
+        path.setDistance(100).setTime(1000);
+        GHResponse ghRsp = new GHResponse();
+        ghRsp.add(path);
+
+        GHResponse result = RouteProtobuf.fromBytes(RouteProtobuf.toBytes(ghRsp, false, false, false, 0), true);
+        PathWrapper resPath = result.getBest();
+        assertEquals(100, resPath.getDistance(), 1e-6);
+        assertTrue(resPath.getPoints().isEmpty());
+        assertFalse(resPath.getWaypoints().is3D());
+        assertEquals(Helper.createPointList(52.5, 13.4, 52.51, 13.41), resPath.getWaypoints());
+    }
+
+    @Test
+    public void testNullValues() {
+        PointList points = Helper.createPointList(52.5, 13.4, 52.51, 13.41, 52.52, 13.39, 52.52, 13.38);
+        InstructionList il = new InstructionList(null);
+        Instruction instr = new Instruction(Instruction.CONTINUE_ON_STREET, null, InstructionAnnotation.EMPTY, copy(points, 0, 3));
+        instr.setUseRawName();
+        il.add(instr);
+        FinishInstruction finish = new FinishInstruction("", copy(points, 3, 4), 0);
+        finish.setUseRawName();
+        il.add(finish);
+
+        PathWrapper path = new PathWrapper();
+        path.setPoints(points);
+        path.setInstructions(il);
+        Map<String, List<PathDetail>> details = new HashMap<>();
+        details.put("max_speed", Arrays.asList(detail(new PathDetail((String) null), 0, 1),
+                detail(new PathDetail(50.0), 1, 2), detail(new PathDetail((String) null), 2, 3)));
+        details.put("street_name", Arrays.asList(detail(new PathDetail("Main Street"), 0, 1),
+                detail(new PathDetail((String) null), 1, 3)));
+        path.addPathDetails(details);
+        GHResponse ghRsp = new GHResponse();
+        ghRsp.add(path);
+
+        PathWrapper resPath = RouteProtobuf.fromBytes(RouteProtobuf.toBytes(ghRsp, true, true, false, 0), false).getBest();
+        assertEquals("", resPath.getInstructions().get(0).getName());
+        List<PathDetail> maxSpeed = resPath.getPathDetails().get("max_speed");
+        assertEquals(3, maxSpeed.size());
+        assertDetail(maxSpeed.get(0), 0, 1, null);
+        assertDetail(maxSpeed.get(1), 1, 2, 50.0);
+        assertDetail(maxSpeed.get(2), 2, 3, null);
+        List<PathDetail> streetName = resPath.getPathDetails().get("street_name");
+        assertEquals(2, streetName.size());
+        assertDetail(streetName.get(0), 0, 1, "Main Street");
+        assertDetail(streetName.get(1), 1, 3, null);
+    }
+
+    @Test
+    public void testReaderSkipsUnknownFields() {
+        ProtobufWriter writer = new ProtobufWriter(1);
+        writer.writeString(10, "unknown").writeVarint(11, 1L << 40).writeDouble(12, 1.5).
+                writeBytes(13, new ProtobufWriter().writeSVarint(1, -5)).writeSVarint(1, -123456789L);
+        ProtobufReader reader = new ProtobufReader(writer.toByteArray());
+        while (reader.next()) {
+            if (reader.getField() == 1)
+                assertEquals(-123456789L, reader.readSVarint());
+            else
+                reader.skip();
+        }
+        assertEquals(1, reader.getField());
+    }
+
+    private static PointList copy(PointList points, int from, int to) {
+        PointList result = new PointList(to - from, points.is3D());
+        for (int i = from; i < to; i++) {
+            result.add(points, i);
+        }
+        return result;
+    }
+
+    private static PathDetail detail(PathDetail detail, int first, int last) {
+        detail.setFirst(first);
+        detail.setLast(last);
+        return detail;
+    }
+
+    private static void assertDetail(PathDetail detail, int first, int last, Object value) {
+        assertEquals(first, detail.getFirst());
+        assertEquals(last, detail.getLast());
+        assertEquals(value, detail.getValue());
+    }
+}
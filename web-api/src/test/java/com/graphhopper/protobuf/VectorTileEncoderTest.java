@@ -0,0 +1,165 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.protobuf;
+
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.BBox;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class VectorTileEncoderTest {
+
+    @Test
+    public void testProjection() {
+        VectorTileEncoder encoder = new VectorTileEncoder(1, 0, 0);
+        assertEquals(0, encoder.toTileX(-180), 1e-6);
+        assertEquals(2048, encoder.toTileX(-90), 1e-6);
+        assertEquals(4096, encoder.toTileY(0), 1e-6);
+        assertEquals(0, encoder.toTileY(85.0511287798), 1e-3);
+
+        BBox bbox = encoder.getBBox();
+        assertEquals(-180, bbox.minLon, 1e-6);
+        assertEquals(64.0 / 4096 * 180, bbox.maxLon, 1e-6);
+        assertTrue(bbox.minLat < 0);
+        assertEquals(85.0511, bbox.maxLat, 1e-6);
+    }
+
+    @Test
+    public void testClipLines() {
+        VectorTileEncoder encoder = new VectorTileEncoder(1, 0, 0);
+        VectorTileEncoder.Layer layer = encoder.addLayer("roads");
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("name", "main");
+        properties.put("speed", 50);
+        properties.put("skipped", null);
+        // from the center of the tile to the east, crossing the border of the tile and its buffer
+        assertTrue(layer.addLine(7, Helper.createPointList(0, -90, 0, 90), properties));
+        // completely outside
+        assertFalse(layer.addLine(8, Helper.createPointList(-10, 90, -20, 91), properties));
+        properties.put("speed", 30.5);
+        properties.put("oneway", true);
+        // leaves the tile to the south and enters it again
+        assertTrue(layer.addLine(9, Helper.createPointList(10, -90, -10, -90, 10, -45), properties));
+        assertEquals(2, layer.getFeatureCount());
+        assertEquals(0, encoder.addLayer("empty").getFeatureCount());
+
+        ProtobufReader tile = new ProtobufReader(encoder.toByteArray());
+        assertTrue(tile.next());
+        assertEquals(3, tile.getField());
+        ProtobufReader reader = tile.readMessage();
+        // the empty layer is skipped
+        assertFalse(tile.next());
+
+        List<ProtobufReader> features = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        while (reader.next()) {
+            switch (reader.getField()) {
+                case 1:
+                    assertEquals("roads", reader.readString());
+                    break;
+                case 2:
+                    features.add(reader.readMessage());
+                    break;
+                case 3:
+                    keys.add(reader.readString());
+                    break;
+                case 4:
+                    ProtobufReader value = reader.readMessage();
+                    assertTrue(value.next());
+                    if (value.getField() == 1)
+                        values.add(value.readString());
+                    else if (value.getField() == 3)
+                        values.add(value.readDouble());
+                    else if (value.getField() == 5)
+                        values.add(value.readVarint());
+                    else if (value.getField() == 7)
+                        values.add(value.readBool());
+                    else
+                        fail("unexpected value type " + value.getField());
+                    break;
+                case 5:
+                    assertEquals(4096, reader.readVarint());
+                    break;
+                case 15:
+                    assertEquals(2, reader.readVarint());
+                    break;
+                default:
+                    fail("unexpected field " + reader.getField());
+            }
+        }
+        assertEquals(Arrays.asList("name", "speed", "oneway"), keys);
+        assertEquals(Arrays.<Object>asList("main", 50L, 30.5, true), values);
+        assertEquals(2, features.size());
+
+        ProtobufReader feature = features.get(0);
+        assertTrue(feature.next());
+        assertEquals(7, feature.readVarint());
+        assertTrue(feature.next());
+        assertEquals(Arrays.asList(0L, 0L, 1L, 1L), readPacked(feature.readMessage(), false));
+        assertTrue(feature.next());
+        assertEquals(2, feature.readVarint());
+        assertTrue(feature.next());
+        // MoveTo(2048, 4096) LineTo(4096 + 64, 4096)
+        assertEquals(Arrays.asList(9L, 2048L, 4096L, 10L, 2048L + 64, 0L), readPacked(feature.readMessage(), true));
+        assertFalse(feature.next());
+
+        feature = features.get(1);
+        assertTrue(feature.next());
+        assertEquals(9, feature.readVarint());
+        assertTrue(feature.next());
+        assertEquals(Arrays.asList(0L, 0L, 1L, 2L, 2L, 3L), readPacked(feature.readMessage(), false));
+        assertTrue(feature.next());
+        assertEquals(2, feature.readVarint());
+        assertTrue(feature.next());
+        List<Long> geometry = readPacked(feature.readMessage(), true);
+        // the line is clipped at the bottom of the buffer and the cursor of the second part is relative to the first part
+        assertEquals(12, geometry.size());
+        assertEquals(Arrays.asList(9L, 2048L), geometry.subList(0, 2));
+        long startY = geometry.get(2);
+        assertEquals(Arrays.asList(10L, 0L, 4096L + 64 - startY), geometry.subList(3, 6));
+        assertEquals(9L, (long) geometry.get(6));
+        assertTrue(geometry.get(7) > 0 && geometry.get(7) < 1024);
+        assertEquals(Arrays.asList(0L, 10L), geometry.subList(8, 10));
+        // the end of the line is at the same y as its start
+        assertEquals(1024L, geometry.get(7) + geometry.get(10));
+        assertEquals(startY - 4096 - 64, (long) geometry.get(11));
+        assertFalse(feature.next());
+    }
+
+    private static List<Long> readPacked(ProtobufReader reader, boolean geometry) {
+        List<Long> list = new ArrayList<>();
+        int remainingParameters = 0;
+        while (reader.hasRemaining()) {
+            if (!geometry) {
+                list.add(reader.readVarint());
+            } else if (remainingParameters == 0) {
+                long command = reader.readVarint();
+                remainingParameters = (int) (command >> 3) * 2;
+                list.add(command);
+            } else {
+                list.add(reader.readSVarint());
+                remainingParameters--;
+            }
+        }
+        return list;
+    }
+}
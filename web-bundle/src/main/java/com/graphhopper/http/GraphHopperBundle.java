@@ -19,9 +19,11 @@
 package com.graphhopper.http;
 
 import com.bedatadriven.jackson.datatype.jts.JtsModule;
+import com.codahale.metrics.Gauge;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationConfig;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.module.SimpleModule;
@@ -39,6 +41,7 @@ import com.graphhopper.reader.gtfs.GtfsStorage;
 import com.graphhopper.reader.gtfs.PtFlagEncoder;
 import com.graphhopper.reader.gtfs.RealtimeFeed;
 import com.graphhopper.resources.*;
+import com.graphhopper.routing.RouteCache;
 import com.graphhopper.routing.util.CarFlagEncoder;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.FootFlagEncoder;
@@ -220,6 +223,7 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
             @Override
             protected void configure() {
                 bind(configuration).to(CmdArgs.class);
+                bind(environment.getObjectMapper()).to(ObjectMapper.class);
                 bind(graphHopper).to(GraphHopperAPI.class);
                 bind(false).to(Boolean.class).named("hasElevation");
                 bind(locationIndex).to(LocationIndex.class);
@@ -266,6 +270,7 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
             @Override
             protected void configure() {
                 bind(configuration).to(CmdArgs.class);
+                bind(environment.getObjectMapper()).to(ObjectMapper.class);
                 bind(graphHopperManaged).to(GraphHopperManaged.class);
                 bind(graphHopperManaged.getGraphHopper()).to(GraphHopper.class);
                 bind(graphHopperManaged.getGraphHopper()).to(GraphHopperAPI.class);
@@ -284,10 +289,20 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         }
         environment.jersey().register(NearestResource.class);
         environment.jersey().register(RouteResource.class);
+        environment.jersey().register(MatrixResource.class);
         environment.jersey().register(IsochroneResource.class);
+        environment.jersey().register(MVTResource.class);
         environment.jersey().register(I18NResource.class);
         environment.jersey().register(InfoResource.class);
         environment.healthChecks().register("graphhopper", new GraphHopperHealthCheck(graphHopperManaged.getGraphHopper()));
+
+        RouteCache routeCache = graphHopperManaged.getGraphHopper().getRouteCache();
+        if (routeCache != null) {
+            environment.metrics().register("graphhopper.route_cache.size", (Gauge<Integer>) routeCache::getSize);
+            environment.metrics().register("graphhopper.route_cache.hits", (Gauge<Long>) routeCache::getHits);
+            environment.metrics().register("graphhopper.route_cache.misses", (Gauge<Long>) routeCache::getMisses);
+            environment.metrics().register("graphhopper.route_cache.evictions", (Gauge<Long>) routeCache::getEvictions);
+        }
     }
 
 }
@@ -2,15 +2,17 @@ package com.graphhopper.http;
 
 import com.graphhopper.MultiException;
 
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ExceptionMapper;
 
 public class IllegalArgumentExceptionMapper implements ExceptionMapper<IllegalArgumentException> {
+    @Context
+    private HttpHeaders headers;
 
     @Override
     public Response toResponse(IllegalArgumentException e) {
-        return Response.status(Response.Status.BAD_REQUEST)
-                .entity(new MultiException(e))
-                .build();
+        return MultiExceptionMapper.toResponse(new MultiException(e), headers);
     }
 }
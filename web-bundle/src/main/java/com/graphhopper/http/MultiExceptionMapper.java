@@ -19,15 +19,34 @@
 package com.graphhopper.http;
 
 import com.graphhopper.MultiException;
+import com.graphhopper.protobuf.RouteProtobuf;
 
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ExceptionMapper;
 import javax.ws.rs.ext.Provider;
 
 @Provider
 public class MultiExceptionMapper implements ExceptionMapper<MultiException> {
+    @Context
+    private HttpHeaders headers;
+
     @Override
     public Response toResponse(MultiException exception) {
-        return Response.status(Response.Status.BAD_REQUEST).entity(exception).build();
+        return toResponse(exception, headers);
+    }
+
+    /**
+     * There is no protobuf message for errors, so they are written as JSON if the client prefers protobuf.
+     */
+    static Response toResponse(MultiException exception, HttpHeaders headers) {
+        Response.ResponseBuilder builder = Response.status(Response.Status.BAD_REQUEST).entity(exception);
+        // the list is sorted by preference and contains */* if the client sent no Accept header
+        MediaType preferred = headers.getAcceptableMediaTypes().get(0);
+        if (!preferred.isWildcardType() && preferred.isCompatible(MediaType.valueOf(RouteProtobuf.MEDIA_TYPE)))
+            builder.type(MediaType.APPLICATION_JSON_TYPE);
+        return builder.build();
     }
 }
@@ -5,13 +5,21 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.isochrone.algorithm.Isochrone;
 import com.graphhopper.isochrone.algorithm.DelaunayTriangulationIsolineBuilder;
+import com.graphhopper.isochrone.algorithm.IsochroneCH;
 import com.graphhopper.json.geo.JsonFeature;
 import com.graphhopper.routing.QueryGraph;
+import com.graphhopper.routing.ch.CHAlgoFactoryDecorator;
+import com.graphhopper.routing.ch.OneToAllCH;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.CHGraph;
+import com.graphhopper.storage.EdgeFlagOverlay;
 import com.graphhopper.storage.Graph;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.QueryResult;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Parameters;
 import com.graphhopper.util.StopWatch;
 import com.graphhopper.util.shapes.GHPoint;
 import org.locationtech.jts.geom.Coordinate;
@@ -20,6 +28,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import javax.inject.Singleton;
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.*;
 import javax.ws.rs.core.Context;
@@ -27,8 +36,12 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
 
 @Path("isochrone")
+@Singleton
 public class IsochroneResource {
 
     private static final Logger logger = LoggerFactory.getLogger(RouteResource.class);
@@ -37,12 +50,19 @@ public class IsochroneResource {
     private final EncodingManager encodingManager;
     private final DelaunayTriangulationIsolineBuilder delaunayTriangulationIsolineBuilder;
     private final GeometryFactory geometryFactory = new GeometryFactory();
+    // the search state needs memory per node, so the number of concurrent CH searches per weighting is limited and
+    // their state is reused by the following requests
+    private final Map<String, OneToAllPool> oneToAllPools = new ConcurrentHashMap<>();
+    private final int maxCHSearches;
 
     @Inject
-    public IsochroneResource(GraphHopper graphHopper, EncodingManager encodingManager, DelaunayTriangulationIsolineBuilder delaunayTriangulationIsolineBuilder) {
+    public IsochroneResource(GraphHopper graphHopper, EncodingManager encodingManager, DelaunayTriangulationIsolineBuilder delaunayTriangulationIsolineBuilder, CmdArgs cmdArgs) {
         this.graphHopper = graphHopper;
         this.encodingManager = encodingManager;
         this.delaunayTriangulationIsolineBuilder = delaunayTriangulationIsolineBuilder;
+        this.maxCHSearches = cmdArgs.getInt("web.isochrone.max_ch_searches", Runtime.getRuntime().availableProcessors());
+        if (maxCHSearches < 1)
+            throw new IllegalArgumentException("web.isochrone.max_ch_searches must be at least 1 but was " + maxCHSearches);
     }
 
     @GET
@@ -70,31 +90,64 @@ public class IsochroneResource {
             throw new IllegalArgumentException("vehicle not supported:" + vehicle);
 
         FlagEncoder encoder = encodingManager.getEncoder(vehicle);
-        EdgeFilter edgeFilter = DefaultEdgeFilter.allEdges(encoder);
-        LocationIndex locationIndex = graphHopper.getLocationIndex();
-        QueryResult qr = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
-        if (!qr.isValid())
-            throw new IllegalArgumentException("Point not found:" + point);
-
-        Graph graph = graphHopper.getGraphHopperStorage();
-        QueryGraph queryGraph = new QueryGraph(graph);
-        queryGraph.lookup(Collections.singletonList(qr));
-
         HintsMap hintsMap = new HintsMap();
         RouteResource.initHints(hintsMap, uriInfo.getQueryParameters());
-
-        Weighting weighting = graphHopper.createWeighting(hintsMap, encoder, graph);
-        Isochrone isochrone = new Isochrone(queryGraph, weighting, reverseFlow);
-
-        if (distanceInMeter > 0) {
-            isochrone.setDistanceLimit(distanceInMeter);
-        } else {
-            isochrone.setTimeLimit(timeLimitInSeconds);
-        }
-
-        List<List<Coordinate>> buckets = isochrone.searchGPS(qr.getClosestNode(), nBuckets);
-        if (isochrone.getVisitedNodes() > graphHopper.getMaxVisitedNodes() / 5) {
-            throw new IllegalArgumentException("Server side reset: too many junction nodes would have to explored (" + isochrone.getVisitedNodes() + "). Let us know if you need this increased.");
+        hintsMap.setVehicle(vehicle);
+
+        List<List<Coordinate>> buckets;
+        int visitedNodes;
+        // the search reads the edge flags of one version, also if they are changed concurrently
+        EdgeFlagOverlay pinnedFlags = graphHopper.getGraphHopperStorage().pinEdgeFlags();
+        try {
+            EdgeFilter edgeFilter = DefaultEdgeFilter.allEdges(encoder);
+            LocationIndex locationIndex = graphHopper.getLocationIndex();
+            QueryResult qr = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
+            if (!qr.isValid())
+                throw new IllegalArgumentException("Point not found:" + point);
+
+            PrepareContractionHierarchies prepareCH = findCHPreparation(hintsMap);
+            if (prepareCH != null) {
+                // the sweep visits the whole graph regardless of the limit, so there is no limit for the visited nodes
+                CHGraph chGraph = graphHopper.getGraphHopperStorage().getGraph(CHGraph.class, prepareCH.getWeighting());
+                QueryGraph queryGraph = new QueryGraph(chGraph);
+                queryGraph.lookup(Collections.singletonList(qr));
+                OneToAllPool pool = oneToAllPools.computeIfAbsent(prepareCH.getWeighting().toString(),
+                        key -> new OneToAllPool(prepareCH, maxCHSearches));
+                OneToAllCH oneToAll = pool.acquire();
+                try {
+                    IsochroneCH isochrone = new IsochroneCH(queryGraph, oneToAll, reverseFlow);
+                    if (distanceInMeter > 0) {
+                        isochrone.setDistanceLimit(distanceInMeter);
+                    } else {
+                        isochrone.setTimeLimit(timeLimitInSeconds);
+                    }
+                    buckets = isochrone.searchGPS(qr.getClosestNode(), nBuckets);
+                    visitedNodes = isochrone.getVisitedNodes();
+                } finally {
+                    pool.release(oneToAll);
+                }
+            } else {
+                Graph graph = graphHopper.getGraphHopperStorage();
+                QueryGraph queryGraph = new QueryGraph(graph);
+                queryGraph.lookup(Collections.singletonList(qr));
+
+                Weighting weighting = graphHopper.createWeighting(hintsMap, encoder, graph);
+                Isochrone isochrone = new Isochrone(queryGraph, weighting, reverseFlow);
+
+                if (distanceInMeter > 0) {
+                    isochrone.setDistanceLimit(distanceInMeter);
+                } else {
+                    isochrone.setTimeLimit(timeLimitInSeconds);
+                }
+
+                buckets = isochrone.searchGPS(qr.getClosestNode(), nBuckets);
+                visitedNodes = isochrone.getVisitedNodes();
+                if (visitedNodes > graphHopper.getMaxVisitedNodes() / 5) {
+                    throw new IllegalArgumentException("Server side reset: too many junction nodes would have to explored (" + visitedNodes + "). Let us know if you need this increased.");
+                }
+            }
+        } finally {
+            graphHopper.getGraphHopperStorage().unpinEdgeFlags(pinnedFlags);
         }
 
         int counter = 0;
@@ -109,7 +162,7 @@ public class IsochroneResource {
 
         if ("pointlist".equalsIgnoreCase(resultStr)) {
             sw.stop();
-            logger.info("took: " + sw.getSeconds() + ", visited nodes:" + isochrone.getVisitedNodes() + ", " + uriInfo.getQueryParameters());
+            logger.info("took: " + sw.getSeconds() + ", visited nodes:" + visitedNodes + ", " + uriInfo.getQueryParameters());
             return Response.fromResponse(jsonSuccessResponse(buckets, sw.getSeconds()))
                     .header("X-GH-Took", "" + sw.getSeconds() * 1000)
                     .build();
@@ -125,7 +178,7 @@ public class IsochroneResource {
                 features.add(feature);
             }
             sw.stop();
-            logger.info("took: " + sw.getSeconds() + ", visited nodes:" + isochrone.getVisitedNodes() + ", " + uriInfo.getQueryParameters());
+            logger.info("took: " + sw.getSeconds() + ", visited nodes:" + visitedNodes + ", " + uriInfo.getQueryParameters());
             return Response.fromResponse(jsonSuccessResponse(features, sw.getSeconds()))
                     .header("X-GH-Took", "" + sw.getSeconds() * 1000)
                     .build();
@@ -134,6 +187,54 @@ public class IsochroneResource {
         }
     }
 
+    /**
+     * @return the node-based preparation for the weighting of the request or null if the request cannot use CH
+     */
+    private PrepareContractionHierarchies findCHPreparation(HintsMap hintsMap) {
+        CHAlgoFactoryDecorator chDecorator = graphHopper.getCHFactoryDecorator();
+        if (!chDecorator.isEnabled() || chDecorator.isDisablingAllowed() && hintsMap.getBool(Parameters.CH.DISABLE, false))
+            return null;
+
+        if (hintsMap.getWeighting().isEmpty() && !chDecorator.getWeightingsAsStrings().isEmpty())
+            hintsMap.setWeighting(chDecorator.getWeightingsAsStrings().get(0));
+        for (PrepareContractionHierarchies prepareCH : chDecorator.getPreparations()) {
+            // the isochrone search on CH is node-based, an edge-based preparation falls back to the normal search
+            if (prepareCH.getWeighting().matches(hintsMap))
+                return prepareCH.isEdgeBased() ? null : prepareCH;
+        }
+        return null;
+    }
+
+    /**
+     * A fixed number of OneToAllCH instances of one preparation. Requests wait if all of them are in use.
+     */
+    private static class OneToAllPool {
+        private final PrepareContractionHierarchies prepareCH;
+        private final Semaphore permits;
+        private final Queue<OneToAllCH> instances = new ConcurrentLinkedQueue<>();
+
+        OneToAllPool(PrepareContractionHierarchies prepareCH, int size) {
+            this.prepareCH = prepareCH;
+            this.permits = new Semaphore(size);
+        }
+
+        OneToAllCH acquire() {
+            try {
+                permits.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for an isochrone search", ex);
+            }
+            OneToAllCH oneToAll = instances.poll();
+            return oneToAll == null ? prepareCH.createOneToAll() : oneToAll;
+        }
+
+        void release(OneToAllCH oneToAll) {
+            instances.offer(oneToAll);
+            permits.release();
+        }
+    }
+
     private Response jsonSuccessResponse(Object result, float took) {
         ObjectNode json = JsonNodeFactory.instance.objectNode();
         json.putPOJO("polygons", result);
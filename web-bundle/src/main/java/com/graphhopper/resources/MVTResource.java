@@ -0,0 +1,165 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.protobuf.VectorTileEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.storage.EdgeFlagOverlay;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.BBox;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import java.util.*;
+
+/**
+ * Returns the road network as Mapbox vector tiles, e.g. to show the edges of the graph and their access and speed
+ * per vehicle on top of a map. The tiles are created directly from the graph: the nodes are collected from the cells
+ * of the LocationIndexTree and the geometry of their edges is simplified to the resolution of the tile and clipped.
+ * The created tiles are cached until the edge flags are changed. The least recently used tile is evicted if the cache
+ * is full.
+ */
+@Path("mvt")
+@Singleton
+public class MVTResource {
+    private final GraphHopperStorage graph;
+    private final LocationIndexTree locationIndex;
+    private final EncodingManager encodingManager;
+    private final int minZoom;
+    private final int maxZoom;
+    // guarded by this, the key contains the zoom level and the coordinates of the tile, see createKey
+    private final LinkedHashMap<Long, byte[]> tileCache;
+    // the version of the edge flags the cached tiles were created for
+    private long cacheVersion = -1;
+
+    @Inject
+    public MVTResource(GraphHopper graphHopper, EncodingManager encodingManager, CmdArgs cmdArgs) {
+        this.graph = graphHopper.getGraphHopperStorage();
+        if (!(graphHopper.getLocationIndex() instanceof LocationIndexTree))
+            throw new IllegalStateException("Vector tiles require a LocationIndexTree but was " + graphHopper.getLocationIndex());
+
+        this.locationIndex = (LocationIndexTree) graphHopper.getLocationIndex();
+        this.encodingManager = encodingManager;
+        this.minZoom = cmdArgs.getInt("web.mvt.min_zoom", 10);
+        this.maxZoom = cmdArgs.getInt("web.mvt.max_zoom", 20);
+        if (maxZoom > 29)
+            throw new IllegalArgumentException("The maximum zoom level must not be greater than 29 but was " + maxZoom);
+
+        final int cacheSize = cmdArgs.getInt("web.mvt.cache_size", 2000);
+        this.tileCache = new LinkedHashMap<Long, byte[]>(Math.min(cacheSize, 1000), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    @GET
+    @Path("{z}/{x}/{y}.mvt")
+    @Produces(VectorTileEncoder.MEDIA_TYPE)
+    public byte[] doGet(@PathParam("z") int z, @PathParam("x") int x, @PathParam("y") int y) {
+        if (z > maxZoom)
+            throw new IllegalArgumentException("Zoom level " + z + " is not supported, the maximum is " + maxZoom);
+        // throws an exception for invalid tiles
+        VectorTileEncoder encoder = new VectorTileEncoder(z, x, y);
+        // the tiles would contain too many edges, so they are returned empty
+        if (z < minZoom)
+            return encoder.toByteArray();
+
+        EdgeFlagOverlay pinnedFlags = graph.pinEdgeFlags();
+        try {
+            long version = pinnedFlags == null ? -1 : pinnedFlags.getVersion();
+            long key = createKey(z, x, y);
+            synchronized (this) {
+                if (version != cacheVersion) {
+                    tileCache.clear();
+                    cacheVersion = version;
+                }
+                byte[] bytes = tileCache.get(key);
+                if (bytes != null)
+                    return bytes;
+            }
+
+            byte[] bytes = createTile(encoder);
+            synchronized (this) {
+                if (version == cacheVersion)
+                    tileCache.put(key, bytes);
+            }
+            return bytes;
+        } finally {
+            graph.unpinEdgeFlags(pinnedFlags);
+        }
+    }
+
+    /**
+     * The x and y coordinates of a tile are smaller than 2^z, so they need at most 29 bits and the zoom level the
+     * upper 6 bits.
+     */
+    static long createKey(int z, int x, int y) {
+        return (long) z << 58 | (long) x << 29 | y;
+    }
+
+    private byte[] createTile(VectorTileEncoder encoder) {
+        BBox bbox = encoder.getBBox();
+        GHIntHashSet nodes = new GHIntHashSet();
+        locationIndex.findNetworkEntries(bbox, nodes);
+
+        // simplify the geometry to the size of a pixel, the maximum resolution of a tile
+        DouglasPeucker simplifier = new DouglasPeucker().
+                setMaxDistance(encoder.getResolution((bbox.minLat + bbox.maxLat) / 2));
+        List<FlagEncoder> encoders = encodingManager.fetchEdgeEncoders();
+        VectorTileEncoder.Layer layer = encoder.addLayer("roads");
+        GHIntHashSet edges = new GHIntHashSet();
+        EdgeExplorer explorer = graph.createEdgeExplorer();
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (IntCursor node : nodes) {
+            EdgeIterator iter = explorer.setBaseNode(node.value);
+            while (iter.next()) {
+                if (!edges.add(iter.getEdge()))
+                    continue;
+
+                PointList points = iter.fetchWayGeometry(3);
+                simplifier.simplify(points);
+                // the direction of the geometry matches the flags of the iterator
+                properties.clear();
+                properties.put("name", iter.getName().isEmpty() ? null : iter.getName());
+                properties.put("distance", Helper.round(iter.getDistance(), 1));
+                long flags = iter.getFlags();
+                for (FlagEncoder flagEncoder : encoders) {
+                    String prefix = flagEncoder.toString() + "_";
+                    properties.put(prefix + "forward", flagEncoder.isForward(flags));
+                    properties.put(prefix + "backward", flagEncoder.isBackward(flags));
+                    properties.put(prefix + "speed", flagEncoder.getSpeed(flags));
+                    properties.put(prefix + "reverse_speed", flagEncoder.getReverseSpeed(flags));
+                }
+                layer.addLine(iter.getEdge(), points, properties);
+            }
+        }
+        return encoder.toByteArray();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.routing.ch.ManyToManyCH;
+import com.graphhopper.routing.util.HintsMap;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.shapes.GHPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Resource to calculate the weights, distances and times between many points. Either pass the same list of points
+ * for the sources and the targets via 'point' or two separate lists via 'from_point' and 'to_point'. The response
+ * format is the same as the one of the hosted Matrix API, e.g. times are in seconds and distances in meter.
+ */
+@Path("matrix")
+public class MatrixResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixResource.class);
+
+    private final GraphHopper graphHopper;
+
+    @Inject
+    public MatrixResource(GraphHopper graphHopper) {
+        this.graphHopper = graphHopper;
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doGet(
+            @Context HttpServletRequest httpReq,
+            @Context UriInfo uriInfo,
+            @QueryParam("point") List<GHPoint> points,
+            @QueryParam("from_point") List<GHPoint> fromPoints,
+            @QueryParam("to_point") List<GHPoint> toPoints,
+            @QueryParam("out_array") List<String> outArrays,
+            @QueryParam("vehicle") @DefaultValue("car") String vehicleStr,
+            @QueryParam("weighting") @DefaultValue("fastest") String weighting) {
+        StopWatch sw = new StopWatch().start();
+        if (!points.isEmpty()) {
+            if (!fromPoints.isEmpty() || !toPoints.isEmpty())
+                throw new IllegalArgumentException("Either specify 'point' or 'from_point' and 'to_point' but not both");
+            fromPoints = points;
+            toPoints = points;
+        }
+        if (outArrays.isEmpty())
+            outArrays = Arrays.asList("weights");
+        for (String outArray : outArrays) {
+            if (!"weights".equals(outArray) && !"distances".equals(outArray) && !"times".equals(outArray))
+                throw new IllegalArgumentException("out_array not supported: " + outArray + ", use weights, distances or times");
+        }
+
+        HintsMap hints = new HintsMap();
+        RouteResource.initHints(hints, uriInfo.getQueryParameters());
+        hints.setVehicle(vehicleStr).setWeighting(weighting);
+        ManyToManyCH.Result result = graphHopper.calcMatrix(fromPoints, toPoints, hints);
+
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        if (outArrays.contains("weights")) {
+            ArrayNode weights = json.putArray("weights");
+            for (int from = 0; from < fromPoints.size(); from++) {
+                ArrayNode row = weights.addArray();
+                for (int to = 0; to < toPoints.size(); to++) {
+                    if (result.isFound(from, to))
+                        row.add(Math.round(result.getWeight(from, to) * 10) / 10d);
+                    else
+                        row.addNull();
+                }
+            }
+        }
+        if (outArrays.contains("distances")) {
+            ArrayNode distances = json.putArray("distances");
+            for (int from = 0; from < fromPoints.size(); from++) {
+                ArrayNode row = distances.addArray();
+                for (int to = 0; to < toPoints.size(); to++) {
+                    if (result.isFound(from, to))
+                        row.add(Math.round(result.getDistance(from, to)));
+                    else
+                        row.addNull();
+                }
+            }
+        }
+        if (outArrays.contains("times")) {
+            ArrayNode times = json.putArray("times");
+            for (int from = 0; from < fromPoints.size(); from++) {
+                ArrayNode row = times.addArray();
+                for (int to = 0; to < toPoints.size(); to++) {
+                    if (result.isFound(from, to))
+                        row.add(Math.round(result.getTime(from, to) / 1000d));
+                    else
+                        row.addNull();
+                }
+            }
+        }
+
+        float took = sw.stop().getSeconds();
+        // If you replace GraphHopper with your own brand name, this is fine.
+        // Still it would be highly appreciated if you mention us in your about page!
+        final ObjectNode info = json.putObject("info");
+        info.putArray("copyrights")
+                .add("GraphHopper")
+                .add("OpenStreetMap contributors");
+        info.put("took", Math.round(took * 1000));
+
+        logger.info(httpReq.getQueryString() + " " + httpReq.getRemoteAddr() + " " + fromPoints.size() + "x" + toPoints.size()
+                + ", took:" + took + ", " + weighting + ", " + vehicleStr);
+        return Response.ok(json).header("X-GH-Took", "" + Math.round(took * 1000)).build();
+    }
+}
@@ -19,7 +19,11 @@ package com.graphhopper.resources;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.graphhopper.protobuf.ProtobufWriter;
+import com.graphhopper.protobuf.RouteProtobuf;
 import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.storage.EdgeFlagOverlay;
+import com.graphhopper.storage.GraphHopperStorage;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.QueryResult;
 import com.graphhopper.util.DistanceCalc;
@@ -42,11 +46,13 @@ public class NearestResource {
 
     private final DistanceCalc calc = Helper.DIST_EARTH;
     private final LocationIndex index;
+    private final GraphHopperStorage graphHopperStorage;
     private final boolean hasElevation;
 
     @Inject
-    NearestResource(LocationIndex index, @Named("hasElevation") Boolean hasElevation) {
+    NearestResource(LocationIndex index, GraphHopperStorage graphHopperStorage, @Named("hasElevation") Boolean hasElevation) {
         this.index = index;
+        this.graphHopperStorage = graphHopperStorage;
         this.hasElevation = hasElevation;
     }
 
@@ -62,9 +68,30 @@ public class NearestResource {
         }
     }
 
+    /**
+     * Returns JSON or, if the type is protobuf, the NearestResponse message of route.proto. Like for /route the
+     * format is chosen by the type parameter, unknown types fall back to JSON.
+     */
     @GET
-    public Response doGet(@QueryParam("point") GHPoint point, @QueryParam("elevation") @DefaultValue("false") boolean elevation) {
-        QueryResult qr = index.findClosest(point.lat, point.lon, EdgeFilter.ALL_EDGES);
+    @Produces({MediaType.APPLICATION_JSON, RouteProtobuf.MEDIA_TYPE})
+    public javax.ws.rs.core.Response doGet(@QueryParam("point") GHPoint point,
+                                           @QueryParam("elevation") @DefaultValue("false") boolean elevation,
+                                           @QueryParam("type") @DefaultValue("json") String type) {
+        Response response = findNearest(point, elevation);
+        if ("protobuf".equalsIgnoreCase(type))
+            return javax.ws.rs.core.Response.ok(toProtobuf(response), RouteProtobuf.MEDIA_TYPE).build();
+        return javax.ws.rs.core.Response.ok(response, MediaType.APPLICATION_JSON).build();
+    }
+
+    private Response findNearest(GHPoint point, boolean elevation) {
+        QueryResult qr;
+        // the lookup reads the edge flags of one version, also if they are changed concurrently
+        EdgeFlagOverlay pinnedFlags = graphHopperStorage.pinEdgeFlags();
+        try {
+            qr = index.findClosest(point.lat, point.lon, EdgeFilter.ALL_EDGES);
+        } finally {
+            graphHopperStorage.unpinEdgeFlags(pinnedFlags);
+        }
         if (qr.isValid()) {
             GHPoint3D snappedPoint = qr.getSnappedPoint();
             double[] coordinates = hasElevation && elevation ? new double[]{snappedPoint.lon, snappedPoint.lat, snappedPoint.ele} : new double[]{snappedPoint.lon, snappedPoint.lat};
@@ -74,4 +101,12 @@ public class NearestResource {
         }
     }
 
+    private static byte[] toProtobuf(Response response) {
+        ProtobufWriter coordinates = new ProtobufWriter();
+        for (double coordinate : response.coordinates) {
+            coordinates.appendDouble(coordinate);
+        }
+        return new ProtobufWriter().writeBytes(1, coordinates).writeDouble(2, response.distance).toByteArray();
+    }
+
 }
@@ -17,11 +17,14 @@
  */
 package com.graphhopper.resources;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopperAPI;
 import com.graphhopper.MultiException;
 import com.graphhopper.http.WebHelper;
+import com.graphhopper.protobuf.RouteProtobuf;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.routing.util.HintsMap;
 import com.graphhopper.util.Constants;
@@ -59,15 +62,17 @@ public class RouteResource {
 
     private final GraphHopperAPI graphHopper;
     private final Boolean hasElevation;
+    private final ObjectMapper objectMapper;
 
     @Inject
-    public RouteResource(GraphHopperAPI graphHopper, @Named("hasElevation") Boolean hasElevation) {
+    public RouteResource(GraphHopperAPI graphHopper, @Named("hasElevation") Boolean hasElevation, ObjectMapper objectMapper) {
         this.graphHopper = graphHopper;
         this.hasElevation = hasElevation;
+        this.objectMapper = objectMapper;
     }
 
     @GET
-    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml"})
+    @Produces({MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML, "application/gpx+xml", RouteProtobuf.MEDIA_TYPE})
     public Response doGet(
             @Context HttpServletRequest httpReq,
             @Context UriInfo uriInfo,
@@ -92,6 +97,7 @@ public class RouteResource {
             @QueryParam("gpx.trackname") @DefaultValue("GraphHopper Track") String trackName,
             @QueryParam("gpx.millis") String timeString) {
         boolean writeGPX = "gpx".equalsIgnoreCase(type);
+        boolean writeProtobuf = "protobuf".equalsIgnoreCase(type);
         instructions = writeGPX || instructions;
 
         StopWatch sw = new StopWatch().start();
@@ -150,17 +156,31 @@ public class RouteResource {
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
                     + ", points0: " + ghResponse.getBest().getPoints().getSize()
                     + ", debugInfo: " + ghResponse.getDebugInfo());
-            return writeGPX ?
-                    gpxSuccessResponseBuilder(ghResponse, timeString, trackName, enableElevation, withRoute, withTrack, withWayPoints, Constants.VERSION).
-                            header("X-GH-Took", "" + Math.round(took * 1000)).
-                            build()
-                    :
-                    Response.ok(WebHelper.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
-                            header("X-GH-Took", "" + Math.round(took * 1000)).
-                            build();
+            Response.ResponseBuilder builder;
+            if (writeGPX)
+                builder = gpxSuccessResponseBuilder(ghResponse, timeString, trackName, enableElevation, withRoute, withTrack, withWayPoints, Constants.VERSION);
+            else if (writeProtobuf)
+                builder = Response.ok(RouteProtobuf.toBytes(ghResponse, instructions, calcPoints, enableElevation, took), RouteProtobuf.MEDIA_TYPE);
+            else
+                builder = Response.ok(jsonStreamingOutput(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took), MediaType.APPLICATION_JSON);
+            return builder.header("X-GH-Took", "" + Math.round(took * 1000)).build();
         }
     }
 
+    /**
+     * Writes the JSON response directly to the output stream, which avoids building the object tree of the
+     * response for long routes.
+     */
+    private StreamingOutput jsonStreamingOutput(GHResponse ghResponse, boolean instructions, boolean calcPoints,
+                                                boolean enableElevation, boolean pointsEncoded, float took) {
+        return output -> {
+            JsonGenerator gen = objectMapper.getFactory().createGenerator(output);
+            WebHelper.writeJson(gen, ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took);
+            // do not close the output stream, this is done by the container
+            gen.flush();
+        };
+    }
+
     private static Response.ResponseBuilder gpxSuccessResponseBuilder(GHResponse ghRsp, String timeString, String
             trackName, boolean enableElevation, boolean withRoute, boolean withTrack, boolean withWayPoints, String version) {
         if (ghRsp.getAll().size() > 1) {
@@ -0,0 +1,117 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.protobuf.ProtobufReader;
+import com.graphhopper.protobuf.VectorTileEncoder;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.BBox;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class MVTResourceTest {
+    private static final String DIR = "./target/andorra-mvt-gh/";
+    private static final GraphHopperServerConfiguration config = new GraphHopperServerConfiguration();
+
+    static {
+        config.getGraphHopperConfiguration().merge(new CmdArgs().
+                put("graph.flag_encoders", "car").
+                put("prepare.ch.weightings", "no").
+                put("datareader.file", "../core/files/andorra.osm.pbf").
+                put("graph.location", DIR));
+    }
+
+    @ClassRule
+    public static final DropwizardAppRule<GraphHopperServerConfiguration> app = new DropwizardAppRule(
+            GraphHopperApplication.class, config);
+
+    @AfterClass
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testRoadsLayer() {
+        // the edges of a route that are located in the tile 13/4130/3023 are the expected edges
+        BBox bbox = new VectorTileEncoder(13, 4130, 3023).getBBox();
+        Set<Long> routeEdges = new HashSet<>();
+        JsonNode path = app.client().target("http://localhost:8080/route?point=42.56819,1.50585&point=42.55697,1.53269" +
+                "&details=edge_id&points_encoded=false").request().get(JsonNode.class).get("paths").get(0);
+        JsonNode coordinates = path.get("points").get("coordinates");
+        for (JsonNode detail : path.get("details").get("edge_id")) {
+            boolean inside = true;
+            for (int i = detail.get(0).asInt(); i <= detail.get(1).asInt(); i++) {
+                inside &= bbox.contains(coordinates.get(i).get(1).asDouble(), coordinates.get(i).get(0).asDouble());
+            }
+            if (inside)
+                routeEdges.add(detail.get(2).asLong());
+        }
+        assertTrue(routeEdges.size() > 5);
+
+        Response response = app.client().target("http://localhost:8080/mvt/13/4130/3023.mvt").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        assertEquals(VectorTileEncoder.MEDIA_TYPE, response.getMediaType().toString());
+        Set<Long> tileEdges = new HashSet<>();
+        List<String> keys = new ArrayList<>();
+        byte[] tileBytes = response.readEntity(byte[].class);
+        ProtobufReader tile = new ProtobufReader(tileBytes);
+        assertTrue(tile.next());
+        assertEquals(3, tile.getField());
+        ProtobufReader layer = tile.readMessage();
+        assertFalse(tile.next());
+        while (layer.next()) {
+            if (layer.getField() == 1) {
+                assertEquals("roads", layer.readString());
+            } else if (layer.getField() == 2) {
+                ProtobufReader feature = layer.readMessage();
+                assertTrue(feature.next());
+                assertEquals(1, feature.getField());
+                tileEdges.add(feature.readVarint());
+            } else if (layer.getField() == 3) {
+                keys.add(layer.readString());
+            } else {
+                layer.skip();
+            }
+        }
+        assertTrue(keys.containsAll(Arrays.asList("name", "distance", "car_forward", "car_backward", "car_speed", "car_reverse_speed")));
+        assertTrue("missing edges " + routeEdges + " in " + tileEdges, tileEdges.containsAll(routeEdges));
+
+        // the cached tile is returned for the second request
+        byte[] bytes = app.client().target("http://localhost:8080/mvt/13/4130/3023.mvt").request().get(byte[].class);
+        assertArrayEquals(tileBytes, bytes);
+    }
+
+    @Test
+    public void testEmptyTileBelowMinZoom() {
+        Response response = app.client().target("http://localhost:8080/mvt/5/16/11.mvt").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        assertEquals(0, response.readEntity(byte[].class).length);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.util.CmdArgs;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit.DropwizardAppRule;
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.ws.rs.core.Response;
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+public class MatrixResourceTest {
+    private static final String DIR = "./target/andorra-gh/";
+
+    private static final GraphHopperServerConfiguration config = new GraphHopperServerConfiguration();
+
+    static {
+        config.getGraphHopperConfiguration().merge(new CmdArgs().
+                put("graph.flag_encoders", "car").
+                put("prepare.ch.weightings", "fastest").
+                put("prepare.min_network_size", "0").
+                put("prepare.min_one_way_network_size", "0").
+                put("routing.matrix.max_size", "4").
+                put("datareader.file", "../core/files/andorra.osm.pbf").
+                put("graph.location", DIR));
+    }
+
+    @ClassRule
+    public static final DropwizardAppRule<GraphHopperServerConfiguration> app = new DropwizardAppRule(
+            GraphHopperApplication.class, config);
+
+    @AfterClass
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testSymmetricQuery() {
+        final Response response = app.client().target("http://localhost:8080/matrix?point=42.554851,1.536198&point=42.510071,1.548128"
+                + "&out_array=distances&out_array=times&out_array=weights").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        JsonNode distances = json.get("distances");
+        assertEquals(2, distances.size());
+        assertEquals(0, distances.get(0).get(0).asDouble(), 1e-1);
+        double distance = distances.get(0).get(1).asDouble();
+        // the same as the route from RouteResourceTest.testBasicQuery
+        assertTrue("distance wasn't correct:" + distance, distance > 9000);
+        assertTrue("distance wasn't correct:" + distance, distance < 9500);
+        assertTrue(json.get("times").get(1).get(0).asLong() > 0);
+        assertTrue(json.get("weights").get(1).get(0).asDouble() > 0);
+    }
+
+    @Test
+    public void testFromAndToPoints() {
+        final Response response = app.client().target("http://localhost:8080/matrix?from_point=42.554851,1.536198"
+                + "&to_point=42.510071,1.548128&to_point=42.554851,1.536198&to_point=42.531073,1.573792").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertFalse(json.has("distances"));
+        JsonNode weights = json.get("weights");
+        assertEquals(1, weights.size());
+        assertEquals(3, weights.get(0).size());
+        assertEquals(0, weights.get(0).get(1).asDouble(), 1e-1);
+    }
+
+    @Test
+    public void testMissingPoints() {
+        final Response response = app.client().target("http://localhost:8080/matrix?from_point=42.554851,1.536198").request().buildGet().invoke();
+        assertEquals(400, response.getStatus());
+    }
+
+    @Test
+    public void testTooManyPoints() {
+        final Response response = app.client().target("http://localhost:8080/matrix?point=42.554851,1.536198"
+                + "&point=42.510071,1.548128&point=42.531073,1.573792").request().buildGet().invoke();
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText(), json.get("message").asText().contains("3x3"));
+    }
+}
@@ -19,6 +19,8 @@ package com.graphhopper.http.resources;
 
 import com.graphhopper.http.GraphHopperApplication;
 import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.protobuf.ProtobufReader;
+import com.graphhopper.protobuf.RouteProtobuf;
 import com.graphhopper.resources.NearestResource;
 import com.graphhopper.util.CmdArgs;
 import com.graphhopper.util.Helper;
@@ -29,8 +31,12 @@ import org.junit.Test;
 
 import javax.ws.rs.core.Response;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -66,4 +72,30 @@ public class NearestResourceTest {
         NearestResource.Response json = response.readEntity(NearestResource.Response.class);
         assertThat("nearest point", json.coordinates, is(new double[]{1.5363742288086868, 42.55483907636756}));
     }
+
+    @Test
+    public void testNearestProtobuf() {
+        final Response response = app.client().target("http://localhost:8080/nearest?point=42.554851,1.536198&type=protobuf").request().buildGet().invoke();
+        assertThat("HTTP status", response.getStatus(), is(200));
+        assertThat("content type", response.getMediaType().toString(), is(RouteProtobuf.MEDIA_TYPE));
+
+        List<Double> coordinates = new ArrayList<>();
+        double distance = -1;
+        ProtobufReader reader = new ProtobufReader(response.readEntity(byte[].class));
+        while (reader.next()) {
+            if (reader.getField() == 1) {
+                ProtobufReader values = reader.readMessage();
+                while (values.hasRemaining()) {
+                    coordinates.add(values.readDouble());
+                }
+            } else if (reader.getField() == 2) {
+                distance = reader.readDouble();
+            } else {
+                reader.skip();
+            }
+        }
+        assertThat("nearest point", coordinates, is(Arrays.asList(1.5363742288086868, 42.55483907636756)));
+        NearestResource.Response json = app.client().target("http://localhost:8080/nearest?point=42.554851,1.536198").request().get(NearestResource.Response.class);
+        assertEquals(json.distance, distance, 1e-9);
+    }
 }
@@ -25,6 +25,7 @@ import com.graphhopper.PathWrapper;
 import com.graphhopper.api.GraphHopperWeb;
 import com.graphhopper.http.GraphHopperApplication;
 import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.protobuf.RouteProtobuf;
 import com.graphhopper.util.CmdArgs;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.details.PathDetail;
@@ -35,6 +36,7 @@ import org.junit.AfterClass;
 import org.junit.ClassRule;
 import org.junit.Test;
 
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.io.File;
 import java.util.Arrays;
@@ -361,4 +363,30 @@ public class RouteResourceTest {
         assertEquals("The number of 'heading' parameters must be <= 1 or equal to the number of points (1)", json.get("message").asText());
     }
 
+    @Test
+    public void testTypeChoosesFormat() {
+        String url = "http://localhost:8080/route?point=42.554851,1.536198&point=42.510071,1.548128";
+        // the Accept header does not change the format chosen by the type
+        Response response = app.client().target(url + "&type=json").request(RouteProtobuf.MEDIA_TYPE).buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        assertEquals(MediaType.APPLICATION_JSON_TYPE, response.getMediaType());
+        response = app.client().target(url + "&type=protobuf").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        assertEquals(RouteProtobuf.MEDIA_TYPE, response.getMediaType().toString());
+
+        // unknown types fall back to JSON
+        response = app.client().target(url + "&type=csv").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        assertEquals(MediaType.APPLICATION_JSON_TYPE, response.getMediaType());
+        assertTrue(response.readEntity(JsonNode.class).has("paths"));
+    }
+
+    @Test
+    public void testProtobufWithError() {
+        final Response response = app.client().target("http://localhost:8080/route?point=42.554851,1.536198&type=protobuf").request(RouteProtobuf.MEDIA_TYPE).buildGet().invoke();
+        assertEquals(400, response.getStatus());
+        assertEquals(MediaType.APPLICATION_JSON_TYPE, response.getMediaType());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertEquals("At least 2 points have to be specified, but was:1", json.get("message").asText());
+    }
 }